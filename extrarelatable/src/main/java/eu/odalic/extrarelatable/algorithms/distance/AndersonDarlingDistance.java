@@ -0,0 +1,83 @@
+package eu.odalic.extrarelatable.algorithms.distance;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.springframework.stereotype.Component;
+
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+
+/**
+ * Distance measure based on the two-sample Anderson-Darling criterion, i.e. the
+ * mean squared difference of the empirical distribution functions, taken over
+ * the pooled values and weighted by the inverse variance of the pooled
+ * distribution function. The differences in the tails thus weigh more than by
+ * the {@link CramerVonMisesDistance}. It requires the bags of values to be at
+ * least size of {@value #MINIMUM_DATA_SIZE}.
+ *
+ * <p>
+ * The criterion itself is not bounded, it grows up to the logarithm of the
+ * number of the pooled values. So that it can be weighed against the context
+ * dissimilarities, the criterion A is mapped to A / (1 + A), which keeps the
+ * order of the distances and lies between zero and one. The distance is not a
+ * metric.
+ * </p>
+ *
+ * <p>
+ * The criterion is computed by a single linear merge of the sorted samples.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@Immutable
+@Component("andersonDarling")
+public final class AndersonDarlingDistance implements Distance {
+
+	/**
+	 * Minimum required size of the input bags of values.
+	 */
+	public static final int MINIMUM_DATA_SIZE = 2;
+
+	@Override
+	public double compute(final double[] first, final double[] second) {
+		checkNotNull(first);
+		checkNotNull(second);
+
+		return compute(SortedSample.of(first), SortedSample.of(second));
+	}
+
+	@Override
+	public double compute(final SortedSample first, final SortedSample second) {
+		checkNotNull(first);
+		checkNotNull(second);
+		checkArgument(first.size() >= MINIMUM_DATA_SIZE);
+		checkArgument(second.size() >= MINIMUM_DATA_SIZE);
+
+		final int pooledSize = first.size() + second.size();
+
+		final MergedSamples merged = new MergedSamples(first, second);
+
+		double sum = 0;
+		int previousCount = 0;
+		while (merged.next()) {
+			final int count = merged.getFirstCount() + merged.getSecondCount();
+			if (count == pooledSize) {
+				break;
+			}
+
+			final double pooled = count / ((double) pooledSize);
+			final double difference = merged.getDifference();
+
+			sum += difference * difference / (pooled * (1 - pooled)) * (count - previousCount);
+
+			previousCount = count;
+		}
+
+		final double criterion = sum / pooledSize;
+
+		return criterion / (1 + criterion);
+	}
+}
@@ -0,0 +1,68 @@
+package eu.odalic.extrarelatable.algorithms.distance;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.springframework.stereotype.Component;
+
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+
+/**
+ * Distance measure based on the two-sample Cramér-von Mises criterion, i.e. the
+ * mean squared difference of the empirical distribution functions, taken over
+ * the pooled values. Unlike the Kolmogorov-Smirnov distance, it considers the
+ * differences along the whole distributions, not just the greatest one. The
+ * distance lies between zero and one and it is not a metric. It requires the
+ * bags of values to be at least size of {@value #MINIMUM_DATA_SIZE}.
+ *
+ * <p>
+ * The criterion is computed by a single linear merge of the sorted samples.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@Immutable
+@Component("cramerVonMises")
+public final class CramerVonMisesDistance implements Distance {
+
+	/**
+	 * Minimum required size of the input bags of values.
+	 */
+	public static final int MINIMUM_DATA_SIZE = 2;
+
+	@Override
+	public double compute(final double[] first, final double[] second) {
+		checkNotNull(first);
+		checkNotNull(second);
+
+		return compute(SortedSample.of(first), SortedSample.of(second));
+	}
+
+	@Override
+	public double compute(final SortedSample first, final SortedSample second) {
+		checkNotNull(first);
+		checkNotNull(second);
+		checkArgument(first.size() >= MINIMUM_DATA_SIZE);
+		checkArgument(second.size() >= MINIMUM_DATA_SIZE);
+
+		final double pooledSize = first.size() + second.size();
+
+		final MergedSamples merged = new MergedSamples(first, second);
+
+		double sum = 0;
+		int previousCount = 0;
+		while (merged.next()) {
+			final int count = merged.getFirstCount() + merged.getSecondCount();
+			final double difference = merged.getDifference();
+
+			sum += difference * difference * (count - previousCount);
+
+			previousCount = count;
+		}
+
+		return Math.min(1, sum / pooledSize);
+	}
+}
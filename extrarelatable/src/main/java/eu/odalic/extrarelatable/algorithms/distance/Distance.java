@@ -1,5 +1,9 @@
 package eu.odalic.extrarelatable.algorithms.distance;
 
+import eu.odalic.extrarelatable.model.bag.QuantileEnvelope;
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+import eu.odalic.extrarelatable.model.bag.StratifiedSampling;
+
 /**
  * Measures distance (based on the implementation) between two bags of numeric
  * values.
@@ -20,4 +24,93 @@ public interface Distance {
 	 *         depends on implementation)
 	 */
 	double compute(double[] first, double[] second);
+
+	/**
+	 * Measures the distance of two already sorted samples. The default
+	 * implementation just delegates to {@link #compute(double[], double[])}, but
+	 * the implementations are encouraged to take advantage of the ordering.
+	 * 
+	 * @param first
+	 *            first sorted sample
+	 * @param second
+	 *            second sorted sample
+	 * @return measured distance, equal to the one computed by
+	 *         {@link #compute(double[], double[])} for the same values
+	 */
+	default double compute(final SortedSample first, final SortedSample second) {
+		return compute(first.toArray(), second.toArray());
+	}
+
+	/**
+	 * Provides a cheap lower bound of {@link #compute(SortedSample, SortedSample)},
+	 * which allows to skip the full computation when the result would not be
+	 * used anyway. The default implementation provides the trivial bound of zero.
+	 * 
+	 * @param first
+	 *            first sorted sample
+	 * @param second
+	 *            second sorted sample, the implementations may only inspect its
+	 *            few values at chosen ranks
+	 * @return value never greater than the distance computed for the same samples
+	 */
+	default double lowerBound(final SortedSample first, final SortedSample second) {
+		return 0;
+	}
+
+	/**
+	 * Provides a lower bound of the distance of the sample to any other sample
+	 * with all the values within the given range. The default implementation
+	 * provides the trivial bound of zero.
+	 * 
+	 * @param first
+	 *            first sorted sample
+	 * @param minimum
+	 *            the least value of the other samples
+	 * @param maximum
+	 *            the greatest value of the other samples
+	 * @return value never greater than the distance computed for the first sample
+	 *         and any valid sample within the range
+	 */
+	default double lowerBound(final SortedSample first, final double minimum, final double maximum) {
+		return 0;
+	}
+
+	/**
+	 * Provides a lower bound of the distance of the sample to any of the samples
+	 * included in the envelope. The default implementation provides the trivial
+	 * bound of zero.
+	 * 
+	 * @param first
+	 *            first sorted sample
+	 * @param envelope
+	 *            envelope of the quantiles of the other samples
+	 * @return value never greater than the distance computed for the first sample
+	 *         and any valid sample included in the envelope
+	 */
+	default double lowerBound(final SortedSample first, final QuantileEnvelope envelope) {
+		return 0;
+	}
+
+	/**
+	 * Tells whether the distance is a metric, i.e. whether it also satisfies the
+	 * triangle inequality, which is required by the metric indices.
+	 * 
+	 * @return true if the distance is a metric, false by default
+	 */
+	default boolean isMetric() {
+		return false;
+	}
+
+	/**
+	 * Tells whether the distance of two samples differs from the distance of the
+	 * values they were sampled from at most by the sum of the greatest
+	 * differences of their empirical distribution functions, which are bounded
+	 * by {@link StratifiedSampling#getError(int, int)}.
+	 * 
+	 * @return true if the sampling errors bound the error of the distance, false
+	 *         by default
+	 */
+	default boolean isBoundedBySamplingError() {
+		return false;
+	}
 }
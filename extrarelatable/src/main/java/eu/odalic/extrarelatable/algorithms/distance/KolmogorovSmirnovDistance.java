@@ -5,18 +5,27 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import javax.annotation.concurrent.Immutable;
 
-import org.apache.commons.math3.stat.inference.KolmogorovSmirnovTest;
 import org.springframework.stereotype.Component;
 
+import eu.odalic.extrarelatable.model.bag.QuantileEnvelope;
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+
 /**
  * Distance measure based on Kolmogorov-Smirnov two sample test. It requires the
  * bags of values to be at least size of {@value #MINIMUM_DATA_SIZE}.
  * 
+ * <p>
+ * The statistic is computed by a single linear merge of the sorted samples, so
+ * passing {@link SortedSample}s avoids any copying and sorting. The result is
+ * the same as the one of
+ * {@link org.apache.commons.math3.stat.inference.KolmogorovSmirnovTest#kolmogorovSmirnovStatistic(double[], double[])}.
+ * </p>
+ * 
  * @author Václav Brodec
  *
  */
 @Immutable
-@Component
+@Component("kolmogorovSmirnov")
 public final class KolmogorovSmirnovDistance implements Distance {
 
 	/**
@@ -24,16 +33,165 @@ public final class KolmogorovSmirnovDistance implements Distance {
 	 */
 	public static final int MINIMUM_DATA_SIZE = 2;
 
-	private static final KolmogorovSmirnovTest STATISTIC_CALCULATOR = new KolmogorovSmirnovTest();
+	/**
+	 * Number of the values of the second sample (its minimum, deciles and
+	 * maximum) inspected when computing the lower bound.
+	 */
+	public static final int LOWER_BOUND_PROBES_COUNT = 11;
 
 	@Override
 	public double compute(final double[] first, final double[] second) {
 		checkNotNull(first);
 		checkNotNull(second);
-		checkArgument(first.length >= MINIMUM_DATA_SIZE);
-		checkArgument(second.length >= MINIMUM_DATA_SIZE);
 
-		return STATISTIC_CALCULATOR.kolmogorovSmirnovStatistic(first, second);
+		return compute(SortedSample.of(first), SortedSample.of(second));
+	}
+
+	@Override
+	public double compute(final SortedSample first, final SortedSample second) {
+		checkNotNull(first);
+		checkNotNull(second);
+		checkArgument(first.size() >= MINIMUM_DATA_SIZE);
+		checkArgument(second.size() >= MINIMUM_DATA_SIZE);
+
+		return integralStatistic(first, second) / ((double) (first.size() * (long) second.size()));
+	}
+
+	/**
+	 * The statistic is the supremum norm of the difference of the empirical
+	 * distribution functions, hence a metric.
+	 */
+	@Override
+	public boolean isMetric() {
+		return true;
+	}
+
+	/**
+	 * Being the supremum norm, the statistic changes at most by the sum of the
+	 * changes of the distribution functions.
+	 */
+	@Override
+	public boolean isBoundedBySamplingError() {
+		return true;
 	}
 
+	/**
+	 * Each probe of the second sample at the rank {@code j} with the value
+	 * {@code v} guarantees that its distribution function is at least
+	 * {@code (j + 1) / m} at {@code v} and at most {@code j / m} just below it,
+	 * while the distribution function of the first sample is found exactly by a
+	 * binary search. The differences are kept in the same integral form as the
+	 * statistic itself, so the bound never exceeds the computed distance, not
+	 * even due to rounding.
+	 */
+	@Override
+	public double lowerBound(final SortedSample first, final SortedSample second) {
+		checkNotNull(first);
+		checkNotNull(second);
+
+		final int n = first.size();
+		final int m = second.size();
+		if (n < MINIMUM_DATA_SIZE || m < MINIMUM_DATA_SIZE) {
+			return 0;
+		}
+
+		long bound = 0;
+		for (int probe = 0; probe < LOWER_BOUND_PROBES_COUNT; probe++) {
+			final int rank = (int) (probe * (long) (m - 1) / (LOWER_BOUND_PROBES_COUNT - 1));
+			final double value = second.get(rank);
+
+			final long secondAbove = (rank + 1) * (long) n - first.countAtMost(value) * (long) m;
+			final long firstAbove = first.countLessThan(value) * (long) m - rank * (long) n;
+
+			bound = Math.max(bound, Math.max(secondAbove, firstAbove));
+		}
+
+		return bound / ((double) (n * (long) m));
+	}
+
+	/**
+	 * The distribution function of any sample within the range is zero below the
+	 * minimum and one at the maximum, so it differs from the first one at least
+	 * by the share of the values of the first sample outside the range.
+	 */
+	@Override
+	public double lowerBound(final SortedSample first, final double minimum, final double maximum) {
+		checkNotNull(first);
+
+		final int n = first.size();
+		if (n < MINIMUM_DATA_SIZE) {
+			return 0;
+		}
+
+		final int below = first.countLessThan(minimum);
+		final int above = n - first.countAtMost(maximum);
+
+		return Math.max(below, above) / ((double) n);
+	}
+
+	/**
+	 * At the upper bound of the level {@code p} the distribution function of any
+	 * enveloped sample is at least {@code p}, while just below the lower bound it
+	 * is at most {@code p}, so it differs from the first one at least by the
+	 * share of the values of the first sample beyond these bounds.
+	 */
+	@Override
+	public double lowerBound(final SortedSample first, final QuantileEnvelope envelope) {
+		checkNotNull(first);
+		checkNotNull(envelope);
+
+		final int n = first.size();
+		if (n < MINIMUM_DATA_SIZE) {
+			return 0;
+		}
+
+		final long intervals = QuantileEnvelope.INTERVALS_COUNT;
+
+		long bound = 0;
+		for (int level = 0; level <= QuantileEnvelope.INTERVALS_COUNT; level++) {
+			final long levelAbove = level * (long) n - first.countAtMost(envelope.getUpperBound(level)) * intervals;
+			final long firstAbove = first.countLessThan(envelope.getLowerBound(level)) * intervals - level * (long) n;
+
+			bound = Math.max(bound, Math.max(levelAbove, firstAbove));
+		}
+
+		return bound / ((double) (n * intervals));
+	}
+
+	/**
+	 * Computes the maximum difference of the empirical distribution functions,
+	 * scaled by the product of the sample sizes, so that only integer arithmetic
+	 * is needed.
+	 */
+	private static long integralStatistic(final SortedSample first, final SortedSample second) {
+		final int n = first.size();
+		final int m = second.size();
+
+		int rankFirst = 0;
+		int rankSecond = 0;
+		long current = 0;
+		long supremum = 0;
+		do {
+			final double firstValue = first.get(rankFirst);
+			final double secondValue = second.get(rankSecond);
+			final double z = Double.compare(firstValue, secondValue) <= 0 ? firstValue : secondValue;
+
+			while (rankFirst < n && Double.compare(first.get(rankFirst), z) == 0) {
+				rankFirst++;
+				current += m;
+			}
+			while (rankSecond < m && Double.compare(second.get(rankSecond), z) == 0) {
+				rankSecond++;
+				current -= n;
+			}
+
+			if (current > supremum) {
+				supremum = current;
+			} else if (-current > supremum) {
+				supremum = -current;
+			}
+		} while (rankFirst < n && rankSecond < m);
+
+		return supremum;
+	}
 }
@@ -0,0 +1,98 @@
+package eu.odalic.extrarelatable.algorithms.distance;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+
+/**
+ * Cursor over the distinct values of two merged {@link SortedSample}s, in
+ * ascending order, which tracks the numbers of the values of each sample less
+ * than or equal to the current one. The empirical distribution functions of
+ * both samples are thus walked through in a single linear pass, shared by the
+ * distances based on them.
+ *
+ * @author Václav Brodec
+ *
+ */
+@NotThreadSafe
+final class MergedSamples {
+
+	private final SortedSample first;
+	private final SortedSample second;
+
+	private int firstCount;
+	private int secondCount;
+	private double value;
+
+	MergedSamples(final SortedSample first, final SortedSample second) {
+		this.first = first;
+		this.second = second;
+		this.firstCount = 0;
+		this.secondCount = 0;
+		this.value = Double.NaN;
+	}
+
+	/**
+	 * Moves to the next distinct value of the merged samples.
+	 *
+	 * @return false if there are no more values
+	 */
+	boolean next() {
+		final int n = first.size();
+		final int m = second.size();
+
+		if (firstCount == n && secondCount == m) {
+			return false;
+		}
+
+		if (firstCount == n) {
+			value = second.get(secondCount);
+		} else if (secondCount == m) {
+			value = first.get(firstCount);
+		} else {
+			final double firstValue = first.get(firstCount);
+			final double secondValue = second.get(secondCount);
+			value = Double.compare(firstValue, secondValue) <= 0 ? firstValue : secondValue;
+		}
+
+		while (firstCount < n && Double.compare(first.get(firstCount), value) == 0) {
+			firstCount++;
+		}
+		while (secondCount < m && Double.compare(second.get(secondCount), value) == 0) {
+			secondCount++;
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return the current value
+	 */
+	double getValue() {
+		return value;
+	}
+
+	/**
+	 * @return the number of the values of the first sample less than or equal to
+	 *         the current one
+	 */
+	int getFirstCount() {
+		return firstCount;
+	}
+
+	/**
+	 * @return the number of the values of the second sample less than or equal to
+	 *         the current one
+	 */
+	int getSecondCount() {
+		return secondCount;
+	}
+
+	/**
+	 * @return the difference of the empirical distribution functions of the
+	 *         first and the second sample at the current value
+	 */
+	double getDifference() {
+		return firstCount / ((double) first.size()) - secondCount / ((double) second.size());
+	}
+}
@@ -0,0 +1,134 @@
+package eu.odalic.extrarelatable.algorithms.distance;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.springframework.stereotype.Component;
+
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+
+/**
+ * Distance measure based on the Wasserstein-1 (earth mover's) distance of the
+ * empirical distributions, i.e. the area between their distribution functions.
+ * To make the distances of the columns of various scales comparable, the area
+ * is divided by the range of the values of both samples, so the distance lies
+ * between zero and one. Due to that it is no longer a metric. It requires the
+ * bags of values to be at least size of {@value #MINIMUM_DATA_SIZE}.
+ *
+ * <p>
+ * The area is computed by a single linear merge of the sorted samples. Unlike
+ * the Kolmogorov-Smirnov distance, it takes into account how far apart the
+ * values are, not just their order.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@Immutable
+@Component("wasserstein")
+public final class WassersteinDistance implements Distance {
+
+	/**
+	 * Minimum required size of the input bags of values.
+	 */
+	public static final int MINIMUM_DATA_SIZE = 2;
+
+	/**
+	 * Relative margin by which the lower bounds are decreased, so that rounding
+	 * never makes them exceed the computed distance.
+	 */
+	private static final double LOWER_BOUND_MARGIN = 1e-9;
+
+	@Override
+	public double compute(final double[] first, final double[] second) {
+		checkNotNull(first);
+		checkNotNull(second);
+
+		return compute(SortedSample.of(first), SortedSample.of(second));
+	}
+
+	@Override
+	public double compute(final SortedSample first, final SortedSample second) {
+		checkNotNull(first);
+		checkNotNull(second);
+		checkArgument(first.size() >= MINIMUM_DATA_SIZE);
+		checkArgument(second.size() >= MINIMUM_DATA_SIZE);
+
+		final double range = getRange(first, second);
+		if (range == 0) {
+			return 0;
+		}
+
+		final MergedSamples merged = new MergedSamples(first, second);
+		merged.next();
+
+		double area = 0;
+		double previousValue = merged.getValue();
+		double previousDifference = merged.getDifference();
+		while (merged.next()) {
+			final double value = merged.getValue();
+
+			area += Math.abs(previousDifference) * (value - previousValue);
+
+			previousValue = value;
+			previousDifference = merged.getDifference();
+		}
+
+		return Math.min(1, area / range);
+	}
+
+	/**
+	 * The area between the distribution functions is at least the absolute value
+	 * of the integral of their difference, which is the difference of the means.
+	 */
+	@Override
+	public double lowerBound(final SortedSample first, final SortedSample second) {
+		checkNotNull(first);
+		checkNotNull(second);
+
+		if (first.size() < MINIMUM_DATA_SIZE || second.size() < MINIMUM_DATA_SIZE) {
+			return 0;
+		}
+
+		final double range = getRange(first, second);
+		if (range == 0) {
+			return 0;
+		}
+
+		return shrink(Math.abs(first.getMean() - second.getMean()) / range);
+	}
+
+	/**
+	 * The mean of any sample within the range lies within it as well, while the
+	 * range of the values of both samples can be at most the range spanning the
+	 * first sample and the given range.
+	 */
+	@Override
+	public double lowerBound(final SortedSample first, final double minimum, final double maximum) {
+		checkNotNull(first);
+
+		if (first.size() < MINIMUM_DATA_SIZE) {
+			return 0;
+		}
+
+		final double range = Math.max(first.getMaximum(), maximum) - Math.min(first.getMinimum(), minimum);
+		if (range == 0) {
+			return 0;
+		}
+
+		final double mean = first.getMean();
+		final double gap = mean < minimum ? minimum - mean : (mean > maximum ? mean - maximum : 0);
+
+		return shrink(gap / range);
+	}
+
+	private static double getRange(final SortedSample first, final SortedSample second) {
+		return Math.max(first.getMaximum(), second.getMaximum()) - Math.min(first.getMinimum(), second.getMinimum());
+	}
+
+	private static double shrink(final double bound) {
+		return Math.max(0, Math.min(1, bound) * (1 - LOWER_BOUND_MARGIN));
+	}
+}
@@ -1,8 +1,11 @@
 package eu.odalic.extrarelatable.algorithms.graph;
 
+import java.util.List;
 import java.util.Map;
 
+import eu.odalic.extrarelatable.algorithms.graph.matching.MatchingBudget;
 import eu.odalic.extrarelatable.model.annotation.Annotation;
+import eu.odalic.extrarelatable.model.annotation.MultiGraphAnnotations;
 import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
 import eu.odalic.extrarelatable.model.table.DeclaredEntity;
 import eu.odalic.extrarelatable.model.table.SlicedTable;
@@ -74,4 +77,210 @@ public interface Annotator {
 			Map<? extends Integer, ? extends DeclaredEntity> contextProperties,
 			Map<? extends Integer, ? extends DeclaredEntity> contextClasses, final boolean onlyDeclaredAsContext,
 			int k);
+
+	/**
+	 * Annotates numeric columns from the input {@link SlicedTable}, using the
+	 * provided context, within the budget of the matching of the graph. When the
+	 * budget runs out, the annotations are based on the best matching nodes found
+	 * until then, which is recorded in the budget.
+	 * 
+	 * @param graph
+	 *            background knowledge graph serving as the basis for the
+	 *            annotations
+	 * @param slicedTable
+	 *            the input table
+	 * @param declaredProperties
+	 *            manually curated properties assigned to the indexed columns
+	 * @param declaredClasses
+	 *            manually curated classes assigned to the indexed columns
+	 * @param contextProperties
+	 *            automatically collected properties for the indexed columns
+	 * @param contextClasses
+	 *            automatically collected classes assigned for the indexed columns
+	 * @param onlyDeclaredAsContext
+	 *            only the declared properties and columns are used as additional
+	 *            context
+	 * @param budget
+	 *            the budget of the matching
+	 * @return the map of indices of numeric columns to annotations
+	 */
+	Map<Integer, Annotation> annotate(BackgroundKnowledgeGraph graph, SlicedTable slicedTable,
+			Map<? extends Integer, ? extends DeclaredEntity> declaredProperties,
+			Map<? extends Integer, ? extends DeclaredEntity> declaredClasses,
+			Map<? extends Integer, ? extends DeclaredEntity> contextProperties,
+			Map<? extends Integer, ? extends DeclaredEntity> contextClasses, final boolean onlyDeclaredAsContext,
+			MatchingBudget budget);
+
+	/**
+	 * Annotates numeric columns from the input {@link SlicedTable}, using the
+	 * provided context, within the budget of the matching of the graph. When the
+	 * budget runs out, the annotations are based on the best matching nodes found
+	 * until then, which is recorded in the budget.
+	 * 
+	 * @param graph
+	 *            background knowledge graph serving as the basis for the
+	 *            annotations
+	 * @param slicedTable
+	 *            the input table
+	 * @param declaredProperties
+	 *            manually curated properties assigned to the indexed columns
+	 * @param declaredClasses
+	 *            manually curated classes assigned to the indexed columns
+	 * @param contextProperties
+	 *            automatically collected properties for the indexed columns
+	 * @param contextClasses
+	 *            automatically collected classes assigned for the indexed columns
+	 * @param onlyDeclaredAsContext
+	 *            only the declared properties and columns are used as additional
+	 *            context
+	 * @param k
+	 *            the maximum number of the top properties, labels or other parts of
+	 *            each annotation returned in the result
+	 * @param budget
+	 *            the budget of the matching
+	 * @return the map of indices of numeric columns to annotations
+	 */
+	Map<Integer, Annotation> annotate(BackgroundKnowledgeGraph graph, SlicedTable slicedTable,
+			Map<? extends Integer, ? extends DeclaredEntity> declaredProperties,
+			Map<? extends Integer, ? extends DeclaredEntity> declaredClasses,
+			Map<? extends Integer, ? extends DeclaredEntity> contextProperties,
+			Map<? extends Integer, ? extends DeclaredEntity> contextClasses, final boolean onlyDeclaredAsContext,
+			int k, MatchingBudget budget);
+
+	/**
+	 * Annotates numeric columns from the input {@link SlicedTable} against
+	 * several graphs at once, using the provided context, within the budget of
+	 * the matching of all the graphs. The table is processed just once and
+	 * matched against each of the graphs, yielding the annotations based on each
+	 * of them and on the best matches from all of them merged.
+	 * 
+	 * @param graphs
+	 *            background knowledge graphs serving as the basis for the
+	 *            annotations
+	 * @param slicedTable
+	 *            the input table
+	 * @param declaredProperties
+	 *            manually curated properties assigned to the indexed columns
+	 * @param declaredClasses
+	 *            manually curated classes assigned to the indexed columns
+	 * @param contextProperties
+	 *            automatically collected properties for the indexed columns
+	 * @param contextClasses
+	 *            automatically collected classes assigned for the indexed columns
+	 * @param onlyDeclaredAsContext
+	 *            only the declared properties and columns are used as additional
+	 *            context
+	 * @param budget
+	 *            the budget of the matching
+	 * @return the annotations based on each of the graphs and on all of them
+	 */
+	MultiGraphAnnotations annotate(List<? extends BackgroundKnowledgeGraph> graphs, SlicedTable slicedTable,
+			Map<? extends Integer, ? extends DeclaredEntity> declaredProperties,
+			Map<? extends Integer, ? extends DeclaredEntity> declaredClasses,
+			Map<? extends Integer, ? extends DeclaredEntity> contextProperties,
+			Map<? extends Integer, ? extends DeclaredEntity> contextClasses, final boolean onlyDeclaredAsContext,
+			MatchingBudget budget);
+
+	/**
+	 * Annotates numeric columns from the input {@link SlicedTable} against
+	 * several graphs at once, using the provided context, within the budget of
+	 * the matching of all the graphs. The table is processed just once and
+	 * matched against each of the graphs, yielding the annotations based on each
+	 * of them and on the best matches from all of them merged.
+	 * 
+	 * @param graphs
+	 *            background knowledge graphs serving as the basis for the
+	 *            annotations
+	 * @param slicedTable
+	 *            the input table
+	 * @param declaredProperties
+	 *            manually curated properties assigned to the indexed columns
+	 * @param declaredClasses
+	 *            manually curated classes assigned to the indexed columns
+	 * @param contextProperties
+	 *            automatically collected properties for the indexed columns
+	 * @param contextClasses
+	 *            automatically collected classes assigned for the indexed columns
+	 * @param onlyDeclaredAsContext
+	 *            only the declared properties and columns are used as additional
+	 *            context
+	 * @param k
+	 *            the maximum number of the top properties, labels or other parts of
+	 *            each annotation returned in the result
+	 * @param budget
+	 *            the budget of the matching
+	 * @return the annotations based on each of the graphs and on all of them
+	 */
+	MultiGraphAnnotations annotate(List<? extends BackgroundKnowledgeGraph> graphs, SlicedTable slicedTable,
+			Map<? extends Integer, ? extends DeclaredEntity> declaredProperties,
+			Map<? extends Integer, ? extends DeclaredEntity> declaredClasses,
+			Map<? extends Integer, ? extends DeclaredEntity> contextProperties,
+			Map<? extends Integer, ? extends DeclaredEntity> contextClasses, final boolean onlyDeclaredAsContext,
+			int k, MatchingBudget budget);
+
+	/**
+	 * Annotates numeric columns from the input {@link SlicedTable}, using the
+	 * provided context, and keeps the annotations so that they can be brought up
+	 * to date as the graph learns, without matching the columns against the whole
+	 * graph again.
+	 * 
+	 * @param graph
+	 *            background knowledge graph serving as the basis for the
+	 *            annotations
+	 * @param slicedTable
+	 *            the input table
+	 * @param declaredProperties
+	 *            manually curated properties assigned to the indexed columns
+	 * @param declaredClasses
+	 *            manually curated classes assigned to the indexed columns
+	 * @param contextProperties
+	 *            automatically collected properties for the indexed columns
+	 * @param contextClasses
+	 *            automatically collected classes assigned for the indexed columns
+	 * @param onlyDeclaredAsContext
+	 *            only the declared properties and columns are used as additional
+	 *            context
+	 * @return the standing annotations, up to date with the current content of
+	 *         the graph
+	 */
+	StandingAnnotation annotateStanding(BackgroundKnowledgeGraph graph, SlicedTable slicedTable,
+			Map<? extends Integer, ? extends DeclaredEntity> declaredProperties,
+			Map<? extends Integer, ? extends DeclaredEntity> declaredClasses,
+			Map<? extends Integer, ? extends DeclaredEntity> contextProperties,
+			Map<? extends Integer, ? extends DeclaredEntity> contextClasses, final boolean onlyDeclaredAsContext);
+
+	/**
+	 * Annotates numeric columns from the input {@link SlicedTable}, using the
+	 * provided context, and keeps the annotations so that they can be brought up
+	 * to date as the graph learns, without matching the columns against the whole
+	 * graph again.
+	 * 
+	 * @param graph
+	 *            background knowledge graph serving as the basis for the
+	 *            annotations
+	 * @param slicedTable
+	 *            the input table
+	 * @param declaredProperties
+	 *            manually curated properties assigned to the indexed columns
+	 * @param declaredClasses
+	 *            manually curated classes assigned to the indexed columns
+	 * @param contextProperties
+	 *            automatically collected properties for the indexed columns
+	 * @param contextClasses
+	 *            automatically collected classes assigned for the indexed columns
+	 * @param onlyDeclaredAsContext
+	 *            only the declared properties and columns are used as additional
+	 *            context
+	 * @param k
+	 *            the maximum number of the top properties, labels or other parts of
+	 *            each annotation returned in the result
+	 * @return the standing annotations, up to date with the current content of
+	 *         the graph
+	 */
+	StandingAnnotation annotateStanding(BackgroundKnowledgeGraph graph, SlicedTable slicedTable,
+			Map<? extends Integer, ? extends DeclaredEntity> declaredProperties,
+			Map<? extends Integer, ? extends DeclaredEntity> declaredClasses,
+			Map<? extends Integer, ? extends DeclaredEntity> contextProperties,
+			Map<? extends Integer, ? extends DeclaredEntity> contextClasses, final boolean onlyDeclaredAsContext,
+			int k);
 }
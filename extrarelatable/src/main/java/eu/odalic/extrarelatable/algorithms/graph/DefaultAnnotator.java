@@ -9,6 +9,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.ThreadSafe;
+
 import org.apache.commons.math3.stat.descriptive.moment.Mean;
 import org.apache.commons.math3.stat.descriptive.rank.Median;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -22,10 +30,14 @@ import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.SetMultimap;
 
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
 import eu.odalic.extrarelatable.algorithms.graph.aggregation.ResultAggregator;
+import eu.odalic.extrarelatable.algorithms.graph.matching.MatchingBudget;
+import eu.odalic.extrarelatable.algorithms.graph.matching.StandingMatching;
 import eu.odalic.extrarelatable.algorithms.graph.matching.TopKNodesMatcher;
 import eu.odalic.extrarelatable.model.annotation.Annotation;
 import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.annotation.MultiGraphAnnotations;
 import eu.odalic.extrarelatable.model.annotation.Statistics;
 import eu.odalic.extrarelatable.model.bag.AttributeValuePair;
 import eu.odalic.extrarelatable.model.bag.Label;
@@ -47,10 +59,12 @@ public final class DefaultAnnotator implements Annotator {
 
 	private final PropertyTreeBuilder propertyTreeBuilder;
 	private final TopKNodesMatcher topKNodesMatcher;
+	private final Distance distance;
 	private final ResultAggregator<MeasuredNode> labelsResultAggregator;
 	private final ResultAggregator<MeasuredNode> propertiesResultAggregator;
 	private final ResultAggregator<MeasuredNode> pairsResultAggregator;
 	private final int defaultK;
+	private final ExecutorService executor;
 
 	/**
 	 * Constructs the annotator.
@@ -61,6 +75,9 @@ public final class DefaultAnnotator implements Annotator {
 	 *            from the graph
 	 * @param topKNodesMatcher
 	 *            retrieves the top K nodes from the graph closest to input node
+	 * @param distance
+	 *            distance of the values used by the matcher, consulted on the
+	 *            error caused by the sampling of the values
 	 * @param propertiesResultAggregator
 	 *            aggregates the top K nodes by their shared properties
 	 * @param labelsResultAggregator
@@ -70,25 +87,47 @@ public final class DefaultAnnotator implements Annotator {
 	 * @param defaultK
 	 *            default maximum number of the top properties, labels or other
 	 *            parts of each annotation returned in the result
+	 * @param parallelism
+	 *            number of the threads matching the additional graphs when
+	 *            annotating against several graphs at once, zero to use the number
+	 *            of the available processors
 	 */
-	public DefaultAnnotator(final PropertyTreeBuilder propertyTreeBuilder, final TopKNodesMatcher topKNodesMatcher,
+	public DefaultAnnotator(final PropertyTreeBuilder propertyTreeBuilder,
+			@Qualifier("TopKNodesMatcher") final TopKNodesMatcher topKNodesMatcher,
+			@Qualifier("Distance") final Distance distance,
 			@Qualifier("PropertiesResultAggregator") final ResultAggregator<MeasuredNode> propertiesResultAggregator,
 			@Qualifier("LabelsResultAggregator") final ResultAggregator<MeasuredNode> labelsResultAggregator,
 			@Qualifier("PairsResultAggregator") final ResultAggregator<MeasuredNode> pairsResultAggregator,
-			@Value("${eu.odalic.extrarelatable.topKAggregatedResults:3}") final int defaultK) {
+			@Value("${eu.odalic.extrarelatable.topKAggregatedResults:3}") final int defaultK,
+			@Value("${eu.odalic.extrarelatable.annotationParallelism:0}") final int parallelism) {
 		checkNotNull(propertyTreeBuilder);
 		checkNotNull(topKNodesMatcher);
+		checkNotNull(distance);
 		checkNotNull(propertiesResultAggregator);
 		checkNotNull(labelsResultAggregator);
 		checkNotNull(pairsResultAggregator);
 		checkArgument(defaultK >= 1, "The default k must be at least one!");
+		checkArgument(parallelism >= 0, "The parallelism must be at least zero!");
 
 		this.propertyTreeBuilder = propertyTreeBuilder;
 		this.topKNodesMatcher = topKNodesMatcher;
+		this.distance = distance;
 		this.propertiesResultAggregator = propertiesResultAggregator;
 		this.labelsResultAggregator = labelsResultAggregator;
 		this.pairsResultAggregator = pairsResultAggregator;
 		this.defaultK = defaultK;
+		this.executor = Executors.newFixedThreadPool(
+				parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism, runnable -> {
+					final Thread thread = new Thread(runnable, "multi-graph-annotator");
+					thread.setDaemon(true);
+
+					return thread;
+				});
+	}
+
+	@PreDestroy
+	public void cleanUp() {
+		this.executor.shutdownNow();
 	}
 
 	@Override
@@ -98,21 +137,223 @@ public final class DefaultAnnotator implements Annotator {
 			final Map<? extends Integer, ? extends DeclaredEntity> contextProperties,
 			final Map<? extends Integer, ? extends DeclaredEntity> contextClasses, final boolean onlyDeclaredAsContext,
 			final int k) {
+		return annotate(graph, slicedTable, declaredProperties, declaredClasses, contextProperties, contextClasses,
+				onlyDeclaredAsContext, k, MatchingBudget.unlimited());
+	}
+
+	@Override
+	public Map<Integer, Annotation> annotate(final BackgroundKnowledgeGraph graph, final SlicedTable slicedTable,
+			final Map<? extends Integer, ? extends DeclaredEntity> declaredProperties,
+			final Map<? extends Integer, ? extends DeclaredEntity> declaredClasses,
+			final Map<? extends Integer, ? extends DeclaredEntity> contextProperties,
+			final Map<? extends Integer, ? extends DeclaredEntity> contextClasses, final boolean onlyDeclaredAsContext,
+			final int k, final MatchingBudget budget) {
 		checkNotNull(graph);
 		checkNotNull(slicedTable);
 		checkArgument(k >= 1, "The k must be at least one!");
+		checkNotNull(budget);
 
-		final ImmutableMap.Builder<Integer, Annotation> builder = ImmutableMap.builder();
+		final Set<Integer> columnIndices = slicedTable.getDataColumns().keySet();
+		final int[] treeSizes = new int[columnIndices.size()];
+		final List<Node> matchedNodes = build(slicedTable, columnIndices, treeSizes, declaredProperties,
+				declaredClasses, contextProperties, contextClasses, onlyDeclaredAsContext);
+
+		// All the nodes of all the columns are matched together, in a single pass over the graph.
+		final List<SortedSet<MeasuredNode>> matchingNodes = this.topKNodesMatcher.matchAll(graph, matchedNodes,
+				budget);
+
+		return aggregate(columnIndices, treeSizes, matchedNodes, ImmutableList.of(matchingNodes), k);
+	}
+
+	@Override
+	public MultiGraphAnnotations annotate(final List<? extends BackgroundKnowledgeGraph> graphs,
+			final SlicedTable slicedTable, final Map<? extends Integer, ? extends DeclaredEntity> declaredProperties,
+			final Map<? extends Integer, ? extends DeclaredEntity> declaredClasses,
+			final Map<? extends Integer, ? extends DeclaredEntity> contextProperties,
+			final Map<? extends Integer, ? extends DeclaredEntity> contextClasses, final boolean onlyDeclaredAsContext,
+			final int k, final MatchingBudget budget) {
+		checkNotNull(graphs);
+		checkArgument(!graphs.isEmpty(), "There must be at least one graph!");
+		checkNotNull(slicedTable);
+		checkArgument(k >= 1, "The k must be at least one!");
+		checkNotNull(budget);
+
+		final Set<Integer> columnIndices = slicedTable.getDataColumns().keySet();
+		final int[] treeSizes = new int[columnIndices.size()];
+		final List<Node> matchedNodes = build(slicedTable, columnIndices, treeSizes, declaredProperties,
+				declaredClasses, contextProperties, contextClasses, onlyDeclaredAsContext);
+
+		// The graphs other than the first one are matched concurrently, while the first one in this thread.
+		final List<CompletableFuture<List<SortedSet<MeasuredNode>>>> futureMatchingNodes = graphs
+				.subList(1, graphs.size()).stream()
+				.map(graph -> CompletableFuture
+						.supplyAsync(() -> this.topKNodesMatcher.matchAll(graph, matchedNodes, budget), this.executor))
+				.collect(ImmutableList.toImmutableList());
+
+		final ImmutableList.Builder<List<SortedSet<MeasuredNode>>> graphsMatchingNodesBuilder = ImmutableList
+				.builder();
+		graphsMatchingNodesBuilder.add(this.topKNodesMatcher.matchAll(graphs.get(0), matchedNodes, budget));
+		for (final CompletableFuture<List<SortedSet<MeasuredNode>>> matchingNodes : futureMatchingNodes) {
+			graphsMatchingNodesBuilder.add(join(matchingNodes));
+		}
+		final List<List<SortedSet<MeasuredNode>>> graphsMatchingNodes = graphsMatchingNodesBuilder.build();
+
+		final ImmutableMap.Builder<String, Map<Integer, Annotation>> graphsAnnotationsBuilder = ImmutableMap
+				.builder();
+		for (int graphIndex = 0; graphIndex < graphs.size(); graphIndex++) {
+			graphsAnnotationsBuilder.put(graphs.get(graphIndex).getName(), aggregate(columnIndices, treeSizes,
+					matchedNodes, ImmutableList.of(graphsMatchingNodes.get(graphIndex)), k));
+		}
+
+		return new MultiGraphAnnotations(graphsAnnotationsBuilder.build(),
+				aggregate(columnIndices, treeSizes, matchedNodes, graphsMatchingNodes, k));
+	}
+
+	@Override
+	public StandingAnnotation annotateStanding(final BackgroundKnowledgeGraph graph, final SlicedTable slicedTable,
+			final Map<? extends Integer, ? extends DeclaredEntity> declaredProperties,
+			final Map<? extends Integer, ? extends DeclaredEntity> declaredClasses,
+			final Map<? extends Integer, ? extends DeclaredEntity> contextProperties,
+			final Map<? extends Integer, ? extends DeclaredEntity> contextClasses, final boolean onlyDeclaredAsContext,
+			final int k) {
+		checkNotNull(graph);
+		checkNotNull(slicedTable);
+		checkArgument(k >= 1, "The k must be at least one!");
+
+		final Set<Integer> columnIndices = slicedTable.getDataColumns().keySet();
+		final int[] treeSizes = new int[columnIndices.size()];
+		final List<Node> matchedNodes = build(slicedTable, columnIndices, treeSizes, declaredProperties,
+				declaredClasses, contextProperties, contextClasses, onlyDeclaredAsContext);
+
+		return new DefaultStandingAnnotation(columnIndices, treeSizes,
+				this.topKNodesMatcher.matchStanding(graph, matchedNodes), k);
+	}
+
+	/**
+	 * Standing annotation kept along with the standing matching of the nodes of
+	 * the column trees, which is aggregated again only when it changes.
+	 */
+	@ThreadSafe
+	private final class DefaultStandingAnnotation implements StandingAnnotation {
+
+		private final Set<Integer> columnIndices;
+		private final int[] treeSizes;
+		private final StandingMatching matching;
+		private final int k;
+
+		private volatile Map<Integer, Annotation> annotations;
+
+		DefaultStandingAnnotation(final Set<Integer> columnIndices, final int[] treeSizes,
+				final StandingMatching matching, final int k) {
+			this.columnIndices = columnIndices;
+			this.treeSizes = treeSizes;
+			this.matching = matching;
+			this.k = k;
+
+			this.annotations = aggregate(columnIndices, treeSizes, matching.getMatchedNodes(),
+					ImmutableList.of(matching.getMatchingNodes()), k);
+		}
+
+		@Override
+		public BackgroundKnowledgeGraph getGraph() {
+			return this.matching.getGraph();
+		}
+
+		@Override
+		public Map<Integer, Annotation> getAnnotations() {
+			return this.annotations;
+		}
 
-		slicedTable.getDataColumns().keySet().forEach(columnIndex -> {
+		@Override
+		public synchronized boolean update() {
+			if (!this.matching.update()) {
+				return false;
+			}
+
+			this.annotations = aggregate(this.columnIndices, this.treeSizes, this.matching.getMatchedNodes(),
+					ImmutableList.of(this.matching.getMatchingNodes()), this.k);
+
+			return true;
+		}
+	}
+
+	private static <T> T join(final CompletableFuture<T> future) {
+		try {
+			return future.join();
+		} catch (final CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Builds the property trees of the numeric columns and lists all their nodes,
+	 * column by column, recording the number of nodes of each tree.
+	 */
+	private List<Node> build(final SlicedTable slicedTable, final Set<Integer> columnIndices, final int[] treeSizes,
+			final Map<? extends Integer, ? extends DeclaredEntity> declaredProperties,
+			final Map<? extends Integer, ? extends DeclaredEntity> declaredClasses,
+			final Map<? extends Integer, ? extends DeclaredEntity> contextProperties,
+			final Map<? extends Integer, ? extends DeclaredEntity> contextClasses,
+			final boolean onlyDeclaredAsContext) {
+		final ImmutableList.Builder<Node> matchedNodesBuilder = ImmutableList.builder();
+		int treeIndex = 0;
+		for (final Integer columnIndex : columnIndices) {
 			final PropertyTree tree = this.propertyTreeBuilder.build(slicedTable, columnIndex, declaredProperties,
 					declaredClasses, contextProperties, contextClasses, false, onlyDeclaredAsContext);
 
+			for (final Node node : tree) {
+				matchedNodesBuilder.add(node);
+				treeSizes[treeIndex]++;
+			}
+			treeIndex++;
+		}
+
+		return matchedNodesBuilder.build();
+	}
+
+	/**
+	 * Aggregates the nodes matching the nodes of the trees of each column, taken
+	 * together from all the given results of the matching, into annotations. The
+	 * distance of a matched node and a matching one differs from the distance of
+	 * the values they were sampled from at most by the sum of their sampling
+	 * errors, so the annotation is accompanied by the largest such sum. That
+	 * holds only for the distances bounded by the sampling error, for the others
+	 * the error is unknown once any of the values were sampled.
+	 */
+	private Map<Integer, Annotation> aggregate(final Set<Integer> columnIndices, final int[] treeSizes,
+			final List<Node> matchedNodes, final List<List<SortedSet<MeasuredNode>>> matchingNodes, final int k) {
+		final ImmutableMap.Builder<Integer, Annotation> builder = ImmutableMap.builder();
+
+		int treeIndex = 0;
+		int treeOffset = 0;
+		for (final Integer columnIndex : columnIndices) {
 			final ImmutableMultiset.Builder<MeasuredNode> treeMatchingNodesBuilder = ImmutableMultiset.builder();
 
-			for (final Node node : tree) {
-				final SortedSet<MeasuredNode> matchingNodes = this.topKNodesMatcher.match(graph, node);
-				treeMatchingNodesBuilder.addAll(matchingNodes);
+			double samplingError = 0;
+			for (final List<SortedSet<MeasuredNode>> graphMatchingNodes : matchingNodes) {
+				for (int nodeIndex = 0; nodeIndex < treeSizes[treeIndex]; nodeIndex++) {
+					final SortedSet<MeasuredNode> nodeMatchingNodes = graphMatchingNodes.get(treeOffset + nodeIndex);
+					treeMatchingNodesBuilder.addAll(nodeMatchingNodes);
+
+					final double matchedSamplingError = matchedNodes.get(treeOffset + nodeIndex).getSamplingError();
+					for (final MeasuredNode matchingNode : nodeMatchingNodes) {
+						samplingError = Math.max(samplingError,
+								matchedSamplingError + matchingNode.getNode().getSamplingError());
+					}
+				}
+			}
+			treeOffset += treeSizes[treeIndex];
+			treeIndex++;
+
+			if (samplingError > 0 && !distance.isBoundedBySamplingError()) {
+				samplingError = Double.NaN;
 			}
 
 			final Multiset<MeasuredNode> treeMatchingNodes = treeMatchingNodesBuilder.build();
@@ -138,8 +379,9 @@ public final class DefaultAnnotator implements Annotator {
 			final Map<Set<AttributeValuePair>, Statistics> pairsStatistics = getStatistics(pairs, pairLevelAggregates);
 
 			builder.put(columnIndex,
-					Annotation.of(properties, labels, pairs, propertyStatistics, labelStatistics, pairsStatistics));
-		});
+					Annotation.of(properties, labels, pairs, propertyStatistics, labelStatistics, pairsStatistics,
+							samplingError));
+		}
 
 		return builder.build();
 	}
@@ -178,4 +420,37 @@ public final class DefaultAnnotator implements Annotator {
 		return annotate(graph, slicedTable, declaredProperties, declaredClasses, contextProperties, contextClasses,
 				onlyDeclaredAsContext, this.defaultK);
 	}
+
+	@Override
+	public Map<Integer, Annotation> annotate(final BackgroundKnowledgeGraph graph, final SlicedTable slicedTable,
+			final Map<? extends Integer, ? extends DeclaredEntity> declaredProperties,
+			final Map<? extends Integer, ? extends DeclaredEntity> declaredClasses,
+			final Map<? extends Integer, ? extends DeclaredEntity> contextProperties,
+			final Map<? extends Integer, ? extends DeclaredEntity> contextClasses,
+			final boolean onlyDeclaredAsContext, final MatchingBudget budget) {
+		return annotate(graph, slicedTable, declaredProperties, declaredClasses, contextProperties, contextClasses,
+				onlyDeclaredAsContext, this.defaultK, budget);
+	}
+
+	@Override
+	public MultiGraphAnnotations annotate(final List<? extends BackgroundKnowledgeGraph> graphs,
+			final SlicedTable slicedTable, final Map<? extends Integer, ? extends DeclaredEntity> declaredProperties,
+			final Map<? extends Integer, ? extends DeclaredEntity> declaredClasses,
+			final Map<? extends Integer, ? extends DeclaredEntity> contextProperties,
+			final Map<? extends Integer, ? extends DeclaredEntity> contextClasses,
+			final boolean onlyDeclaredAsContext, final MatchingBudget budget) {
+		return annotate(graphs, slicedTable, declaredProperties, declaredClasses, contextProperties, contextClasses,
+				onlyDeclaredAsContext, this.defaultK, budget);
+	}
+
+	@Override
+	public StandingAnnotation annotateStanding(final BackgroundKnowledgeGraph graph, final SlicedTable slicedTable,
+			final Map<? extends Integer, ? extends DeclaredEntity> declaredProperties,
+			final Map<? extends Integer, ? extends DeclaredEntity> declaredClasses,
+			final Map<? extends Integer, ? extends DeclaredEntity> contextProperties,
+			final Map<? extends Integer, ? extends DeclaredEntity> contextClasses,
+			final boolean onlyDeclaredAsContext) {
+		return annotateStanding(graph, slicedTable, declaredProperties, declaredClasses, contextProperties,
+				contextClasses, onlyDeclaredAsContext, this.defaultK);
+	}
 }
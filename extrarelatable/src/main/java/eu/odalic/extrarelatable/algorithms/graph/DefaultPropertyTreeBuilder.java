@@ -4,6 +4,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.net.URI;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -19,6 +20,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultiset;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multiset;
 import com.google.common.collect.Sets;
 
 import eu.odalic.extrarelatable.algorithms.subcontext.SubcontextCompiler;
@@ -28,6 +30,7 @@ import eu.odalic.extrarelatable.model.bag.AttributeValuePair;
 import eu.odalic.extrarelatable.model.bag.Context;
 import eu.odalic.extrarelatable.model.bag.Label;
 import eu.odalic.extrarelatable.model.bag.NumberLikeValue;
+import eu.odalic.extrarelatable.model.bag.StratifiedSampling;
 import eu.odalic.extrarelatable.model.graph.PropertyTree;
 import eu.odalic.extrarelatable.model.graph.PropertyTree.CommonNode;
 import eu.odalic.extrarelatable.model.graph.PropertyTree.RootNode;
@@ -59,6 +62,7 @@ public class DefaultPropertyTreeBuilder implements PropertyTreeBuilder {
 
 	private final double minimumPartitionRelativeSize;
 	private final double maximumPartitionRelativeSize;
+	private final int maximumSampleSize;
 
 	/**
 	 * Construct the builder.
@@ -78,24 +82,32 @@ public class DefaultPropertyTreeBuilder implements PropertyTreeBuilder {
 	 *            determines the maximum relative size (in ratio to the complete
 	 *            column) of a partition of a numeric column where the recursive
 	 *            building process stops, if no smaller is available
+	 * @param maximumSampleSize
+	 *            maximum number of the values held by a node, the larger
+	 *            partitions are represented by their stratified sample, zero
+	 *            means that the values are never sampled
 	 */
 	@Autowired
 	public DefaultPropertyTreeBuilder(final SubcontextCompiler subcontextCompiler,
 			final SubcontextMatcher subcontextMatcher, @Qualifier("UuidGenerator") final UuidGenerator uuidGenerator,
 			@Value("${eu.odalic.extrarelatable.minimumPartitionRelativeSize:0.01}") final double minimumPartitionRelativeSize,
-			@Value("${eu.odalic.extrarelatable.maximumPartitionRelativeSize:0.99}") final double maximumPartitionRelativeSize) {
+			@Value("${eu.odalic.extrarelatable.maximumPartitionRelativeSize:0.99}") final double maximumPartitionRelativeSize,
+			@Value("${eu.odalic.extrarelatable.maximumSampleSize:0}") final int maximumSampleSize) {
 		checkNotNull(subcontextCompiler);
 		checkNotNull(subcontextMatcher);
 		checkNotNull(uuidGenerator);
 		checkArgument(minimumPartitionRelativeSize > 0);
 		checkArgument(maximumPartitionRelativeSize < 1);
 		checkArgument(minimumPartitionRelativeSize <= maximumPartitionRelativeSize);
+		checkArgument(maximumSampleSize == 0 || maximumSampleSize >= MINIMUM_PARTITION_SIZE,
+				"The maximum sample size must be either zero or at least the minimum partition size!");
 
 		this.subcontextCompiler = subcontextCompiler;
 		this.subcontextMatcher = subcontextMatcher;
 		this.uuidGenerator = uuidGenerator;
 		this.minimumPartitionRelativeSize = minimumPartitionRelativeSize;
 		this.maximumPartitionRelativeSize = maximumPartitionRelativeSize;
+		this.maximumSampleSize = maximumSampleSize;
 	}
 
 	@Override
@@ -145,7 +157,7 @@ public class DefaultPropertyTreeBuilder implements PropertyTreeBuilder {
 			final eu.odalic.extrarelatable.model.bag.Value subvalue = partitionEntry.getKey();
 			final SharedPairNode subtree = new SharedPairNode(
 					new AttributeValuePair(uuidGenerator.generate(), subattribute, subvalue),
-					ImmutableMultiset.copyOf(subpartition.getValues()));
+					sample(subpartition.getValues()), subpartitionSize);
 			subtree.addChildren(subchildren);
 
 			children.add(subtree);
@@ -176,7 +188,7 @@ public class DefaultPropertyTreeBuilder implements PropertyTreeBuilder {
 
 		final Label label = slicedTable.getHeaders().get(columnIndex);
 
-		final RootNode rootNode = new RootNode(label, ImmutableMultiset.copyOf(partition.getValues()));
+		final RootNode rootNode = new RootNode(label, sample(partition.getValues()), partition.size());
 
 		final Set<Integer> availableContextColumnIndices = slicedTable.getContextColumns().keySet();
 		final Set<CommonNode> children = buildChildren(partition, availableContextColumnIndices, slicedTable);
@@ -201,6 +213,19 @@ public class DefaultPropertyTreeBuilder implements PropertyTreeBuilder {
 		return tree;
 	}
 
+	/**
+	 * Caps the number of the values held by a node, so that the cost of the
+	 * distance measurements does not depend on the height of the table.
+	 */
+	private Multiset<NumberLikeValue> sample(final Collection<? extends NumberLikeValue> values) {
+		final Multiset<NumberLikeValue> bag = ImmutableMultiset.copyOf(values);
+		if (maximumSampleSize == 0) {
+			return bag;
+		}
+
+		return StratifiedSampling.sample(bag, maximumSampleSize);
+	}
+
 	private static Map<Integer, DeclaredEntity> getMeaningfulEntities(
 			final Map<? extends Integer, ? extends DeclaredEntity> declaredProperties) {
 		return declaredProperties.entrySet().stream().filter(e -> !STOP_ENTITIES.contains(e.getValue().getUri()))
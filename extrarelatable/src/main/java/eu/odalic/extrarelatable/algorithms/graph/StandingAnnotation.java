@@ -0,0 +1,38 @@
+package eu.odalic.extrarelatable.algorithms.graph;
+
+import java.util.Map;
+
+import eu.odalic.extrarelatable.model.annotation.Annotation;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+
+/**
+ * Annotations of the numeric columns of a single table, which are kept and
+ * brought up to date as the background knowledge graph they are based on
+ * learns.
+ * 
+ * @author Václav Brodec
+ *
+ */
+public interface StandingAnnotation {
+	/**
+	 * @return the background knowledge graph serving as the basis for the
+	 *         annotations
+	 */
+	BackgroundKnowledgeGraph getGraph();
+
+	/**
+	 * Provides the annotations as of the last update.
+	 * 
+	 * @return the map of indices of numeric columns to annotations
+	 */
+	Map<Integer, Annotation> getAnnotations();
+
+	/**
+	 * Brings the annotations up to date with the current content of the graph,
+	 * matching the columns just against the newly learned nodes.
+	 * 
+	 * @return true if the graph has grown since the previous update, so that the
+	 *         annotations may have changed
+	 */
+	boolean update();
+}
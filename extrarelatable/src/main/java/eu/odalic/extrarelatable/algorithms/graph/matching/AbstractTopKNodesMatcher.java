@@ -0,0 +1,698 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SortedSet;
+
+import com.google.common.collect.ImmutableList;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.model.annotation.MeasuredComponents;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.bag.NumberLikeValue;
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+
+/**
+ * Common base of the {@link TopKNodesMatcher} implementations, which measure
+ * the distance of numeric values and of the available context. It keeps the
+ * default settings and converts all the variants of the matching to a single
+ * {@link NodesMatchingQuery}.
+ *
+ * <p>
+ * The snapshot of the graph is taken before the queries are encoded by its
+ * dictionary, and the same snapshot is then scanned, so that every context URI
+ * of the scanned nodes is known to the encoding of the queries.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+public abstract class AbstractTopKNodesMatcher implements TopKNodesMatcher {
+
+	/**
+	 * Number of the instances of a property ordered by their bounds at once,
+	 * when matching within a budget.
+	 */
+	static final int ORDERED_INSTANCES_BATCH_SIZE = 64;
+
+	/**
+	 * Maximum number of the instances of the properties ordered by their bounds
+	 * before another instance is measured, when matching within a budget.
+	 */
+	static final int MAXIMUM_ORDERED_INSTANCES_COUNT = 1024;
+
+	private final Distance distance;
+	private final MeasuredNodeFactory measuredNodeFactory;
+	private final MatchingSnapshots snapshots;
+	private final double defaultValuesWeight;
+	private final double defaultPropertiesWeight;
+	private final double defaultClassesWeight;
+	private final int defaultK;
+
+	AbstractTopKNodesMatcher(final Distance distance, final MeasuredNodeFactory measuredNodeFactory,
+			final MatchingSnapshots snapshots, final double defaultValuesWeight, final double defaultPropertiesWeight,
+			final double defaultClassesWeight, final int defaultK) {
+		checkNotNull(distance);
+		checkNotNull(measuredNodeFactory);
+		checkNotNull(snapshots);
+		checkArgument(defaultValuesWeight >= 0, "The default values weight must be at least zero!");
+		checkArgument(defaultPropertiesWeight >= 0, "The default properties weight must be at least zero!");
+		checkArgument(defaultClassesWeight >= 0, "The default classes weight must be at least zero!");
+		checkArgument(defaultK >= 1, "The k must be at least one!");
+
+		this.distance = distance;
+		this.measuredNodeFactory = measuredNodeFactory;
+		this.snapshots = snapshots;
+		this.defaultValuesWeight = defaultValuesWeight;
+		this.defaultPropertiesWeight = defaultPropertiesWeight;
+		this.defaultClassesWeight = defaultClassesWeight;
+		this.defaultK = defaultK;
+	}
+
+	@Override
+	public SortedSet<MeasuredNode> match(final BackgroundKnowledgeGraph graph, final Node matchedNode,
+			final double valuesWeight, final double propertiesWeight, final double classesWeight, final int k) {
+		checkNotNull(graph);
+
+		final MatchingSnapshot snapshot = getSnapshot(graph);
+
+		return match(graph, snapshot, NodesMatchingQuery.of(matchedNode, snapshot.getDictionary(), valuesWeight,
+				propertiesWeight, classesWeight, k));
+	}
+
+	@Override
+	public SortedSet<MeasuredNode> match(final BackgroundKnowledgeGraph graph,
+			final Collection<? extends NumberLikeValue> values, final int k) {
+		checkNotNull(graph);
+		checkNotNull(values);
+
+		final MatchingSnapshot snapshot = getSnapshot(graph);
+
+		return match(graph, snapshot, NodesMatchingQuery.of(SortedSample.of(values), snapshot.getDictionary(), k));
+	}
+
+	@Override
+	public SortedSet<MeasuredNode> match(final BackgroundKnowledgeGraph graph, final Node matchedNode) {
+		return match(graph, matchedNode, defaultValuesWeight, defaultPropertiesWeight, defaultClassesWeight,
+				defaultK);
+	}
+
+	@Override
+	public SortedSet<MeasuredNode> match(final BackgroundKnowledgeGraph graph,
+			final Collection<? extends NumberLikeValue> values) {
+		return match(graph, values, defaultK);
+	}
+
+	@Override
+	public List<SortedSet<MeasuredNode>> matchAll(final BackgroundKnowledgeGraph graph,
+			final List<? extends Node> matchedNodes, final double valuesWeight, final double propertiesWeight,
+			final double classesWeight, final int k) {
+		checkNotNull(graph);
+		checkNotNull(matchedNodes);
+
+		final MatchingSnapshot snapshot = getSnapshot(graph);
+
+		return matchQueries(graph, snapshot, encode(matchedNodes, snapshot, valuesWeight, propertiesWeight,
+				classesWeight, k));
+	}
+
+	@Override
+	public List<SortedSet<MeasuredNode>> matchAll(final BackgroundKnowledgeGraph graph,
+			final List<? extends Node> matchedNodes) {
+		return matchAll(graph, matchedNodes, defaultValuesWeight, defaultPropertiesWeight, defaultClassesWeight,
+				defaultK);
+	}
+
+	@Override
+	public List<SortedSet<MeasuredNode>> matchAll(final BackgroundKnowledgeGraph graph,
+			final List<? extends Node> matchedNodes, final double valuesWeight, final double propertiesWeight,
+			final double classesWeight, final int k, final MatchingBudget budget) {
+		checkNotNull(graph);
+		checkNotNull(matchedNodes);
+		checkNotNull(budget);
+
+		if (!budget.isLimited()) {
+			return matchAll(graph, matchedNodes, valuesWeight, propertiesWeight, classesWeight, k);
+		}
+
+		final MatchingSnapshot snapshot = getSnapshot(graph);
+		final List<NodesMatchingQuery> queries = encode(matchedNodes, snapshot, valuesWeight, propertiesWeight,
+				classesWeight, k);
+
+		final TopKHeap[] winners = TopKHeap.of(queries);
+		measureAll(queries, snapshot, winners, budget);
+
+		return TopKHeap.toSortedSets(winners, measuredNodeFactory);
+	}
+
+	@Override
+	public List<SortedSet<MeasuredNode>> matchAll(final BackgroundKnowledgeGraph graph,
+			final List<? extends Node> matchedNodes, final MatchingBudget budget) {
+		return matchAll(graph, matchedNodes, defaultValuesWeight, defaultPropertiesWeight, defaultClassesWeight,
+				defaultK, budget);
+	}
+
+	@Override
+	public StandingMatching matchStanding(final BackgroundKnowledgeGraph graph,
+			final List<? extends Node> matchedNodes, final double valuesWeight, final double propertiesWeight,
+			final double classesWeight, final int k) {
+		return new StandingMatching(graph, this, matchedNodes, valuesWeight, propertiesWeight, classesWeight, k);
+	}
+
+	@Override
+	public StandingMatching matchStanding(final BackgroundKnowledgeGraph graph,
+			final List<? extends Node> matchedNodes) {
+		return matchStanding(graph, matchedNodes, defaultValuesWeight, defaultPropertiesWeight, defaultClassesWeight,
+				defaultK);
+	}
+
+	@Override
+	public List<MeasuredComponents> matchComponents(final BackgroundKnowledgeGraph graph, final Node matchedNode,
+			final double valuesWeight, final double propertiesWeight, final double classesWeight,
+			final int poolSize) {
+		checkNotNull(graph);
+
+		final MatchingSnapshot snapshot = getSnapshot(graph);
+		final NodesMatchingQuery query = NodesMatchingQuery.of(matchedNode, snapshot.getDictionary(),
+				valuesWeight, propertiesWeight, classesWeight, poolSize).recordingValuesDistances();
+
+		return match(graph, snapshot, query).stream().map(e -> query.measureComponents(distance, e.getNode()))
+				.collect(ImmutableList.toImmutableList());
+	}
+
+	@Override
+	public SortedSet<MeasuredNode> rerank(final List<? extends MeasuredComponents> pool, final double valuesWeight,
+			final double propertiesWeight, final double classesWeight, final int k) {
+		checkNotNull(pool);
+		checkArgument(k >= 1, "The k must be at least one!");
+
+		final TopKHeap winners = new TopKHeap(k);
+		for (final MeasuredComponents components : pool) {
+			offer(components.getNode(), components.getDistance(valuesWeight, propertiesWeight, classesWeight),
+					winners);
+		}
+
+		return winners.toSortedSet(measuredNodeFactory);
+	}
+
+	/**
+	 * Encodes the queries by the dictionary of the snapshot.
+	 *
+	 * @param matchedNodes
+	 *            matched nodes
+	 * @param snapshot
+	 *            snapshot of the graph, which will be scanned for the queries
+	 * @param valuesWeight
+	 *            weight of contribution of the distance of numeric values
+	 * @param propertiesWeight
+	 *            weight of contribution of the distance of property contexts
+	 * @param classesWeight
+	 *            weight of contribution of the distance of class contexts
+	 * @param k
+	 *            the maximum number of the best matching nodes
+	 * @return the queries, in the order of the nodes
+	 */
+	static List<NodesMatchingQuery> encode(final List<? extends Node> matchedNodes, final MatchingSnapshot snapshot,
+			final double valuesWeight, final double propertiesWeight, final double classesWeight, final int k) {
+		final ContextDictionary dictionary = snapshot.getDictionary();
+
+		return matchedNodes.stream().map(e -> NodesMatchingQuery.of(e, dictionary, valuesWeight, propertiesWeight,
+				classesWeight, k)).collect(ImmutableList.toImmutableList());
+	}
+
+	/**
+	 * Retrieves the best matching nodes from the graph for the prepared query.
+	 *
+	 * @param graph
+	 *            the source background knowledge graph
+	 * @param snapshot
+	 *            snapshot of the graph taken before the query was encoded, no
+	 *            newer nodes may be matched
+	 * @param query
+	 *            prepared query
+	 * @return the best-matching nodes
+	 */
+	abstract SortedSet<MeasuredNode> match(BackgroundKnowledgeGraph graph, MatchingSnapshot snapshot,
+			NodesMatchingQuery query);
+
+	/**
+	 * Retrieves the best matching nodes from the graph for each of the prepared
+	 * queries. Answers the queries one by one, unless overridden by a matcher able
+	 * to do better.
+	 *
+	 * @param graph
+	 *            the source background knowledge graph
+	 * @param snapshot
+	 *            snapshot of the graph taken before the queries were encoded, no
+	 *            newer nodes may be matched
+	 * @param queries
+	 *            prepared queries
+	 * @return the best-matching nodes, in the order of the queries
+	 */
+	List<SortedSet<MeasuredNode>> matchQueries(final BackgroundKnowledgeGraph graph, final MatchingSnapshot snapshot,
+			final List<NodesMatchingQuery> queries) {
+		return queries.stream().map(e -> match(graph, snapshot, e)).collect(ImmutableList.toImmutableList());
+	}
+
+	/**
+	 * Measures the candidate node and offers it to the heap of winners. Nodes
+	 * which cannot make it to the heap are skipped as early as possible.
+	 *
+	 * @param query
+	 *            prepared query
+	 * @param candidate
+	 *            candidate node from the graph
+	 * @param winners
+	 *            heap of the best matching nodes so far
+	 */
+	final void measure(final NodesMatchingQuery query, final Node candidate, final TopKHeap winners) {
+		final double measuredDistance = query.measure(distance, candidate, winners.getThreshold());
+
+		offer(candidate, measuredDistance, winners);
+	}
+
+	/**
+	 * Measures the candidate node of the graph snapshot and offers it to the heap
+	 * of winners.
+	 *
+	 * @param query
+	 *            prepared query
+	 * @param snapshot
+	 *            snapshot of the graph
+	 * @param index
+	 *            index of the candidate node in the snapshot
+	 * @param winners
+	 *            heap of the best matching nodes so far
+	 * @param cache
+	 *            cache of the distances of the query to the shared distributions
+	 */
+	final void measure(final NodesMatchingQuery query, final MatchingSnapshot snapshot, final int index,
+			final TopKHeap winners, final SharedDistancesCache cache) {
+		final double measuredDistance = query.measure(distance, snapshot, index, winners.getThreshold(), cache);
+
+		offer(snapshot.getNode(index), measuredDistance, winners);
+	}
+
+	/**
+	 * Measures all the nodes of the graph snapshot, property by property,
+	 * skipping all the instances of the properties whose nodes cannot make it to
+	 * the heap.
+	 *
+	 * @param query
+	 *            prepared query
+	 * @param snapshot
+	 *            snapshot of the graph
+	 * @param winners
+	 *            heap of the best matching nodes so far
+	 */
+	final void measure(final NodesMatchingQuery query, final MatchingSnapshot snapshot, final TopKHeap winners) {
+		final SharedDistancesCache cache = new SharedDistancesCache(snapshot.getSharedCount(),
+				snapshot.getContextsCount());
+		for (int propertyIndex = 0; propertyIndex < snapshot.getPropertiesCount(); propertyIndex++) {
+			if (query.measurePropertyLowerBound(distance, snapshot, propertyIndex) > winners.getThreshold()) {
+				continue;
+			}
+
+			final int rootsCount = snapshot.getPropertyRootsCount(propertyIndex);
+			for (int rootIndex = 0; rootIndex < rootsCount; rootIndex++) {
+				final int root = snapshot.getPropertyRoot(propertyIndex, rootIndex);
+
+				measure(query, snapshot, root, snapshot.getSubtreeEnd(root), winners, cache);
+			}
+		}
+	}
+
+	/**
+	 * Measures a range of the nodes of the graph snapshot, skipping the whole
+	 * subtrees whose nodes cannot make it to the heap.
+	 *
+	 * @param query
+	 *            prepared query
+	 * @param snapshot
+	 *            snapshot of the graph
+	 * @param from
+	 *            index of the first measured node, inclusive
+	 * @param to
+	 *            index of the last measured node, exclusive
+	 * @param winners
+	 *            heap of the best matching nodes so far
+	 * @param cache
+	 *            cache of the distances of the query to the shared distributions
+	 */
+	final void measure(final NodesMatchingQuery query, final MatchingSnapshot snapshot, final int from,
+			final int to, final TopKHeap winners, final SharedDistancesCache cache) {
+		int index = from;
+		while (index < to) {
+			final int subtreeEnd = snapshot.getSubtreeEnd(index);
+			if (subtreeEnd > index + 1
+					&& query.measureSubtreeLowerBound(distance, snapshot, index, cache) > winners.getThreshold()) {
+				index = subtreeEnd;
+				continue;
+			}
+
+			measure(query, snapshot, index, winners, cache);
+			index++;
+		}
+	}
+
+	/**
+	 * Measures all the nodes of the graph snapshot against all the queries at
+	 * once, property by property. The properties are skipped for each query
+	 * separately, as in
+	 * {@link #measure(NodesMatchingQuery, MatchingSnapshot, TopKHeap)}.
+	 *
+	 * @param queries
+	 *            prepared queries
+	 * @param snapshot
+	 *            snapshot of the graph
+	 * @param winners
+	 *            heaps of the best matching nodes so far, one for each query
+	 */
+	final void measureAll(final List<NodesMatchingQuery> queries, final MatchingSnapshot snapshot,
+			final TopKHeap[] winners) {
+		final boolean[] excluded = new boolean[winners.length];
+		final SharedDistancesCache[] caches = createCaches(snapshot, winners.length);
+		for (int propertyIndex = 0; propertyIndex < snapshot.getPropertiesCount(); propertyIndex++) {
+			boolean allExcluded = true;
+			for (int queryIndex = 0; queryIndex < winners.length; queryIndex++) {
+				excluded[queryIndex] = queries.get(queryIndex).measurePropertyLowerBound(distance, snapshot,
+						propertyIndex) > winners[queryIndex].getThreshold();
+				allExcluded &= excluded[queryIndex];
+			}
+			if (allExcluded) {
+				continue;
+			}
+
+			final int rootsCount = snapshot.getPropertyRootsCount(propertyIndex);
+			for (int rootIndex = 0; rootIndex < rootsCount; rootIndex++) {
+				final int root = snapshot.getPropertyRoot(propertyIndex, rootIndex);
+
+				measureAll(queries, snapshot, root, snapshot.getSubtreeEnd(root), winners, excluded, caches);
+			}
+		}
+	}
+
+	/**
+	 * Measures the nodes of the graph snapshot against all the queries at once,
+	 * within the budget. The instances of the properties are measured in the
+	 * order of the lowest bounds of the distances of their nodes from any of the
+	 * queries, so that the most promising ones come first, and the rest of them
+	 * is skipped as soon as it cannot contain any better node. The coverage of
+	 * the snapshot is recorded in the budget.
+	 *
+	 * <p>
+	 * The properties are ordered first, by the cheap bounds derived from the
+	 * envelopes of their values. The bounds of their instances, which take
+	 * their context into account, are computed lazily, only until the best
+	 * instance is known or at most {@value #MAXIMUM_ORDERED_INSTANCES_COUNT} of
+	 * them before each measured instance, so that the ordering never takes the
+	 * budget on its own.
+	 * </p>
+	 *
+	 * @param queries
+	 *            prepared queries
+	 * @param snapshot
+	 *            snapshot of the graph
+	 * @param winners
+	 *            heaps of the best matching nodes so far, one for each query
+	 * @param budget
+	 *            the budget of the matching
+	 */
+	final void measureAll(final List<NodesMatchingQuery> queries, final MatchingSnapshot snapshot,
+			final TopKHeap[] winners, final MatchingBudget budget) {
+		final int propertiesCount = snapshot.getPropertiesCount();
+
+		final double[][] propertyBounds = new double[propertiesCount][winners.length];
+		final PriorityQueue<BoundedInstances> properties = new PriorityQueue<>(Math.max(1, propertiesCount),
+				Comparator.comparingDouble(e -> e.bound));
+		for (int propertyIndex = 0; propertyIndex < propertiesCount; propertyIndex++) {
+			double lowestBound = Double.POSITIVE_INFINITY;
+			for (int queryIndex = 0; queryIndex < winners.length; queryIndex++) {
+				propertyBounds[propertyIndex][queryIndex] = queries.get(queryIndex)
+						.measurePropertyLowerBound(distance, snapshot, propertyIndex);
+				lowestBound = Math.min(lowestBound, propertyBounds[propertyIndex][queryIndex]);
+			}
+
+			properties.add(new BoundedInstances(lowestBound, propertyIndex, 0));
+		}
+
+		final PriorityQueue<BoundedInstances> instances = new PriorityQueue<>(Math.max(1, propertiesCount),
+				Comparator.comparingDouble(e -> e.bound));
+		final SharedDistancesCache[] caches = createCaches(snapshot, winners.length);
+		final boolean[] excluded = new boolean[winners.length];
+		long coveredCount = 0;
+		int orderedCount = 0;
+		while (true) {
+			final double highestThreshold = getHighestThreshold(winners);
+
+			// The following instances are bounded at least as high as the first ones.
+			final BoundedInstances property = properties.peek();
+			final boolean orderable = property != null && property.bound <= highestThreshold;
+			final BoundedInstances instance = instances.peek();
+			final boolean measurable = instance != null && instance.bound <= highestThreshold;
+			if (!orderable && !measurable) {
+				break;
+			}
+
+			if (orderable && (!measurable
+					|| (property.bound < instance.bound && orderedCount < MAXIMUM_ORDERED_INSTANCES_COUNT))) {
+				properties.poll();
+
+				final int propertyIndex = property.propertyIndex;
+				final int rootsCount = snapshot.getPropertyRootsCount(propertyIndex);
+				final int orderedUntil = Math.min(rootsCount, property.rootIndex + ORDERED_INSTANCES_BATCH_SIZE);
+				for (int rootIndex = property.rootIndex; rootIndex < orderedUntil; rootIndex++) {
+					final int root = snapshot.getPropertyRoot(propertyIndex, rootIndex);
+
+					double lowestBound = Double.POSITIVE_INFINITY;
+					for (int queryIndex = 0; queryIndex < winners.length; queryIndex++) {
+						lowestBound = Math.min(lowestBound,
+								Math.max(propertyBounds[propertyIndex][queryIndex], queries.get(queryIndex)
+										.measureSubtreeLowerBound(distance, snapshot, root, caches[queryIndex])));
+					}
+
+					instances.add(new BoundedInstances(lowestBound, propertyIndex, rootIndex));
+				}
+
+				if (orderedUntil < rootsCount) {
+					properties.add(new BoundedInstances(property.bound, propertyIndex, orderedUntil));
+				}
+
+				orderedCount += orderedUntil - property.rootIndex;
+				continue;
+			}
+
+			instances.poll();
+			orderedCount = 0;
+
+			final int propertyIndex = instance.propertyIndex;
+			final int root = snapshot.getPropertyRoot(propertyIndex, instance.rootIndex);
+			final int subtreeEnd = snapshot.getSubtreeEnd(root);
+
+			boolean allExcluded = true;
+			for (int queryIndex = 0; queryIndex < winners.length; queryIndex++) {
+				excluded[queryIndex] = propertyBounds[propertyIndex][queryIndex] > winners[queryIndex]
+						.getThreshold();
+				allExcluded &= excluded[queryIndex];
+			}
+
+			if (!allExcluded) {
+				if (!budget.tryProceed()) {
+					budget.cover(coveredCount, snapshot.size());
+					return;
+				}
+
+				final long evaluationsCount = getEvaluationsCount(caches);
+				measureAll(queries, snapshot, root, subtreeEnd, winners, excluded, caches);
+				budget.charge(getEvaluationsCount(caches) - evaluationsCount);
+			}
+
+			coveredCount += subtreeEnd - root;
+		}
+
+		budget.cover(snapshot.size(), snapshot.size());
+	}
+
+	private static long getEvaluationsCount(final SharedDistancesCache[] caches) {
+		long evaluationsCount = 0;
+		for (final SharedDistancesCache cache : caches) {
+			evaluationsCount += cache.getEvaluationsCount();
+		}
+
+		return evaluationsCount;
+	}
+
+	private static double getHighestThreshold(final TopKHeap[] winners) {
+		double highestThreshold = Double.NEGATIVE_INFINITY;
+		for (final TopKHeap heap : winners) {
+			highestThreshold = Math.max(highestThreshold, heap.getThreshold());
+		}
+
+		return highestThreshold;
+	}
+
+	/**
+	 * Measures a range of the nodes of the graph snapshot against all the queries
+	 * at once, so that the data of each candidate are loaded just once. The
+	 * subtrees are skipped for each query separately, as in
+	 * {@link #measure(NodesMatchingQuery, MatchingSnapshot, TopKHeap)}.
+	 *
+	 * @param queries
+	 *            prepared queries
+	 * @param snapshot
+	 *            snapshot of the graph
+	 * @param from
+	 *            index of the first measured node, inclusive
+	 * @param to
+	 *            index of the last measured node, exclusive
+	 * @param winners
+	 *            heaps of the best matching nodes so far, one for each query
+	 */
+	final void measureAll(final List<NodesMatchingQuery> queries, final MatchingSnapshot snapshot, final int from,
+			final int to, final TopKHeap[] winners) {
+		measureAll(queries, snapshot, from, to, winners, createCaches(snapshot, winners.length));
+	}
+
+	/**
+	 * Measures a range of the nodes of the graph snapshot against all the queries
+	 * at once, as in
+	 * {@link #measureAll(List, MatchingSnapshot, int, int, TopKHeap[])}, reusing
+	 * the provided caches, so that the ranges of a single scan can share them.
+	 *
+	 * @param queries
+	 *            prepared queries
+	 * @param snapshot
+	 *            snapshot of the graph
+	 * @param from
+	 *            index of the first measured node, inclusive
+	 * @param to
+	 *            index of the last measured node, exclusive
+	 * @param winners
+	 *            heaps of the best matching nodes so far, one for each query
+	 * @param caches
+	 *            caches of the distances of the queries to the shared
+	 *            distributions, as created by
+	 *            {@link #createCaches(MatchingSnapshot, int)}
+	 */
+	final void measureAll(final List<NodesMatchingQuery> queries, final MatchingSnapshot snapshot, final int from,
+			final int to, final TopKHeap[] winners, final SharedDistancesCache[] caches) {
+		measureAll(queries, snapshot, from, to, winners, new boolean[winners.length], caches);
+	}
+
+	private void measureAll(final List<NodesMatchingQuery> queries, final MatchingSnapshot snapshot,
+			final int from, final int to, final TopKHeap[] winners, final boolean[] excluded,
+			final SharedDistancesCache[] caches) {
+		final int[] skippedUntil = new int[winners.length];
+		for (int index = from; index < to; index++) {
+			final int subtreeEnd = snapshot.getSubtreeEnd(index);
+
+			for (int queryIndex = 0; queryIndex < winners.length; queryIndex++) {
+				if (excluded[queryIndex] || index < skippedUntil[queryIndex]) {
+					continue;
+				}
+
+				final NodesMatchingQuery query = queries.get(queryIndex);
+				if (subtreeEnd > index + 1 && query.measureSubtreeLowerBound(distance, snapshot, index,
+						caches[queryIndex]) > winners[queryIndex].getThreshold()) {
+					skippedUntil[queryIndex] = subtreeEnd;
+					continue;
+				}
+
+				measure(query, snapshot, index, winners[queryIndex], caches[queryIndex]);
+			}
+		}
+	}
+
+	/**
+	 * Creates the empty caches for the queries matched against the snapshot.
+	 *
+	 * @param snapshot
+	 *            snapshot of the graph
+	 * @param count
+	 *            number of the queries
+	 * @return the caches, one for each query
+	 */
+	static SharedDistancesCache[] createCaches(final MatchingSnapshot snapshot, final int count) {
+		final SharedDistancesCache[] caches = new SharedDistancesCache[count];
+		for (int index = 0; index < count; index++) {
+			caches[index] = new SharedDistancesCache(snapshot.getSharedCount(),
+					snapshot.getContextsCount());
+		}
+
+		return caches;
+	}
+
+	/**
+	 * Offers the already measured candidate node to the heap of winners.
+	 *
+	 * @param candidate
+	 *            candidate node from the graph
+	 * @param measuredDistance
+	 *            its overall distance
+	 * @param winners
+	 *            heap of the best matching nodes so far
+	 */
+	final void offer(final Node candidate, final double measuredDistance, final TopKHeap winners) {
+		if (measuredDistance > winners.getThreshold()) {
+			return;
+		}
+
+		winners.offer(candidate, measuredDistance);
+	}
+
+	/**
+	 * @return the used distance measure
+	 */
+	final Distance getDistance() {
+		return distance;
+	}
+
+	/**
+	 * @return the factory for nodes associated with their distance
+	 */
+	final MeasuredNodeFactory getMeasuredNodeFactory() {
+		return measuredNodeFactory;
+	}
+
+	/**
+	 * @return the provider of the snapshots of the matched graphs
+	 */
+	final MatchingSnapshots getSnapshots() {
+		return snapshots;
+	}
+
+	/**
+	 * @param graph
+	 *            matched graph
+	 * @return the snapshot of the current content of the graph
+	 */
+	final MatchingSnapshot getSnapshot(final BackgroundKnowledgeGraph graph) {
+		return snapshots.get(graph);
+	}
+
+	/**
+	 * Instances of a property, with the lowest bound of the distances of their
+	 * nodes. Either the single instance with the given index among the roots of
+	 * the property, or all of them starting from it.
+	 */
+	private static final class BoundedInstances {
+
+		final double bound;
+		final int propertyIndex;
+		final int rootIndex;
+
+		BoundedInstances(final double bound, final int propertyIndex, final int rootIndex) {
+			this.bound = bound;
+			this.propertyIndex = propertyIndex;
+			this.rootIndex = rootIndex;
+		}
+	}
+}
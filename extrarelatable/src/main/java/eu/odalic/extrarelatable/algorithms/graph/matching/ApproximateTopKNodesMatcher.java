@@ -0,0 +1,284 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Splitter;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.bag.HeapSortedSampleStoreFactory;
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+
+/**
+ * Approximate implementation of {@link TopKNodesMatcher}. The values of every
+ * node are summarized by a small fixed number of quantiles and the query is
+ * first measured only against these summaries, which shortlists a multiple of
+ * K candidates. The shortlist is then re-ranked by the exact distance, as in
+ * the {@link ContextAwareDistanceTopKNodesMatcher}.
+ *
+ * <p>
+ * The approximation can be limited to selected graphs; the other ones are
+ * matched exactly. A configurable fraction of the approximate queries is also
+ * answered exactly, to measure and log the recall of the approximation. The
+ * exact answers are computed in the background, so that the sampled queries
+ * are not delayed, and they are skipped when too many of them are pending.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@ThreadSafe
+@Component("approximate")
+@Lazy
+public final class ApproximateTopKNodesMatcher extends AbstractTopKNodesMatcher {
+
+	/**
+	 * Default maximum number of the quantiles summarizing the values of a node.
+	 */
+	public static final int INITIAL_DEFAULT_SKETCH_SIZE = 32;
+
+	/**
+	 * Default ratio of the size of the shortlist to K.
+	 */
+	public static final int INITIAL_DEFAULT_SHORTLIST_FACTOR = 4;
+
+	/**
+	 * Graph names configuration value which makes all the graphs approximated.
+	 */
+	public static final String ALL_GRAPHS = "*";
+
+	private static final String GRAPHS_CONFIGURATION_DELIMITER = ",";
+
+	/**
+	 * Maximum number of the queries waiting for the measurement of the recall.
+	 */
+	private static final int MAXIMUM_PENDING_RECALL_MEASUREMENTS = 16;
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ApproximateTopKNodesMatcher.class);
+
+	private final int shortlistFactor;
+	private final Set<String> approximatedGraphs;
+	private final double recallSamplingRate;
+
+	private final ContextAwareDistanceTopKNodesMatcher exactMatcher;
+	private final LoadingCache<BackgroundKnowledgeGraph, QuantileSketches> sketches;
+
+	private final AtomicLong recallSamplesCount;
+	private final DoubleAdder summedRecall;
+	private final ExecutorService recallExecutor;
+
+	/**
+	 * Constructs the matcher.
+	 *
+	 * @param distance
+	 *            used distance measure
+	 * @param measuredNodeFactory
+	 *            factory for nodes associated with their distance
+	 * @param snapshots
+	 *            provider of the snapshots of the matched graphs
+	 * @param defaultValuesWeight
+	 *            default weight of the contribution of the distance of numeric
+	 *            values to the overall distance
+	 * @param defaultPropertiesWeight
+	 *            default weight of the contribution of the property context
+	 *            distance to the overall distance
+	 * @param defaultClassesWeight
+	 *            default weight of the contribution of the class context distance
+	 *            to the overall distance
+	 * @param defaultK
+	 *            default value of K (the maximum number of the best matching nodes)
+	 * @param sketchSize
+	 *            maximum number of the quantiles summarizing the values of a node
+	 * @param shortlistFactor
+	 *            ratio of the size of the shortlist to K
+	 * @param approximatedGraphs
+	 *            comma-separated names of the graphs matched approximately,
+	 *            {@value #ALL_GRAPHS} for all of them
+	 * @param recallSamplingRate
+	 *            fraction of the queries also matched exactly to measure the
+	 *            recall
+	 */
+	@Autowired
+	ApproximateTopKNodesMatcher(@Qualifier("Distance") final Distance distance,
+			final MeasuredNodeFactory measuredNodeFactory, final MatchingSnapshots snapshots,
+			@Value("${eu.odalic.extrarelatable.valuesWeight:0.5}") final double defaultValuesWeight,
+			@Value("${eu.odalic.extrarelatable.propertiesWeight:0.25}") final double defaultPropertiesWeight,
+			@Value("${eu.odalic.extrarelatable.classesWeight:0.25}") final double defaultClassesWeight,
+			@Value("${eu.odalic.extrarelatable.topKNeighbours?:50}") final int defaultK,
+			@Value("${eu.odalic.extrarelatable.approximateMatching.sketchSize:32}") final int sketchSize,
+			@Value("${eu.odalic.extrarelatable.approximateMatching.shortlistFactor:4}") final int shortlistFactor,
+			@Value("${eu.odalic.extrarelatable.approximateMatching.graphs:*}") final String approximatedGraphs,
+			@Value("${eu.odalic.extrarelatable.approximateMatching.recallSamplingRate:0}")
+			final double recallSamplingRate) {
+		super(distance, measuredNodeFactory, snapshots, defaultValuesWeight, defaultPropertiesWeight,
+				defaultClassesWeight, defaultK);
+
+		checkArgument(sketchSize >= 2, "The sketch size must be at least two!");
+		checkArgument(shortlistFactor >= 1, "The shortlist factor must be at least one!");
+		checkNotNull(approximatedGraphs);
+		checkArgument(recallSamplingRate >= 0 && recallSamplingRate <= 1,
+				"The recall sampling rate must be between zero and one!");
+
+		this.shortlistFactor = shortlistFactor;
+		this.approximatedGraphs = ImmutableSet.copyOf(
+				Splitter.on(GRAPHS_CONFIGURATION_DELIMITER).trimResults().omitEmptyStrings().split(approximatedGraphs));
+		this.recallSamplingRate = recallSamplingRate;
+
+		this.exactMatcher = new ContextAwareDistanceTopKNodesMatcher(distance, measuredNodeFactory, snapshots);
+		this.sketches = CacheBuilder.newBuilder().weakKeys()
+				.build(new CacheLoader<BackgroundKnowledgeGraph, QuantileSketches>() {
+					@Override
+					public QuantileSketches load(final BackgroundKnowledgeGraph graph) {
+						return new QuantileSketches(sketchSize);
+					}
+				});
+
+		this.recallSamplesCount = new AtomicLong();
+		this.summedRecall = new DoubleAdder();
+		this.recallExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(MAXIMUM_PENDING_RECALL_MEASUREMENTS), runnable -> {
+					final Thread thread = new Thread(runnable, "approximate-matching-recall");
+					thread.setDaemon(true);
+
+					return thread;
+				}, new ThreadPoolExecutor.DiscardPolicy());
+	}
+
+	/**
+	 * Constructs the matcher approximating all the graphs, using the defaults.
+	 *
+	 * @param distance
+	 *            used distance measure
+	 * @param measuredNodeFactory
+	 *            factory for nodes associated with their distance
+	 */
+	public ApproximateTopKNodesMatcher(final Distance distance, final MeasuredNodeFactory measuredNodeFactory) {
+		this(distance, measuredNodeFactory,
+				new MatchingSnapshots(new HeapSortedSampleStoreFactory(), new ContextDictionaries()),
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_VALUES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_PROPERTIES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_CLASSES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_K, INITIAL_DEFAULT_SKETCH_SIZE,
+				INITIAL_DEFAULT_SHORTLIST_FACTOR, ALL_GRAPHS, 0);
+	}
+
+	@PreDestroy
+	public void cleanUp() {
+		this.recallExecutor.shutdownNow();
+	}
+
+	/**
+	 * @return the mean recall of the sampled approximate queries (the share of
+	 *         the exact top K distances reached by the approximate results), NaN
+	 *         if none has been sampled yet
+	 */
+	public double getMeanRecall() {
+		final long count = recallSamplesCount.get();
+		if (count == 0) {
+			return Double.NaN;
+		}
+
+		return summedRecall.sum() / count;
+	}
+
+	@Override
+	SortedSet<MeasuredNode> match(final BackgroundKnowledgeGraph graph, final MatchingSnapshot snapshot,
+			final NodesMatchingQuery query) {
+		if (!isApproximated(graph)) {
+			return exactMatcher.match(graph, snapshot, query);
+		}
+
+		final SortedSet<MeasuredNode> result = approximate(graph, snapshot, query);
+
+		if (recallSamplingRate > 0 && ThreadLocalRandom.current().nextDouble() < recallSamplingRate) {
+			recallExecutor.execute(() -> measureRecall(graph, snapshot, query, result));
+		}
+
+		return result;
+	}
+
+	@Override
+	List<SortedSet<MeasuredNode>> matchQueries(final BackgroundKnowledgeGraph graph, final MatchingSnapshot snapshot,
+			final List<NodesMatchingQuery> queries) {
+		if (!isApproximated(graph)) {
+			return exactMatcher.matchQueries(graph, snapshot, queries);
+		}
+
+		return super.matchQueries(graph, snapshot, queries);
+	}
+
+	private boolean isApproximated(final BackgroundKnowledgeGraph graph) {
+		return approximatedGraphs.contains(ALL_GRAPHS) || approximatedGraphs.contains(graph.getName());
+	}
+
+	private SortedSet<MeasuredNode> approximate(final BackgroundKnowledgeGraph graph,
+			final MatchingSnapshot snapshot, final NodesMatchingQuery query) {
+		final QuantileSketches graphSketches = sketches.getUnchecked(graph);
+		final SortedSample[] nodesSketches = graphSketches.update(snapshot);
+
+		final Distance distance = getDistance();
+		final SortedSample querySketch = query.getSample().getQuantiles(graphSketches.getSketchSize());
+
+		final TopKHeap shortlist = new TopKHeap(
+				(int) Math.min(Integer.MAX_VALUE, query.getK() * (long) shortlistFactor));
+		for (int index = 0; index < snapshot.size(); index++) {
+			offer(snapshot.getNode(index), query.measure(distance, querySketch, snapshot, index,
+					nodesSketches[index], shortlist.getThreshold()), shortlist);
+		}
+
+		final TopKHeap winners = new TopKHeap(query.getK());
+		for (final Node candidate : shortlist.getNodes()) {
+			measure(query, candidate, winners);
+		}
+
+		return winners.toSortedSet(getMeasuredNodeFactory());
+	}
+
+	private void measureRecall(final BackgroundKnowledgeGraph graph, final MatchingSnapshot snapshot,
+			final NodesMatchingQuery query, final SortedSet<MeasuredNode> result) {
+		final SortedSet<MeasuredNode> exactResult = exactMatcher.match(graph, snapshot, query);
+		if (exactResult.isEmpty()) {
+			return;
+		}
+
+		final double farthestExactDistance = exactResult.last().getDistance();
+		final long hits = result.stream().filter(e -> e.getDistance() <= farthestExactDistance).count();
+		final double recall = ((double) hits) / exactResult.size();
+
+		final long count = recallSamplesCount.incrementAndGet();
+		summedRecall.add(recall);
+
+		LOGGER.info("Approximate matching recall in graph " + graph.getName() + ": " + recall + " (mean "
+				+ getMeanRecall() + " of " + count + " samples).");
+	}
+}
@@ -0,0 +1,218 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.bag.HeapSortedSampleStoreFactory;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+
+/**
+ * Implementation of {@link TopKNodesMatcher} which remembers the best matching
+ * nodes of the recent queries of every graph, so that a query equal to one of
+ * them (with the same values, contexts, weights and K) is answered without
+ * scanning the graph again. The nodes are otherwise found as by the
+ * {@link ContextAwareDistanceTopKNodesMatcher}.
+ *
+ * <p>
+ * Every result is remembered along with the size of the graph snapshot it was
+ * found in. As the snapshots only grow, a result remembered for a smaller
+ * snapshot is patched by measuring just the nodes added since, instead of
+ * being discarded.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@ThreadSafe
+@Component("caching")
+public final class CachingTopKNodesMatcher extends AbstractTopKNodesMatcher {
+
+	/**
+	 * Default maximum number of the results remembered for a graph.
+	 */
+	public static final int INITIAL_DEFAULT_CAPACITY = 10000;
+
+	private final LoadingCache<BackgroundKnowledgeGraph, Cache<NodesMatchingQuery, CachedWinners>> caches;
+
+	private final AtomicLong hitsCount;
+	private final AtomicLong patchesCount;
+	private final AtomicLong missesCount;
+
+	/**
+	 * Constructs the matcher.
+	 *
+	 * @param distance
+	 *            used distance measure
+	 * @param measuredNodeFactory
+	 *            factory for nodes associated with their distance
+	 * @param snapshots
+	 *            provider of the snapshots of the matched graphs
+	 * @param defaultValuesWeight
+	 *            default weight of the contribution of the distance of numeric
+	 *            values to the overall distance
+	 * @param defaultPropertiesWeight
+	 *            default weight of the contribution of the property context
+	 *            distance to the overall distance
+	 * @param defaultClassesWeight
+	 *            default weight of the contribution of the class context distance
+	 *            to the overall distance
+	 * @param defaultK
+	 *            default value of K (the maximum number of the best matching nodes)
+	 * @param capacity
+	 *            maximum number of the results remembered for a graph
+	 */
+	@Autowired
+	CachingTopKNodesMatcher(@Qualifier("Distance") final Distance distance,
+			final MeasuredNodeFactory measuredNodeFactory, final MatchingSnapshots snapshots,
+			@Value("${eu.odalic.extrarelatable.valuesWeight:0.5}") final double defaultValuesWeight,
+			@Value("${eu.odalic.extrarelatable.propertiesWeight:0.25}") final double defaultPropertiesWeight,
+			@Value("${eu.odalic.extrarelatable.classesWeight:0.25}") final double defaultClassesWeight,
+			@Value("${eu.odalic.extrarelatable.topKNeighbours?:50}") final int defaultK,
+			@Value("${eu.odalic.extrarelatable.cachingMatching.capacity:10000}") final int capacity) {
+		super(distance, measuredNodeFactory, snapshots, defaultValuesWeight, defaultPropertiesWeight,
+				defaultClassesWeight, defaultK);
+
+		checkArgument(capacity >= 1, "The capacity must be at least one!");
+
+		this.caches = CacheBuilder.newBuilder().weakKeys()
+				.build(new CacheLoader<BackgroundKnowledgeGraph, Cache<NodesMatchingQuery, CachedWinners>>() {
+					@Override
+					public Cache<NodesMatchingQuery, CachedWinners> load(final BackgroundKnowledgeGraph graph) {
+						return CacheBuilder.newBuilder().maximumSize(capacity).build();
+					}
+				});
+
+		this.hitsCount = new AtomicLong();
+		this.patchesCount = new AtomicLong();
+		this.missesCount = new AtomicLong();
+	}
+
+	/**
+	 * Constructs the matcher using the defaults.
+	 *
+	 * @param distance
+	 *            used distance measure
+	 * @param measuredNodeFactory
+	 *            factory for nodes associated with their distance
+	 */
+	public CachingTopKNodesMatcher(final Distance distance, final MeasuredNodeFactory measuredNodeFactory) {
+		this(distance, measuredNodeFactory,
+				new MatchingSnapshots(new HeapSortedSampleStoreFactory(), new ContextDictionaries()),
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_VALUES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_PROPERTIES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_CLASSES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_K, INITIAL_DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @return the number of the queries answered by a remembered result
+	 */
+	public long getHitsCount() {
+		return hitsCount.get();
+	}
+
+	/**
+	 * @return the number of the queries answered by a remembered result patched
+	 *         by the nodes added to the graph since
+	 */
+	public long getPatchesCount() {
+		return patchesCount.get();
+	}
+
+	/**
+	 * @return the number of the queries answered by scanning the whole graph
+	 */
+	public long getMissesCount() {
+		return missesCount.get();
+	}
+
+	@Override
+	SortedSet<MeasuredNode> match(final BackgroundKnowledgeGraph graph, final MatchingSnapshot snapshot,
+			final NodesMatchingQuery query) {
+		return matchQueries(graph, snapshot, ImmutableList.of(query)).get(0);
+	}
+
+	@Override
+	List<SortedSet<MeasuredNode>> matchQueries(final BackgroundKnowledgeGraph graph, final MatchingSnapshot snapshot,
+			final List<NodesMatchingQuery> queries) {
+		final Cache<NodesMatchingQuery, CachedWinners> cache = caches.getUnchecked(graph);
+
+		final TopKHeap[] winners = new TopKHeap[queries.size()];
+		final List<NodesMatchingQuery> missedQueries = new ArrayList<>();
+		final List<Integer> missedPositions = new ArrayList<>();
+		for (int position = 0; position < winners.length; position++) {
+			final NodesMatchingQuery query = queries.get(position);
+
+			final CachedWinners cached = cache.getIfPresent(query);
+			if (cached == null || cached.snapshotSize > snapshot.size()) {
+				missedQueries.add(query);
+				missedPositions.add(position);
+				continue;
+			}
+
+			if (cached.snapshotSize == snapshot.size()) {
+				hitsCount.incrementAndGet();
+				winners[position] = cached.winners;
+				continue;
+			}
+
+			final TopKHeap patched = cached.winners.copy();
+			measure(query, snapshot, cached.snapshotSize, snapshot.size(), patched,
+					new SharedDistancesCache(snapshot.getSharedCount(), snapshot.getContextsCount()));
+
+			patchesCount.incrementAndGet();
+			cache.put(query, new CachedWinners(snapshot.size(), patched));
+			winners[position] = patched;
+		}
+
+		if (!missedQueries.isEmpty()) {
+			final TopKHeap[] missedWinners = TopKHeap.of(missedQueries);
+			measureAll(missedQueries, snapshot, missedWinners);
+
+			missesCount.addAndGet(missedQueries.size());
+			for (int index = 0; index < missedWinners.length; index++) {
+				cache.put(missedQueries.get(index), new CachedWinners(snapshot.size(), missedWinners[index]));
+				winners[missedPositions.get(index)] = missedWinners[index];
+			}
+		}
+
+		return TopKHeap.toSortedSets(winners, getMeasuredNodeFactory());
+	}
+
+	/**
+	 * Winners of a query remembered along with the size of the snapshot they were
+	 * found in. The heap is never modified once remembered.
+	 */
+	@Immutable
+	private static final class CachedWinners {
+
+		private final int snapshotSize;
+		private final TopKHeap winners;
+
+		CachedWinners(final int snapshotSize, final TopKHeap winners) {
+			this.snapshotSize = snapshotSize;
+			this.winners = winners;
+		}
+	}
+}
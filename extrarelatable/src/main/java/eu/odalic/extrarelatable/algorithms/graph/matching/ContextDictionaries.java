@@ -0,0 +1,56 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+
+/**
+ * Provides the up to date {@link ContextDictionary}s of the matched graphs. The
+ * dictionary of a graph is kept only as long as the graph is alive.
+ * 
+ * @author Václav Brodec
+ *
+ */
+@ThreadSafe
+@Component
+public final class ContextDictionaries {
+
+	private final LoadingCache<BackgroundKnowledgeGraph, ContextDictionary> dictionaries;
+
+	/**
+	 * Creates the provider.
+	 */
+	public ContextDictionaries() {
+		this.dictionaries = CacheBuilder.newBuilder().weakKeys()
+				.build(new CacheLoader<BackgroundKnowledgeGraph, ContextDictionary>() {
+					@Override
+					public ContextDictionary load(final BackgroundKnowledgeGraph graph) {
+						return new ContextDictionary();
+					}
+				});
+	}
+
+	/**
+	 * Provides the dictionary of the graph, up to date with its current content.
+	 *
+	 * @param graph
+	 *            the graph
+	 * @return the dictionary
+	 */
+	ContextDictionary get(final BackgroundKnowledgeGraph graph) {
+		checkNotNull(graph);
+
+		final ContextDictionary dictionary = dictionaries.getUnchecked(graph);
+		dictionary.update(graph);
+
+		return dictionary;
+	}
+}
@@ -0,0 +1,201 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.collect.ImmutableList;
+
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.PropertyTree;
+import eu.odalic.extrarelatable.model.table.DeclaredEntity;
+
+/**
+ * Dictionary of the URIs of the declared context properties and classes
+ * present in a single {@link BackgroundKnowledgeGraph}. It assigns integer
+ * identifiers to the URIs and keeps the context of every property tree of the
+ * graph encoded, so that the context similarity of the matched nodes is
+ * computed on sorted integer arrays, without any allocation. Equal contexts
+ * are encoded just once and numbered, so that the trees of the same table,
+ * which typically share the context, can be told apart from the others by a
+ * single integer and their context similarity computed once per matching.
+ *
+ * <p>
+ * The dictionaries are provided by {@link ContextDictionaries} and extended
+ * incrementally as the graph grows. Only the contexts of the property trees of
+ * the graph are kept.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@ThreadSafe
+final class ContextDictionary {
+
+	/**
+	 * Encoded declared context of a property tree.
+	 */
+	@Immutable
+	static final class EncodedContext {
+
+		private final UriIdSet properties;
+		private final UriIdSet classes;
+		private final int id;
+
+		EncodedContext(final UriIdSet properties, final UriIdSet classes, final int id) {
+			this.properties = properties;
+			this.classes = classes;
+			this.id = id;
+		}
+
+		/**
+		 * @return the declared context column properties
+		 */
+		UriIdSet getProperties() {
+			return properties;
+		}
+
+		/**
+		 * @return the declared context column classes
+		 */
+		UriIdSet getClasses() {
+			return classes;
+		}
+
+		/**
+		 * @return number of the context, shared by all the property trees with
+		 *         equal declared context in the dictionary
+		 */
+		int getId() {
+			return id;
+		}
+	}
+
+	private final Map<URI, Integer> ids;
+	private final Map<PropertyTree, EncodedContext> contexts;
+
+	@GuardedBy("this")
+	private final Map<List<UriIdSet>, EncodedContext> distinctContexts;
+
+	private volatile int version;
+
+	/**
+	 * Number of the contexts encoded for the property trees which are not (yet)
+	 * part of the dictionary.
+	 */
+	static final int UNREGISTERED_CONTEXT_ID = -1;
+
+	ContextDictionary() {
+		this.ids = new ConcurrentHashMap<>();
+		this.contexts = new ConcurrentHashMap<>();
+		this.distinctContexts = new HashMap<>();
+		this.version = 0;
+	}
+
+	/**
+	 * Brings the dictionary up to date with the current content of the graph.
+	 *
+	 * @param graph
+	 *            the graph of the dictionary
+	 */
+	void update(final BackgroundKnowledgeGraph graph) {
+		if (graph.getVersion() == this.version) {
+			return;
+		}
+
+		synchronized (this) {
+			final List<PropertyTree> addedPropertyTrees = graph.getPropertyTreesAddedSince(this.version);
+			for (final PropertyTree propertyTree : addedPropertyTrees) {
+				contexts.put(propertyTree, intern(propertyTree));
+			}
+
+			this.version += addedPropertyTrees.size();
+		}
+	}
+
+	private EncodedContext intern(final PropertyTree propertyTree) {
+		final UriIdSet properties = intern(propertyTree.getContext().getDeclaredContextColumnProperties().values());
+		final UriIdSet classes = intern(propertyTree.getContext().getDeclaredContextColumnClasses().values());
+
+		return distinctContexts.computeIfAbsent(ImmutableList.of(properties, classes),
+				key -> new EncodedContext(properties, classes, distinctContexts.size()));
+	}
+
+	private UriIdSet intern(final Collection<? extends DeclaredEntity> entities) {
+		final int[] entitiesIds = new int[entities.size()];
+
+		int index = 0;
+		for (final DeclaredEntity entity : entities) {
+			Integer id = ids.get(entity.getUri());
+			if (id == null) {
+				id = ids.size();
+				ids.put(entity.getUri(), id);
+			}
+
+			entitiesIds[index++] = id;
+		}
+
+		return new UriIdSet(entitiesIds, 0);
+	}
+
+	/**
+	 * Encodes the URIs of the entities, without extending the dictionary.
+	 *
+	 * @param entities
+	 *            declared entities
+	 * @return the encoded set of their URIs
+	 */
+	UriIdSet encode(final Collection<? extends DeclaredEntity> entities) {
+		checkNotNull(entities);
+
+		final Set<URI> unknown = new HashSet<>();
+		final int[] known = new int[entities.size()];
+
+		int knownCount = 0;
+		for (final DeclaredEntity entity : entities) {
+			final Integer id = ids.get(entity.getUri());
+			if (id == null) {
+				unknown.add(entity.getUri());
+			} else {
+				known[knownCount++] = id;
+			}
+		}
+
+		return new UriIdSet(Arrays.copyOf(known, knownCount), unknown.size());
+	}
+
+	/**
+	 * Provides the encoded context of the property tree. Trees which have not
+	 * been added through the graph by the last update are encoded on demand,
+	 * without extending the dictionary, and their context is numbered by
+	 * {@value #UNREGISTERED_CONTEXT_ID}.
+	 *
+	 * @param propertyTree
+	 *            property tree
+	 * @return its encoded declared context
+	 */
+	EncodedContext getContext(final PropertyTree propertyTree) {
+		checkNotNull(propertyTree);
+
+		final EncodedContext context = contexts.get(propertyTree);
+		if (context != null) {
+			return context;
+		}
+
+		return new EncodedContext(encode(propertyTree.getContext().getDeclaredContextColumnProperties().values()),
+				encode(propertyTree.getContext().getDeclaredContextColumnClasses().values()),
+				UNREGISTERED_CONTEXT_ID);
+	}
+}
@@ -0,0 +1,193 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Splitter;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.bag.HeapSortedSampleStoreFactory;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+
+/**
+ * Approximate implementation of {@link TopKNodesMatcher}. The values of every
+ * node are described by a small vector of {@link SampleFeatures}, indexed by a
+ * {@link FeatureVectorTree} maintained for every matched graph. The nodes with
+ * the features nearest to the features of the query form a pool of a multiple
+ * of K candidates, and only the pool is measured by the exact distance, as in
+ * the {@link ContextAwareDistanceTopKNodesMatcher}.
+ *
+ * <p>
+ * The prefiltering trades the recall for the latency, so it can be limited to
+ * selected graphs; the other ones, the graphs smaller than the pool and the
+ * queries not concerning the values at all are matched exactly.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@ThreadSafe
+@Component("featureVector")
+public final class FeatureVectorTopKNodesMatcher extends AbstractTopKNodesMatcher {
+
+	/**
+	 * Default ratio of the size of the pool to K.
+	 */
+	public static final int INITIAL_DEFAULT_POOL_FACTOR = 16;
+
+	/**
+	 * Default number of nodes kept in a leaf bucket of the tree before it is
+	 * split.
+	 */
+	public static final int INITIAL_DEFAULT_BUCKET_CAPACITY = 32;
+
+	/**
+	 * Graph names configuration value which makes all the graphs prefiltered.
+	 */
+	public static final String ALL_GRAPHS = "*";
+
+	private static final String GRAPHS_CONFIGURATION_DELIMITER = ",";
+
+	private final int poolFactor;
+	private final Set<String> prefilteredGraphs;
+
+	private final ContextAwareDistanceTopKNodesMatcher exactMatcher;
+	private final LoadingCache<BackgroundKnowledgeGraph, FeatureVectorTree> trees;
+
+	/**
+	 * Constructs the matcher.
+	 *
+	 * @param distance
+	 *            used distance measure
+	 * @param measuredNodeFactory
+	 *            factory for nodes associated with their distance
+	 * @param snapshots
+	 *            provider of the snapshots of the matched graphs
+	 * @param defaultValuesWeight
+	 *            default weight of the contribution of the distance of numeric
+	 *            values to the overall distance
+	 * @param defaultPropertiesWeight
+	 *            default weight of the contribution of the property context
+	 *            distance to the overall distance
+	 * @param defaultClassesWeight
+	 *            default weight of the contribution of the class context distance
+	 *            to the overall distance
+	 * @param defaultK
+	 *            default value of K (the maximum number of the best matching nodes)
+	 * @param poolFactor
+	 *            ratio of the size of the pool to K
+	 * @param bucketCapacity
+	 *            number of nodes kept in a leaf bucket of the tree before it is
+	 *            split
+	 * @param prefilteredGraphs
+	 *            comma-separated names of the prefiltered graphs,
+	 *            {@value #ALL_GRAPHS} for all of them
+	 */
+	@Autowired
+	FeatureVectorTopKNodesMatcher(@Qualifier("Distance") final Distance distance,
+			final MeasuredNodeFactory measuredNodeFactory, final MatchingSnapshots snapshots,
+			@Value("${eu.odalic.extrarelatable.valuesWeight:0.5}") final double defaultValuesWeight,
+			@Value("${eu.odalic.extrarelatable.propertiesWeight:0.25}") final double defaultPropertiesWeight,
+			@Value("${eu.odalic.extrarelatable.classesWeight:0.25}") final double defaultClassesWeight,
+			@Value("${eu.odalic.extrarelatable.topKNeighbours?:50}") final int defaultK,
+			@Value("${eu.odalic.extrarelatable.featureVectorMatching.poolFactor:16}") final int poolFactor,
+			@Value("${eu.odalic.extrarelatable.featureVectorMatching.bucketCapacity:32}") final int bucketCapacity,
+			@Value("${eu.odalic.extrarelatable.featureVectorMatching.graphs:*}") final String prefilteredGraphs) {
+		super(distance, measuredNodeFactory, snapshots, defaultValuesWeight, defaultPropertiesWeight,
+				defaultClassesWeight, defaultK);
+
+		checkArgument(poolFactor >= 1, "The pool factor must be at least one!");
+		checkArgument(bucketCapacity >= 1, "The bucket capacity must be at least one!");
+		checkNotNull(prefilteredGraphs);
+
+		this.poolFactor = poolFactor;
+		this.prefilteredGraphs = ImmutableSet.copyOf(
+				Splitter.on(GRAPHS_CONFIGURATION_DELIMITER).trimResults().omitEmptyStrings().split(prefilteredGraphs));
+
+		this.exactMatcher = new ContextAwareDistanceTopKNodesMatcher(distance, measuredNodeFactory, snapshots);
+		this.trees = CacheBuilder.newBuilder().weakKeys()
+				.build(new CacheLoader<BackgroundKnowledgeGraph, FeatureVectorTree>() {
+					@Override
+					public FeatureVectorTree load(final BackgroundKnowledgeGraph graph) {
+						return new FeatureVectorTree(bucketCapacity);
+					}
+				});
+	}
+
+	/**
+	 * Constructs the matcher prefiltering all the graphs, using the defaults.
+	 *
+	 * @param distance
+	 *            used distance measure
+	 * @param measuredNodeFactory
+	 *            factory for nodes associated with their distance
+	 */
+	public FeatureVectorTopKNodesMatcher(final Distance distance, final MeasuredNodeFactory measuredNodeFactory) {
+		this(distance, measuredNodeFactory,
+				new MatchingSnapshots(new HeapSortedSampleStoreFactory(), new ContextDictionaries()),
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_VALUES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_PROPERTIES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_CLASSES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_K, INITIAL_DEFAULT_POOL_FACTOR,
+				INITIAL_DEFAULT_BUCKET_CAPACITY, ALL_GRAPHS);
+	}
+
+	@Override
+	SortedSet<MeasuredNode> match(final BackgroundKnowledgeGraph graph, final MatchingSnapshot snapshot,
+			final NodesMatchingQuery query) {
+		if (!isPrefiltered(graph) || query.isContextOnly()) {
+			return exactMatcher.match(graph, snapshot, query);
+		}
+
+		final int poolSize = (int) Math.min(Integer.MAX_VALUE, query.getK() * (long) poolFactor);
+		if (poolSize >= snapshot.size()) {
+			return exactMatcher.match(graph, snapshot, query);
+		}
+
+		final FeatureVectorTree tree = trees.getUnchecked(graph);
+		tree.update(snapshot);
+
+		final TopKHeap winners = new TopKHeap(query.getK());
+		for (final int index : tree.search(SampleFeatures.of(query.getSample()), poolSize)) {
+			// The tree may have been updated by a newer snapshot meanwhile.
+			if (index >= snapshot.size()) {
+				continue;
+			}
+
+			measure(query, snapshot.getNode(index), winners);
+		}
+
+		return winners.toSortedSet(getMeasuredNodeFactory());
+	}
+
+	@Override
+	List<SortedSet<MeasuredNode>> matchQueries(final BackgroundKnowledgeGraph graph, final MatchingSnapshot snapshot,
+			final List<NodesMatchingQuery> queries) {
+		if (!isPrefiltered(graph)) {
+			return exactMatcher.matchQueries(graph, snapshot, queries);
+		}
+
+		return super.matchQueries(graph, snapshot, queries);
+	}
+
+	private boolean isPrefiltered(final BackgroundKnowledgeGraph graph) {
+		return prefilteredGraphs.contains(ALL_GRAPHS) || prefilteredGraphs.contains(graph.getName());
+	}
+}
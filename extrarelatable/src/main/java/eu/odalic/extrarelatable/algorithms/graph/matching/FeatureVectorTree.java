@@ -0,0 +1,330 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * K-d tree indexing the {@link SampleFeatures} of the values of all the nodes
+ * of a single graph, identified by their indices in its
+ * {@link MatchingSnapshot}.
+ *
+ * <p>
+ * The tree is grown incrementally, catching up with the nodes added to the
+ * snapshots since the last update. The nodes are first collected in buckets,
+ * which are split only when they overflow, at the median of the feature with
+ * the widest range. A search visits the nearer branch first and the farther one
+ * only when the splitting plane is closer than the farthest of the nodes found
+ * so far.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@ThreadSafe
+final class FeatureVectorTree {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final int bucketCapacity;
+
+	private final ReadWriteLock lock;
+
+	private double[] features;
+	private int size;
+	private Element root;
+
+	/**
+	 * Creates an empty tree.
+	 *
+	 * @param bucketCapacity
+	 *            the number of nodes kept in a bucket before it is split
+	 */
+	FeatureVectorTree(final int bucketCapacity) {
+		checkArgument(bucketCapacity >= 1, "The bucket capacity must be at least one!");
+
+		this.bucketCapacity = bucketCapacity;
+		this.lock = new ReentrantReadWriteLock();
+		this.features = new double[INITIAL_CAPACITY * SampleFeatures.DIMENSION];
+		this.size = 0;
+		this.root = new Bucket(bucketCapacity);
+	}
+
+	/**
+	 * Inserts the nodes of the snapshot which have not been inserted yet.
+	 *
+	 * @param snapshot
+	 *            the latest snapshot of the indexed graph
+	 */
+	void update(final MatchingSnapshot snapshot) {
+		lock.readLock().lock();
+		try {
+			if (snapshot.size() <= size) {
+				return;
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		lock.writeLock().lock();
+		try {
+			if (features.length < snapshot.size() * SampleFeatures.DIMENSION) {
+				features = Arrays.copyOf(features,
+						Math.max(snapshot.size() * SampleFeatures.DIMENSION, 2 * features.length));
+			}
+
+			for (int index = size; index < snapshot.size(); index++) {
+				SampleFeatures.extract(snapshot.getSample(index), features, index * SampleFeatures.DIMENSION);
+				root = root.insert(index);
+			}
+
+			size = snapshot.size();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Searches for the nodes whose features are the closest to the given ones.
+	 *
+	 * @param queryFeatures
+	 *            the features of the query values
+	 * @param count
+	 *            maximum number of the found nodes
+	 * @return snapshot indices of the found nodes, in no particular order
+	 */
+	int[] search(final double[] queryFeatures, final int count) {
+		checkNotNull(queryFeatures);
+		checkArgument(queryFeatures.length == SampleFeatures.DIMENSION);
+		checkArgument(count >= 1, "The count must be at least one!");
+
+		final Neighbours neighbours = new Neighbours(count);
+
+		lock.readLock().lock();
+		try {
+			root.search(queryFeatures, neighbours);
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		return neighbours.toIndices();
+	}
+
+	private double getSquaredDistance(final double[] queryFeatures, final int index) {
+		final int offset = index * SampleFeatures.DIMENSION;
+
+		double squaredDistance = 0;
+		for (int dimension = 0; dimension < SampleFeatures.DIMENSION; dimension++) {
+			final double difference = queryFeatures[dimension] - features[offset + dimension];
+			squaredDistance += difference * difference;
+		}
+
+		return squaredDistance;
+	}
+
+	private double getFeature(final int index, final int dimension) {
+		return features[index * SampleFeatures.DIMENSION + dimension];
+	}
+
+	private abstract class Element {
+
+		abstract Element insert(int index);
+
+		abstract void search(double[] queryFeatures, Neighbours neighbours);
+	}
+
+	private final class Bucket extends Element {
+
+		private int[] indices;
+		private int count;
+		private int capacity;
+
+		Bucket(final int capacity) {
+			this.indices = new int[capacity + 1];
+			this.count = 0;
+			this.capacity = capacity;
+		}
+
+		@Override
+		Element insert(final int index) {
+			if (count == indices.length) {
+				indices = Arrays.copyOf(indices, 2 * indices.length);
+			}
+			indices[count++] = index;
+
+			if (count <= capacity) {
+				return this;
+			}
+
+			return split();
+		}
+
+		private Element split() {
+			int widestDimension = -1;
+			double widestRange = 0;
+			for (int dimension = 0; dimension < SampleFeatures.DIMENSION; dimension++) {
+				double minimum = Double.POSITIVE_INFINITY;
+				double maximum = Double.NEGATIVE_INFINITY;
+				for (int position = 0; position < count; position++) {
+					final double feature = getFeature(indices[position], dimension);
+
+					minimum = Math.min(minimum, feature);
+					maximum = Math.max(maximum, feature);
+				}
+
+				if (maximum - minimum > widestRange) {
+					widestDimension = dimension;
+					widestRange = maximum - minimum;
+				}
+			}
+
+			if (widestDimension == -1) {
+				// All the nodes have the same features, a split would not separate them.
+				capacity *= 2;
+
+				return this;
+			}
+
+			final double[] sortedFeatures = new double[count];
+			for (int position = 0; position < count; position++) {
+				sortedFeatures[position] = getFeature(indices[position], widestDimension);
+			}
+			Arrays.sort(sortedFeatures);
+
+			int medianPosition = count / 2;
+			while (sortedFeatures[medianPosition] == sortedFeatures[0]) {
+				medianPosition++;
+			}
+
+			final Split split = new Split(widestDimension, sortedFeatures[medianPosition]);
+			for (int position = 0; position < count; position++) {
+				split.insert(indices[position]);
+			}
+
+			return split;
+		}
+
+		@Override
+		void search(final double[] queryFeatures, final Neighbours neighbours) {
+			for (int position = 0; position < count; position++) {
+				final int index = indices[position];
+
+				neighbours.offer(index, getSquaredDistance(queryFeatures, index));
+			}
+		}
+	}
+
+	private final class Split extends Element {
+
+		private final int dimension;
+		private final double pivot;
+
+		private Element lower;
+		private Element upper;
+
+		Split(final int dimension, final double pivot) {
+			this.dimension = dimension;
+			this.pivot = pivot;
+
+			this.lower = new Bucket(bucketCapacity);
+			this.upper = new Bucket(bucketCapacity);
+		}
+
+		@Override
+		Element insert(final int index) {
+			if (getFeature(index, dimension) < pivot) {
+				lower = lower.insert(index);
+			} else {
+				upper = upper.insert(index);
+			}
+
+			return this;
+		}
+
+		@Override
+		void search(final double[] queryFeatures, final Neighbours neighbours) {
+			final double difference = queryFeatures[dimension] - pivot;
+			final Element nearer = difference < 0 ? lower : upper;
+			final Element farther = difference < 0 ? upper : lower;
+
+			nearer.search(queryFeatures, neighbours);
+			if (difference * difference <= neighbours.getThreshold()) {
+				farther.search(queryFeatures, neighbours);
+			}
+		}
+	}
+
+	/**
+	 * Bounded max-heap of the nearest nodes found so far, keyed by their squared
+	 * distances.
+	 */
+	private static final class Neighbours {
+
+		private final int[] indices;
+		private final double[] squaredDistances;
+		private int count;
+
+		Neighbours(final int capacity) {
+			this.indices = new int[capacity];
+			this.squaredDistances = new double[capacity];
+			this.count = 0;
+		}
+
+		double getThreshold() {
+			return count < indices.length ? Double.POSITIVE_INFINITY : squaredDistances[0];
+		}
+
+		void offer(final int index, final double squaredDistance) {
+			if (count < indices.length) {
+				int position = count++;
+				while (position > 0) {
+					final int parent = (position - 1) / 2;
+					if (squaredDistances[parent] >= squaredDistance) {
+						break;
+					}
+
+					indices[position] = indices[parent];
+					squaredDistances[position] = squaredDistances[parent];
+					position = parent;
+				}
+				indices[position] = index;
+				squaredDistances[position] = squaredDistance;
+
+				return;
+			}
+
+			if (squaredDistance >= squaredDistances[0]) {
+				return;
+			}
+
+			int position = 0;
+			while (true) {
+				final int left = 2 * position + 1;
+				if (left >= count) {
+					break;
+				}
+
+				final int right = left + 1;
+				final int largest = right < count && squaredDistances[right] > squaredDistances[left] ? right : left;
+				if (squaredDistances[largest] <= squaredDistance) {
+					break;
+				}
+
+				indices[position] = indices[largest];
+				squaredDistances[position] = squaredDistances[largest];
+				position = largest;
+			}
+			indices[position] = index;
+			squaredDistances[position] = squaredDistance;
+		}
+
+		int[] toIndices() {
+			return Arrays.copyOf(indices, count);
+		}
+	}
+}
@@ -0,0 +1,229 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+
+/**
+ * Inverted index of the nodes of a single graph, identified by their indices in
+ * its {@link MatchingSnapshot}, by the buckets of the orders of magnitude and
+ * the signs covered by their values.
+ *
+ * <p>
+ * The buckets are ordered along with the values they contain: the decades of
+ * the negative values from the largest magnitude, the zero and the decades of
+ * the positive values from the smallest magnitude, so that the values of a node
+ * cover a contiguous range of them. A node is listed in every bucket of its
+ * range, and the nodes with less than two values in all of them. The index is
+ * extended incrementally as the snapshots grow.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@ThreadSafe
+final class MagnitudeIndex {
+
+	/**
+	 * The magnitude of the smallest decade. Smaller non-zero magnitudes fall in
+	 * it as well.
+	 */
+	private static final int MINIMUM_EXPONENT = -12;
+
+	/**
+	 * The magnitude of the largest decade. Larger magnitudes fall in it as well.
+	 */
+	private static final int MAXIMUM_EXPONENT = 15;
+
+	private static final int DECADES_COUNT = MAXIMUM_EXPONENT - MINIMUM_EXPONENT + 1;
+
+	private static final int ZERO_BUCKET = DECADES_COUNT;
+
+	/**
+	 * Number of the buckets.
+	 */
+	static final int BUCKETS_COUNT = 2 * DECADES_COUNT + 1;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final ReadWriteLock lock;
+
+	private final int[][] buckets;
+	private final int[] bucketsSizes;
+
+	private int[] firstBuckets;
+	private int[] lastBuckets;
+	private int size;
+
+	/**
+	 * Creates an empty index.
+	 */
+	MagnitudeIndex() {
+		this.lock = new ReentrantReadWriteLock();
+
+		this.buckets = new int[BUCKETS_COUNT][INITIAL_CAPACITY];
+		this.bucketsSizes = new int[BUCKETS_COUNT];
+
+		this.firstBuckets = new int[INITIAL_CAPACITY];
+		this.lastBuckets = new int[INITIAL_CAPACITY];
+		this.size = 0;
+	}
+
+	/**
+	 * Provides the bucket of the value. The buckets are non-decreasing with the
+	 * values.
+	 *
+	 * @param value
+	 *            a value
+	 * @return the bucket index
+	 */
+	static int getBucket(final double value) {
+		if (value == 0) {
+			return ZERO_BUCKET;
+		}
+
+		final int exponent = Math.max(MINIMUM_EXPONENT,
+				Math.min(MAXIMUM_EXPONENT, (int) Math.floor(Math.log10(Math.abs(value)))));
+		if (value < 0) {
+			return MAXIMUM_EXPONENT - exponent;
+		} else {
+			return ZERO_BUCKET + 1 + exponent - MINIMUM_EXPONENT;
+		}
+	}
+
+	/**
+	 * Indexes the nodes of the snapshot which have not been indexed yet.
+	 *
+	 * @param snapshot
+	 *            the latest snapshot of the indexed graph
+	 */
+	void update(final MatchingSnapshot snapshot) {
+		lock.readLock().lock();
+		try {
+			if (snapshot.size() <= size) {
+				return;
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		lock.writeLock().lock();
+		try {
+			if (firstBuckets.length < snapshot.size()) {
+				final int capacity = Math.max(snapshot.size(), 2 * firstBuckets.length);
+
+				firstBuckets = Arrays.copyOf(firstBuckets, capacity);
+				lastBuckets = Arrays.copyOf(lastBuckets, capacity);
+			}
+
+			for (int index = size; index < snapshot.size(); index++) {
+				final SortedSample sample = snapshot.getSample(index);
+
+				final int firstBucket;
+				final int lastBucket;
+				if (sample.size() < 2) {
+					firstBucket = 0;
+					lastBucket = BUCKETS_COUNT - 1;
+				} else {
+					firstBucket = getBucket(sample.getMinimum());
+					lastBucket = getBucket(sample.getMaximum());
+				}
+
+				firstBuckets[index] = firstBucket;
+				lastBuckets[index] = lastBucket;
+				for (int bucket = firstBucket; bucket <= lastBucket; bucket++) {
+					add(bucket, index);
+				}
+			}
+
+			size = snapshot.size();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void add(final int bucket, final int index) {
+		if (bucketsSizes[bucket] == buckets[bucket].length) {
+			buckets[bucket] = Arrays.copyOf(buckets[bucket], 2 * buckets[bucket].length);
+		}
+
+		buckets[bucket][bucketsSizes[bucket]++] = index;
+	}
+
+	/**
+	 * Lists the indexed nodes whose buckets overlap the given range of buckets,
+	 * each of them just once.
+	 *
+	 * @param firstBucket
+	 *            the first bucket of the range
+	 * @param lastBucket
+	 *            the last bucket of the range
+	 * @return snapshot indices of the overlapping nodes
+	 */
+	int[] getOverlapping(final int firstBucket, final int lastBucket) {
+		return collect(firstBucket, lastBucket, 0, BUCKETS_COUNT - 1);
+	}
+
+	/**
+	 * Lists the indexed nodes whose buckets all precede the given one.
+	 *
+	 * @param bucket
+	 *            the bucket
+	 * @return snapshot indices of the preceding nodes
+	 */
+	int[] getPreceding(final int bucket) {
+		return collect(0, bucket - 1, 0, bucket - 1);
+	}
+
+	/**
+	 * Lists the indexed nodes whose buckets all follow the given one.
+	 *
+	 * @param bucket
+	 *            the bucket
+	 * @return snapshot indices of the following nodes
+	 */
+	int[] getFollowing(final int bucket) {
+		return collect(bucket + 1, BUCKETS_COUNT - 1, bucket + 1, BUCKETS_COUNT - 1);
+	}
+
+	/**
+	 * Collects the nodes listed in the range of buckets, whose first bucket is not
+	 * lower and whose last bucket is not higher than the given bounds. Each node
+	 * is collected only in the first bucket of the range it is listed in.
+	 */
+	private int[] collect(final int fromBucket, final int toBucket, final int lowestFirstBucket,
+			final int highestLastBucket) {
+		lock.readLock().lock();
+		try {
+			int count = 0;
+			for (int bucket = fromBucket; bucket <= toBucket; bucket++) {
+				count += bucketsSizes[bucket];
+			}
+
+			final int[] collected = new int[count];
+			int collectedCount = 0;
+			for (int bucket = fromBucket; bucket <= toBucket; bucket++) {
+				final int[] indices = buckets[bucket];
+				for (int position = 0; position < bucketsSizes[bucket]; position++) {
+					final int index = indices[position];
+
+					final int firstBucket = firstBuckets[index];
+					if (firstBucket < lowestFirstBucket || lastBuckets[index] > highestLastBucket
+							|| Math.max(firstBucket, fromBucket) != bucket) {
+						continue;
+					}
+
+					collected[collectedCount++] = index;
+				}
+			}
+
+			return Arrays.copyOf(collected, collectedCount);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+}
@@ -0,0 +1,153 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import java.util.SortedSet;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.bag.HeapSortedSampleStoreFactory;
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+
+/**
+ * Implementation of {@link TopKNodesMatcher} which first measures only the
+ * nodes whose orders of magnitude and signs overlap the ones of the query
+ * values, looked up in a {@link MagnitudeIndex} maintained for every matched
+ * graph. The values of the rest of the nodes lie entirely below or entirely
+ * above the query values, which bounds their distance from below (for the
+ * Kolmogorov-Smirnov distance it is exactly one). They are measured only when
+ * the bound does not exclude them, typically when fewer than K nodes overlap.
+ *
+ * <p>
+ * The results are the same as the ones of the
+ * {@link ContextAwareDistanceTopKNodesMatcher}, which also answers the queries
+ * not concerning the values at all.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@ThreadSafe
+@Component("magnitudeIndex")
+public final class MagnitudeIndexTopKNodesMatcher extends AbstractTopKNodesMatcher {
+
+	private final ContextAwareDistanceTopKNodesMatcher scanningMatcher;
+	private final LoadingCache<BackgroundKnowledgeGraph, MagnitudeIndex> indices;
+
+	/**
+	 * Constructs the matcher.
+	 *
+	 * @param distance
+	 *            used distance measure
+	 * @param measuredNodeFactory
+	 *            factory for nodes associated with their distance
+	 * @param snapshots
+	 *            provider of the snapshots of the matched graphs
+	 * @param defaultValuesWeight
+	 *            default weight of the contribution of the distance of numeric
+	 *            values to the overall distance
+	 * @param defaultPropertiesWeight
+	 *            default weight of the contribution of the property context
+	 *            distance to the overall distance
+	 * @param defaultClassesWeight
+	 *            default weight of the contribution of the class context distance
+	 *            to the overall distance
+	 * @param defaultK
+	 *            default value of K (the maximum number of the best matching nodes)
+	 */
+	@Autowired
+	MagnitudeIndexTopKNodesMatcher(@Qualifier("Distance") final Distance distance,
+			final MeasuredNodeFactory measuredNodeFactory, final MatchingSnapshots snapshots,
+			@Value("${eu.odalic.extrarelatable.valuesWeight:0.5}") final double defaultValuesWeight,
+			@Value("${eu.odalic.extrarelatable.propertiesWeight:0.25}") final double defaultPropertiesWeight,
+			@Value("${eu.odalic.extrarelatable.classesWeight:0.25}") final double defaultClassesWeight,
+			@Value("${eu.odalic.extrarelatable.topKNeighbours?:50}") final int defaultK) {
+		super(distance, measuredNodeFactory, snapshots, defaultValuesWeight, defaultPropertiesWeight,
+				defaultClassesWeight, defaultK);
+
+		this.scanningMatcher = new ContextAwareDistanceTopKNodesMatcher(distance, measuredNodeFactory, snapshots);
+		this.indices = CacheBuilder.newBuilder().weakKeys()
+				.build(new CacheLoader<BackgroundKnowledgeGraph, MagnitudeIndex>() {
+					@Override
+					public MagnitudeIndex load(final BackgroundKnowledgeGraph graph) {
+						return new MagnitudeIndex();
+					}
+				});
+	}
+
+	/**
+	 * Constructs the matcher using the defaults.
+	 *
+	 * @param distance
+	 *            used distance measure
+	 * @param measuredNodeFactory
+	 *            factory for nodes associated with their distance
+	 */
+	public MagnitudeIndexTopKNodesMatcher(final Distance distance, final MeasuredNodeFactory measuredNodeFactory) {
+		this(distance, measuredNodeFactory,
+				new MatchingSnapshots(new HeapSortedSampleStoreFactory(), new ContextDictionaries()),
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_VALUES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_PROPERTIES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_CLASSES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_K);
+	}
+
+	@Override
+	SortedSet<MeasuredNode> match(final BackgroundKnowledgeGraph graph, final MatchingSnapshot snapshot,
+			final NodesMatchingQuery query) {
+		final SortedSample sample = query.getSample();
+		if (query.isContextOnly() || sample.size() < 2) {
+			return scanningMatcher.match(graph, snapshot, query);
+		}
+
+		final MagnitudeIndex index = indices.getUnchecked(graph);
+		index.update(snapshot);
+
+		final int firstBucket = MagnitudeIndex.getBucket(sample.getMinimum());
+		final int lastBucket = MagnitudeIndex.getBucket(sample.getMaximum());
+
+		final Distance distance = getDistance();
+		final TopKHeap winners = new TopKHeap(query.getK());
+		final SharedDistancesCache cache = new SharedDistancesCache(snapshot.getSharedCount(),
+				snapshot.getContextsCount());
+
+		measure(query, snapshot, index.getOverlapping(firstBucket, lastBucket), winners, cache);
+
+		// The nodes of the preceding buckets have all their values below the query minimum.
+		if (query.measureRangeLowerBound(distance, Double.NEGATIVE_INFINITY,
+				Math.nextDown(sample.getMinimum())) <= winners.getThreshold()) {
+			measure(query, snapshot, index.getPreceding(firstBucket), winners, cache);
+		}
+
+		// And the nodes of the following ones above the query maximum.
+		if (query.measureRangeLowerBound(distance, Math.nextUp(sample.getMaximum()),
+				Double.POSITIVE_INFINITY) <= winners.getThreshold()) {
+			measure(query, snapshot, index.getFollowing(lastBucket), winners, cache);
+		}
+
+		return winners.toSortedSet(getMeasuredNodeFactory());
+	}
+
+	private void measure(final NodesMatchingQuery query, final MatchingSnapshot snapshot, final int[] candidates,
+			final TopKHeap winners, final SharedDistancesCache cache) {
+		for (final int candidate : candidates) {
+			// The index may have been updated by a newer snapshot meanwhile.
+			if (candidate >= snapshot.size()) {
+				continue;
+			}
+
+			measure(query, snapshot, candidate, winners, cache);
+		}
+	}
+}
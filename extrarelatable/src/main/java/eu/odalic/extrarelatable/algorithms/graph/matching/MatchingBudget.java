@@ -0,0 +1,193 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Limit of the time and of the work spent on a single request for matching,
+ * after which the matching is cut short and the best matching nodes found so
+ * far are returned. The budget also records whether it has been exhausted and
+ * how large part of the matched graphs has been covered by the matching.
+ *
+ * <p>
+ * The work is measured in the evaluations of the distance of the values of a
+ * query and of a candidate node. The candidates excluded by a bound and the
+ * distances taken from a cache are not charged. The budget is checked before
+ * measuring each of the property trees of the graph, so it may be exceeded by
+ * the evaluations spent on a single tree.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@ThreadSafe
+public final class MatchingBudget {
+
+	private static final long UNLIMITED = Long.MAX_VALUE;
+
+	private final long deadline;
+	private final long maximumEvaluations;
+
+	private final AtomicLong evaluationsCount;
+	private final AtomicLong coveredCount;
+	private final AtomicLong totalCount;
+
+	private volatile boolean exhausted;
+
+	private MatchingBudget(final long deadline, final long maximumEvaluations) {
+		this.deadline = deadline;
+		this.maximumEvaluations = maximumEvaluations;
+
+		this.evaluationsCount = new AtomicLong();
+		this.coveredCount = new AtomicLong();
+		this.totalCount = new AtomicLong();
+		this.exhausted = false;
+	}
+
+	/**
+	 * Creates a budget which never runs out.
+	 *
+	 * @return the unlimited budget
+	 */
+	public static MatchingBudget unlimited() {
+		return new MatchingBudget(UNLIMITED, UNLIMITED);
+	}
+
+	/**
+	 * Creates a budget limited by the time elapsed since its creation.
+	 *
+	 * @param timeLimit
+	 *            the time limit
+	 * @param unit
+	 *            unit of the time limit
+	 * @return the budget
+	 */
+	public static MatchingBudget ofTime(final long timeLimit, final TimeUnit unit) {
+		return of(timeLimit, unit, UNLIMITED);
+	}
+
+	/**
+	 * Creates a budget limited by the number of the evaluations of the distance.
+	 *
+	 * @param maximumEvaluations
+	 *            the maximum number of the evaluations
+	 * @return the budget
+	 */
+	public static MatchingBudget ofEvaluations(final long maximumEvaluations) {
+		checkArgument(maximumEvaluations >= 0, "The maximum number of evaluations must be at least zero!");
+
+		return new MatchingBudget(UNLIMITED, maximumEvaluations);
+	}
+
+	/**
+	 * Creates a budget limited by both the time elapsed since its creation and
+	 * the number of the evaluations of the distance, whichever runs out first.
+	 *
+	 * @param timeLimit
+	 *            the time limit
+	 * @param unit
+	 *            unit of the time limit
+	 * @param maximumEvaluations
+	 *            the maximum number of the evaluations
+	 * @return the budget
+	 */
+	public static MatchingBudget of(final long timeLimit, final TimeUnit unit, final long maximumEvaluations) {
+		checkArgument(timeLimit >= 0, "The time limit must be at least zero!");
+		checkNotNull(unit);
+		checkArgument(maximumEvaluations >= 0, "The maximum number of evaluations must be at least zero!");
+
+		final long now = System.nanoTime();
+		final long timeLimitNanos = unit.toNanos(timeLimit);
+
+		return new MatchingBudget(timeLimitNanos >= UNLIMITED - now ? UNLIMITED : now + timeLimitNanos,
+				maximumEvaluations);
+	}
+
+	/**
+	 * @return true if the budget limits the matching at all
+	 */
+	public boolean isLimited() {
+		return deadline != UNLIMITED || maximumEvaluations != UNLIMITED;
+	}
+
+	/**
+	 * @return true if the matching has been cut short as the budget ran out, and
+	 *         so the results may not be the best matching nodes
+	 */
+	public boolean isExhausted() {
+		return exhausted;
+	}
+
+	/**
+	 * @return the number of the evaluations of the distance spent so far
+	 */
+	public long getEvaluationsCount() {
+		return evaluationsCount.get();
+	}
+
+	/**
+	 * Provides the fraction of the nodes of the matched graphs which have been
+	 * either measured or excluded from the matching by a bound on their distance.
+	 *
+	 * @return the covered fraction, one if nothing has been matched yet
+	 */
+	public double getCoveredFraction() {
+		final long total = totalCount.get();
+		if (total == 0) {
+			return 1;
+		}
+
+		return ((double) coveredCount.get()) / total;
+	}
+
+	/**
+	 * Checks whether there is anything left in the budget before some further
+	 * work. If not, the budget is marked as exhausted.
+	 *
+	 * @return true if the work may proceed
+	 */
+	boolean tryProceed() {
+		if (evaluationsCount.get() < maximumEvaluations
+				&& (deadline == UNLIMITED || System.nanoTime() - deadline < 0)) {
+			return true;
+		}
+
+		exhausted = true;
+		return false;
+	}
+
+	/**
+	 * Charges the budget with the spent evaluations.
+	 *
+	 * @param evaluations
+	 *            number of the spent evaluations
+	 */
+	void charge(final long evaluations) {
+		evaluationsCount.addAndGet(evaluations);
+	}
+
+	/**
+	 * Records the coverage of a single graph by the matching.
+	 *
+	 * @param covered
+	 *            number of the covered nodes
+	 * @param total
+	 *            number of all the nodes of the graph
+	 */
+	void cover(final long covered, final long total) {
+		coveredCount.addAndGet(covered);
+		totalCount.addAndGet(total);
+	}
+
+	@Override
+	public String toString() {
+		return "MatchingBudget [deadline=" + deadline + ", maximumEvaluations=" + maximumEvaluations
+				+ ", evaluationsCount=" + evaluationsCount + ", exhausted=" + exhausted + ", coveredFraction="
+				+ getCoveredFraction() + "]";
+	}
+}
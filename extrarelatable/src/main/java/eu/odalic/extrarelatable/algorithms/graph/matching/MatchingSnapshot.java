@@ -0,0 +1,493 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import eu.odalic.extrarelatable.algorithms.graph.matching.ContextDictionary.EncodedContext;
+import eu.odalic.extrarelatable.model.bag.QuantileEnvelope;
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+import eu.odalic.extrarelatable.model.bag.SortedSampleStore;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.Property;
+import eu.odalic.extrarelatable.model.graph.PropertyTree;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+
+/**
+ * Flattened immutable view of all the nodes of a
+ * {@link BackgroundKnowledgeGraph} at some version, scanned by the matchers
+ * instead of the object graph of the properties, trees and nodes.
+ *
+ * <p>
+ * The nodes are indexed in the order of addition to the graph. The values of
+ * the nodes are packed one after another in a {@link SortedSampleStore} (either
+ * on the heap or off it, depending on the configuration), each distinct
+ * distribution just once, shared by all the nodes holding it. The stored values
+ * are kept by the snapshots only, the nodes themselves, shared with the copies
+ * of the graph and with the snapshots of other matchers, are left untouched, so
+ * that releasing the store never affects them. The encoded contexts are kept per
+ * property tree, referred to from the nodes by an index, each numbered as the
+ * distinct context it is equal to. The nodes of each property tree are laid out
+ * in pre-order, so that every subtree occupies a contiguous range of indices,
+ * which is kept together with the range of the values held by the subtree. The
+ * roots of the property trees are also listed by their properties. When the
+ * graph changes, the snapshot is not rebuilt, only the nodes of the added trees
+ * are appended to the shared arrays, beyond the reach of the older snapshots.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@Immutable
+final class MatchingSnapshot {
+
+	private final int size;
+	private final Node[] nodes;
+	private final SortedSample[] samples;
+	private final int[] propertyTreeIndices;
+	private final int[] sharedSlots;
+	private final int sharedCount;
+	private final int[] subtreeEnds;
+	private final double[] subtreeMinima;
+	private final double[] subtreeMaxima;
+	private final PropertyTree[] propertyTrees;
+	private final EncodedContext[] contexts;
+	private final int contextsCount;
+	private final int propertiesCount;
+	private final Property[] properties;
+	private final QuantileEnvelope[] envelopes;
+	private final int[][] propertyRoots;
+	private final int[] propertyRootsCounts;
+	private final ContextDictionary dictionary;
+
+	private MatchingSnapshot(final int size, final Node[] nodes, final SortedSample[] samples,
+			final int[] propertyTreeIndices, final int[] sharedSlots, final int sharedCount, final int[] subtreeEnds, final double[] subtreeMinima,
+			final double[] subtreeMaxima, final PropertyTree[] propertyTrees, final EncodedContext[] contexts,
+			final int contextsCount, final int propertiesCount, final Property[] properties, final QuantileEnvelope[] envelopes,
+			final int[][] propertyRoots, final int[] propertyRootsCounts, final ContextDictionary dictionary) {
+		this.size = size;
+		this.nodes = nodes;
+		this.samples = samples;
+		this.propertyTreeIndices = propertyTreeIndices;
+		this.sharedSlots = sharedSlots;
+		this.sharedCount = sharedCount;
+		this.subtreeEnds = subtreeEnds;
+		this.subtreeMinima = subtreeMinima;
+		this.subtreeMaxima = subtreeMaxima;
+		this.propertyTrees = propertyTrees;
+		this.contexts = contexts;
+		this.contextsCount = contextsCount;
+		this.propertiesCount = propertiesCount;
+		this.properties = properties;
+		this.envelopes = envelopes;
+		this.propertyRoots = propertyRoots;
+		this.propertyRootsCounts = propertyRootsCounts;
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * @return number of the nodes
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @param index
+	 *            index of the node
+	 * @return the node
+	 */
+	Node getNode(final int index) {
+		return nodes[index];
+	}
+
+	/**
+	 * @param index
+	 *            index of the node
+	 * @return the values of the node
+	 */
+	SortedSample getSample(final int index) {
+		return samples[index];
+	}
+
+	/**
+	 * @param index
+	 *            index of the node
+	 * @return slot of the distribution of the values of the node, shared with
+	 *         other nodes of the snapshot, or -1 when the distribution is unique
+	 */
+	int getSharedSlot(final int index) {
+		final int slot = sharedSlots[index];
+
+		// The slot may have been assigned only after this snapshot was taken.
+		return slot < sharedCount ? slot : -1;
+	}
+
+	/**
+	 * @return number of the distributions shared by several nodes
+	 */
+	int getSharedCount() {
+		return sharedCount;
+	}
+
+	/**
+	 * @param index
+	 *            index of the node
+	 * @return index following the last node of the subtree rooted in the node,
+	 *         which occupies all the indices in between
+	 */
+	int getSubtreeEnd(final int index) {
+		return subtreeEnds[index];
+	}
+
+	/**
+	 * @param index
+	 *            index of the node
+	 * @return the least value held by the nodes of the subtree rooted in the
+	 *         node, {@link Double#NEGATIVE_INFINITY} if any of them holds less
+	 *         than two values
+	 */
+	double getSubtreeMinimum(final int index) {
+		return subtreeMinima[index];
+	}
+
+	/**
+	 * @param index
+	 *            index of the node
+	 * @return the greatest value held by the nodes of the subtree rooted in the
+	 *         node, {@link Double#POSITIVE_INFINITY} if any of them holds less
+	 *         than two values
+	 */
+	double getSubtreeMaximum(final int index) {
+		return subtreeMaxima[index];
+	}
+
+	/**
+	 * @param index
+	 *            index of the node
+	 * @return the property tree of the node
+	 */
+	PropertyTree getPropertyTree(final int index) {
+		return propertyTrees[propertyTreeIndices[index]];
+	}
+
+	/**
+	 * @param index
+	 *            index of the node
+	 * @return the encoded declared context of the node
+	 */
+	EncodedContext getContext(final int index) {
+		return contexts[propertyTreeIndices[index]];
+	}
+
+	/**
+	 * @return upper bound of the numbers of the distinct contexts of the nodes
+	 */
+	int getContextsCount() {
+		return contextsCount;
+	}
+
+	/**
+	 * @return number of the properties of the nodes
+	 */
+	int getPropertiesCount() {
+		return propertiesCount;
+	}
+
+	/**
+	 * @param propertyIndex
+	 *            index of the property
+	 * @return the property
+	 */
+	Property getProperty(final int propertyIndex) {
+		return properties[propertyIndex];
+	}
+
+	/**
+	 * @param propertyIndex
+	 *            index of the property
+	 * @return envelope of the quantiles of the values of the property, including
+	 *         at least all its instances in the snapshot
+	 */
+	QuantileEnvelope getEnvelope(final int propertyIndex) {
+		return envelopes[propertyIndex];
+	}
+
+	/**
+	 * @param propertyIndex
+	 *            index of the property
+	 * @return number of the instances of the property in the snapshot
+	 */
+	int getPropertyRootsCount(final int propertyIndex) {
+		return propertyRootsCounts[propertyIndex];
+	}
+
+	/**
+	 * @param propertyIndex
+	 *            index of the property
+	 * @param rootIndex
+	 *            index of the instance of the property, in the order of addition
+	 * @return index of the root node of the instance
+	 */
+	int getPropertyRoot(final int propertyIndex, final int rootIndex) {
+		return propertyRoots[propertyIndex][rootIndex];
+	}
+
+	/**
+	 * Provides the context dictionary of the graph, which knows at least all the
+	 * URIs of the contexts of the nodes of the snapshot. The queries encoded by
+	 * it after the snapshot was taken are thus safe to measure against the
+	 * snapshot, unlike those encoded before.
+	 *
+	 * @return the context dictionary of the graph
+	 */
+	ContextDictionary getDictionary() {
+		return dictionary;
+	}
+
+	@Override
+	public String toString() {
+		return "MatchingSnapshot [size=" + size + "]";
+	}
+
+	/**
+	 * Grows the arrays shared by the snapshots of a single graph.
+	 */
+	@ThreadSafe
+	static final class Builder implements Closeable {
+
+		private static final int INITIAL_CAPACITY = 16;
+
+		private final SortedSampleStore store;
+		private final ContextDictionary dictionary;
+
+		private Node[] nodes;
+		private SortedSample[] samples;
+		private int[] propertyTreeIndices;
+		private int[] sharedSlots;
+		private int sharedCount;
+		private int[] subtreeEnds;
+		private double[] subtreeMinima;
+		private double[] subtreeMaxima;
+		private int size;
+
+		private final Map<SortedSample, Distribution> distributions;
+
+		private PropertyTree[] propertyTrees;
+		private EncodedContext[] contexts;
+		private int contextsCount;
+		private int propertyTreesCount;
+
+		private final Map<Property, Integer> propertyIndices;
+		private Property[] properties;
+		private QuantileEnvelope[] envelopes;
+		private int[][] propertyRoots;
+		private int[] propertyRootsCounts;
+		private int propertiesCount;
+
+		private volatile int version;
+		private volatile MatchingSnapshot current;
+
+		Builder(final SortedSampleStore store, final ContextDictionary dictionary) {
+			checkNotNull(store);
+			checkNotNull(dictionary);
+
+			this.store = store;
+			this.dictionary = dictionary;
+			this.nodes = new Node[INITIAL_CAPACITY];
+			this.samples = new SortedSample[INITIAL_CAPACITY];
+			this.propertyTreeIndices = new int[INITIAL_CAPACITY];
+			this.sharedSlots = new int[INITIAL_CAPACITY];
+			this.sharedCount = 0;
+			this.distributions = new HashMap<>();
+			this.subtreeEnds = new int[INITIAL_CAPACITY];
+			this.subtreeMinima = new double[INITIAL_CAPACITY];
+			this.subtreeMaxima = new double[INITIAL_CAPACITY];
+			this.size = 0;
+			this.propertyTrees = new PropertyTree[INITIAL_CAPACITY];
+			this.contexts = new EncodedContext[INITIAL_CAPACITY];
+			this.contextsCount = 0;
+			this.propertyTreesCount = 0;
+			this.propertyIndices = new IdentityHashMap<>();
+			this.properties = new Property[INITIAL_CAPACITY];
+			this.envelopes = new QuantileEnvelope[INITIAL_CAPACITY];
+			this.propertyRoots = new int[INITIAL_CAPACITY][];
+			this.propertyRootsCounts = new int[INITIAL_CAPACITY];
+			this.propertiesCount = 0;
+			this.version = 0;
+			this.current = snapshot();
+		}
+
+		MatchingSnapshot update(final BackgroundKnowledgeGraph graph) {
+			if (graph.getVersion() == this.version) {
+				return this.current;
+			}
+
+			synchronized (this) {
+				final List<PropertyTree> addedPropertyTrees = graph.getPropertyTreesAddedSince(this.version);
+
+				// The dictionary must know the contexts before the nodes are exposed.
+				dictionary.update(graph);
+				for (final PropertyTree propertyTree : addedPropertyTrees) {
+					add(propertyTree, dictionary.getContext(propertyTree));
+				}
+
+				this.current = snapshot();
+				this.version += addedPropertyTrees.size();
+
+				return this.current;
+			}
+		}
+
+		private void add(final PropertyTree propertyTree, final EncodedContext context) {
+			if (propertyTreesCount == propertyTrees.length) {
+				propertyTrees = Arrays.copyOf(propertyTrees, 2 * propertyTrees.length);
+				contexts = Arrays.copyOf(contexts, 2 * contexts.length);
+			}
+
+			final int propertyTreeIndex = propertyTreesCount++;
+			propertyTrees[propertyTreeIndex] = propertyTree;
+			contexts[propertyTreeIndex] = context;
+			contextsCount = Math.max(contextsCount, context.getId() + 1);
+
+			final int start = size;
+			addRoot(propertyTree.getProperty(), start);
+
+			final Map<Node, Integer> indices = new IdentityHashMap<>();
+			for (final Node node : propertyTree) {
+				if (size == nodes.length) {
+					nodes = Arrays.copyOf(nodes, 2 * nodes.length);
+					samples = Arrays.copyOf(samples, 2 * samples.length);
+					propertyTreeIndices = Arrays.copyOf(propertyTreeIndices, 2 * propertyTreeIndices.length);
+					sharedSlots = Arrays.copyOf(sharedSlots, 2 * sharedSlots.length);
+					subtreeEnds = Arrays.copyOf(subtreeEnds, 2 * subtreeEnds.length);
+					subtreeMinima = Arrays.copyOf(subtreeMinima, 2 * subtreeMinima.length);
+					subtreeMaxima = Arrays.copyOf(subtreeMaxima, 2 * subtreeMaxima.length);
+				}
+
+				nodes[size] = node;
+				addDistribution(node);
+
+				final SortedSample sample = samples[size];
+				final boolean bounded = sample.size() >= 2;
+				propertyTreeIndices[size] = propertyTreeIndex;
+				subtreeEnds[size] = size + 1;
+				subtreeMinima[size] = bounded ? sample.getMinimum() : Double.NEGATIVE_INFINITY;
+				subtreeMaxima[size] = bounded ? sample.getMaximum() : Double.POSITIVE_INFINITY;
+				indices.put(node, size);
+				size++;
+			}
+
+			// The descendants follow their ancestors, so the subtrees are complete
+			// by the time they are merged into the parent.
+			for (int index = size - 1; index > start; index--) {
+				final int parentIndex = indices.get(nodes[index].getParent());
+
+				subtreeEnds[parentIndex] = Math.max(subtreeEnds[parentIndex], subtreeEnds[index]);
+				subtreeMinima[parentIndex] = Math.min(subtreeMinima[parentIndex], subtreeMinima[index]);
+				subtreeMaxima[parentIndex] = Math.max(subtreeMaxima[parentIndex], subtreeMaxima[index]);
+			}
+		}
+
+		/**
+		 * Stores the values of the node being added, unless an identical
+		 * distribution is already stored, in which case it is shared. The node is
+		 * not made to keep its own sorted copy of the values.
+		 */
+		private void addDistribution(final Node node) {
+			final SortedSample sample = node.createSample();
+			final Distribution distribution = distributions.get(sample);
+			if (distribution == null) {
+				final SortedSample stored = store.add(sample);
+				distributions.put(stored, new Distribution(stored, size));
+
+				samples[size] = stored;
+				sharedSlots[size] = -1;
+
+				return;
+			}
+
+			if (distribution.slot == -1) {
+				distribution.slot = sharedCount++;
+				sharedSlots[distribution.firstIndex] = distribution.slot;
+			}
+
+			samples[size] = distribution.stored;
+			sharedSlots[size] = distribution.slot;
+		}
+
+		private void addRoot(final Property property, final int root) {
+			Integer propertyIndex = propertyIndices.get(property);
+			if (propertyIndex == null) {
+				if (propertiesCount == properties.length) {
+					properties = Arrays.copyOf(properties, 2 * properties.length);
+					envelopes = Arrays.copyOf(envelopes, 2 * envelopes.length);
+					propertyRoots = Arrays.copyOf(propertyRoots, 2 * propertyRoots.length);
+					propertyRootsCounts = Arrays.copyOf(propertyRootsCounts, 2 * propertyRootsCounts.length);
+				}
+
+				propertyIndex = propertiesCount++;
+				propertyIndices.put(property, propertyIndex);
+				properties[propertyIndex] = property;
+				propertyRoots[propertyIndex] = new int[1];
+			}
+
+			final int[] roots = propertyRoots[propertyIndex];
+			final int rootsCount = propertyRootsCounts[propertyIndex];
+			if (rootsCount == roots.length) {
+				// The older snapshots keep reading the previous array.
+				propertyRoots[propertyIndex] = Arrays.copyOf(roots, 2 * roots.length);
+			}
+
+			propertyRoots[propertyIndex][rootsCount] = root;
+			propertyRootsCounts[propertyIndex] = rootsCount + 1;
+
+			// Only ever widened, so the older snapshots may see the newer envelope.
+			envelopes[propertyIndex] = property.getEnvelope();
+		}
+
+		/**
+		 * Releases the store of the values. The snapshots must not be used
+		 * afterwards.
+		 */
+		@Override
+		public void close() throws IOException {
+			store.close();
+		}
+
+		private MatchingSnapshot snapshot() {
+			// The counts of the roots and the arrays of the roots outgrown later
+			// must stay as they are now, so they are copied.
+			return new MatchingSnapshot(size, nodes, samples, propertyTreeIndices, sharedSlots, sharedCount,
+					subtreeEnds, subtreeMinima, subtreeMaxima, propertyTrees, contexts, contextsCount, propertiesCount,
+					properties, envelopes, Arrays.copyOf(propertyRoots, propertiesCount),
+					Arrays.copyOf(propertyRootsCounts, propertiesCount), dictionary);
+		}
+
+		/**
+		 * Stored distribution, with the index of the node which brought it in and
+		 * the slot assigned once it gets shared.
+		 */
+		private static final class Distribution {
+
+			private final SortedSample stored;
+			private final int firstIndex;
+			private int slot;
+
+			Distribution(final SortedSample stored, final int firstIndex) {
+				this.stored = stored;
+				this.firstIndex = firstIndex;
+				this.slot = -1;
+			}
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+
+import eu.odalic.extrarelatable.algorithms.graph.matching.MatchingSnapshot.Builder;
+import eu.odalic.extrarelatable.model.bag.SortedSampleStoreFactory;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+
+/**
+ * Provides the up to date {@link MatchingSnapshot}s of the matched graphs. The
+ * snapshots of a graph are maintained only as long as the graph is alive, then
+ * the store of their values is released.
+ * 
+ * @author Václav Brodec
+ *
+ */
+@ThreadSafe
+@Component
+public final class MatchingSnapshots {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(MatchingSnapshots.class);
+
+	private final LoadingCache<BackgroundKnowledgeGraph, Builder> builders;
+
+	/**
+	 * Creates the provider.
+	 * 
+	 * @param sortedSampleStoreFactory
+	 *            factory of the stores of the values of the nodes
+	 * @param dictionaries
+	 *            provider of the context dictionaries of the graphs
+	 */
+	@Autowired
+	public MatchingSnapshots(
+			@Qualifier("SortedSampleStoreFactory") final SortedSampleStoreFactory sortedSampleStoreFactory,
+			final ContextDictionaries dictionaries) {
+		checkNotNull(sortedSampleStoreFactory);
+		checkNotNull(dictionaries);
+
+		this.builders = CacheBuilder.newBuilder().weakKeys()
+				.removalListener((RemovalListener<BackgroundKnowledgeGraph, Builder>) notification -> {
+					try {
+						notification.getValue().close();
+					} catch (final IOException e) {
+						LOGGER.warn("Failed to release the values of a matching snapshot: " + e.getMessage());
+					}
+				}).build(new CacheLoader<BackgroundKnowledgeGraph, Builder>() {
+					@Override
+					public Builder load(final BackgroundKnowledgeGraph graph) throws IOException {
+						return new Builder(sortedSampleStoreFactory.create(graph.getName()), dictionaries.get(graph));
+					}
+				});
+	}
+
+	/**
+	 * Provides the snapshot of the current content of the graph.
+	 *
+	 * @param graph
+	 *            the graph
+	 * @return the snapshot
+	 */
+	MatchingSnapshot get(final BackgroundKnowledgeGraph graph) {
+		checkNotNull(graph);
+
+		return builders.getUnchecked(graph).update(graph);
+	}
+}
@@ -0,0 +1,299 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.ImmutableList;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.bag.HeapSortedSampleStoreFactory;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+
+/**
+ * Implementation of {@link TopKNodesMatcher} which collects the queries of the
+ * concurrent callers matching the same graph within a short window and answers
+ * all of them by a single scan of the
+ * {@link ContextAwareDistanceTopKNodesMatcher}. Each caller then receives just
+ * the results of its own queries.
+ *
+ * <p>
+ * The window is opened by the first query arriving for a graph and closed
+ * either when it elapses or when the batch reaches its maximum size. The
+ * latency of a query thus grows by at most the length of the window (plus the
+ * time spent on the queries of the others), in exchange for sharing the scan.
+ * The batch scans the oldest of the snapshots its queries were encoded for, so
+ * the callers coming with a newer one may miss the nodes learned meanwhile.
+ * </p>
+ *
+ * <p>
+ * When the scan of a batch cannot be scheduled, or the matcher is cleaned up
+ * before the batch is answered, all the callers waiting for the batch fail with
+ * a {@link RejectedExecutionException}.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@ThreadSafe
+@Component("microBatching")
+@Lazy
+public final class MicroBatchingTopKNodesMatcher extends AbstractTopKNodesMatcher {
+
+	/**
+	 * Default length of the window collecting the queries, in milliseconds.
+	 */
+	public static final long INITIAL_DEFAULT_WINDOW = 5;
+
+	/**
+	 * Default maximum number of the queries answered by a single scan.
+	 */
+	public static final int INITIAL_DEFAULT_MAXIMUM_BATCH_SIZE = 4096;
+
+	private final long window;
+	private final int maximumBatchSize;
+
+	private final ContextAwareDistanceTopKNodesMatcher scanningMatcher;
+	private final ScheduledExecutorService executor;
+
+	private final Object lock;
+
+	@GuardedBy("lock")
+	private final Map<BackgroundKnowledgeGraph, Batch> openBatches;
+
+	@GuardedBy("lock")
+	private final Set<Batch> pendingBatches;
+
+	/**
+	 * Constructs the matcher.
+	 *
+	 * @param distance
+	 *            used distance measure
+	 * @param measuredNodeFactory
+	 *            factory for nodes associated with their distance
+	 * @param snapshots
+	 *            provider of the snapshots of the matched graphs
+	 * @param defaultValuesWeight
+	 *            default weight of the contribution of the distance of numeric
+	 *            values to the overall distance
+	 * @param defaultPropertiesWeight
+	 *            default weight of the contribution of the property context
+	 *            distance to the overall distance
+	 * @param defaultClassesWeight
+	 *            default weight of the contribution of the class context distance
+	 *            to the overall distance
+	 * @param defaultK
+	 *            default value of K (the maximum number of the best matching nodes)
+	 * @param window
+	 *            length of the window collecting the queries, in milliseconds
+	 * @param maximumBatchSize
+	 *            maximum number of the queries answered by a single scan
+	 * @param parallelism
+	 *            number of the threads scanning the graphs, zero to use the number
+	 *            of the available processors
+	 */
+	@Autowired
+	MicroBatchingTopKNodesMatcher(@Qualifier("Distance") final Distance distance,
+			final MeasuredNodeFactory measuredNodeFactory, final MatchingSnapshots snapshots,
+			@Value("${eu.odalic.extrarelatable.valuesWeight:0.5}") final double defaultValuesWeight,
+			@Value("${eu.odalic.extrarelatable.propertiesWeight:0.25}") final double defaultPropertiesWeight,
+			@Value("${eu.odalic.extrarelatable.classesWeight:0.25}") final double defaultClassesWeight,
+			@Value("${eu.odalic.extrarelatable.topKNeighbours?:50}") final int defaultK,
+			@Value("${eu.odalic.extrarelatable.microBatching.window:5}") final long window,
+			@Value("${eu.odalic.extrarelatable.microBatching.maximumBatchSize:4096}") final int maximumBatchSize,
+			@Value("${eu.odalic.extrarelatable.microBatching.parallelism:0}") final int parallelism) {
+		super(distance, measuredNodeFactory, snapshots, defaultValuesWeight, defaultPropertiesWeight,
+				defaultClassesWeight, defaultK);
+
+		checkArgument(window >= 0, "The window must be at least zero!");
+		checkArgument(maximumBatchSize >= 1, "The maximum batch size must be at least one!");
+		checkArgument(parallelism >= 0, "The parallelism must be at least zero!");
+
+		this.window = window;
+		this.maximumBatchSize = maximumBatchSize;
+
+		this.scanningMatcher = new ContextAwareDistanceTopKNodesMatcher(distance, measuredNodeFactory, snapshots);
+		this.executor = Executors.newScheduledThreadPool(
+				parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism, runnable -> {
+					final Thread thread = new Thread(runnable, "micro-batching-matcher");
+					thread.setDaemon(true);
+
+					return thread;
+				});
+
+		this.lock = new Object();
+		this.openBatches = new IdentityHashMap<>();
+		this.pendingBatches = Collections.newSetFromMap(new IdentityHashMap<>());
+	}
+
+	/**
+	 * Constructs the matcher using the defaults.
+	 *
+	 * @param distance
+	 *            used distance measure
+	 * @param measuredNodeFactory
+	 *            factory for nodes associated with their distance
+	 */
+	public MicroBatchingTopKNodesMatcher(final Distance distance, final MeasuredNodeFactory measuredNodeFactory) {
+		this(distance, measuredNodeFactory,
+				new MatchingSnapshots(new HeapSortedSampleStoreFactory(), new ContextDictionaries()),
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_VALUES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_PROPERTIES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_CLASSES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_K, INITIAL_DEFAULT_WINDOW,
+				INITIAL_DEFAULT_MAXIMUM_BATCH_SIZE, 0);
+	}
+
+	@PreDestroy
+	public void cleanUp() {
+		final List<Batch> abandonedBatches;
+		synchronized (lock) {
+			this.executor.shutdownNow();
+
+			abandonedBatches = new ArrayList<>(pendingBatches);
+		}
+
+		abandonedBatches.forEach(batch -> abandon(batch, new RejectedExecutionException("The matcher is shut down!")));
+	}
+
+	@Override
+	SortedSet<MeasuredNode> match(final BackgroundKnowledgeGraph graph, final MatchingSnapshot snapshot,
+			final NodesMatchingQuery query) {
+		return matchQueries(graph, snapshot, ImmutableList.of(query)).get(0);
+	}
+
+	@Override
+	List<SortedSet<MeasuredNode>> matchQueries(final BackgroundKnowledgeGraph graph, final MatchingSnapshot snapshot,
+			final List<NodesMatchingQuery> queries) {
+		if (queries.isEmpty()) {
+			return ImmutableList.of();
+		}
+
+		final Batch batch;
+		final int offset;
+		synchronized (lock) {
+			final Batch openBatch = openBatches.get(graph);
+			if (openBatch == null) {
+				batch = new Batch(graph, snapshot);
+				openBatches.put(graph, batch);
+				pendingBatches.add(batch);
+				try {
+					executor.schedule(() -> close(batch), window, TimeUnit.MILLISECONDS);
+				} catch (final RejectedExecutionException e) {
+					abandon(batch, e);
+				}
+			} else {
+				batch = openBatch;
+				if (snapshot.size() < batch.snapshot.size()) {
+					// The nodes of the newer snapshot may be unknown to the encoding of these queries.
+					batch.snapshot = snapshot;
+				}
+			}
+
+			offset = batch.queries.size();
+			batch.queries.addAll(queries);
+
+			if (batch.queries.size() >= maximumBatchSize && openBatches.remove(graph, batch)) {
+				try {
+					executor.execute(() -> scan(batch));
+				} catch (final RejectedExecutionException e) {
+					abandon(batch, e);
+				}
+			}
+		}
+
+		try {
+			return batch.results.join().subList(offset, offset + queries.size());
+		} catch (final CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+
+			throw e;
+		}
+	}
+
+	private void close(final Batch batch) {
+		synchronized (lock) {
+			if (openBatches.get(batch.graph) != batch) {
+				// Already closed for reaching the maximum size.
+				return;
+			}
+
+			openBatches.remove(batch.graph);
+		}
+
+		scan(batch);
+	}
+
+	private void scan(final Batch batch) {
+		try {
+			batch.results.complete(scanningMatcher.matchQueries(batch.graph, batch.snapshot, batch.queries));
+		} catch (final RuntimeException | Error e) {
+			batch.results.completeExceptionally(e);
+		} finally {
+			synchronized (lock) {
+				pendingBatches.remove(batch);
+			}
+		}
+	}
+
+	/**
+	 * Fails the batch, so that none of its callers waits for it forever.
+	 */
+	private void abandon(final Batch batch, final RejectedExecutionException e) {
+		synchronized (lock) {
+			openBatches.remove(batch.graph, batch);
+			pendingBatches.remove(batch);
+		}
+
+		batch.results.completeExceptionally(e);
+	}
+
+	/**
+	 * Queries collected for a single scan of a graph. The queries may be added,
+	 * and the scanned snapshot replaced by an older one, only as long as the
+	 * batch is open, while holding the lock.
+	 */
+	private static final class Batch {
+
+		private final BackgroundKnowledgeGraph graph;
+		private final List<NodesMatchingQuery> queries;
+		private final CompletableFuture<List<SortedSet<MeasuredNode>>> results;
+		private MatchingSnapshot snapshot;
+
+		Batch(final BackgroundKnowledgeGraph graph, final MatchingSnapshot snapshot) {
+			this.graph = graph;
+			this.snapshot = snapshot;
+			this.queries = new ArrayList<>();
+			this.results = new CompletableFuture<>();
+		}
+	}
+}
@@ -0,0 +1,526 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.collect.ImmutableList;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.algorithms.graph.matching.ContextDictionary.EncodedContext;
+import eu.odalic.extrarelatable.model.annotation.MeasuredComponents;
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+import eu.odalic.extrarelatable.model.table.DeclaredEntity;
+
+/**
+ * Input of a single nodes matching, prepared in advance so that it can be
+ * measured against any number of candidate nodes without further conversions.
+ *
+ * <p>
+ * The queries are equal when they have equal values, equally encoded contexts,
+ * weights and K. Equal queries of the same graph thus measure the same
+ * distances of all the nodes known to the dictionary at the time of the
+ * encoding.
+ * </p>
+ *
+ * <p>
+ * The context dissimilarities are computed first, as they are cheap, and the
+ * candidates which cannot get under the threshold even with the values
+ * matching perfectly are ruled out before their values are touched at all.
+ * Within a scan, the dissimilarities are computed once for each distinct
+ * context of the snapshot, not for every node.
+ * </p>
+ *
+ * <p>
+ * A query may also record the distances of the values it computes, so that the
+ * components of the distances of the best matching nodes are available after
+ * the matching without measuring the values again. The recorded distances do
+ * not take part in the equality.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@ThreadSafe
+final class NodesMatchingQuery {
+
+	private final SortedSample sample;
+	private final ContextDictionary dictionary;
+	private final UriIdSet contextProperties;
+	private final UriIdSet contextClasses;
+	private final double valuesWeight;
+	private final double propertiesWeight;
+	private final double classesWeight;
+	private final int k;
+
+	@Nullable
+	private final Map<SortedSample, Double> valuesDistances;
+
+	/**
+	 * Prepares the query.
+	 *
+	 * @param sample
+	 *            the matched values
+	 * @param dictionary
+	 *            context dictionary of the matched graph
+	 * @param contextProperties
+	 *            declared context properties of the matched values
+	 * @param contextClasses
+	 *            declared context classes of the matched values
+	 * @param valuesWeight
+	 *            weight of contribution of the distance of numeric values
+	 * @param propertiesWeight
+	 *            weight of contribution of the distance of property contexts
+	 * @param classesWeight
+	 *            weight of contribution of the distance of class contexts
+	 * @param k
+	 *            the maximum number of the best matching nodes
+	 */
+	NodesMatchingQuery(final SortedSample sample, final ContextDictionary dictionary,
+			final Collection<? extends DeclaredEntity> contextProperties,
+			final Collection<? extends DeclaredEntity> contextClasses, final double valuesWeight,
+			final double propertiesWeight, final double classesWeight, final int k) {
+		checkNotNull(sample);
+		checkNotNull(dictionary);
+		checkNotNull(contextProperties);
+		checkNotNull(contextClasses);
+		checkArgument(k >= 1);
+		checkArgument(valuesWeight >= 0);
+		checkArgument(propertiesWeight >= 0);
+		checkArgument(classesWeight >= 0);
+
+		final double summedWeights = valuesWeight + propertiesWeight + classesWeight;
+
+		this.sample = sample;
+		this.dictionary = dictionary;
+		this.contextProperties = dictionary.encode(contextProperties);
+		this.contextClasses = dictionary.encode(contextClasses);
+		this.valuesWeight = valuesWeight / summedWeights;
+		this.propertiesWeight = propertiesWeight / summedWeights;
+		this.classesWeight = classesWeight / summedWeights;
+		this.k = k;
+		this.valuesDistances = null;
+	}
+
+	private NodesMatchingQuery(final NodesMatchingQuery query,
+			@Nullable final Map<SortedSample, Double> valuesDistances) {
+		this.sample = query.sample;
+		this.dictionary = query.dictionary;
+		this.contextProperties = query.contextProperties;
+		this.contextClasses = query.contextClasses;
+		this.valuesWeight = query.valuesWeight;
+		this.propertiesWeight = query.propertiesWeight;
+		this.classesWeight = query.classesWeight;
+		this.k = query.k;
+		this.valuesDistances = valuesDistances;
+	}
+
+	/**
+	 * Prepares the query from a node.
+	 *
+	 * @param node
+	 *            the matched node
+	 * @param dictionary
+	 *            context dictionary of the matched graph
+	 * @param valuesWeight
+	 *            weight of contribution of the distance of numeric values
+	 * @param propertiesWeight
+	 *            weight of contribution of the distance of property contexts
+	 * @param classesWeight
+	 *            weight of contribution of the distance of class contexts
+	 * @param k
+	 *            the maximum number of the best matching nodes
+	 * @return the query
+	 */
+	static NodesMatchingQuery of(final Node node, final ContextDictionary dictionary, final double valuesWeight,
+			final double propertiesWeight, final double classesWeight, final int k) {
+		checkNotNull(node);
+
+		return new NodesMatchingQuery(node.getSample(), dictionary,
+				node.getPropertyTree().getContext().getDeclaredContextColumnProperties().values(),
+				node.getPropertyTree().getContext().getDeclaredContextColumnClasses().values(), valuesWeight,
+				propertiesWeight, classesWeight, k);
+	}
+
+	/**
+	 * Prepares the query taking only the values into account.
+	 *
+	 * @param sample
+	 *            the matched values
+	 * @param dictionary
+	 *            context dictionary of the matched graph
+	 * @param k
+	 *            the maximum number of the best matching nodes
+	 * @return the query
+	 */
+	static NodesMatchingQuery of(final SortedSample sample, final ContextDictionary dictionary, final int k) {
+		return new NodesMatchingQuery(sample, dictionary, ImmutableList.of(), ImmutableList.of(), 1, 0, 0, k);
+	}
+
+	/**
+	 * @return equal query which records the distances of the values it computes
+	 *         from the matched values
+	 */
+	NodesMatchingQuery recordingValuesDistances() {
+		return new NodesMatchingQuery(this, new ConcurrentHashMap<>());
+	}
+
+	/**
+	 * @return the matched values
+	 */
+	SortedSample getSample() {
+		return sample;
+	}
+
+	/**
+	 * @return the maximum number of the best matching nodes
+	 */
+	int getK() {
+		return k;
+	}
+
+	/**
+	 * @return true if the context does not contribute to the overall distance,
+	 *         which is then equal to the distance of the values
+	 */
+	boolean isValuesOnly() {
+		return propertiesWeight == 0 && classesWeight == 0;
+	}
+
+	/**
+	 * @return true if the values do not contribute to the overall distance
+	 */
+	boolean isContextOnly() {
+		return valuesWeight == 0;
+	}
+
+	/**
+	 * Measures the overall weighted distance of the candidate node, unless a
+	 * lower bound of it, based on the context and on the cheap lower bound of the
+	 * values distance, already exceeds the threshold.
+	 *
+	 * @param distance
+	 *            distance of the numeric values
+	 * @param candidate
+	 *            candidate node
+	 * @param threshold
+	 *            the overall distance above which the candidate is of no interest
+	 * @return the overall distance, or {@link Double#POSITIVE_INFINITY} when it is
+	 *         known to exceed the threshold
+	 */
+	double measure(final Distance distance, final Node candidate, final double threshold) {
+		final EncodedContext candidateContext = isValuesOnly() ? null
+				: dictionary.getContext(candidate.getPropertyTree());
+
+		return measure(distance, sample, getPropertiesDissimilarity(candidateContext),
+				getClassesDissimilarity(candidateContext), candidate.getSample(), threshold, null, -1);
+	}
+
+	/**
+	 * Measures the overall weighted distance of a node of the snapshot, with the
+	 * values of both the query and the candidate substituted by the provided
+	 * samples (typically their summaries).
+	 *
+	 * @param distance
+	 *            distance of the numeric values
+	 * @param sample
+	 *            substitute of the queried values
+	 * @param snapshot
+	 *            snapshot of the matched graph
+	 * @param index
+	 *            index of the candidate node in the snapshot
+	 * @param candidateSample
+	 *            substitute of the values of the candidate
+	 * @param threshold
+	 *            the overall distance above which the candidate is of no interest
+	 * @return the overall distance, or {@link Double#POSITIVE_INFINITY} when it is
+	 *         known to exceed the threshold
+	 */
+	double measure(final Distance distance, final SortedSample sample, final MatchingSnapshot snapshot,
+			final int index, final SortedSample candidateSample, final double threshold) {
+		final EncodedContext candidateContext = isValuesOnly() ? null : snapshot.getContext(index);
+
+		return measure(distance, sample, getPropertiesDissimilarity(candidateContext),
+				getClassesDissimilarity(candidateContext), candidateSample, threshold, null, -1);
+	}
+
+	/**
+	 * Measures the overall weighted distance of a node of the snapshot. The
+	 * distance of the values to a distribution shared by several nodes and the
+	 * dissimilarities of the context are taken from the cache when already
+	 * computed.
+	 *
+	 * @param distance
+	 *            distance of the numeric values
+	 * @param snapshot
+	 *            snapshot of the matched graph
+	 * @param index
+	 *            index of the candidate node in the snapshot
+	 * @param threshold
+	 *            the overall distance above which the candidate is of no interest
+	 * @param cache
+	 *            cache of the distances to the shared distributions and contexts
+	 *            of this query
+	 * @return the overall distance, or {@link Double#POSITIVE_INFINITY} when it is
+	 *         known to exceed the threshold
+	 */
+	double measure(final Distance distance, final MatchingSnapshot snapshot, final int index,
+			final double threshold, final SharedDistancesCache cache) {
+		if (isValuesOnly()) {
+			return measure(distance, sample, 0, 0, snapshot.getSample(index), threshold, cache,
+					snapshot.getSharedSlot(index));
+		}
+
+		final int contextId = cacheContext(snapshot.getContext(index), cache);
+
+		return measure(distance, sample, cache.getPropertiesDissimilarity(contextId),
+				cache.getClassesDissimilarity(contextId), snapshot.getSample(index), threshold, cache,
+				snapshot.getSharedSlot(index));
+	}
+
+	/**
+	 * Provides a lower bound of the overall weighted distance of all the nodes of
+	 * the subtree rooted in a node of the snapshot, derived from the range of
+	 * their values and from their shared context.
+	 *
+	 * @param distance
+	 *            distance of the numeric values
+	 * @param snapshot
+	 *            snapshot of the matched graph
+	 * @param index
+	 *            index of the root of the subtree in the snapshot
+	 * @param cache
+	 *            cache of the distances to the shared distributions and contexts
+	 *            of this query
+	 * @return value never greater than the overall distance of any node of the
+	 *         subtree
+	 */
+	double measureSubtreeLowerBound(final Distance distance, final MatchingSnapshot snapshot, final int index,
+			final SharedDistancesCache cache) {
+		final double distanceLowerBound = valuesWeight == 0 ? 0
+				: distance.lowerBound(sample, snapshot.getSubtreeMinimum(index), snapshot.getSubtreeMaximum(index));
+
+		if (isValuesOnly()) {
+			return combine(distanceLowerBound, 0, 0);
+		}
+
+		final int contextId = cacheContext(snapshot.getContext(index), cache);
+
+		return combine(distanceLowerBound, cache.getPropertiesDissimilarity(contextId),
+				cache.getClassesDissimilarity(contextId));
+	}
+
+	/**
+	 * Provides a lower bound of the overall weighted distance of all the nodes of
+	 * all the instances of a property of the snapshot, derived from the envelope
+	 * of their values only, as the instances differ in their contexts.
+	 *
+	 * @param distance
+	 *            distance of the numeric values
+	 * @param snapshot
+	 *            snapshot of the matched graph
+	 * @param propertyIndex
+	 *            index of the property in the snapshot
+	 * @return value never greater than the overall distance of any node of the
+	 *         instances of the property
+	 */
+	double measurePropertyLowerBound(final Distance distance, final MatchingSnapshot snapshot,
+			final int propertyIndex) {
+		if (valuesWeight == 0) {
+			return 0;
+		}
+
+		return combine(distance.lowerBound(sample, snapshot.getEnvelope(propertyIndex)), 0, 0);
+	}
+
+	/**
+	 * Measures all the components of the distance of the candidate node,
+	 * regardless of their weights. The distance of the values is taken from the
+	 * recorded ones, when available.
+	 *
+	 * @param distance
+	 *            distance of the numeric values
+	 * @param candidate
+	 *            candidate node
+	 * @return the measured components
+	 */
+	MeasuredComponents measureComponents(final Distance distance, final Node candidate) {
+		final EncodedContext candidateContext = dictionary.getContext(candidate.getPropertyTree());
+
+		final SortedSample candidateSample = candidate.createSample();
+		final Double recordedDistance = valuesDistances == null ? null : valuesDistances.get(candidateSample);
+		final double valuesDistance = recordedDistance == null ? distance.compute(sample, candidateSample)
+				: recordedDistance;
+
+		return new MeasuredComponents(candidate, valuesDistance,
+				contextProperties.getJaccardDissimilarity(candidateContext.getProperties()),
+				contextClasses.getJaccardDissimilarity(candidateContext.getClasses()));
+	}
+
+	/**
+	 * Provides a lower bound of the overall weighted distance of all the nodes
+	 * with the values in the given range, derived from the values only.
+	 *
+	 * @param distance
+	 *            distance of the numeric values
+	 * @param minimum
+	 *            the least of the values of the nodes
+	 * @param maximum
+	 *            the greatest of the values of the nodes
+	 * @return value never greater than the overall distance of any node with the
+	 *         values in the range
+	 */
+	double measureRangeLowerBound(final Distance distance, final double minimum, final double maximum) {
+		if (valuesWeight == 0) {
+			return 0;
+		}
+
+		return combine(distance.lowerBound(sample, minimum, maximum), 0, 0);
+	}
+
+	private double measure(final Distance distance, final SortedSample sample,
+			final double propertiesNormalizedjaccardDissimilarity, final double classesNormalizedjaccardDissimilarity,
+			final SortedSample candidateSample, final double threshold, @Nullable final SharedDistancesCache cache,
+			final int sharedSlot) {
+		if (valuesWeight == 0) {
+			return propertiesWeight * propertiesNormalizedjaccardDissimilarity
+					+ classesWeight * classesNormalizedjaccardDissimilarity;
+		}
+
+		// Even the perfectly matching values would not get the candidate under
+		// the threshold.
+		if (combine(0, propertiesNormalizedjaccardDissimilarity, classesNormalizedjaccardDissimilarity) > threshold) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		final boolean shared = cache != null && sharedSlot >= 0;
+		if (shared) {
+			final double cachedDistance = cache.get(sharedSlot);
+			if (!Double.isNaN(cachedDistance)) {
+				return combine(cachedDistance, propertiesNormalizedjaccardDissimilarity,
+						classesNormalizedjaccardDissimilarity);
+			}
+		}
+
+		final double distanceLowerBound = distance.lowerBound(sample, candidateSample);
+		if (combine(distanceLowerBound, propertiesNormalizedjaccardDissimilarity,
+				classesNormalizedjaccardDissimilarity) > threshold) {
+			return Double.POSITIVE_INFINITY;
+		}
+
+		final double computedDistance = distance.compute(sample, candidateSample);
+		if (cache != null) {
+			cache.countEvaluation();
+		}
+		if (shared) {
+			cache.put(sharedSlot, computedDistance);
+		}
+		if (valuesDistances != null && sample == this.sample) {
+			valuesDistances.put(candidateSample, computedDistance);
+		}
+
+		return combine(computedDistance, propertiesNormalizedjaccardDissimilarity,
+				classesNormalizedjaccardDissimilarity);
+	}
+
+	/**
+	 * Computes both the dissimilarities of the context, unless already cached.
+	 *
+	 * @return number of the context
+	 */
+	private int cacheContext(final EncodedContext candidateContext, final SharedDistancesCache cache) {
+		final int contextId = candidateContext.getId();
+		if (!cache.containsContext(contextId)) {
+			cache.putContext(contextId, getPropertiesDissimilarity(candidateContext),
+					getClassesDissimilarity(candidateContext));
+		}
+
+		return contextId;
+	}
+
+	private double getPropertiesDissimilarity(final EncodedContext candidateContext) {
+		return propertiesWeight == 0 ? 0 : contextProperties.getJaccardDissimilarity(candidateContext.getProperties());
+	}
+
+	private double getClassesDissimilarity(final EncodedContext candidateContext) {
+		return classesWeight == 0 ? 0 : contextClasses.getJaccardDissimilarity(candidateContext.getClasses());
+	}
+
+	/**
+	 * The bound and the distance are combined by the very same expression, so
+	 * that the rounding cannot make the bound exceed the distance.
+	 */
+	private double combine(final double valuesDistance, final double propertiesDissimilarity,
+			final double classesDissimilarity) {
+		return valuesWeight * valuesDistance + propertiesWeight * propertiesDissimilarity
+				+ classesWeight * classesDissimilarity;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + sample.hashCode();
+		result = prime * result + contextProperties.hashCode();
+		result = prime * result + contextClasses.hashCode();
+		long temp;
+		temp = Double.doubleToLongBits(valuesWeight);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
+		temp = Double.doubleToLongBits(propertiesWeight);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
+		temp = Double.doubleToLongBits(classesWeight);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
+		result = prime * result + k;
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		NodesMatchingQuery other = (NodesMatchingQuery) obj;
+		if (!sample.equals(other.sample)) {
+			return false;
+		}
+		if (!contextProperties.equals(other.contextProperties)) {
+			return false;
+		}
+		if (!contextClasses.equals(other.contextClasses)) {
+			return false;
+		}
+		if (Double.doubleToLongBits(valuesWeight) != Double.doubleToLongBits(other.valuesWeight)) {
+			return false;
+		}
+		if (Double.doubleToLongBits(propertiesWeight) != Double.doubleToLongBits(other.propertiesWeight)) {
+			return false;
+		}
+		if (Double.doubleToLongBits(classesWeight) != Double.doubleToLongBits(other.classesWeight)) {
+			return false;
+		}
+		if (k != other.k) {
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "NodesMatchingQuery [sample=" + sample + ", contextProperties=" + contextProperties
+				+ ", contextClasses=" + contextClasses + ", valuesWeight=" + valuesWeight + ", propertiesWeight="
+				+ propertiesWeight + ", classesWeight=" + classesWeight + ", k=" + k + "]";
+	}
+}
@@ -0,0 +1,245 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.ImmutableList;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.bag.HeapSortedSampleStoreFactory;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+
+/**
+ * Parallel variant of the {@link ContextAwareDistanceTopKNodesMatcher}. The
+ * nodes of the {@link MatchingSnapshot} of the graph are split into chunks,
+ * which are scanned in a dedicated {@link ForkJoinPool} (separate from the
+ * threads serving the requests), each into its own bounded heaps (one per
+ * matched node). The heaps are then merged into the final result.
+ *
+ * <p>
+ * The chunks of a single matching publish the thresholds of their heaps, so
+ * that the chunks scanned later start from the lowest threshold reached so
+ * far instead of from scratch. Each of the matching threads keeps its caches
+ * of the distances for the whole matching, rather than for a single chunk.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@ThreadSafe
+@Component("parallelContextAwareDistance")
+@Lazy
+public final class ParallelContextAwareDistanceTopKNodesMatcher extends AbstractTopKNodesMatcher {
+
+	/**
+	 * Default maximum number of nodes scanned sequentially by a single task.
+	 */
+	public static final int INITIAL_DEFAULT_CHUNK_SIZE = 512;
+
+	private final ForkJoinPool pool;
+	private final int chunkSize;
+
+	/**
+	 * Constructs the matcher.
+	 *
+	 * @param distance
+	 *            user distance measure
+	 * @param measuredNodeFactory
+	 *            factory for nodes associated with their distance
+	 * @param snapshots
+	 *            provider of the snapshots of the matched graphs
+	 * @param defaultValuesWeight
+	 *            default weight of the contribution of the distance of numeric
+	 *            values to the overall distance
+	 * @param defaultPropertiesWeight
+	 *            default weight of the contribution of the property context
+	 *            distance to the overall distance
+	 * @param defaultClassesWeight
+	 *            default weight of the contribution of the class context distance
+	 *            to the overall distance
+	 * @param defaultK
+	 *            default value of K (the maximum number of the best matching nodes)
+	 * @param parallelism
+	 *            number of the matching threads, zero to use the number of the
+	 *            available processors
+	 * @param chunkSize
+	 *            maximum number of nodes scanned sequentially by a single task
+	 */
+	@Autowired
+	ParallelContextAwareDistanceTopKNodesMatcher(@Qualifier("Distance") final Distance distance,
+			final MeasuredNodeFactory measuredNodeFactory,
+			final MatchingSnapshots snapshots,
+			@Value("${eu.odalic.extrarelatable.valuesWeight:0.5}") final double defaultValuesWeight,
+			@Value("${eu.odalic.extrarelatable.propertiesWeight:0.25}") final double defaultPropertiesWeight,
+			@Value("${eu.odalic.extrarelatable.classesWeight:0.25}") final double defaultClassesWeight,
+			@Value("${eu.odalic.extrarelatable.topKNeighbours?:50}") final int defaultK,
+			@Value("${eu.odalic.extrarelatable.matchingParallelism:0}") final int parallelism,
+			@Value("${eu.odalic.extrarelatable.matchingChunkSize:512}") final int chunkSize) {
+		super(distance, measuredNodeFactory, snapshots, defaultValuesWeight, defaultPropertiesWeight,
+				defaultClassesWeight, defaultK);
+
+		checkArgument(parallelism >= 0, "The parallelism must be at least zero!");
+		checkArgument(chunkSize >= 1, "The chunk size must be at least one!");
+
+		this.pool = new ForkJoinPool(parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism);
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Constructs the matcher using the defaults.
+	 *
+	 * @param distance
+	 *            used distance measure
+	 * @param measuredNodeFactory
+	 *            factory for nodes associated with their distance
+	 */
+	public ParallelContextAwareDistanceTopKNodesMatcher(final Distance distance,
+			final MeasuredNodeFactory measuredNodeFactory) {
+		this(distance, measuredNodeFactory,
+				new MatchingSnapshots(new HeapSortedSampleStoreFactory(), new ContextDictionaries()),
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_VALUES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_PROPERTIES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_CLASSES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_K, 0, INITIAL_DEFAULT_CHUNK_SIZE);
+	}
+
+	@PreDestroy
+	public void cleanUp() {
+		this.pool.shutdownNow();
+	}
+
+	@Override
+	SortedSet<MeasuredNode> match(final BackgroundKnowledgeGraph graph, final MatchingSnapshot snapshot,
+			final NodesMatchingQuery query) {
+		return matchQueries(graph, snapshot, ImmutableList.of(query)).get(0);
+	}
+
+	@Override
+	List<SortedSet<MeasuredNode>> matchQueries(final BackgroundKnowledgeGraph graph, final MatchingSnapshot snapshot,
+			final List<NodesMatchingQuery> queries) {
+		return TopKHeap.toSortedSets(this.pool.invoke(new ScanTask(new Scan(snapshot, queries), 0, snapshot.size())),
+				getMeasuredNodeFactory());
+	}
+
+	/**
+	 * State of a single matching shared by all its tasks: the lowest thresholds
+	 * of the queries published so far and the caches of the matching threads.
+	 */
+	@ThreadSafe
+	private static final class Scan {
+
+		private final MatchingSnapshot snapshot;
+		private final List<NodesMatchingQuery> queries;
+		private final AtomicLongArray thresholds;
+		private final Map<Thread, SharedDistancesCache[]> caches;
+
+		Scan(final MatchingSnapshot snapshot, final List<NodesMatchingQuery> queries) {
+			this.snapshot = snapshot;
+			this.queries = queries;
+			this.thresholds = new AtomicLongArray(queries.size());
+			this.caches = new ConcurrentHashMap<>();
+
+			for (int index = 0; index < queries.size(); index++) {
+				this.thresholds.set(index, Double.doubleToRawLongBits(Double.POSITIVE_INFINITY));
+			}
+		}
+
+		/**
+		 * @return empty heaps for the queries, restricted by the published
+		 *         thresholds
+		 */
+		TopKHeap[] createWinners() {
+			final TopKHeap[] winners = TopKHeap.of(queries);
+			for (int index = 0; index < winners.length; index++) {
+				winners[index].restrict(Double.longBitsToDouble(thresholds.get(index)));
+			}
+
+			return winners;
+		}
+
+		/**
+		 * Publishes the thresholds of the heaps, where lower than the published
+		 * ones.
+		 */
+		void publish(final TopKHeap[] winners) {
+			for (int index = 0; index < winners.length; index++) {
+				final double threshold = winners[index].getThreshold();
+
+				long published = thresholds.get(index);
+				while (threshold < Double.longBitsToDouble(published)
+						&& !thresholds.compareAndSet(index, published, Double.doubleToRawLongBits(threshold))) {
+					published = thresholds.get(index);
+				}
+			}
+		}
+
+		/**
+		 * @return the caches of the current thread, kept for the whole matching
+		 */
+		SharedDistancesCache[] getCaches() {
+			return caches.computeIfAbsent(Thread.currentThread(), thread -> createCaches(snapshot, queries.size()));
+		}
+	}
+
+	/**
+	 * Scans a range of the nodes for all the queries, splitting it in halves
+	 * until it is not larger than the chunk size.
+	 */
+	private final class ScanTask extends RecursiveTask<TopKHeap[]> {
+
+		private static final long serialVersionUID = -3158011541640927614L;
+
+		private final Scan scan;
+		private final int from;
+		private final int to;
+
+		ScanTask(final Scan scan, final int from, final int to) {
+			this.scan = scan;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected TopKHeap[] compute() {
+			if (to - from <= chunkSize) {
+				final TopKHeap[] winners = scan.createWinners();
+				measureAll(scan.queries, scan.snapshot, from, to, winners, scan.getCaches());
+				scan.publish(winners);
+
+				return winners;
+			}
+
+			final int middle = (from + to) >>> 1;
+
+			final ScanTask left = new ScanTask(scan, from, middle);
+			left.fork();
+
+			final TopKHeap[] winners = new ScanTask(scan, middle, to).compute();
+			final TopKHeap[] leftWinners = left.join();
+			for (int index = 0; index < winners.length; index++) {
+				winners[index].offerAll(leftWinners[index]);
+			}
+			scan.publish(winners);
+
+			return winners;
+		}
+	}
+}
@@ -0,0 +1,556 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+
+/**
+ * Hierarchical navigable small-world graph of the nodes of a single graph,
+ * identified by their indices in its {@link MatchingSnapshot}, linked to the
+ * nodes with the closest values according to the {@link Distance}.
+ *
+ * <p>
+ * Every node is assigned a random level, exponentially less probable the
+ * higher it is, and linked on each of the layers up to it to a few of its
+ * nearest neighbours, chosen so that they lie in different directions from it.
+ * A search descends greedily from the top layer, where the links are long, to
+ * the bottom one, where a beam of the closest nodes found so far is expanded
+ * until no closer node is reachable. The search is approximate, it does not
+ * require the distance to be a metric, and it measures only a small part of the
+ * nodes, growing roughly logarithmically with their number. The graph is
+ * extended incrementally as the snapshots grow.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@ThreadSafe
+final class ProximityGraph {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Weight of the relative distance of the medians added to the distance of the
+	 * values, small enough not to reorder any two nodes at different distances.
+	 * The distances such as the Kolmogorov-Smirnov one saturate for all the
+	 * samples with disjoint ranges, and without the tie-breaking the search would
+	 * get lost on the resulting plateaus.
+	 */
+	private static final double TIE_BREAKING_WEIGHT = 1e-10;
+
+	private static final int[] NO_LINKS = new int[0];
+
+	private final Distance distance;
+	private final int maximumConnections;
+	private final int constructionBreadth;
+	private final double levelMultiplier;
+
+	private final ReadWriteLock lock;
+	private final Random random;
+	private final VisitedMarks constructionMarks;
+	private final ThreadLocal<VisitedMarks> searchMarks;
+	private final ThreadLocal<VisitedMarks> offerMarks;
+
+	private MatchingSnapshot snapshot;
+	private int[][][] links;
+	private double[] medians;
+	private int size;
+	private int entryPoint;
+	private int topLevel;
+
+	/**
+	 * Creates an empty graph.
+	 *
+	 * @param distance
+	 *            distance of the values
+	 * @param maximumConnections
+	 *            the number of the links of a node on the upper layers, twice as
+	 *            many are kept on the bottom one
+	 * @param constructionBreadth
+	 *            the number of the closest nodes considered as the neighbours of
+	 *            an inserted node
+	 */
+	ProximityGraph(final Distance distance, final int maximumConnections, final int constructionBreadth) {
+		checkNotNull(distance);
+		checkArgument(maximumConnections >= 2, "The maximum number of connections must be at least two!");
+		checkArgument(constructionBreadth >= 1, "The construction breadth must be at least one!");
+
+		this.distance = distance;
+		this.maximumConnections = maximumConnections;
+		this.constructionBreadth = constructionBreadth;
+		this.levelMultiplier = 1 / Math.log(maximumConnections);
+
+		this.lock = new ReentrantReadWriteLock();
+		this.random = new Random(maximumConnections);
+		this.constructionMarks = new VisitedMarks();
+		this.searchMarks = ThreadLocal.withInitial(VisitedMarks::new);
+		this.offerMarks = ThreadLocal.withInitial(VisitedMarks::new);
+
+		this.snapshot = null;
+		this.links = new int[INITIAL_CAPACITY][][];
+		this.medians = new double[INITIAL_CAPACITY];
+		this.size = 0;
+		this.entryPoint = -1;
+		this.topLevel = -1;
+	}
+
+	/**
+	 * Inserts the nodes of the snapshot which have not been inserted yet.
+	 *
+	 * @param snapshot
+	 *            the latest snapshot of the indexed graph
+	 */
+	void update(final MatchingSnapshot snapshot) {
+		lock.readLock().lock();
+		try {
+			if (snapshot.size() <= size) {
+				return;
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		lock.writeLock().lock();
+		try {
+			if (snapshot.size() <= size) {
+				return;
+			}
+
+			if (links.length < snapshot.size()) {
+				final int capacity = Math.max(snapshot.size(), 2 * links.length);
+
+				links = Arrays.copyOf(links, capacity);
+				medians = Arrays.copyOf(medians, capacity);
+			}
+
+			this.snapshot = snapshot;
+			for (int index = size; index < snapshot.size(); index++) {
+				insert(index);
+			}
+
+			size = snapshot.size();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Searches for the nodes closest to the query and offers all the measured
+	 * ones to the winners, each just once, although the layers may reach it
+	 * repeatedly. The nodes inserted from a newer snapshot than the one
+	 * of the caller may be passed through, but they are not offered, as their
+	 * contexts may be unknown to the encoding of the query.
+	 *
+	 * @param query
+	 *            the query, not concerning only the context
+	 * @param callerSnapshot
+	 *            the snapshot the query was encoded for
+	 * @param breadth
+	 *            the number of the closest nodes tracked by the search on the
+	 *            bottom layer, at least K of the query is used
+	 * @param matcher
+	 *            matcher offering the nodes to the winners
+	 * @param winners
+	 *            heap of the best matching nodes so far
+	 */
+	void search(final NodesMatchingQuery query, final MatchingSnapshot callerSnapshot, final int breadth,
+			final AbstractTopKNodesMatcher matcher, final TopKHeap winners) {
+		lock.readLock().lock();
+		try {
+			if (entryPoint == -1) {
+				return;
+			}
+
+			final MatchingSnapshot snapshot = this.snapshot;
+			final SharedDistancesCache cache = new SharedDistancesCache(snapshot.getSharedCount(),
+					snapshot.getContextsCount());
+			final double median = getMedian(query.getSample());
+			final VisitedMarks offered = offerMarks.get();
+			offered.reset(links.length);
+			final Measure measure = (index, threshold) -> {
+				final double measuredDistance = query.measure(distance, snapshot, index, threshold, cache);
+				// Only the exactly measured distances are final, the excluded ones may be measured again later.
+				if (index < callerSnapshot.size() && measuredDistance != Double.POSITIVE_INFINITY
+						&& offered.visit(index)) {
+					matcher.offer(snapshot.getNode(index), measuredDistance, winners);
+				}
+
+				return breakTie(measuredDistance, median, medians[index]);
+			};
+			final VisitedMarks marks = searchMarks.get();
+
+			final Heap entries = descend(measure, marks, 0);
+			searchLayer(measure, entries, Math.max(breadth, query.getK()), 0, marks);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void insert(final int node) {
+		final int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+
+		final int[][] nodeLinks = new int[level + 1][];
+		Arrays.fill(nodeLinks, NO_LINKS);
+		links[node] = nodeLinks;
+
+		final SortedSample sample = snapshot.getSample(node);
+		final double median = getMedian(sample);
+		medians[node] = median;
+
+		if (entryPoint == -1) {
+			entryPoint = node;
+			topLevel = level;
+			return;
+		}
+
+		final Measure measure = (index, threshold) -> breakTie(distance.compute(sample, snapshot.getSample(index)),
+				median, medians[index]);
+
+		Heap entries = descend(measure, constructionMarks, level);
+		for (int layer = Math.min(level, topLevel); layer >= 0; layer--) {
+			final Heap closest = searchLayer(measure, entries, constructionBreadth, layer, constructionMarks);
+
+			final int count = closest.size();
+			final int[] indices = new int[count];
+			final double[] distances = new double[count];
+			for (int position = count - 1; position >= 0; position--) {
+				distances[position] = closest.peekDistance();
+				indices[position] = closest.poll();
+			}
+
+			final int[] neighbours = select(indices, distances, count, getMaximumConnections(layer));
+			nodeLinks[layer] = neighbours;
+			for (final int neighbour : neighbours) {
+				connect(neighbour, node, layer);
+			}
+
+			entries = new Heap(true, count);
+			for (int position = 0; position < count; position++) {
+				entries.push(indices[position], distances[position]);
+			}
+		}
+
+		if (level > topLevel) {
+			entryPoint = node;
+			topLevel = level;
+		}
+	}
+
+	/**
+	 * Descends greedily from the entry point down to the given layer.
+	 */
+	private Heap descend(final Measure measure, final VisitedMarks marks, final int level) {
+		Heap entries = new Heap(true, 1);
+		entries.push(entryPoint, measure.measure(entryPoint, Double.POSITIVE_INFINITY));
+
+		for (int layer = topLevel; layer > level; layer--) {
+			entries = searchLayer(measure, entries, 1, layer, marks);
+		}
+
+		return entries;
+	}
+
+	/**
+	 * Expands the closest reached nodes on the layer, keeping a beam of the given
+	 * breadth, until none of their neighbours gets closer.
+	 *
+	 * @return max-heap of the closest nodes found
+	 */
+	private Heap searchLayer(final Measure measure, final Heap entries, final int breadth, final int layer,
+			final VisitedMarks marks) {
+		marks.reset(links.length);
+
+		final Heap candidates = new Heap(false, Math.max(breadth, entries.size()));
+		final Heap closest = new Heap(true, Math.max(breadth, entries.size()) + 1);
+		for (int position = 0; position < entries.size(); position++) {
+			final int index = entries.getIndex(position);
+			marks.visit(index);
+
+			candidates.push(index, entries.getDistance(position));
+			closest.push(index, entries.getDistance(position));
+		}
+		while (closest.size() > breadth) {
+			closest.poll();
+		}
+
+		while (candidates.size() > 0) {
+			if (candidates.peekDistance() > closest.peekDistance()) {
+				break;
+			}
+
+			final int candidate = candidates.poll();
+			for (final int neighbour : links[candidate][layer]) {
+				if (!marks.visit(neighbour)) {
+					continue;
+				}
+
+				final double threshold = closest.size() < breadth ? Double.POSITIVE_INFINITY
+						: closest.peekDistance();
+				final double neighbourDistance = measure.measure(neighbour, threshold);
+				if (neighbourDistance >= threshold) {
+					continue;
+				}
+
+				candidates.push(neighbour, neighbourDistance);
+				closest.push(neighbour, neighbourDistance);
+				if (closest.size() > breadth) {
+					closest.poll();
+				}
+			}
+		}
+
+		return closest;
+	}
+
+	/**
+	 * Selects the neighbours among the candidates sorted by their distance,
+	 * preferring the ones closer to the node than to any already selected
+	 * neighbour. The places left are filled by the closest of the rest.
+	 */
+	private int[] select(final int[] indices, final double[] distances, final int count, final int maximum) {
+		final int[] selected = new int[Math.min(count, maximum)];
+		int selectedCount = 0;
+
+		final int[] rejected = new int[count];
+		int rejectedCount = 0;
+
+		for (int position = 0; position < count && selectedCount < selected.length; position++) {
+			final int index = indices[position];
+
+			boolean diverse = true;
+			for (int selectedPosition = 0; selectedPosition < selectedCount; selectedPosition++) {
+				if (measure(index, selected[selectedPosition]) <= distances[position]) {
+					diverse = false;
+					break;
+				}
+			}
+
+			if (diverse) {
+				selected[selectedCount++] = index;
+			} else {
+				rejected[rejectedCount++] = index;
+			}
+		}
+
+		for (int position = 0; position < rejectedCount && selectedCount < selected.length; position++) {
+			selected[selectedCount++] = rejected[position];
+		}
+
+		return selected;
+	}
+
+	/**
+	 * Links the node to the inserted one. The neighbours on the layer are
+	 * selected anew only when their number exceeds the maximum by a half, so that
+	 * the costly selection is not repeated on every insertion.
+	 */
+	private void connect(final int node, final int inserted, final int layer) {
+		final int[] neighbours = links[node][layer];
+		final int maximum = getMaximumConnections(layer);
+
+		final int count = neighbours.length + 1;
+		final int[] extended = Arrays.copyOf(neighbours, count);
+		extended[neighbours.length] = inserted;
+		if (count <= maximum + maximum / 2) {
+			links[node][layer] = extended;
+			return;
+		}
+
+		final double[] distances = new double[count];
+		for (int position = 0; position < count; position++) {
+			final int index = extended[position];
+			final double indexDistance = measure(node, index);
+
+			// Insertion sort, there are just a few neighbours.
+			int sortedPosition = position;
+			while (sortedPosition > 0 && distances[sortedPosition - 1] > indexDistance) {
+				distances[sortedPosition] = distances[sortedPosition - 1];
+				extended[sortedPosition] = extended[sortedPosition - 1];
+				sortedPosition--;
+			}
+			distances[sortedPosition] = indexDistance;
+			extended[sortedPosition] = index;
+		}
+
+		links[node][layer] = select(extended, distances, count, maximum);
+	}
+
+	/**
+	 * Measures the distance of two inserted nodes, with the ties broken.
+	 */
+	private double measure(final int first, final int second) {
+		return breakTie(distance.compute(snapshot.getSample(first), snapshot.getSample(second)), medians[first],
+				medians[second]);
+	}
+
+	private static double breakTie(final double distance, final double firstMedian, final double secondMedian) {
+		final double magnitude = Math.abs(firstMedian) + Math.abs(secondMedian);
+		if (magnitude == 0 || Double.isInfinite(magnitude) || Double.isInfinite(distance)) {
+			return distance;
+		}
+
+		return distance + TIE_BREAKING_WEIGHT * (Math.abs(firstMedian - secondMedian) / magnitude);
+	}
+
+	private static double getMedian(final SortedSample sample) {
+		if (sample.isEmpty()) {
+			return 0;
+		}
+
+		return sample.get(sample.size() / 2);
+	}
+
+	private int getMaximumConnections(final int layer) {
+		return layer == 0 ? 2 * maximumConnections : maximumConnections;
+	}
+
+	@FunctionalInterface
+	private interface Measure {
+
+		/**
+		 * @return the distance of the node with the ties broken, or
+		 *         {@link Double#POSITIVE_INFINITY} when it is known to exceed the
+		 *         threshold
+		 */
+		double measure(int index, double threshold);
+	}
+
+	/**
+	 * Binary heap of node indices and their distances, in primitive arrays.
+	 */
+	@NotThreadSafe
+	private static final class Heap {
+
+		private final boolean maximum;
+
+		private int[] indices;
+		private double[] distances;
+		private int size;
+
+		Heap(final boolean maximum, final int capacity) {
+			this.maximum = maximum;
+
+			this.indices = new int[Math.max(1, capacity)];
+			this.distances = new double[Math.max(1, capacity)];
+			this.size = 0;
+		}
+
+		int size() {
+			return size;
+		}
+
+		int getIndex(final int position) {
+			return indices[position];
+		}
+
+		double getDistance(final int position) {
+			return distances[position];
+		}
+
+		double peekDistance() {
+			return distances[0];
+		}
+
+		void push(final int index, final double distance) {
+			if (size == indices.length) {
+				indices = Arrays.copyOf(indices, 2 * size);
+				distances = Arrays.copyOf(distances, 2 * size);
+			}
+
+			int position = size++;
+			while (position > 0) {
+				final int parent = (position - 1) >>> 1;
+				if (!precedes(distance, distances[parent])) {
+					break;
+				}
+
+				indices[position] = indices[parent];
+				distances[position] = distances[parent];
+				position = parent;
+			}
+			indices[position] = index;
+			distances[position] = distance;
+		}
+
+		int poll() {
+			final int polled = indices[0];
+
+			size--;
+			final int lastIndex = indices[size];
+			final double lastDistance = distances[size];
+
+			int position = 0;
+			while (true) {
+				int child = 2 * position + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size && precedes(distances[child + 1], distances[child])) {
+					child++;
+				}
+				if (!precedes(distances[child], lastDistance)) {
+					break;
+				}
+
+				indices[position] = indices[child];
+				distances[position] = distances[child];
+				position = child;
+			}
+			indices[position] = lastIndex;
+			distances[position] = lastDistance;
+
+			return polled;
+		}
+
+		private boolean precedes(final double first, final double second) {
+			return maximum ? first > second : first < second;
+		}
+	}
+
+	/**
+	 * Marks of the nodes visited by a single search, reset in constant time by
+	 * moving on to the next stamp.
+	 */
+	@NotThreadSafe
+	private static final class VisitedMarks {
+
+		private int[] marks;
+		private int stamp;
+
+		VisitedMarks() {
+			this.marks = new int[0];
+			this.stamp = 0;
+		}
+
+		void reset(final int capacity) {
+			if (marks.length < capacity) {
+				marks = new int[Math.max(capacity, 2 * marks.length)];
+			}
+
+			stamp++;
+			if (stamp == 0) {
+				Arrays.fill(marks, 0);
+				stamp = 1;
+			}
+		}
+
+		boolean visit(final int index) {
+			if (marks[index] == stamp) {
+				return false;
+			}
+
+			marks[index] = stamp;
+			return true;
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.SortedSet;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.bag.HeapSortedSampleStoreFactory;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+
+/**
+ * Approximate implementation of {@link TopKNodesMatcher} which navigates a
+ * {@link ProximityGraph} maintained for every matched graph, measuring only a
+ * small part of its nodes. It suits the large graphs, where even the pruned
+ * scans of the exact matchers take too long.
+ *
+ * <p>
+ * The proximity graphs link the nodes by the distance of their values, but the
+ * search is led by the overall weighted distance of the query, so the results
+ * are the more accurate the more the values weigh. The queries not concerning
+ * the values at all are answered by the
+ * {@link ContextAwareDistanceTopKNodesMatcher}.
+ * </p>
+ *
+ * <p>
+ * The proximity graphs are created lazily on the first query and kept only as
+ * long as their graph is alive. They are brought up to date with the graph
+ * before every search, inserting just the newly learned nodes. The effort spent
+ * on the insertion and on the search trades the speed for the recall.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@ThreadSafe
+@Component("proximityGraph")
+public final class ProximityGraphTopKNodesMatcher extends AbstractTopKNodesMatcher {
+
+	/**
+	 * Default number of the links of a node on the upper layers of the proximity
+	 * graph.
+	 */
+	public static final int INITIAL_DEFAULT_MAXIMUM_CONNECTIONS = 16;
+
+	/**
+	 * Default number of the closest nodes considered as the neighbours of an
+	 * inserted node.
+	 */
+	public static final int INITIAL_DEFAULT_CONSTRUCTION_BREADTH = 100;
+
+	/**
+	 * Default number of the closest nodes tracked by a search.
+	 */
+	public static final int INITIAL_DEFAULT_SEARCH_BREADTH = 64;
+
+	private final int searchBreadth;
+
+	private final ContextAwareDistanceTopKNodesMatcher scanningMatcher;
+	private final LoadingCache<BackgroundKnowledgeGraph, ProximityGraph> proximityGraphs;
+
+	/**
+	 * Constructs the matcher.
+	 *
+	 * @param distance
+	 *            used distance measure
+	 * @param measuredNodeFactory
+	 *            factory for nodes associated with their distance
+	 * @param snapshots
+	 *            provider of the snapshots of the matched graphs
+	 * @param defaultValuesWeight
+	 *            default weight of the contribution of the distance of numeric
+	 *            values to the overall distance
+	 * @param defaultPropertiesWeight
+	 *            default weight of the contribution of the property context
+	 *            distance to the overall distance
+	 * @param defaultClassesWeight
+	 *            default weight of the contribution of the class context distance
+	 *            to the overall distance
+	 * @param defaultK
+	 *            default value of K (the maximum number of the best matching nodes)
+	 * @param maximumConnections
+	 *            number of the links of a node on the upper layers of the
+	 *            proximity graph, twice as many are kept on the bottom one
+	 * @param constructionBreadth
+	 *            number of the closest nodes considered as the neighbours of an
+	 *            inserted node
+	 * @param searchBreadth
+	 *            number of the closest nodes tracked by a search, at least K is
+	 *            used
+	 */
+	@Autowired
+	ProximityGraphTopKNodesMatcher(@Qualifier("Distance") final Distance distance,
+			final MeasuredNodeFactory measuredNodeFactory, final MatchingSnapshots snapshots,
+			@Value("${eu.odalic.extrarelatable.valuesWeight:0.5}") final double defaultValuesWeight,
+			@Value("${eu.odalic.extrarelatable.propertiesWeight:0.25}") final double defaultPropertiesWeight,
+			@Value("${eu.odalic.extrarelatable.classesWeight:0.25}") final double defaultClassesWeight,
+			@Value("${eu.odalic.extrarelatable.topKNeighbours?:50}") final int defaultK,
+			@Value("${eu.odalic.extrarelatable.proximityGraph.maximumConnections:16}") final int maximumConnections,
+			@Value("${eu.odalic.extrarelatable.proximityGraph.constructionBreadth:100}") final int constructionBreadth,
+			@Value("${eu.odalic.extrarelatable.proximityGraph.searchBreadth:64}") final int searchBreadth) {
+		super(distance, measuredNodeFactory, snapshots, defaultValuesWeight, defaultPropertiesWeight,
+				defaultClassesWeight, defaultK);
+
+		checkArgument(maximumConnections >= 2, "The maximum number of connections must be at least two!");
+		checkArgument(constructionBreadth >= 1, "The construction breadth must be at least one!");
+		checkArgument(searchBreadth >= 1, "The search breadth must be at least one!");
+
+		this.searchBreadth = searchBreadth;
+
+		this.scanningMatcher = new ContextAwareDistanceTopKNodesMatcher(distance, measuredNodeFactory, snapshots);
+		this.proximityGraphs = CacheBuilder.newBuilder().weakKeys()
+				.build(new CacheLoader<BackgroundKnowledgeGraph, ProximityGraph>() {
+					@Override
+					public ProximityGraph load(final BackgroundKnowledgeGraph graph) {
+						return new ProximityGraph(distance, maximumConnections, constructionBreadth);
+					}
+				});
+	}
+
+	/**
+	 * Constructs the matcher using the defaults.
+	 *
+	 * @param distance
+	 *            used distance measure
+	 * @param measuredNodeFactory
+	 *            factory for nodes associated with their distance
+	 */
+	public ProximityGraphTopKNodesMatcher(final Distance distance, final MeasuredNodeFactory measuredNodeFactory) {
+		this(distance, measuredNodeFactory,
+				new MatchingSnapshots(new HeapSortedSampleStoreFactory(), new ContextDictionaries()),
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_VALUES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_PROPERTIES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_CLASSES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_K, INITIAL_DEFAULT_MAXIMUM_CONNECTIONS,
+				INITIAL_DEFAULT_CONSTRUCTION_BREADTH, INITIAL_DEFAULT_SEARCH_BREADTH);
+	}
+
+	@Override
+	SortedSet<MeasuredNode> match(final BackgroundKnowledgeGraph graph, final MatchingSnapshot snapshot,
+			final NodesMatchingQuery query) {
+		if (query.isContextOnly()) {
+			return scanningMatcher.match(graph, snapshot, query);
+		}
+
+		final ProximityGraph proximityGraph = proximityGraphs.getUnchecked(graph);
+		proximityGraph.update(snapshot);
+
+		final TopKHeap winners = new TopKHeap(query.getK());
+		proximityGraph.search(query, snapshot, searchBreadth, this, winners);
+
+		return winners.toSortedSet(getMeasuredNodeFactory());
+	}
+}
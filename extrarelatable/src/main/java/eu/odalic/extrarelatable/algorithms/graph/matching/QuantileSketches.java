@@ -0,0 +1,79 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import eu.odalic.extrarelatable.model.bag.HeapSortedSampleStore;
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+
+/**
+ * Fixed-size quantile summaries of the values of all the nodes of a single
+ * graph, indexed in the same way as the nodes in its {@link MatchingSnapshot}
+ * and extended incrementally as the snapshots grow.
+ *
+ * @author Václav Brodec
+ *
+ */
+@ThreadSafe
+final class QuantileSketches {
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final int sketchSize;
+
+	private final HeapSortedSampleStore store;
+	private volatile SortedSample[] sketches;
+	private int size;
+
+	/**
+	 * Creates empty summaries.
+	 *
+	 * @param sketchSize
+	 *            maximum number of the quantiles kept for a node
+	 */
+	QuantileSketches(final int sketchSize) {
+		checkArgument(sketchSize >= 2, "The sketch size must be at least two!");
+
+		this.sketchSize = sketchSize;
+		this.store = new HeapSortedSampleStore();
+		this.sketches = new SortedSample[INITIAL_CAPACITY];
+		this.size = 0;
+	}
+
+	/**
+	 * Summarizes the nodes of the snapshot which have not been summarized yet.
+	 *
+	 * @param snapshot
+	 *            the latest snapshot of the summarized graph
+	 * @return the summaries, covering at least the nodes of the snapshot
+	 */
+	synchronized SortedSample[] update(final MatchingSnapshot snapshot) {
+		if (snapshot.size() <= size) {
+			return sketches;
+		}
+
+		SortedSample[] extended = sketches;
+		if (extended.length < snapshot.size()) {
+			extended = Arrays.copyOf(extended, Math.max(snapshot.size(), 2 * extended.length));
+		}
+
+		for (int index = size; index < snapshot.size(); index++) {
+			extended[index] = store.add(snapshot.getSample(index).getQuantiles(sketchSize));
+		}
+
+		this.size = snapshot.size();
+		this.sketches = extended;
+
+		return extended;
+	}
+
+	/**
+	 * @return maximum number of the quantiles kept for a node
+	 */
+	int getSketchSize() {
+		return sketchSize;
+	}
+}
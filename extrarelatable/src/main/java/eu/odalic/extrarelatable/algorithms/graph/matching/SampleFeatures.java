@@ -0,0 +1,113 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.annotation.concurrent.Immutable;
+
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+
+/**
+ * Small vector of the features of a {@link SortedSample}, so that the samples
+ * of similar shape, location and scale lie close to each other in the
+ * Euclidean space. The quantiles are taken in a signed logarithmic scale, as
+ * the values of the nodes span many orders of magnitude. Being a monotone
+ * transformation, the scale does not change the distances based on the ranks
+ * of the values, such as the Kolmogorov-Smirnov one.
+ *
+ * @author Václav Brodec
+ *
+ */
+@Immutable
+final class SampleFeatures {
+
+	/**
+	 * Number of the features.
+	 */
+	static final int DIMENSION = 8;
+
+	private SampleFeatures() {
+	}
+
+	/**
+	 * Extracts the features of the sample: the first and the last decile, the
+	 * quartiles and the median, the fraction of the integers, the balance of the
+	 * signs and the moment skewness.
+	 *
+	 * @param sample
+	 *            the sample
+	 * @param features
+	 *            array receiving the features
+	 * @param offset
+	 *            position of the first feature in the array
+	 */
+	static void extract(final SortedSample sample, final double[] features, final int offset) {
+		checkNotNull(sample);
+
+		final int size = sample.size();
+		if (size == 0) {
+			for (int index = 0; index < DIMENSION; index++) {
+				features[offset + index] = 0;
+			}
+
+			return;
+		}
+
+		double sum = 0;
+		int integersCount = 0;
+		for (int index = 0; index < size; index++) {
+			final double value = sample.get(index);
+
+			sum += value;
+			if (value == Math.rint(value)) {
+				integersCount++;
+			}
+		}
+		final double mean = sum / size;
+
+		double squaresSum = 0;
+		double cubesSum = 0;
+		for (int index = 0; index < size; index++) {
+			final double deviation = sample.get(index) - mean;
+
+			squaresSum += deviation * deviation;
+			cubesSum += deviation * deviation * deviation;
+		}
+		final double standardDeviation = Math.sqrt(squaresSum / size);
+		final double momentSkewness = standardDeviation == 0 || !Double.isFinite(standardDeviation) ? 0
+				: (cubesSum / size) / (standardDeviation * standardDeviation * standardDeviation);
+
+		final int negativesCount = sample.countLessThan(0);
+		final int positivesCount = size - sample.countAtMost(0);
+
+		features[offset] = logarithm(getQuantile(sample, 0.1));
+		features[offset + 1] = logarithm(getQuantile(sample, 0.25));
+		features[offset + 2] = logarithm(getQuantile(sample, 0.5));
+		features[offset + 3] = logarithm(getQuantile(sample, 0.75));
+		features[offset + 4] = logarithm(getQuantile(sample, 0.9));
+		features[offset + 5] = ((double) integersCount) / size;
+		features[offset + 6] = ((double) (positivesCount - negativesCount)) / size;
+		features[offset + 7] = momentSkewness / (1 + Math.abs(momentSkewness));
+	}
+
+	/**
+	 * Extracts the features of the sample into a new array.
+	 *
+	 * @param sample
+	 *            the sample
+	 * @return the features
+	 */
+	static double[] of(final SortedSample sample) {
+		final double[] features = new double[DIMENSION];
+		extract(sample, features, 0);
+
+		return features;
+	}
+
+	private static double getQuantile(final SortedSample sample, final double level) {
+		return sample.get((int) ((sample.size() - 1) * level));
+	}
+
+	private static double logarithm(final double value) {
+		return Math.signum(value) * Math.log1p(Math.abs(value));
+	}
+}
@@ -0,0 +1,163 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.Arrays;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Bounded cache of the distances of the values of a single query to the
+ * distributions shared by several nodes of a {@link MatchingSnapshot}, and of
+ * the dissimilarities of its context to the contexts shared by several
+ * property trees, so that each of them is computed just once per scan. The
+ * cache is direct-mapped by the slot of the distribution or by the number of
+ * the context, a colliding entry simply replaces the cached one. The cache
+ * also counts the distances of the values actually computed by the query.
+ *
+ * @author Václav Brodec
+ *
+ */
+@NotThreadSafe
+final class SharedDistancesCache {
+
+	/**
+	 * Maximum number of the cached distances, which keeps the memory used by a
+	 * batch of queries modest even for graphs with many shared distributions.
+	 */
+	static final int MAXIMUM_CAPACITY = 4096;
+
+	private final int[] slots;
+	private final double[] distances;
+	private final int mask;
+
+	private final int[] contextIds;
+	private final double[] propertiesDissimilarities;
+	private final double[] classesDissimilarities;
+	private final int contextMask;
+
+	private long evaluationsCount;
+
+	/**
+	 * Creates an empty cache.
+	 *
+	 * @param sharedCount
+	 *            number of the shared distributions in the scanned snapshot
+	 * @param contextsCount
+	 *            number of the distinct contexts in the scanned snapshot
+	 */
+	SharedDistancesCache(final int sharedCount, final int contextsCount) {
+		checkArgument(sharedCount >= 0);
+		checkArgument(contextsCount >= 0);
+
+		final int capacity = getCapacity(sharedCount);
+
+		this.slots = new int[capacity];
+		Arrays.fill(this.slots, -1);
+		this.distances = new double[capacity];
+		this.mask = capacity - 1;
+
+		final int contextCapacity = getCapacity(contextsCount);
+
+		this.contextIds = new int[contextCapacity];
+		Arrays.fill(this.contextIds, -1);
+		this.propertiesDissimilarities = new double[contextCapacity];
+		this.classesDissimilarities = new double[contextCapacity];
+		this.contextMask = contextCapacity - 1;
+
+		this.evaluationsCount = 0;
+	}
+
+	private static int getCapacity(final int count) {
+		return Math.min(MAXIMUM_CAPACITY, Integer.highestOneBit(Math.max(1, count) * 2 - 1));
+	}
+
+	/**
+	 * @param slot
+	 *            slot of the shared distribution
+	 * @return the cached distance, or {@link Double#NaN} if not cached
+	 */
+	double get(final int slot) {
+		final int position = slot & mask;
+		if (slots[position] != slot) {
+			return Double.NaN;
+		}
+
+		return distances[position];
+	}
+
+	/**
+	 * Caches the distance.
+	 *
+	 * @param slot
+	 *            slot of the shared distribution
+	 * @param distance
+	 *            the computed distance of the values
+	 */
+	void put(final int slot, final double distance) {
+		final int position = slot & mask;
+
+		slots[position] = slot;
+		distances[position] = distance;
+	}
+
+	/**
+	 * @param contextId
+	 *            number of the context
+	 * @return true if the dissimilarities to the context are cached
+	 */
+	boolean containsContext(final int contextId) {
+		return contextIds[contextId & contextMask] == contextId;
+	}
+
+	/**
+	 * @param contextId
+	 *            number of the cached context
+	 * @return the cached dissimilarity of the context properties
+	 */
+	double getPropertiesDissimilarity(final int contextId) {
+		return propertiesDissimilarities[contextId & contextMask];
+	}
+
+	/**
+	 * @param contextId
+	 *            number of the cached context
+	 * @return the cached dissimilarity of the context classes
+	 */
+	double getClassesDissimilarity(final int contextId) {
+		return classesDissimilarities[contextId & contextMask];
+	}
+
+	/**
+	 * Caches the dissimilarities of the context.
+	 *
+	 * @param contextId
+	 *            number of the context
+	 * @param propertiesDissimilarity
+	 *            the computed dissimilarity of the context properties
+	 * @param classesDissimilarity
+	 *            the computed dissimilarity of the context classes
+	 */
+	void putContext(final int contextId, final double propertiesDissimilarity, final double classesDissimilarity) {
+		final int position = contextId & contextMask;
+
+		contextIds[position] = contextId;
+		propertiesDissimilarities[position] = propertiesDissimilarity;
+		classesDissimilarities[position] = classesDissimilarity;
+	}
+
+	/**
+	 * Records a computation of the distance of the values.
+	 */
+	void countEvaluation() {
+		evaluationsCount++;
+	}
+
+	/**
+	 * @return the number of the computations of the distance of the values
+	 *         recorded so far
+	 */
+	long getEvaluationsCount() {
+		return evaluationsCount;
+	}
+}
@@ -0,0 +1,160 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.google.common.collect.ImmutableList;
+
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+
+/**
+ * Standing matching of a fixed list of input nodes against a single graph,
+ * which keeps the best matching nodes of each of them and brings them up to
+ * date as the graph learns.
+ *
+ * <p>
+ * The update measures just the nodes added to the graph since the previous
+ * one and merges them into the kept results, instead of scanning the whole
+ * graph again. Only the input nodes whose declared context has meanwhile been
+ * learned by the graph are matched anew, as their context distances to the
+ * already measured nodes have changed. The matching is exact, the results are
+ * the same as of
+ * {@link TopKNodesMatcher#matchAll(BackgroundKnowledgeGraph, List, double, double, double, int)},
+ * up to the choice among the nodes at equal distance.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@ThreadSafe
+public final class StandingMatching {
+
+	private final BackgroundKnowledgeGraph graph;
+	private final AbstractTopKNodesMatcher matcher;
+	private final List<Node> matchedNodes;
+	private final double valuesWeight;
+	private final double propertiesWeight;
+	private final double classesWeight;
+	private final int k;
+
+	@GuardedBy("this")
+	private List<NodesMatchingQuery> queries;
+
+	@GuardedBy("this")
+	private TopKHeap[] winners;
+
+	@GuardedBy("this")
+	private int snapshotSize;
+
+	StandingMatching(final BackgroundKnowledgeGraph graph, final AbstractTopKNodesMatcher matcher,
+			final List<? extends Node> matchedNodes, final double valuesWeight, final double propertiesWeight,
+			final double classesWeight, final int k) {
+		checkNotNull(graph);
+		checkNotNull(matcher);
+		checkNotNull(matchedNodes);
+		checkArgument(k >= 1, "The k must be at least one!");
+
+		this.graph = graph;
+		this.matcher = matcher;
+		this.matchedNodes = ImmutableList.copyOf(matchedNodes);
+		this.valuesWeight = valuesWeight;
+		this.propertiesWeight = propertiesWeight;
+		this.classesWeight = classesWeight;
+		this.k = k;
+
+		this.queries = ImmutableList.of();
+		this.winners = new TopKHeap[0];
+		this.snapshotSize = -1;
+
+		update();
+	}
+
+	/**
+	 * @return the matched graph
+	 */
+	public BackgroundKnowledgeGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * @return the matched input nodes
+	 */
+	public List<Node> getMatchedNodes() {
+		return matchedNodes;
+	}
+
+	/**
+	 * Brings the best matching nodes up to date with the current content of the
+	 * graph.
+	 *
+	 * @return true if the graph has grown since the previous update, so that the
+	 *         best matching nodes may have changed
+	 */
+	public synchronized boolean update() {
+		final MatchingSnapshot snapshot = matcher.getSnapshot(graph);
+		if (snapshot.size() == snapshotSize) {
+			return false;
+		}
+
+		final List<NodesMatchingQuery> updatedQueries = AbstractTopKNodesMatcher.encode(matchedNodes, snapshot,
+				valuesWeight, propertiesWeight, classesWeight, k);
+
+		final TopKHeap[] updatedWinners = new TopKHeap[updatedQueries.size()];
+		final List<NodesMatchingQuery> patchedQueries = new ArrayList<>();
+		final List<TopKHeap> patchedWinners = new ArrayList<>();
+		final List<NodesMatchingQuery> renewedQueries = new ArrayList<>();
+		final List<TopKHeap> renewedWinners = new ArrayList<>();
+		for (int index = 0; index < updatedWinners.length; index++) {
+			final NodesMatchingQuery query = updatedQueries.get(index);
+
+			if (index < queries.size() && queries.get(index).equals(query)) {
+				updatedWinners[index] = winners[index];
+				patchedQueries.add(query);
+				patchedWinners.add(updatedWinners[index]);
+			} else {
+				updatedWinners[index] = new TopKHeap(query.getK());
+				renewedQueries.add(query);
+				renewedWinners.add(updatedWinners[index]);
+			}
+		}
+
+		if (!patchedQueries.isEmpty()) {
+			matcher.measureAll(patchedQueries, snapshot, snapshotSize, snapshot.size(),
+					patchedWinners.toArray(new TopKHeap[patchedWinners.size()]));
+		}
+		if (!renewedQueries.isEmpty()) {
+			matcher.measureAll(renewedQueries, snapshot, renewedWinners.toArray(new TopKHeap[renewedWinners.size()]));
+		}
+
+		this.queries = updatedQueries;
+		this.winners = updatedWinners;
+		this.snapshotSize = snapshot.size();
+
+		return true;
+	}
+
+	/**
+	 * Provides the best matching nodes as of the last update.
+	 *
+	 * @return the best-matching nodes, in the order of the input nodes
+	 */
+	public synchronized List<SortedSet<MeasuredNode>> getMatchingNodes() {
+		return TopKHeap.toSortedSets(winners, matcher.getMeasuredNodeFactory());
+	}
+
+	@Override
+	public String toString() {
+		return "StandingMatching [matchedNodes=" + matchedNodes + ", valuesWeight="
+				+ valuesWeight + ", propertiesWeight=" + propertiesWeight + ", classesWeight=" + classesWeight
+				+ ", k=" + k + "]";
+	}
+}
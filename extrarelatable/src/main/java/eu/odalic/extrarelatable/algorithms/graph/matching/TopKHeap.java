@@ -0,0 +1,217 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedSet;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSortedSet;
+
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+
+/**
+ * Bounded heap keeping at most K closest nodes offered to it. The nodes are
+ * kept just along with their distances, in primitive arrays, so that offering
+ * a candidate allocates nothing. The {@link MeasuredNode}s are created only for
+ * the final winners.
+ *
+ * @author Václav Brodec
+ *
+ */
+@NotThreadSafe
+final class TopKHeap {
+
+	private final Node[] nodes;
+	private final double[] distances;
+	private int size;
+	private double bound;
+
+	/**
+	 * Creates an empty heap.
+	 *
+	 * @param k
+	 *            the maximum number of kept nodes
+	 */
+	TopKHeap(final int k) {
+		checkArgument(k >= 1);
+
+		this.nodes = new Node[k];
+		this.distances = new double[k];
+		this.size = 0;
+		this.bound = Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * Creates an empty heap for each of the queries.
+	 *
+	 * @param queries
+	 *            the queries
+	 * @return the heaps, in the order of the queries
+	 */
+	static TopKHeap[] of(final List<NodesMatchingQuery> queries) {
+		final TopKHeap[] heaps = new TopKHeap[queries.size()];
+		for (int index = 0; index < heaps.length; index++) {
+			heaps[index] = new TopKHeap(queries.get(index).getK());
+		}
+
+		return heaps;
+	}
+
+	/**
+	 * Converts the heaps to the sorted sets of their nodes.
+	 *
+	 * @param heaps
+	 *            the heaps
+	 * @param measuredNodeFactory
+	 *            factory for nodes associated with their distance
+	 * @return the kept nodes of each of the heaps ordered from the closest one
+	 */
+	static List<SortedSet<MeasuredNode>> toSortedSets(final TopKHeap[] heaps,
+			final MeasuredNodeFactory measuredNodeFactory) {
+		final ImmutableList.Builder<SortedSet<MeasuredNode>> builder = ImmutableList.builder();
+		for (final TopKHeap heap : heaps) {
+			builder.add(heap.toSortedSet(measuredNodeFactory));
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Keeps the candidate if it is among the K closest nodes offered so far. Of
+	 * the equally distant candidates the earlier offered ones are kept.
+	 *
+	 * @param candidate
+	 *            offered node
+	 * @param distance
+	 *            its distance
+	 */
+	void offer(final Node candidate, final double distance) {
+		if (size < nodes.length) {
+			siftUp(size++, candidate, distance);
+		} else if (distance < distances[0]) {
+			siftDown(0, candidate, distance);
+		}
+	}
+
+	private void siftUp(final int start, final Node node, final double distance) {
+		int position = start;
+		while (position > 0) {
+			final int parent = (position - 1) / 2;
+			if (distances[parent] >= distance) {
+				break;
+			}
+
+			nodes[position] = nodes[parent];
+			distances[position] = distances[parent];
+			position = parent;
+		}
+
+		nodes[position] = node;
+		distances[position] = distance;
+	}
+
+	private void siftDown(final int start, final Node node, final double distance) {
+		int position = start;
+		while (true) {
+			final int left = 2 * position + 1;
+			if (left >= size) {
+				break;
+			}
+
+			final int right = left + 1;
+			final int farther = right < size && distances[right] > distances[left] ? right : left;
+			if (distances[farther] <= distance) {
+				break;
+			}
+
+			nodes[position] = nodes[farther];
+			distances[position] = distances[farther];
+			position = farther;
+		}
+
+		nodes[position] = node;
+		distances[position] = distance;
+	}
+
+	/**
+	 * @return distance of the farthest of the kept nodes when the heap is full,
+	 *         otherwise {@link Double#POSITIVE_INFINITY}, or the bound of the
+	 *         heap, if lower; candidates further than that are rejected
+	 */
+	double getThreshold() {
+		if (size < nodes.length) {
+			return bound;
+		}
+
+		return Math.min(distances[0], bound);
+	}
+
+	/**
+	 * Lowers the threshold of the heap to the given bound, typically the
+	 * threshold of another heap of the same query, whose nodes are going to be
+	 * merged with the nodes of this one.
+	 *
+	 * @param bound
+	 *            distance above which the candidates are of no interest
+	 */
+	void restrict(final double bound) {
+		this.bound = Math.min(this.bound, bound);
+	}
+
+	/**
+	 * Offers all the nodes kept by another heap.
+	 *
+	 * @param other
+	 *            merged heap
+	 */
+	void offerAll(final TopKHeap other) {
+		checkNotNull(other);
+
+		for (int position = 0; position < other.size; position++) {
+			offer(other.nodes[position], other.distances[position]);
+		}
+	}
+
+	/**
+	 * @return independent copy of the heap
+	 */
+	TopKHeap copy() {
+		final TopKHeap copy = new TopKHeap(nodes.length);
+		System.arraycopy(nodes, 0, copy.nodes, 0, size);
+		System.arraycopy(distances, 0, copy.distances, 0, size);
+		copy.size = size;
+		copy.bound = bound;
+
+		return copy;
+	}
+
+	/**
+	 * @return the kept nodes, in no particular order
+	 */
+	List<Node> getNodes() {
+		return ImmutableList.copyOf(Arrays.asList(nodes).subList(0, size));
+	}
+
+	/**
+	 * @param measuredNodeFactory
+	 *            factory for nodes associated with their distance
+	 * @return the kept nodes ordered from the closest one
+	 */
+	SortedSet<MeasuredNode> toSortedSet(final MeasuredNodeFactory measuredNodeFactory) {
+		checkNotNull(measuredNodeFactory);
+
+		final ImmutableSortedSet.Builder<MeasuredNode> builder = ImmutableSortedSet.naturalOrder();
+		for (int position = 0; position < size; position++) {
+			builder.add(measuredNodeFactory.create(nodes[position], distances[position]));
+		}
+
+		return builder.build();
+	}
+}
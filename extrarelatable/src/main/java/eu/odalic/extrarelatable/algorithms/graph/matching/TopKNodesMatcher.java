@@ -1,10 +1,12 @@
 package eu.odalic.extrarelatable.algorithms.graph.matching;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.SortedSet;
 
 import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
 import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+import eu.odalic.extrarelatable.model.annotation.MeasuredComponents;
 import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
 import eu.odalic.extrarelatable.model.bag.NumberLikeValue;
 
@@ -50,6 +52,193 @@ public interface TopKNodesMatcher {
 	 */
 	SortedSet<MeasuredNode> match(BackgroundKnowledgeGraph graph, final Node matchedNode);
 
+	/**
+	 * Retrieves the best matching nodes from the graph for each of the input
+	 * nodes. The results are the same as if each node was matched separately,
+	 * but the implementations may answer all of them in a single pass over the
+	 * graph.
+	 * 
+	 * @param graph
+	 *            the source background knowledge graph
+	 * @param matchedNodes
+	 *            input nodes for which the best matches are retrieved
+	 * @param valuesWeight
+	 *            weight of contribution to the overall distance assigned to the
+	 *            distance of numeric values
+	 * @param propertiesWeight
+	 *            weight of contribution to the overall distance assigned to
+	 *            distance of property contexts
+	 * @param classesWeight
+	 *            weight of contribution to the overall distance assigned to
+	 *            distance of class contexts
+	 * @param k
+	 *            the maximum number of returned nodes for each input node
+	 * @return the best-matching nodes, in the order of the input nodes
+	 */
+	List<SortedSet<MeasuredNode>> matchAll(BackgroundKnowledgeGraph graph, List<? extends Node> matchedNodes,
+			double valuesWeight, double propertiesWeight, double classesWeight, int k);
+
+	/**
+	 * Retrieves the best matching nodes from the graph for each of the input
+	 * nodes. Uses default weights and value of K.
+	 * 
+	 * @param graph
+	 *            the source background knowledge graph
+	 * @param matchedNodes
+	 *            input nodes for which the best matches are retrieved
+	 * @return the best-matching nodes, in the order of the input nodes
+	 */
+	List<SortedSet<MeasuredNode>> matchAll(BackgroundKnowledgeGraph graph, List<? extends Node> matchedNodes);
+
+	/**
+	 * Retrieves the best matching nodes from the graph for each of the input
+	 * nodes, within the given budget. The most promising properties of the graph
+	 * are matched first, so that when the budget runs out, the best matching
+	 * nodes found so far are a useful approximation of the results. The budget
+	 * records whether it has run out and how large part of the graph has been
+	 * covered.
+	 * 
+	 * <p>
+	 * Unless the budget runs out, the results are the same as of
+	 * {@link #matchAll(BackgroundKnowledgeGraph, List, double, double, double, int)},
+	 * up to the choice among the nodes at equal distance.
+	 * </p>
+	 * 
+	 * @param graph
+	 *            the source background knowledge graph
+	 * @param matchedNodes
+	 *            input nodes for which the best matches are retrieved
+	 * @param valuesWeight
+	 *            weight of contribution to the overall distance assigned to the
+	 *            distance of numeric values
+	 * @param propertiesWeight
+	 *            weight of contribution to the overall distance assigned to
+	 *            distance of property contexts
+	 * @param classesWeight
+	 *            weight of contribution to the overall distance assigned to
+	 *            distance of class contexts
+	 * @param k
+	 *            the maximum number of returned nodes for each input node
+	 * @param budget
+	 *            the budget of the matching
+	 * @return the best-matching nodes found within the budget, in the order of
+	 *         the input nodes
+	 */
+	List<SortedSet<MeasuredNode>> matchAll(BackgroundKnowledgeGraph graph, List<? extends Node> matchedNodes,
+			double valuesWeight, double propertiesWeight, double classesWeight, int k, MatchingBudget budget);
+
+	/**
+	 * Retrieves the best matching nodes from the graph for each of the input
+	 * nodes, within the given budget. Uses default weights and value of K.
+	 * 
+	 * @param graph
+	 *            the source background knowledge graph
+	 * @param matchedNodes
+	 *            input nodes for which the best matches are retrieved
+	 * @param budget
+	 *            the budget of the matching
+	 * @return the best-matching nodes found within the budget, in the order of
+	 *         the input nodes
+	 */
+	List<SortedSet<MeasuredNode>> matchAll(BackgroundKnowledgeGraph graph, List<? extends Node> matchedNodes,
+			MatchingBudget budget);
+
+	/**
+	 * Starts a standing matching of the input nodes against the graph, which
+	 * keeps their best matching nodes and brings them up to date as the graph
+	 * learns, measuring just the newly added nodes.
+	 * 
+	 * @param graph
+	 *            the source background knowledge graph
+	 * @param matchedNodes
+	 *            input nodes for which the best matches are kept
+	 * @param valuesWeight
+	 *            weight of contribution to the overall distance assigned to the
+	 *            distance of numeric values
+	 * @param propertiesWeight
+	 *            weight of contribution to the overall distance assigned to
+	 *            distance of property contexts
+	 * @param classesWeight
+	 *            weight of contribution to the overall distance assigned to
+	 *            distance of class contexts
+	 * @param k
+	 *            the maximum number of kept nodes for each input node
+	 * @return the standing matching, up to date with the current content of the
+	 *         graph
+	 */
+	StandingMatching matchStanding(BackgroundKnowledgeGraph graph, List<? extends Node> matchedNodes,
+			double valuesWeight, double propertiesWeight, double classesWeight, int k);
+
+	/**
+	 * Starts a standing matching of the input nodes against the graph. Uses
+	 * default weights and value of K.
+	 * 
+	 * @param graph
+	 *            the source background knowledge graph
+	 * @param matchedNodes
+	 *            input nodes for which the best matches are kept
+	 * @return the standing matching, up to date with the current content of the
+	 *         graph
+	 */
+	StandingMatching matchStanding(BackgroundKnowledgeGraph graph, List<? extends Node> matchedNodes);
+
+	/**
+	 * Retrieves a pool of the best matching nodes from the graph for the input
+	 * node, with the separate components of their distances, so that they can be
+	 * re-ranked by {@link #rerank(List, double, double, double, int)} under
+	 * different weights without matching them again.
+	 * 
+	 * <p>
+	 * The pool is selected under the given weights, so the re-ranking under them
+	 * with K not greater than the pool size yields the same nodes as
+	 * {@link #match(BackgroundKnowledgeGraph, Node, double, double, double, int)}
+	 * with the same weights and K.
+	 * Under other weights, the nodes outside the pool are not considered, the
+	 * larger the pool, the less likely they would have been among the best.
+	 * </p>
+	 * 
+	 * @param graph
+	 *            the source background knowledge graph
+	 * @param matchedNode
+	 *            input node for which the best matches are retrieved
+	 * @param valuesWeight
+	 *            weight of contribution to the overall distance assigned to the
+	 *            distance of numeric values, when selecting the pool
+	 * @param propertiesWeight
+	 *            weight of contribution to the overall distance assigned to
+	 *            distance of property contexts, when selecting the pool
+	 * @param classesWeight
+	 *            weight of contribution to the overall distance assigned to
+	 *            distance of class contexts, when selecting the pool
+	 * @param poolSize
+	 *            the maximum number of returned nodes
+	 * @return the pool of the best-matching nodes with the components of their
+	 *         distances, ordered from the closest one
+	 */
+	List<MeasuredComponents> matchComponents(BackgroundKnowledgeGraph graph, Node matchedNode, double valuesWeight,
+			double propertiesWeight, double classesWeight, int poolSize);
+
+	/**
+	 * Selects the best matching nodes of a pool under the given weights.
+	 * 
+	 * @param pool
+	 *            pool of nodes with the components of their distances
+	 * @param valuesWeight
+	 *            weight of contribution to the overall distance assigned to the
+	 *            distance of numeric values
+	 * @param propertiesWeight
+	 *            weight of contribution to the overall distance assigned to
+	 *            distance of property contexts
+	 * @param classesWeight
+	 *            weight of contribution to the overall distance assigned to
+	 *            distance of class contexts
+	 * @param k
+	 *            the maximum number of returned nodes
+	 * @return the best-matching nodes of the pool
+	 */
+	SortedSet<MeasuredNode> rerank(List<? extends MeasuredComponents> pool, double valuesWeight,
+			double propertiesWeight, double classesWeight, int k);
+
 	/**
 	 * Retrieves the best matching nodes from the graph for the input values. Uses
 	 * only the distance of the values.
@@ -0,0 +1,120 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Set of URIs encoded by the identifiers assigned by a
+ * {@link ContextDictionary}. URIs unknown to the dictionary cannot be shared
+ * with any encoded context, so only their number is kept.
+ *
+ * @author Václav Brodec
+ *
+ */
+@Immutable
+final class UriIdSet {
+
+	/**
+	 * The empty set.
+	 */
+	static final UriIdSet EMPTY = new UriIdSet(new int[0], 0);
+
+	private final int[] ids;
+	private final int unknownCount;
+
+	/**
+	 * Creates the set.
+	 *
+	 * @param ids
+	 *            identifiers of the known URIs (the array is copied)
+	 * @param unknownCount
+	 *            number of distinct URIs without identifier
+	 */
+	UriIdSet(final int[] ids, final int unknownCount) {
+		checkNotNull(ids);
+		checkArgument(unknownCount >= 0);
+
+		this.ids = Arrays.stream(ids).sorted().distinct().toArray();
+		this.unknownCount = unknownCount;
+	}
+
+	/**
+	 * @return number of the URIs in the set
+	 */
+	int size() {
+		return ids.length + unknownCount;
+	}
+
+	/**
+	 * Computes the Jaccard dissimilarity (one minus the size of the intersection
+	 * divided by the size of the union) by merging the sorted identifiers. Two
+	 * empty sets are considered completely dissimilar.
+	 *
+	 * @param other
+	 *            the other set, encoded by the same dictionary
+	 * @return the dissimilarity between zero and one
+	 */
+	double getJaccardDissimilarity(final UriIdSet other) {
+		final int[] otherIds = other.ids;
+
+		int intersectionSize = 0;
+		int index = 0;
+		int otherIndex = 0;
+		while (index < ids.length && otherIndex < otherIds.length) {
+			if (ids[index] < otherIds[otherIndex]) {
+				index++;
+			} else if (ids[index] > otherIds[otherIndex]) {
+				otherIndex++;
+			} else {
+				intersectionSize++;
+				index++;
+				otherIndex++;
+			}
+		}
+
+		final double jaccardSimilarity = ((double) intersectionSize)
+				/ (size() + other.size() - intersectionSize);
+		final double jaccardDissimilarity = 1 - jaccardSimilarity;
+
+		return Double.isNaN(jaccardDissimilarity) ? 1 : jaccardDissimilarity;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + Arrays.hashCode(ids);
+		result = prime * result + unknownCount;
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		UriIdSet other = (UriIdSet) obj;
+		if (!Arrays.equals(ids, other.ids)) {
+			return false;
+		}
+		if (unknownCount != other.unknownCount) {
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "UriIdSet [ids=" + Arrays.toString(ids) + ", unknownCount=" + unknownCount + "]";
+	}
+}
@@ -0,0 +1,271 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.PropertyTree;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+
+/**
+ * Vantage-point tree indexing the nodes of a single
+ * {@link BackgroundKnowledgeGraph} by a metric distance of their values.
+ *
+ * <p>
+ * The tree is grown incrementally, catching up with the property trees added
+ * to the graph since the last update. The nodes are first collected in
+ * buckets, which are split only when they overflow, around a randomly chosen
+ * vantage point and the median of the distances to it. Every branch remembers
+ * the range of the distances of its nodes to the vantage point, so that the
+ * triangle inequality excludes whole branches, which cannot contain any node
+ * closer than the current K-th winner.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@ThreadSafe
+final class VantagePointTree {
+
+	/**
+	 * Slack added to the pruning threshold, covering the rounding errors of the
+	 * bounds derived from the triangle inequality.
+	 */
+	private static final double TOLERANCE = 1e-12;
+
+	private final Distance distance;
+	private final int bucketCapacity;
+
+	private final ReadWriteLock lock;
+	private final Random random;
+
+	private Element root;
+	private volatile int version;
+
+	/**
+	 * Creates an empty tree.
+	 *
+	 * @param distance
+	 *            a metric distance of the values
+	 * @param bucketCapacity
+	 *            the number of nodes kept in a bucket before it is split
+	 */
+	VantagePointTree(final Distance distance, final int bucketCapacity) {
+		checkNotNull(distance);
+		checkArgument(distance.isMetric(), "The distance must be a metric!");
+		checkArgument(bucketCapacity >= 1, "The bucket capacity must be at least one!");
+
+		this.distance = distance;
+		this.bucketCapacity = bucketCapacity;
+		this.lock = new ReentrantReadWriteLock();
+		this.random = new Random(bucketCapacity);
+		this.root = new Bucket(bucketCapacity);
+		this.version = 0;
+	}
+
+	/**
+	 * Inserts the nodes of the property trees added to the graph since the last
+	 * update.
+	 *
+	 * @param graph
+	 *            the indexed graph
+	 */
+	void update(final BackgroundKnowledgeGraph graph) {
+		if (graph.getVersion() == this.version) {
+			return;
+		}
+
+		lock.writeLock().lock();
+		try {
+			final List<PropertyTree> addedPropertyTrees = graph.getPropertyTreesAddedSince(this.version);
+			for (final PropertyTree propertyTree : addedPropertyTrees) {
+				for (final Node node : propertyTree) {
+					this.root = this.root.insert(node);
+				}
+			}
+
+			this.version += addedPropertyTrees.size();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Searches for the nodes closest to the values of the query.
+	 *
+	 * @param query
+	 *            values-only query
+	 * @param matcher
+	 *            matcher measuring and offering the nodes to the winners
+	 * @return the best matching nodes
+	 */
+	TopKHeap search(final NodesMatchingQuery query, final AbstractTopKNodesMatcher matcher) {
+		checkArgument(query.isValuesOnly());
+
+		final TopKHeap winners = new TopKHeap(query.getK());
+
+		lock.readLock().lock();
+		try {
+			this.root.search(query, matcher, winners);
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		return winners;
+	}
+
+	private abstract class Element {
+
+		abstract Element insert(Node node);
+
+		abstract void search(NodesMatchingQuery query, AbstractTopKNodesMatcher matcher, TopKHeap winners);
+	}
+
+	private final class Bucket extends Element {
+
+		private final List<Node> nodes;
+		private int capacity;
+
+		Bucket(final int capacity) {
+			this.nodes = new ArrayList<>();
+			this.capacity = capacity;
+		}
+
+		@Override
+		Element insert(final Node node) {
+			nodes.add(node);
+			if (nodes.size() <= capacity) {
+				return this;
+			}
+
+			return split();
+		}
+
+		private Element split() {
+			final Node vantagePoint = nodes.remove(random.nextInt(nodes.size()));
+
+			final double[] distances = new double[nodes.size()];
+			for (int index = 0; index < distances.length; index++) {
+				distances[index] = distance.compute(vantagePoint.getSample(), nodes.get(index).getSample());
+			}
+
+			final double[] sortedDistances = distances.clone();
+			Arrays.sort(sortedDistances);
+
+			final double minimum = sortedDistances[0];
+			final double maximum = sortedDistances[sortedDistances.length - 1];
+			if (minimum == maximum) {
+				// All the nodes are equally distant, a split would not separate them.
+				nodes.add(vantagePoint);
+				capacity *= 2;
+
+				return this;
+			}
+
+			int medianIndex = sortedDistances.length / 2;
+			while (sortedDistances[medianIndex] == minimum) {
+				medianIndex++;
+			}
+			final double radius = sortedDistances[medianIndex];
+
+			final Split split = new Split(vantagePoint, radius);
+			for (int index = 0; index < distances.length; index++) {
+				split.place(nodes.get(index), distances[index]);
+			}
+
+			return split;
+		}
+
+		@Override
+		void search(final NodesMatchingQuery query, final AbstractTopKNodesMatcher matcher, final TopKHeap winners) {
+			for (final Node node : nodes) {
+				matcher.measure(query, node, winners);
+			}
+		}
+	}
+
+	private final class Split extends Element {
+
+		private final Node vantagePoint;
+		private final double radius;
+
+		private Element inside;
+		private double insideMinimum;
+		private double insideMaximum;
+
+		private Element outside;
+		private double outsideMinimum;
+		private double outsideMaximum;
+
+		Split(final Node vantagePoint, final double radius) {
+			this.vantagePoint = vantagePoint;
+			this.radius = radius;
+
+			this.inside = new Bucket(bucketCapacity);
+			this.insideMinimum = Double.POSITIVE_INFINITY;
+			this.insideMaximum = Double.NEGATIVE_INFINITY;
+
+			this.outside = new Bucket(bucketCapacity);
+			this.outsideMinimum = Double.POSITIVE_INFINITY;
+			this.outsideMaximum = Double.NEGATIVE_INFINITY;
+		}
+
+		@Override
+		Element insert(final Node node) {
+			place(node, distance.compute(vantagePoint.getSample(), node.getSample()));
+
+			return this;
+		}
+
+		void place(final Node node, final double vantagePointDistance) {
+			if (vantagePointDistance < radius) {
+				inside = inside.insert(node);
+				insideMinimum = Math.min(insideMinimum, vantagePointDistance);
+				insideMaximum = Math.max(insideMaximum, vantagePointDistance);
+			} else {
+				outside = outside.insert(node);
+				outsideMinimum = Math.min(outsideMinimum, vantagePointDistance);
+				outsideMaximum = Math.max(outsideMaximum, vantagePointDistance);
+			}
+		}
+
+		@Override
+		void search(final NodesMatchingQuery query, final AbstractTopKNodesMatcher matcher, final TopKHeap winners) {
+			final double vantagePointDistance = distance.compute(query.getSample(), vantagePoint.getSample());
+			matcher.offer(vantagePoint, vantagePointDistance, winners);
+
+			if (vantagePointDistance < radius) {
+				search(inside, insideMinimum, insideMaximum, vantagePointDistance, query, matcher, winners);
+				search(outside, outsideMinimum, outsideMaximum, vantagePointDistance, query, matcher, winners);
+			} else {
+				search(outside, outsideMinimum, outsideMaximum, vantagePointDistance, query, matcher, winners);
+				search(inside, insideMinimum, insideMaximum, vantagePointDistance, query, matcher, winners);
+			}
+		}
+
+		private void search(final Element branch, final double minimum, final double maximum,
+				final double vantagePointDistance, final NodesMatchingQuery query,
+				final AbstractTopKNodesMatcher matcher, final TopKHeap winners) {
+			if (minimum > maximum) {
+				return;
+			}
+
+			final double lowerBound = Math.max(vantagePointDistance - maximum, minimum - vantagePointDistance);
+			if (lowerBound > winners.getThreshold() + TOLERANCE) {
+				return;
+			}
+
+			branch.search(query, matcher, winners);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SortedSet;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.bag.HeapSortedSampleStoreFactory;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+
+/**
+ * Implementation of {@link TopKNodesMatcher} which answers the queries
+ * concerning only the numeric values by an exact search in a
+ * {@link VantagePointTree}, maintained for every matched graph. The rest of the
+ * queries, and all the queries when the distance is not a metric, are answered
+ * by the {@link ContextAwareDistanceTopKNodesMatcher}, in a single scan when
+ * matched together.
+ *
+ * <p>
+ * The trees are created lazily on the first query and kept only as long as
+ * their graph is alive. They are brought up to date with the graph before
+ * every search, inserting just the newly learned nodes.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@ThreadSafe
+@Component("vantagePointTree")
+public final class VantagePointTreeTopKNodesMatcher extends AbstractTopKNodesMatcher {
+
+	/**
+	 * Default number of nodes kept in a leaf bucket of the tree before it is
+	 * split.
+	 */
+	public static final int INITIAL_DEFAULT_BUCKET_CAPACITY = 32;
+
+	private final ContextAwareDistanceTopKNodesMatcher scanningMatcher;
+	private final LoadingCache<BackgroundKnowledgeGraph, VantagePointTree> trees;
+
+	/**
+	 * Constructs the matcher.
+	 *
+	 * @param distance
+	 *            used distance measure
+	 * @param measuredNodeFactory
+	 *            factory for nodes associated with their distance
+	 * @param snapshots
+	 *            provider of the snapshots of the matched graphs
+	 * @param defaultValuesWeight
+	 *            default weight of the contribution of the distance of numeric
+	 *            values to the overall distance
+	 * @param defaultPropertiesWeight
+	 *            default weight of the contribution of the property context
+	 *            distance to the overall distance
+	 * @param defaultClassesWeight
+	 *            default weight of the contribution of the class context distance
+	 *            to the overall distance
+	 * @param defaultK
+	 *            default value of K (the maximum number of the best matching nodes)
+	 * @param bucketCapacity
+	 *            number of nodes kept in a leaf bucket of the tree before it is
+	 *            split
+	 */
+	@Autowired
+	VantagePointTreeTopKNodesMatcher(@Qualifier("Distance") final Distance distance,
+			final MeasuredNodeFactory measuredNodeFactory, final MatchingSnapshots snapshots,
+			@Value("${eu.odalic.extrarelatable.valuesWeight:0.5}") final double defaultValuesWeight,
+			@Value("${eu.odalic.extrarelatable.propertiesWeight:0.25}") final double defaultPropertiesWeight,
+			@Value("${eu.odalic.extrarelatable.classesWeight:0.25}") final double defaultClassesWeight,
+			@Value("${eu.odalic.extrarelatable.topKNeighbours?:50}") final int defaultK,
+			@Value("${eu.odalic.extrarelatable.vantagePointTreeBucketCapacity:32}") final int bucketCapacity) {
+		super(distance, measuredNodeFactory, snapshots, defaultValuesWeight, defaultPropertiesWeight,
+				defaultClassesWeight, defaultK);
+
+		checkArgument(bucketCapacity >= 1, "The bucket capacity must be at least one!");
+
+		this.scanningMatcher = new ContextAwareDistanceTopKNodesMatcher(distance, measuredNodeFactory, snapshots);
+		this.trees = CacheBuilder.newBuilder().weakKeys()
+				.build(new CacheLoader<BackgroundKnowledgeGraph, VantagePointTree>() {
+					@Override
+					public VantagePointTree load(final BackgroundKnowledgeGraph graph) {
+						return new VantagePointTree(distance, bucketCapacity);
+					}
+				});
+	}
+
+	/**
+	 * Constructs the matcher using the defaults.
+	 *
+	 * @param distance
+	 *            used distance measure
+	 * @param measuredNodeFactory
+	 *            factory for nodes associated with their distance
+	 */
+	public VantagePointTreeTopKNodesMatcher(final Distance distance, final MeasuredNodeFactory measuredNodeFactory) {
+		this(distance, measuredNodeFactory,
+				new MatchingSnapshots(new HeapSortedSampleStoreFactory(), new ContextDictionaries()),
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_VALUES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_PROPERTIES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_CLASSES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_K, INITIAL_DEFAULT_BUCKET_CAPACITY);
+	}
+
+	@Override
+	SortedSet<MeasuredNode> match(final BackgroundKnowledgeGraph graph, final MatchingSnapshot snapshot,
+			final NodesMatchingQuery query) {
+		if (!query.isValuesOnly() || !getDistance().isMetric()) {
+			return scanningMatcher.match(graph, snapshot, query);
+		}
+
+		final VantagePointTree tree = trees.getUnchecked(graph);
+		tree.update(graph);
+
+		return tree.search(query, this).toSortedSet(getMeasuredNodeFactory());
+	}
+
+	@Override
+	List<SortedSet<MeasuredNode>> matchQueries(final BackgroundKnowledgeGraph graph, final MatchingSnapshot snapshot,
+			final List<NodesMatchingQuery> queries) {
+		if (!getDistance().isMetric()) {
+			return scanningMatcher.matchQueries(graph, snapshot, queries);
+		}
+
+		final List<NodesMatchingQuery> scannedQueries = new ArrayList<>();
+		for (final NodesMatchingQuery query : queries) {
+			if (!query.isValuesOnly()) {
+				scannedQueries.add(query);
+			}
+		}
+		final Iterator<SortedSet<MeasuredNode>> scannedResults = scanningMatcher
+				.matchQueries(graph, snapshot, scannedQueries).iterator();
+
+		final ImmutableList.Builder<SortedSet<MeasuredNode>> builder = ImmutableList.builder();
+		for (final NodesMatchingQuery query : queries) {
+			builder.add(query.isValuesOnly() ? match(graph, snapshot, query) : scannedResults.next());
+		}
+
+		return builder.build();
+	}
+}
@@ -8,9 +8,11 @@ import java.util.Set;
 import javax.annotation.concurrent.Immutable;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
 import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.model.bag.SortedSample;
 import eu.odalic.extrarelatable.model.subcontext.Partition;
 import eu.odalic.extrarelatable.model.subcontext.Subcontext;
 
@@ -21,7 +23,7 @@ public final class DistanceSubcontextMatcher implements SubcontextMatcher {
 	private final Distance distance;
 
 	@Autowired
-	public DistanceSubcontextMatcher(final Distance distance) {
+	public DistanceSubcontextMatcher(@Qualifier("Distance") final Distance distance) {
 		checkNotNull(distance);
 
 		this.distance = distance;
@@ -43,7 +45,7 @@ public final class DistanceSubcontextMatcher implements SubcontextMatcher {
 		final int inputPartitionSize = inputPartition.size();
 		checkArgument(inputPartitionSize >= minimumPartitionSize);
 
-		final double[] inputValues = inputPartition.getDoubleValuesArray();
+		final SortedSample inputSample = SortedSample.of(inputPartition.getDoubleValuesArray());
 
 		boolean found = false;
 		Double maximumDistance = null;
@@ -64,9 +66,9 @@ public final class DistanceSubcontextMatcher implements SubcontextMatcher {
 					continue;
 				}
 
-				final double[] candidateValues = candidatePartition.getDoubleValuesArray();
+				final SortedSample candidateSample = SortedSample.of(candidatePartition.getDoubleValuesArray());
 
-				final double computedDistance = distance.compute(inputValues, candidateValues);
+				final double computedDistance = distance.compute(inputSample, candidateSample);
 				if ((!found) || (computedDistance > maximumDistance)) {
 					maximumDistance = computedDistance;
 					winner = candidate;
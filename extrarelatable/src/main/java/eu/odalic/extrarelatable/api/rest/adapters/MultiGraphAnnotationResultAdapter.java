@@ -0,0 +1,27 @@
+package eu.odalic.extrarelatable.api.rest.adapters;
+
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+
+import eu.odalic.extrarelatable.api.rest.values.MultiGraphAnnotationResultValue;
+import eu.odalic.extrarelatable.model.annotation.MultiGraphAnnotationResult;
+
+/**
+ * Adapter of {@link MultiGraphAnnotationResult} to
+ * {@link MultiGraphAnnotationResultValue}.
+ *
+ * @author Václav Brodec
+ *
+ */
+public final class MultiGraphAnnotationResultAdapter
+		extends XmlAdapter<MultiGraphAnnotationResultValue, MultiGraphAnnotationResult> {
+
+	@Override
+	public MultiGraphAnnotationResultValue marshal(final MultiGraphAnnotationResult bound) throws Exception {
+		return new MultiGraphAnnotationResultValue(bound);
+	}
+
+	@Override
+	public MultiGraphAnnotationResult unmarshal(final MultiGraphAnnotationResultValue value) throws Exception {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -8,6 +8,8 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.Consumes;
@@ -36,15 +38,18 @@ import com.webcohesion.enunciate.metadata.rs.ResponseCode;
 import com.webcohesion.enunciate.metadata.rs.StatusCodes;
 import com.webcohesion.enunciate.metadata.rs.TypeHint;
 
+import eu.odalic.extrarelatable.algorithms.graph.matching.MatchingBudget;
 import eu.odalic.extrarelatable.api.rest.responses.Message;
 import eu.odalic.extrarelatable.api.rest.responses.Reply;
 import eu.odalic.extrarelatable.api.rest.values.AnnotationResultValue;
 import eu.odalic.extrarelatable.api.rest.values.FormatValue;
 import eu.odalic.extrarelatable.api.rest.values.GraphValue;
 import eu.odalic.extrarelatable.api.rest.values.MetadataValue;
+import eu.odalic.extrarelatable.api.rest.values.MultiGraphAnnotationResultValue;
 import eu.odalic.extrarelatable.api.rest.values.ParsedTableValue;
 import eu.odalic.extrarelatable.api.rest.values.SearchResultValue;
 import eu.odalic.extrarelatable.model.annotation.AnnotationResult;
+import eu.odalic.extrarelatable.model.annotation.MultiGraphAnnotationResult;
 import eu.odalic.extrarelatable.model.graph.SearchResult;
 import eu.odalic.extrarelatable.model.table.Metadata;
 import eu.odalic.extrarelatable.model.table.NestedListsParsedTable;
@@ -398,6 +403,13 @@ public final class GraphResource {
 	 *            associated Odalic instance
 	 * @param primaryBase
 	 *            name of one of the used bases, which takes precedence
+	 * @param timeLimit
+	 *            optional limit of the time of the annotation in milliseconds,
+	 *            after which the annotations are based on the best matches found
+	 *            until then and the result is marked as partial
+	 * @param maximumEvaluations
+	 *            optional limit of the number of the evaluations of the distance
+	 *            during the annotation, with the same effect
 	 * @return a {@link Reply} containing {@link AnnotationResultValue} in
 	 *         {@code payload} attribute and "DATA" in {@code type} attribute
 	 * @throws IOException
@@ -420,7 +432,9 @@ public final class GraphResource {
 			final @QueryParam("collectContext") Boolean contextCollected,
 			final @QueryParam("onlyDeclaredAsContext") Boolean onlyDeclaredAsContext,
 			final @DocumentationExample(value = "DBpediaLocal", value2 = "GermanDBpedia") @QueryParam("usedContextBases") Set<String> usedBases,
-			final @DocumentationExample("DBpediaLocal") @QueryParam("primaryContextBase") String primaryBase)
+			final @DocumentationExample("DBpediaLocal") @QueryParam("primaryContextBase") String primaryBase,
+			final @DocumentationExample("2000") @QueryParam("timeLimit") Long timeLimit,
+			final @QueryParam("maximumEvaluations") Long maximumEvaluations)
 			throws IOException {
 		if (input == null) {
 			throw new BadRequestException("No input provided!");
@@ -449,7 +463,8 @@ public final class GraphResource {
 			result = this.graphService.annotate(name, input, format, metadata,
 					contextCollected == null ? false : contextCollected,
 					onlyDeclaredAsContext == null ? false : onlyDeclaredAsContext,
-					usedBases == null ? ImmutableSet.of() : usedBases, primaryBase);
+					usedBases == null ? ImmutableSet.of() : usedBases, primaryBase,
+					getBudget(timeLimit, maximumEvaluations));
 		} catch (final IllegalArgumentException e) {
 			throw new BadRequestException(e.getMessage(), e);
 		}
@@ -493,6 +508,13 @@ public final class GraphResource {
 	 *            associated Odalic instance
 	 * @param primaryBase
 	 *            name of one of the used bases, which takes precedence
+	 * @param timeLimit
+	 *            optional limit of the time of the annotation in milliseconds,
+	 *            after which the annotations are based on the best matches found
+	 *            until then and the result is marked as partial
+	 * @param maximumEvaluations
+	 *            optional limit of the number of the evaluations of the distance
+	 *            during the annotation, with the same effect
 	 * @return a {@link Reply} containing {@link AnnotationResultValue} in
 	 *         {@code payload} attribute and "DATA" in {@code type} attribute
 	 * @throws IOException
@@ -512,7 +534,9 @@ public final class GraphResource {
 			final @QueryParam("collectContext") Boolean contextCollected,
 			final @QueryParam("onlyDeclaredAsContext") Boolean onlyDeclaredAsContext,
 			final @DocumentationExample(value = "DBpediaLocal", value2 = "GermanDBpedia") @QueryParam("usedContextBases") Set<String> usedBases,
-			final @DocumentationExample("DBpediaLocal") @QueryParam("primaryContextBase") String primaryBase)
+			final @DocumentationExample("DBpediaLocal") @QueryParam("primaryContextBase") String primaryBase,
+			final @DocumentationExample("2000") @QueryParam("timeLimit") Long timeLimit,
+			final @QueryParam("maximumEvaluations") Long maximumEvaluations)
 			throws IOException {
 		if (parsedTableValue == null) {
 			throw new BadRequestException("No table provided!");
@@ -533,15 +557,328 @@ public final class GraphResource {
 		final AnnotationResult result;
 		try {
 			result = this.graphService.annotate(name, parsedTable, contextCollected == null ? false : contextCollected,
+					onlyDeclaredAsContext == null ? false : onlyDeclaredAsContext,
+					usedBases == null ? ImmutableSet.of() : usedBases, primaryBase,
+					getBudget(timeLimit, maximumEvaluations));
+		} catch (final IllegalArgumentException e) {
+			throw new BadRequestException(e.getMessage(), e);
+		}
+
+		return Reply.data(Response.Status.OK, result, this.uriInfo).toResponse();
+	}
+
+	/**
+	 * <p>
+	 * Annotates the table provided as CSV input stream against several graphs at
+	 * once. The table is parsed, profiled and otherwise processed just once and
+	 * then matched against all the graphs. The context is used the same way as
+	 * when annotating against a single graph.
+	 * </p>
+	 * 
+	 * @param names
+	 *            names of the graphs
+	 * @param input
+	 *            input stream used as the source of the CSV data to parse (form
+	 *            multi-part segment named "input")
+	 * @param formatValue
+	 *            format of the CSV file ({@link FormatValue}) to parse the input
+	 *            stream with (form multi-part segment named "format")
+	 * @param metadata
+	 *            meta-data ({@link MetadataValue}) accompanying the table (form
+	 *            multi-part segment named "metadata")
+	 * @param contextCollected
+	 *            indicates whether to collect context from associated Odalic
+	 *            instance to annotate the table, if false, then the context
+	 *            provided as part of the table meta-data is taken into account
+	 *            instead (unless turned off by setting
+	 *            {@code onlyDeclaredAsContext} to {@code true})
+	 * @param onlyDeclaredAsContext
+	 *            indicates whether to use only the declared context classes and
+	 *            properties from the table meta-data, not the collected one
+	 * @param usedBases
+	 *            identifiers of known linked data knowledge bases within the
+	 *            associated Odalic instance
+	 * @param primaryBase
+	 *            name of one of the used bases, which takes precedence
+	 * @param timeLimit
+	 *            optional limit of the time of the annotation in milliseconds,
+	 *            after which the annotations are based on the best matches found
+	 *            until then and the result is marked as partial
+	 * @param maximumEvaluations
+	 *            optional limit of the number of the evaluations of the distance
+	 *            during the annotation, with the same effect
+	 * @return a {@link Reply} containing {@link MultiGraphAnnotationResultValue}
+	 *         in {@code payload} attribute and "DATA" in {@code type} attribute
+	 * @throws IOException
+	 *             whenever I/O exception occurs
+	 * 
+	 */
+	@POST
+	@Path("annotated")
+	@Consumes(MediaType.MULTIPART_FORM_DATA)
+	@Produces(MediaType.APPLICATION_JSON)
+	@StatusCodes({ @ResponseCode(code = 400, condition = "No graphs, no input provided or missing metadata."),
+			@ResponseCode(code = 200, condition = "The input has been annotated.") })
+	@TypeHint(Reply.class)
+	public Response annotate(
+			final @DocumentationExample(value = "example_dataset__en-us", value2 = "example_dataset__de") @QueryParam("graphs") Set<String> names,
+			final @FormDataParam("input") InputStream input,
+			final @DocumentationExample(type = @TypeHint(FormatValue.class)) @TypeHint(FormatValue.class) @FormDataParam("format") FormatValue formatValue,
+			final @DocumentationExample(type = @TypeHint(Metadata.class)) @TypeHint(Metadata.class) @FormDataParam("metadata") Metadata metadata,
+			final @QueryParam("collectContext") Boolean contextCollected,
+			final @QueryParam("onlyDeclaredAsContext") Boolean onlyDeclaredAsContext,
+			final @DocumentationExample(value = "DBpediaLocal", value2 = "GermanDBpedia") @QueryParam("usedContextBases") Set<String> usedBases,
+			final @DocumentationExample("DBpediaLocal") @QueryParam("primaryContextBase") String primaryBase,
+			final @DocumentationExample("2000") @QueryParam("timeLimit") Long timeLimit,
+			final @QueryParam("maximumEvaluations") Long maximumEvaluations)
+			throws IOException {
+		if (names == null || names.isEmpty()) {
+			throw new BadRequestException("No graphs provided!");
+		}
+
+		if (input == null) {
+			throw new BadRequestException("No input provided!");
+		}
+
+		final Format format;
+		if (formatValue == null) {
+			format = null;
+		} else {
+			format = new Format(Charset.forName(formatValue.getCharset()), formatValue.getDelimiter(),
+					formatValue.isEmptyLinesIgnored(), formatValue.getQuoteCharacter(),
+					formatValue.getEscapeCharacter(), formatValue.getCommentMarker());
+		}
+
+		if (metadata == null) {
+			throw new BadRequestException("Missing metadata!");
+		}
+
+		final MultiGraphAnnotationResult result;
+		try {
+			result = this.graphService.annotate(names, input, format, metadata,
+					contextCollected == null ? false : contextCollected,
+					onlyDeclaredAsContext == null ? false : onlyDeclaredAsContext,
+					usedBases == null ? ImmutableSet.of() : usedBases, primaryBase,
+					getBudget(timeLimit, maximumEvaluations));
+		} catch (final IllegalArgumentException e) {
+			throw new BadRequestException(e.getMessage(), e);
+		}
+
+		return Reply.data(Response.Status.OK, result, this.uriInfo).toResponse();
+	}
+
+	/**
+	 * <p>
+	 * Annotates the parsed table against several graphs at once. The table is
+	 * profiled and otherwise processed just once and then matched against all
+	 * the graphs. The context is used the same way as when annotating against a
+	 * single graph.
+	 * </p>
+	 * 
+	 * @param names
+	 *            names of the graphs
+	 * @param parsedTableValue
+	 *            parsed table ({@link ParsedTableValue})
+	 * @param contextCollected
+	 *            indicates whether to collect context from associated Odalic
+	 *            instance to annotate the table, if false, then the context
+	 *            provided as part of the table meta-data is taken into account
+	 *            instead (unless turned off by setting
+	 *            {@code onlyDeclaredAsContext} to {@code true})
+	 * @param onlyDeclaredAsContext
+	 *            indicates whether to use only the declared context classes and
+	 *            properties from the table meta-data, not the collected one
+	 * @param usedBases
+	 *            identifiers of known linked data knowledge bases within the
+	 *            associated Odalic instance
+	 * @param primaryBase
+	 *            name of one of the used bases, which takes precedence
+	 * @param timeLimit
+	 *            optional limit of the time of the annotation in milliseconds,
+	 *            after which the annotations are based on the best matches found
+	 *            until then and the result is marked as partial
+	 * @param maximumEvaluations
+	 *            optional limit of the number of the evaluations of the distance
+	 *            during the annotation, with the same effect
+	 * @return a {@link Reply} containing {@link MultiGraphAnnotationResultValue}
+	 *         in {@code payload} attribute and "DATA" in {@code type} attribute
+	 * @throws IOException
+	 *             whenever I/O exception occurs
+	 * 
+	 */
+	@POST
+	@Path("annotated")
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Produces(MediaType.APPLICATION_JSON)
+	@StatusCodes({ @ResponseCode(code = 400, condition = "No graphs, no table provided or missing metadata."),
+			@ResponseCode(code = 200, condition = "The table has been annotated.") })
+	@TypeHint(Reply.class)
+	public Response annotate(
+			final @DocumentationExample(value = "example_dataset__en-us", value2 = "example_dataset__de") @QueryParam("graphs") Set<String> names,
+			final ParsedTableValue parsedTableValue, final @QueryParam("collectContext") Boolean contextCollected,
+			final @QueryParam("onlyDeclaredAsContext") Boolean onlyDeclaredAsContext,
+			final @DocumentationExample(value = "DBpediaLocal", value2 = "GermanDBpedia") @QueryParam("usedContextBases") Set<String> usedBases,
+			final @DocumentationExample("DBpediaLocal") @QueryParam("primaryContextBase") String primaryBase,
+			final @DocumentationExample("2000") @QueryParam("timeLimit") Long timeLimit,
+			final @QueryParam("maximumEvaluations") Long maximumEvaluations)
+			throws IOException {
+		if (names == null || names.isEmpty()) {
+			throw new BadRequestException("No graphs provided!");
+		}
+
+		if (parsedTableValue == null) {
+			throw new BadRequestException("No table provided!");
+		}
+
+		if (parsedTableValue.getMetadata() == null) {
+			throw new BadRequestException("Missing metadata!");
+		}
+
+		final ParsedTable parsedTable = NestedListsParsedTable.fromRows(parsedTableValue.getHeaders(),
+				parsedTableValue.getRows(), parsedTableValue.getMetadata());
+
+		final MultiGraphAnnotationResult result;
+		try {
+			result = this.graphService.annotate(names, parsedTable, contextCollected == null ? false : contextCollected,
+					onlyDeclaredAsContext == null ? false : onlyDeclaredAsContext,
+					usedBases == null ? ImmutableSet.of() : usedBases, primaryBase,
+					getBudget(timeLimit, maximumEvaluations));
+		} catch (final IllegalArgumentException e) {
+			throw new BadRequestException(e.getMessage(), e);
+		}
+
+		return Reply.data(Response.Status.OK, result, this.uriInfo).toResponse();
+	}
+
+	/**
+	 * Annotates the parsed table and keeps the annotation standing, so that it is
+	 * brought up to date whenever the graph learns, by matching the table just
+	 * against the newly learned content. The context is used the same way as when
+	 * annotating the table once.
+	 * 
+	 * @param name
+	 *            name of the graph
+	 * @param parsedTableValue
+	 *            parsed table ({@link ParsedTableValue})
+	 * @param contextCollected
+	 *            indicates whether to collect context from associated Odalic
+	 *            instance to annotate the table, if false, then the context
+	 *            provided as part of the table meta-data is taken into account
+	 *            instead (unless turned off by setting
+	 *            {@code onlyDeclaredAsContext} to {@code true})
+	 * @param onlyDeclaredAsContext
+	 *            indicates whether to use only the declared context classes and
+	 *            properties from the table meta-data, not the collected one
+	 * @param usedBases
+	 *            identifiers of known linked data knowledge bases within the
+	 *            associated Odalic instance
+	 * @param primaryBase
+	 *            name of one of the used bases, which takes precedence
+	 * @return a {@link Reply} containing {@link Message} in {@code payload}
+	 *         attribute and "MESSAGE" in {@code type} attribute, with the location
+	 *         of the standing annotation
+	 * @throws IOException
+	 *             whenever I/O exception occurs, including the case when the
+	 *             location of the standing annotation forms invalid URL
+	 * 
+	 */
+	@POST
+	@Path("{name}/standing")
+	@Consumes(MediaType.APPLICATION_JSON)
+	@Produces(MediaType.APPLICATION_JSON)
+	@StatusCodes({ @ResponseCode(code = 400, condition = "No table provided or missing metadata."),
+			@ResponseCode(code = 201, condition = "A standing annotation has been created.") })
+	@TypeHint(Reply.class)
+	public Response annotateStanding(
+			final @DocumentationExample("example_dataset__en-us") @PathParam("name") String name,
+			final ParsedTableValue parsedTableValue, final @QueryParam("collectContext") Boolean contextCollected,
+			final @QueryParam("onlyDeclaredAsContext") Boolean onlyDeclaredAsContext,
+			final @DocumentationExample(value = "DBpediaLocal", value2 = "GermanDBpedia") @QueryParam("usedContextBases") Set<String> usedBases,
+			final @DocumentationExample("DBpediaLocal") @QueryParam("primaryContextBase") String primaryBase)
+			throws IOException {
+		if (parsedTableValue == null) {
+			throw new BadRequestException("No table provided!");
+		}
+
+		if (parsedTableValue.getMetadata() == null) {
+			throw new BadRequestException("Missing metadata!");
+		}
+
+		final ParsedTable parsedTable = NestedListsParsedTable.fromRows(parsedTableValue.getHeaders(),
+				parsedTableValue.getRows(), parsedTableValue.getMetadata());
+
+		final UUID id;
+		try {
+			id = this.graphService.annotateStanding(name, parsedTable,
+					contextCollected == null ? false : contextCollected,
 					onlyDeclaredAsContext == null ? false : onlyDeclaredAsContext,
 					usedBases == null ? ImmutableSet.of() : usedBases, primaryBase);
 		} catch (final IllegalArgumentException e) {
 			throw new BadRequestException(e.getMessage(), e);
 		}
 
+		return Message.of("A standing annotation has been created.").toResponse(Response.Status.CREATED,
+				this.uriInfo.getAbsolutePathBuilder().path(id.toString()).build().toURL(), this.uriInfo);
+	}
+
+	/**
+	 * Provides the current result of the standing annotation.
+	 * 
+	 * @param name
+	 *            name of the graph
+	 * @param id
+	 *            identifier of the standing annotation
+	 * @return a {@link Reply} containing {@link AnnotationResultValue} in
+	 *         {@code payload} attribute and "DATA" in {@code type} attribute
+	 * 
+	 */
+	@GET
+	@Path("{name}/standing/{id}")
+	@Produces(MediaType.APPLICATION_JSON)
+	@StatusCodes({ @ResponseCode(code = 404, condition = "The standing annotation does not exist."),
+			@ResponseCode(code = 200, condition = "The standing annotation is provided.") })
+	@TypeHint(Reply.class)
+	public Response getStanding(final @DocumentationExample("example_dataset__en-us") @PathParam("name") String name,
+			final @PathParam("id") UUID id) {
+		final AnnotationResult result;
+		try {
+			result = this.graphService.getStandingAnnotation(name, id);
+		} catch (final IllegalArgumentException e) {
+			throw new NotFoundException("The standing annotation does not exist!", e);
+		}
+
 		return Reply.data(Response.Status.OK, result, this.uriInfo).toResponse();
 	}
 
+	/**
+	 * Deletes the standing annotation, so that it is no longer kept up to date.
+	 * 
+	 * @param name
+	 *            name of the graph
+	 * @param id
+	 *            identifier of the standing annotation
+	 * @return a {@link Reply} containing {@link Message} in {@code payload}
+	 *         attribute and "MESSAGE" in {@code type} attribute
+	 * 
+	 */
+	@DELETE
+	@Path("{name}/standing/{id}")
+	@Produces(MediaType.APPLICATION_JSON)
+	@StatusCodes({ @ResponseCode(code = 404, condition = "The standing annotation does not exist."),
+			@ResponseCode(code = 200, condition = "Standing annotation deleted.") })
+	@TypeHint(Reply.class)
+	public Response deleteStanding(
+			final @DocumentationExample("example_dataset__en-us") @PathParam("name") String name,
+			final @PathParam("id") UUID id) {
+		try {
+			this.graphService.deleteStandingAnnotation(name, id);
+		} catch (final IllegalArgumentException e) {
+			throw new NotFoundException("The standing annotation does not exist!", e);
+		}
+
+		return Message.of("Standing annotation deleted.").toResponse(Response.Status.OK, this.uriInfo);
+	}
+
 	/**
 	 * Searches for contained properties that match the pattern. For now only
 	 * matching of the URI is supported.
@@ -581,4 +918,14 @@ public final class GraphResource {
 
 		return Reply.data(Status.OK, result, this.uriInfo).toResponse();
 	}
+
+	private static MatchingBudget getBudget(final Long timeLimit, final Long maximumEvaluations) {
+		if (timeLimit == null) {
+			return maximumEvaluations == null ? MatchingBudget.unlimited()
+					: MatchingBudget.ofEvaluations(maximumEvaluations);
+		}
+
+		return maximumEvaluations == null ? MatchingBudget.ofTime(timeLimit, TimeUnit.MILLISECONDS)
+				: MatchingBudget.of(timeLimit, TimeUnit.MILLISECONDS, maximumEvaluations);
+	}
 }
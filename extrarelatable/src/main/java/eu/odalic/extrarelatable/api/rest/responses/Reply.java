@@ -21,6 +21,7 @@ import com.webcohesion.enunciate.metadata.rs.TypeHint;
 
 import eu.odalic.extrarelatable.api.rest.conversions.StatusTypeJsonSerializer;
 import eu.odalic.extrarelatable.api.rest.values.AnnotationResultValue;
+import eu.odalic.extrarelatable.api.rest.values.MultiGraphAnnotationResultValue;
 import eu.odalic.extrarelatable.api.rest.values.SearchResultValue;
 import eu.odalic.extrarelatable.util.URL;
 
@@ -44,7 +45,8 @@ import eu.odalic.extrarelatable.util.URL;
  *
  */
 @XmlRootElement(name = "reply")
-@JsonSeeAlso({ Message.class, AnnotationResultValue.class, SearchResultValue.class })
+@JsonSeeAlso({ Message.class, AnnotationResultValue.class, MultiGraphAnnotationResultValue.class,
+		SearchResultValue.class })
 public final class Reply {
 
 	/**
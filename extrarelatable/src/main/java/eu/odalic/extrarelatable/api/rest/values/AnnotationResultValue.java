@@ -32,14 +32,22 @@ public class AnnotationResultValue implements Serializable {
 
 	private Map<Integer, Annotation> annotations;
 
+	private boolean partial;
+
+	private double coveredFraction;
+
 	public AnnotationResultValue() {
 		this.annotations = ImmutableMap.of();
+		this.partial = false;
+		this.coveredFraction = 1;
 	}
 
 	public AnnotationResultValue(final AnnotationResult adaptee) {
 		checkNotNull(adaptee);
 
 		this.annotations = adaptee.getAnnotations();
+		this.partial = adaptee.isPartial();
+		this.coveredFraction = adaptee.getCoveredFraction();
 	}
 
 	/**
@@ -58,8 +66,37 @@ public class AnnotationResultValue implements Serializable {
 		this.annotations = ImmutableMap.copyOf(annotations);
 	}
 
+	/**
+	 * Indicates whether the matching ran out of the time or work limit given to
+	 * it, so that the annotations are based only on the best matches found until
+	 * then.
+	 * 
+	 * @return true if the annotations are partial
+	 */
+	@XmlElement
+	public boolean isPartial() {
+		return partial;
+	}
+
+	public void setPartial(final boolean partial) {
+		this.partial = partial;
+	}
+
+	/**
+	 * @return the fraction of the graph covered by the matching
+	 */
+	@XmlElement
+	public double getCoveredFraction() {
+		return coveredFraction;
+	}
+
+	public void setCoveredFraction(final double coveredFraction) {
+		this.coveredFraction = coveredFraction;
+	}
+
 	@Override
 	public String toString() {
-		return "AnnotationResultValue [annotations=" + annotations + "]";
+		return "AnnotationResultValue [annotations=" + annotations + ", partial=" + partial + ", coveredFraction="
+				+ coveredFraction + "]";
 	}
 }
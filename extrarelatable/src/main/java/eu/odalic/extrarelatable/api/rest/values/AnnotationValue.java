@@ -45,6 +45,8 @@ public final class AnnotationValue implements Serializable {
 	private List<Statistics> labelsStatistics;
 	private List<Statistics> pairsStatistics;
 
+	private double samplingError;
+
 	public AnnotationValue() {
 		this.properties = ImmutableList.of();
 		this.labels = ImmutableList.of();
@@ -53,6 +55,8 @@ public final class AnnotationValue implements Serializable {
 		this.propertiesStatistics = ImmutableList.of();
 		this.labelsStatistics = ImmutableList.of();
 		this.pairsStatistics = ImmutableList.of();
+
+		this.samplingError = 0;
 	}
 
 	public AnnotationValue(final Annotation annotation) {
@@ -66,6 +70,7 @@ public final class AnnotationValue implements Serializable {
 				.collect(ImmutableList.toImmutableList());
 		this.pairsStatistics = this.attributeValuePairs.stream().map(pair -> annotation.getPairsStatistics().get(pair))
 				.collect(ImmutableList.toImmutableList());
+		this.samplingError = annotation.getSamplingError();
 	}
 
 	/**
@@ -159,10 +164,25 @@ public final class AnnotationValue implements Serializable {
 		this.pairsStatistics = ImmutableList.copyOf(pairsStatistics);
 	}
 
+	/**
+	 * Provides the bound of the error of the Kolmogorov-Smirnov distances of the
+	 * values behind the annotation, caused by the sampling of the large columns.
+	 * 
+	 * @return the bound of the error, zero when no values were sampled
+	 */
+	@XmlElement
+	public double getSamplingError() {
+		return samplingError;
+	}
+
+	public void setSamplingError(final double samplingError) {
+		this.samplingError = samplingError;
+	}
+
 	@Override
 	public String toString() {
 		return "AnnotationValue [properties=" + properties + ", labels=" + labels + ", attributeValuePairs="
 				+ attributeValuePairs + ", propertiesStatistics=" + propertiesStatistics + ", labelsStatistics="
-				+ labelsStatistics + ", pairsStatistics=" + pairsStatistics + "]";
+				+ labelsStatistics + ", pairsStatistics=" + pairsStatistics + ", samplingError=" + samplingError + "]";
 	}
 }
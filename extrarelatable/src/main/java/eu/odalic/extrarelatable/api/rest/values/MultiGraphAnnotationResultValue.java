@@ -0,0 +1,121 @@
+package eu.odalic.extrarelatable.api.rest.values;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import com.google.common.collect.ImmutableMap;
+import eu.odalic.extrarelatable.model.annotation.Annotation;
+import eu.odalic.extrarelatable.model.annotation.MultiGraphAnnotationResult;
+
+/**
+ * <p>
+ * A container of annotations for each recognized numeric column, based on each
+ * of the requested graphs and on all of them merged.
+ * </p>
+ *
+ * <p>
+ * {@link MultiGraphAnnotationResult} adapted for REST API.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@XmlRootElement(name = "multiGraphAnnotationResult")
+public class MultiGraphAnnotationResultValue implements Serializable {
+
+	private static final long serialVersionUID = 5362098870271548836L;
+
+	private Map<String, Map<Integer, Annotation>> graphsAnnotations;
+
+	private Map<Integer, Annotation> mergedAnnotations;
+
+	private boolean partial;
+
+	private double coveredFraction;
+
+	public MultiGraphAnnotationResultValue() {
+		this.graphsAnnotations = ImmutableMap.of();
+		this.mergedAnnotations = ImmutableMap.of();
+		this.partial = false;
+		this.coveredFraction = 1;
+	}
+
+	public MultiGraphAnnotationResultValue(final MultiGraphAnnotationResult adaptee) {
+		checkNotNull(adaptee);
+
+		this.graphsAnnotations = adaptee.getGraphsAnnotations();
+		this.mergedAnnotations = adaptee.getMergedAnnotations();
+		this.partial = adaptee.isPartial();
+		this.coveredFraction = adaptee.getCoveredFraction();
+	}
+
+	/**
+	 * Maps the names of the graphs to the maps of integer column indices of
+	 * numeric columns to relational {@link AnnotationValue}s based on the graph.
+	 *
+	 * @return map of the names of the graphs to the annotations based on them
+	 */
+	@XmlElement
+	public Map<String, Map<Integer, Annotation>> getGraphsAnnotations() {
+		return graphsAnnotations;
+	}
+
+	public void setGraphsAnnotations(final Map<? extends String, ? extends Map<Integer, Annotation>> graphsAnnotations) {
+		this.graphsAnnotations = ImmutableMap.copyOf(graphsAnnotations);
+	}
+
+	/**
+	 * Maps integer column indices of numeric columns to relational
+	 * {@link AnnotationValue}s based on the best matches from all the graphs.
+	 *
+	 * @return map of integer column indices of numeric columns to relational
+	 *         {@link AnnotationValue}s
+	 */
+	@XmlElement
+	public Map<Integer, Annotation> getMergedAnnotations() {
+		return mergedAnnotations;
+	}
+
+	public void setMergedAnnotations(final Map<? extends Integer, ? extends Annotation> mergedAnnotations) {
+		this.mergedAnnotations = ImmutableMap.copyOf(mergedAnnotations);
+	}
+
+	/**
+	 * Indicates whether the matching ran out of the time or work limit given to
+	 * it, so that the annotations are based only on the best matches found until
+	 * then.
+	 *
+	 * @return true if the annotations are partial
+	 */
+	@XmlElement
+	public boolean isPartial() {
+		return partial;
+	}
+
+	public void setPartial(final boolean partial) {
+		this.partial = partial;
+	}
+
+	/**
+	 * @return the fraction of the graphs covered by the matching
+	 */
+	@XmlElement
+	public double getCoveredFraction() {
+		return coveredFraction;
+	}
+
+	public void setCoveredFraction(final double coveredFraction) {
+		this.coveredFraction = coveredFraction;
+	}
+
+	@Override
+	public String toString() {
+		return "MultiGraphAnnotationResultValue [graphsAnnotations=" + graphsAnnotations + ", mergedAnnotations="
+				+ mergedAnnotations + ", partial=" + partial + ", coveredFraction=" + coveredFraction + "]";
+	}
+}
@@ -6,9 +6,12 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
 import eu.odalic.extrarelatable.algorithms.graph.aggregation.ResultAggregator;
+import eu.odalic.extrarelatable.algorithms.graph.matching.TopKNodesMatcher;
 import eu.odalic.extrarelatable.algorithms.table.csv.CsvTableParser;
 import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.bag.SortedSampleStoreFactory;
 import eu.odalic.extrarelatable.model.graph.PropertyTreesMergingStrategy;
 import eu.odalic.extrarelatable.util.UuidGenerator;
 
@@ -59,6 +62,23 @@ public class PropertyBeanConfiguration {
 		return (ResultAggregator<MeasuredNode>) context.getBean(qualifier);
 	}
 
+	@Bean
+	public TopKNodesMatcher TopKNodesMatcher(
+			@Value("${eu.odalic.extrarelatable.topKNodesMatcher:contextAwareDistance}") String qualifier) {
+		return (TopKNodesMatcher) context.getBean(qualifier);
+	}
+
+	@Bean
+	public SortedSampleStoreFactory SortedSampleStoreFactory(
+			@Value("${eu.odalic.extrarelatable.snapshotSampleStore:heap}") String qualifier) {
+		return (SortedSampleStoreFactory) context.getBean(qualifier);
+	}
+
+	@Bean
+	public Distance Distance(@Value("${eu.odalic.extrarelatable.distance:kolmogorovSmirnov}") String qualifier) {
+		return (Distance) context.getBean(qualifier);
+	}
+
 	@Bean
 	public UuidGenerator UuidGenerator(@Value("${eu.odalic.extrarelatable.uuidGenerator:default}") String qualifier) {
 		return (UuidGenerator) context.getBean(qualifier);
@@ -36,6 +36,8 @@ public final class Annotation {
 	private final Map<Label, Statistics> labelsStatistics;
 	private final Map<Set<AttributeValuePair>, Statistics> pairsStatistics;
 
+	private final double samplingError;
+
 	/**
 	 * Creates an annotation.
 	 * 
@@ -61,7 +63,39 @@ public final class Annotation {
 			final Map<? extends Label, ? extends Statistics> labelsStatistics,
 			final Map<? extends Set<? extends AttributeValuePair>, ? extends Statistics> pairsStatistics) {
 		return new Annotation(properties, labels, attributeValuePairs, propertiesStatistics, labelsStatistics,
-				pairsStatistics);
+				pairsStatistics, 0);
+	}
+
+	/**
+	 * Creates an annotation based on the distances measured on sampled values.
+	 * 
+	 * @param properties
+	 *            list of assigned properties in descending order of priority
+	 * @param labels
+	 *            list of assigned label in descending order of priority
+	 * @param attributeValuePairs
+	 *            list of assigned attribute-value pairs in descending order of
+	 *            priority
+	 * @param propertiesStatistics
+	 *            statistics for each assigned property
+	 * @param labelsStatistics
+	 *            statistic for each assigned label
+	 * @param pairsStatistics
+	 *            statistic for each assigned attribute-value pair
+	 * @param samplingError
+	 *            bound of the error of the distances of the values caused by
+	 *            their sampling, {@link Double#NaN} if unknown
+	 * @return the annotation
+	 */
+	@XmlTransient
+	public static Annotation of(final List<? extends Property> properties, final List<? extends Label> labels,
+			List<? extends Set<? extends AttributeValuePair>> attributeValuePairs,
+			final Map<? extends Property, ? extends Statistics> propertiesStatistics,
+			final Map<? extends Label, ? extends Statistics> labelsStatistics,
+			final Map<? extends Set<? extends AttributeValuePair>, ? extends Statistics> pairsStatistics,
+			final double samplingError) {
+		return new Annotation(properties, labels, attributeValuePairs, propertiesStatistics, labelsStatistics,
+				pairsStatistics, samplingError);
 	}
 
 	/**
@@ -80,7 +114,7 @@ public final class Annotation {
 	public static Annotation of(final List<? extends Property> properties, final List<? extends Label> labels,
 			List<? extends Set<? extends AttributeValuePair>> attributeValuePairs) {
 		return new Annotation(properties, labels, attributeValuePairs, ImmutableMap.of(), ImmutableMap.of(),
-				ImmutableMap.of());
+				ImmutableMap.of(), 0);
 	}
 
 	private Annotation() {
@@ -90,13 +124,15 @@ public final class Annotation {
 		this.propertiesStatistics = ImmutableMap.of();
 		this.labelsStatistics = ImmutableMap.of();
 		this.pairsStatistics = ImmutableMap.of();
+		this.samplingError = 0;
 	}
 
 	private Annotation(final List<? extends Property> properties, final List<? extends Label> labels,
 			List<? extends Set<? extends AttributeValuePair>> attributeValuePairs,
 			final Map<? extends Property, ? extends Statistics> propertiesStatistics,
 			final Map<? extends Label, ? extends Statistics> labelsStatistics,
-			final Map<? extends Set<? extends AttributeValuePair>, ? extends Statistics> pairsStatistics) {
+			final Map<? extends Set<? extends AttributeValuePair>, ? extends Statistics> pairsStatistics,
+			final double samplingError) {
 		checkNotNull(properties);
 		checkNotNull(labels);
 		checkNotNull(attributeValuePairs);
@@ -109,6 +145,7 @@ public final class Annotation {
 		this.labelsStatistics = ImmutableMap.copyOf(labelsStatistics);
 		this.pairsStatistics = pairsStatistics.entrySet().stream()
 				.collect(ImmutableMap.toImmutableMap(e -> ImmutableSet.copyOf(e.getKey()), e -> e.getValue()));
+		this.samplingError = samplingError;
 	}
 
 	/**
@@ -154,6 +191,17 @@ public final class Annotation {
 		return pairsStatistics;
 	}
 
+	/**
+	 * @return the bound of the error of the distances of the values behind the
+	 *         annotation, caused by the sampling of the large columns, zero when
+	 *         no values were sampled, {@link Double#NaN} when the used distance
+	 *         is not bounded by the sampling error (only the Kolmogorov-Smirnov
+	 *         distance is)
+	 */
+	public double getSamplingError() {
+		return samplingError;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -164,6 +212,9 @@ public final class Annotation {
 		result = prime * result + ((pairsStatistics == null) ? 0 : pairsStatistics.hashCode());
 		result = prime * result + ((properties == null) ? 0 : properties.hashCode());
 		result = prime * result + ((propertiesStatistics == null) ? 0 : propertiesStatistics.hashCode());
+		long temp;
+		temp = Double.doubleToLongBits(samplingError);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
 		return result;
 	}
 
@@ -221,6 +272,9 @@ public final class Annotation {
 		} else if (!propertiesStatistics.equals(other.propertiesStatistics)) {
 			return false;
 		}
+		if (Double.doubleToLongBits(samplingError) != Double.doubleToLongBits(other.samplingError)) {
+			return false;
+		}
 		return true;
 	}
 
@@ -228,6 +282,6 @@ public final class Annotation {
 	public String toString() {
 		return "Annotation [properties=" + properties + ", labels=" + labels + ", attributeValuePairs="
 				+ attributeValuePairs + ", propertiesStatistics=" + propertiesStatistics + ", labelsStatistics="
-				+ labelsStatistics + ", pairsStatistics=" + pairsStatistics + "]";
+				+ labelsStatistics + ", pairsStatistics=" + pairsStatistics + ", samplingError=" + samplingError + "]";
 	}
 }
@@ -1,5 +1,6 @@
 package eu.odalic.extrarelatable.model.annotation;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.Serializable;
@@ -30,10 +31,16 @@ public final class AnnotationResult implements Serializable {
 
 	private final Map<Integer, Annotation> annotations;
 
+	private final boolean partial;
+
+	private final double coveredFraction;
+
 	@SuppressWarnings("unused")
 	private AnnotationResult() {
 		parsedTable = null;
 		annotations = ImmutableMap.of();
+		partial = false;
+		coveredFraction = 1;
 	}
 
 	/**
@@ -46,11 +53,34 @@ public final class AnnotationResult implements Serializable {
 	 */
 	public AnnotationResult(final ParsedTable parsedTable,
 			final Map<? extends Integer, ? extends Annotation> annotations) {
+		this(parsedTable, annotations, false, 1);
+	}
+
+	/**
+	 * Creates the result of the annotating process, which may have been cut short
+	 * by the budget of the matching.
+	 * 
+	 * @param parsedTable
+	 *            the original parsed table
+	 * @param annotations
+	 *            annotations for each recognized numeric column
+	 * @param partial
+	 *            whether the matching was cut short, so that the annotations are
+	 *            based only on the best matches found until then
+	 * @param coveredFraction
+	 *            fraction of the graph covered by the matching
+	 */
+	public AnnotationResult(final ParsedTable parsedTable,
+			final Map<? extends Integer, ? extends Annotation> annotations, final boolean partial,
+			final double coveredFraction) {
 		checkNotNull(parsedTable);
 		checkNotNull(annotations);
+		checkArgument(coveredFraction >= 0 && coveredFraction <= 1, "The covered fraction must be between 0 and 1!");
 
 		this.parsedTable = parsedTable;
 		this.annotations = ImmutableMap.copyOf(annotations);
+		this.partial = partial;
+		this.coveredFraction = coveredFraction;
 	}
 
 	/**
@@ -70,12 +100,31 @@ public final class AnnotationResult implements Serializable {
 		return annotations;
 	}
 
+	/**
+	 * @return true if the matching ran out of its budget, so that the
+	 *         annotations are based only on the best matches found until then
+	 */
+	public boolean isPartial() {
+		return partial;
+	}
+
+	/**
+	 * @return the fraction of the graph covered by the matching
+	 */
+	public double getCoveredFraction() {
+		return coveredFraction;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + ((annotations == null) ? 0 : annotations.hashCode());
+		long temp;
+		temp = Double.doubleToLongBits(coveredFraction);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
 		result = prime * result + ((parsedTable == null) ? 0 : parsedTable.hashCode());
+		result = prime * result + (partial ? 1231 : 1237);
 		return result;
 	}
 
@@ -98,6 +147,9 @@ public final class AnnotationResult implements Serializable {
 		} else if (!annotations.equals(other.annotations)) {
 			return false;
 		}
+		if (Double.doubleToLongBits(coveredFraction) != Double.doubleToLongBits(other.coveredFraction)) {
+			return false;
+		}
 		if (parsedTable == null) {
 			if (other.parsedTable != null) {
 				return false;
@@ -105,11 +157,15 @@ public final class AnnotationResult implements Serializable {
 		} else if (!parsedTable.equals(other.parsedTable)) {
 			return false;
 		}
+		if (partial != other.partial) {
+			return false;
+		}
 		return true;
 	}
 
 	@Override
 	public String toString() {
-		return "AnnotationResult [parsedTable=" + parsedTable + ", annotations=" + annotations + "]";
+		return "AnnotationResult [parsedTable=" + parsedTable + ", annotations=" + annotations + ", partial=" + partial
+				+ ", coveredFraction=" + coveredFraction + "]";
 	}
 }
@@ -0,0 +1,112 @@
+package eu.odalic.extrarelatable.model.annotation;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.annotation.concurrent.Immutable;
+
+import eu.odalic.extrarelatable.model.graph.PropertyTree;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+
+/**
+ * A {@link PropertyTree} node with the separate components of its distance
+ * from the measured segment of the annotated numeric column: the distance of
+ * the values and the dissimilarities of the declared context properties and
+ * classes. The overall distance can then be computed for any weights of the
+ * components without measuring the node again.
+ *
+ * @author Václav Brodec
+ *
+ */
+@Immutable
+public final class MeasuredComponents {
+	private final Node node;
+	private final double valuesDistance;
+	private final double propertiesDissimilarity;
+	private final double classesDissimilarity;
+
+	/**
+	 * Creates the measured components.
+	 *
+	 * @param node
+	 *            the node under measurement
+	 * @param valuesDistance
+	 *            the distance of the numeric values
+	 * @param propertiesDissimilarity
+	 *            the dissimilarity of the declared context properties
+	 * @param classesDissimilarity
+	 *            the dissimilarity of the declared context classes
+	 */
+	public MeasuredComponents(final Node node, final double valuesDistance, final double propertiesDissimilarity,
+			final double classesDissimilarity) {
+		checkNotNull(node);
+		checkArgument(valuesDistance >= 0);
+		checkArgument(propertiesDissimilarity >= 0);
+		checkArgument(classesDissimilarity >= 0);
+
+		this.node = node;
+		this.valuesDistance = valuesDistance;
+		this.propertiesDissimilarity = propertiesDissimilarity;
+		this.classesDissimilarity = classesDissimilarity;
+	}
+
+	/**
+	 * @return the measured node
+	 */
+	public Node getNode() {
+		return node;
+	}
+
+	/**
+	 * @return the distance of the numeric values
+	 */
+	public double getValuesDistance() {
+		return valuesDistance;
+	}
+
+	/**
+	 * @return the dissimilarity of the declared context properties
+	 */
+	public double getPropertiesDissimilarity() {
+		return propertiesDissimilarity;
+	}
+
+	/**
+	 * @return the dissimilarity of the declared context classes
+	 */
+	public double getClassesDissimilarity() {
+		return classesDissimilarity;
+	}
+
+	/**
+	 * Computes the overall distance as the weighted average of the components,
+	 * the same as the matchers do.
+	 *
+	 * @param valuesWeight
+	 *            weight of the distance of numeric values
+	 * @param propertiesWeight
+	 *            weight of the dissimilarity of property contexts
+	 * @param classesWeight
+	 *            weight of the dissimilarity of class contexts
+	 * @return the overall distance
+	 */
+	public double getDistance(final double valuesWeight, final double propertiesWeight,
+			final double classesWeight) {
+		checkArgument(valuesWeight >= 0);
+		checkArgument(propertiesWeight >= 0);
+		checkArgument(classesWeight >= 0);
+
+		final double summedWeights = valuesWeight + propertiesWeight + classesWeight;
+
+		return (valuesWeight / summedWeights) * valuesDistance
+				+ (propertiesWeight / summedWeights) * propertiesDissimilarity
+				+ (classesWeight / summedWeights) * classesDissimilarity;
+	}
+
+	@Override
+	public String toString() {
+		return "MeasuredComponents [node=" + node + ", valuesDistance=" + valuesDistance
+				+ ", propertiesDissimilarity=" + propertiesDissimilarity + ", classesDissimilarity="
+				+ classesDissimilarity + "]";
+	}
+}
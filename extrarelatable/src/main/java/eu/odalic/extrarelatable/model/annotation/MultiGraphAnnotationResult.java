@@ -0,0 +1,179 @@
+package eu.odalic.extrarelatable.model.annotation;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.google.common.collect.ImmutableMap;
+
+import eu.odalic.extrarelatable.api.rest.adapters.MultiGraphAnnotationResultAdapter;
+import eu.odalic.extrarelatable.model.table.ParsedTable;
+
+/**
+ * {@link Annotation}s for each recognized numeric column based on each of
+ * several graphs and on all of them merged, and the parsed table from which
+ * they were computed.
+ *
+ * @author Václav Brodec
+ *
+ */
+@XmlJavaTypeAdapter(MultiGraphAnnotationResultAdapter.class)
+public final class MultiGraphAnnotationResult implements Serializable {
+
+	private static final long serialVersionUID = -2466181906725113093L;
+
+	private final ParsedTable parsedTable;
+
+	private final Map<String, Map<Integer, Annotation>> graphsAnnotations;
+
+	private final Map<Integer, Annotation> mergedAnnotations;
+
+	private final boolean partial;
+
+	private final double coveredFraction;
+
+	@SuppressWarnings("unused")
+	private MultiGraphAnnotationResult() {
+		parsedTable = null;
+		graphsAnnotations = ImmutableMap.of();
+		mergedAnnotations = ImmutableMap.of();
+		partial = false;
+		coveredFraction = 1;
+	}
+
+	/**
+	 * Creates the result of the annotating process.
+	 *
+	 * @param parsedTable
+	 *            the original parsed table
+	 * @param annotations
+	 *            annotations for each recognized numeric column based on each of
+	 *            the graphs and on all of them
+	 * @param partial
+	 *            whether the matching was cut short, so that the annotations are
+	 *            based only on the best matches found until then
+	 * @param coveredFraction
+	 *            fraction of the graphs covered by the matching
+	 */
+	public MultiGraphAnnotationResult(final ParsedTable parsedTable, final MultiGraphAnnotations annotations,
+			final boolean partial, final double coveredFraction) {
+		checkNotNull(parsedTable);
+		checkNotNull(annotations);
+		checkArgument(coveredFraction >= 0 && coveredFraction <= 1, "The covered fraction must be between 0 and 1!");
+
+		this.parsedTable = parsedTable;
+		this.graphsAnnotations = annotations.getGraphsAnnotations();
+		this.mergedAnnotations = annotations.getMergedAnnotations();
+		this.partial = partial;
+		this.coveredFraction = coveredFraction;
+	}
+
+	/**
+	 * @return the original parsed table, which served as the input
+	 */
+	@XmlTransient
+	@JsonIgnore
+	public ParsedTable getParsedTable() {
+		return parsedTable;
+	}
+
+	/**
+	 * @return the map of the names of the graphs to the maps of indices of
+	 *         recognized numeric columns to the annotations based on the graph
+	 */
+	public Map<String, Map<Integer, Annotation>> getGraphsAnnotations() {
+		return graphsAnnotations;
+	}
+
+	/**
+	 * @return the map of indices of recognized numeric columns to the annotations
+	 *         based on the best matches from all the graphs
+	 */
+	public Map<Integer, Annotation> getMergedAnnotations() {
+		return mergedAnnotations;
+	}
+
+	/**
+	 * @return true if the matching ran out of its budget, so that the
+	 *         annotations are based only on the best matches found until then
+	 */
+	public boolean isPartial() {
+		return partial;
+	}
+
+	/**
+	 * @return the fraction of the graphs covered by the matching
+	 */
+	public double getCoveredFraction() {
+		return coveredFraction;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		long temp;
+		temp = Double.doubleToLongBits(coveredFraction);
+		result = prime * result + (int) (temp ^ (temp >>> 32));
+		result = prime * result + ((graphsAnnotations == null) ? 0 : graphsAnnotations.hashCode());
+		result = prime * result + ((mergedAnnotations == null) ? 0 : mergedAnnotations.hashCode());
+		result = prime * result + ((parsedTable == null) ? 0 : parsedTable.hashCode());
+		result = prime * result + (partial ? 1231 : 1237);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		MultiGraphAnnotationResult other = (MultiGraphAnnotationResult) obj;
+		if (Double.doubleToLongBits(coveredFraction) != Double.doubleToLongBits(other.coveredFraction)) {
+			return false;
+		}
+		if (graphsAnnotations == null) {
+			if (other.graphsAnnotations != null) {
+				return false;
+			}
+		} else if (!graphsAnnotations.equals(other.graphsAnnotations)) {
+			return false;
+		}
+		if (mergedAnnotations == null) {
+			if (other.mergedAnnotations != null) {
+				return false;
+			}
+		} else if (!mergedAnnotations.equals(other.mergedAnnotations)) {
+			return false;
+		}
+		if (parsedTable == null) {
+			if (other.parsedTable != null) {
+				return false;
+			}
+		} else if (!parsedTable.equals(other.parsedTable)) {
+			return false;
+		}
+		if (partial != other.partial) {
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "MultiGraphAnnotationResult [parsedTable=" + parsedTable + ", graphsAnnotations=" + graphsAnnotations
+				+ ", mergedAnnotations=" + mergedAnnotations + ", partial=" + partial + ", coveredFraction="
+				+ coveredFraction + "]";
+	}
+}
@@ -0,0 +1,110 @@
+package eu.odalic.extrarelatable.model.annotation;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+
+import javax.annotation.concurrent.Immutable;
+
+import com.google.common.collect.ImmutableMap;
+
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+
+/**
+ * {@link Annotation}s for each recognized numeric column of a single table,
+ * based on each of several {@link BackgroundKnowledgeGraph}s separately and on
+ * all of them merged together.
+ *
+ * @author Václav Brodec
+ *
+ */
+@Immutable
+public final class MultiGraphAnnotations {
+
+	private final Map<String, Map<Integer, Annotation>> graphsAnnotations;
+
+	private final Map<Integer, Annotation> mergedAnnotations;
+
+	/**
+	 * Creates the annotations.
+	 *
+	 * @param graphsAnnotations
+	 *            map of the names of the graphs to the annotations based on them
+	 * @param mergedAnnotations
+	 *            annotations based on the best matches from all the graphs
+	 */
+	public MultiGraphAnnotations(
+			final Map<? extends String, ? extends Map<? extends Integer, ? extends Annotation>> graphsAnnotations,
+			final Map<? extends Integer, ? extends Annotation> mergedAnnotations) {
+		checkNotNull(graphsAnnotations);
+		checkNotNull(mergedAnnotations);
+
+		final ImmutableMap.Builder<String, Map<Integer, Annotation>> graphsAnnotationsBuilder = ImmutableMap
+				.builder();
+		graphsAnnotations.forEach((graphName, annotations) -> graphsAnnotationsBuilder.put(graphName,
+				ImmutableMap.copyOf(annotations)));
+
+		this.graphsAnnotations = graphsAnnotationsBuilder.build();
+		this.mergedAnnotations = ImmutableMap.copyOf(mergedAnnotations);
+	}
+
+	/**
+	 * @return the map of the names of the graphs to the maps of indices of
+	 *         recognized numeric columns to the annotations based on the graph
+	 */
+	public Map<String, Map<Integer, Annotation>> getGraphsAnnotations() {
+		return graphsAnnotations;
+	}
+
+	/**
+	 * @return the map of indices of recognized numeric columns to the annotations
+	 *         based on the best matches from all the graphs
+	 */
+	public Map<Integer, Annotation> getMergedAnnotations() {
+		return mergedAnnotations;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((graphsAnnotations == null) ? 0 : graphsAnnotations.hashCode());
+		result = prime * result + ((mergedAnnotations == null) ? 0 : mergedAnnotations.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		MultiGraphAnnotations other = (MultiGraphAnnotations) obj;
+		if (graphsAnnotations == null) {
+			if (other.graphsAnnotations != null) {
+				return false;
+			}
+		} else if (!graphsAnnotations.equals(other.graphsAnnotations)) {
+			return false;
+		}
+		if (mergedAnnotations == null) {
+			if (other.mergedAnnotations != null) {
+				return false;
+			}
+		} else if (!mergedAnnotations.equals(other.mergedAnnotations)) {
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "MultiGraphAnnotations [graphsAnnotations=" + graphsAnnotations + ", mergedAnnotations="
+				+ mergedAnnotations + "]";
+	}
+}
@@ -0,0 +1,89 @@
+package eu.odalic.extrarelatable.model.bag;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * {@link SortedSampleStore} packing the values of the samples into large
+ * contiguous arrays on the heap, so that the samples stored one after another
+ * are also adjacent in memory.
+ *
+ * <p>
+ * The stored samples are views of the chunks. The already written parts of the
+ * chunks are never modified, so the views stay immutable. A sample which does
+ * not fit into the rest of the current chunk starts a new one, samples larger
+ * than the maximum chunk get their own array.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@NotThreadSafe
+public final class HeapSortedSampleStore implements SortedSampleStore {
+
+	/**
+	 * Maximum number of values in a chunk. The chunks grow up to it together
+	 * with the store.
+	 */
+	public static final int CHUNK_SIZE = 1 << 20;
+
+	private static final int MINIMUM_CHUNK_SIZE = 1 << 12;
+
+	private double[] chunk;
+	private int chunkSize;
+	private long size;
+
+	/**
+	 * Creates an empty store.
+	 */
+	public HeapSortedSampleStore() {
+		this.chunk = new double[0];
+		this.chunkSize = 0;
+		this.size = 0;
+	}
+
+	@Override
+	public SortedSample add(final SortedSample sample) {
+		checkNotNull(sample);
+
+		final int sampleSize = sample.size();
+		if (sampleSize > CHUNK_SIZE) {
+			size += sampleSize;
+
+			return new SortedSample(sample.toArray(), 0, sampleSize);
+		}
+
+		if (chunkSize + sampleSize > chunk.length) {
+			chunk = new double[(int) Math.max(sampleSize, Math.min(CHUNK_SIZE, Math.max(MINIMUM_CHUNK_SIZE, size)))];
+			chunkSize = 0;
+		}
+
+		for (int index = 0; index < sampleSize; index++) {
+			chunk[chunkSize + index] = sample.get(index);
+		}
+
+		final SortedSample stored = new SortedSample(chunk, chunkSize, sampleSize);
+		chunkSize += sampleSize;
+		size += sampleSize;
+
+		return stored;
+	}
+
+	@Override
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Nothing to release, the arrays are left to the garbage collector.
+	 */
+	@Override
+	public void close() {
+	}
+
+	@Override
+	public String toString() {
+		return "HeapSortedSampleStore [size=" + size + "]";
+	}
+}
@@ -0,0 +1,21 @@
+package eu.odalic.extrarelatable.model.bag;
+
+import javax.annotation.concurrent.Immutable;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Factory of {@link HeapSortedSampleStore}s.
+ * 
+ * @author Václav Brodec
+ *
+ */
+@Immutable
+@Component("heap")
+public final class HeapSortedSampleStoreFactory implements SortedSampleStoreFactory {
+
+	@Override
+	public SortedSampleStore create(final String name) {
+		return new HeapSortedSampleStore();
+	}
+}
@@ -0,0 +1,119 @@
+package eu.odalic.extrarelatable.model.bag;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * {@link SortedSampleStore} keeping the values of the samples off the heap, in
+ * a memory-mapped file. The file is mapped in chunks, which are filled one
+ * after another, and it is deleted when the store is closed, so it holds only
+ * a temporary copy of the values, such as the one scanned by the matchers.
+ *
+ * @author Václav Brodec
+ *
+ */
+@NotThreadSafe
+public final class MappedSortedSampleStore implements SortedSampleStore {
+
+	/**
+	 * Maximum number of values in a mapped chunk. The chunks grow up to it
+	 * together with the store.
+	 */
+	public static final int CHUNK_SIZE = 1 << 20;
+
+	private static final int MINIMUM_CHUNK_SIZE = 1 << 12;
+
+	private final Path file;
+	private final FileChannel channel;
+
+	private DoubleBuffer chunk;
+	private int chunkSize;
+	private long filePosition;
+	private long size;
+
+	/**
+	 * Creates an empty store backed by the file.
+	 *
+	 * @param file
+	 *            path of the backing file, created if it does not exist, any
+	 *            previous content is discarded
+	 * @throws IOException
+	 *             when the file cannot be opened
+	 */
+	public MappedSortedSampleStore(final Path file) throws IOException {
+		checkNotNull(file);
+
+		this.file = file;
+		this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.DELETE_ON_CLOSE);
+		this.chunk = DoubleBuffer.allocate(0);
+		this.chunkSize = 0;
+		this.filePosition = 0;
+		this.size = 0;
+	}
+
+	@Override
+	public SortedSample add(final SortedSample sample) {
+		checkNotNull(sample);
+
+		final int sampleSize = sample.size();
+		if (chunkSize + sampleSize > chunk.capacity()) {
+			final int capacity = (int) Math.max(sampleSize,
+					Math.min(CHUNK_SIZE, Math.max(MINIMUM_CHUNK_SIZE, size)));
+			try {
+				chunk = channel.map(MapMode.READ_WRITE, filePosition, capacity * (long) Double.BYTES)
+						.asDoubleBuffer();
+			} catch (final IOException e) {
+				throw new UncheckedIOException("Failed to map " + file + "!", e);
+			}
+
+			filePosition += capacity * (long) Double.BYTES;
+			chunkSize = 0;
+		}
+
+		for (int index = 0; index < sampleSize; index++) {
+			chunk.put(chunkSize + index, sample.get(index));
+		}
+
+		final SortedSample stored = new SortedSample(chunk, chunkSize, sampleSize);
+		chunkSize += sampleSize;
+		size += sampleSize;
+
+		return stored;
+	}
+
+	@Override
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * @return path of the backing file
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Closes and deletes the file. The mapped chunks are released once the
+	 * samples viewing them are garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	@Override
+	public String toString() {
+		return "MappedSortedSampleStore [file=" + file + ", size=" + size + "]";
+	}
+}
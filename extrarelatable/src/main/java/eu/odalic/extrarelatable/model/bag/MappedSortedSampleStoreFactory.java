@@ -0,0 +1,64 @@
+package eu.odalic.extrarelatable.model.bag;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Factory of {@link MappedSortedSampleStore}s, each backed by its own temporary
+ * file in the configured directory (the default temporary directory when not
+ * set).
+ *
+ * <p>
+ * Meant for the matching snapshots only: it moves off the heap the packed copy
+ * of the values which the matchers scan, while the nodes of the graphs keep
+ * their own values on the heap as before. The files are scratch space, deleted
+ * with their stores and rebuilt by the first matching after a restart, they are
+ * not the persisted form of the graphs.
+ * </p>
+ * 
+ * @author Václav Brodec
+ *
+ */
+@Immutable
+@Component("memoryMappedSnapshot")
+public final class MappedSortedSampleStoreFactory implements SortedSampleStoreFactory {
+
+	private static final String FILE_SUFFIX = ".samples";
+
+	private final Path directory;
+
+	/**
+	 * Creates the factory.
+	 * 
+	 * @param directory
+	 *            directory of the backing files, empty for the default temporary
+	 *            directory
+	 */
+	@Autowired
+	public MappedSortedSampleStoreFactory(
+			final @Nullable @Value("${eu.odalic.extrarelatable.memoryMappedSnapshotPath:}") String directory) {
+		this.directory = directory == null || directory.isEmpty() ? null : Paths.get(directory);
+	}
+
+	@Override
+	public SortedSampleStore create(final String name) throws IOException {
+		checkNotNull(name);
+
+		final String prefix = name.replaceAll("[^\\w.-]", "_") + "-";
+		final Path file = directory == null ? Files.createTempFile(prefix, FILE_SUFFIX)
+				: Files.createTempFile(directory, prefix, FILE_SUFFIX);
+
+		return new MappedSortedSampleStore(file);
+	}
+}
@@ -0,0 +1,132 @@
+package eu.odalic.extrarelatable.model.bag;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Envelope of the quantiles of several {@link SortedSample}s. For every level
+ * {@code j} of the {@value #INTERVALS_COUNT} equal intervals (the minimum, the
+ * deciles and the maximum) it keeps the least and the greatest of the
+ * {@code j}-th quantiles of the included samples.
+ *
+ * <p>
+ * The {@code j}-th quantile of a sample is its smallest value {@code v}, for
+ * which at least {@code j / }{@value #INTERVALS_COUNT} of the values are not
+ * greater than {@code v}. Hence the distribution function of any included
+ * sample reaches the level at the upper bound, but stays below it (or at zero
+ * for the minimum) everywhere under the lower bound.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@Immutable
+public final class QuantileEnvelope {
+
+	/**
+	 * Number of the equal intervals separated by the levels of the envelope.
+	 */
+	public static final int INTERVALS_COUNT = 10;
+
+	private static final QuantileEnvelope EMPTY = new QuantileEnvelope(filled(Double.POSITIVE_INFINITY),
+			filled(Double.NEGATIVE_INFINITY));
+
+	private static final QuantileEnvelope UNBOUNDED = new QuantileEnvelope(filled(Double.NEGATIVE_INFINITY),
+			filled(Double.POSITIVE_INFINITY));
+
+	private final double[] lowerBounds;
+	private final double[] upperBounds;
+
+	private QuantileEnvelope(final double[] lowerBounds, final double[] upperBounds) {
+		this.lowerBounds = lowerBounds;
+		this.upperBounds = upperBounds;
+	}
+
+	/**
+	 * @return the envelope of no samples
+	 */
+	public static QuantileEnvelope empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * Extends the envelope by the quantiles of the samples. An empty sample makes
+	 * the envelope unbounded.
+	 *
+	 * @param samples
+	 *            included samples
+	 * @return the extended envelope
+	 */
+	public QuantileEnvelope including(final Iterable<? extends SortedSample> samples) {
+		checkNotNull(samples);
+
+		final double[] extendedLowerBounds = lowerBounds.clone();
+		final double[] extendedUpperBounds = upperBounds.clone();
+		for (final SortedSample sample : samples) {
+			final int size = sample.size();
+			if (size == 0) {
+				return UNBOUNDED;
+			}
+
+			for (int level = 0; level <= INTERVALS_COUNT; level++) {
+				final double quantile = sample.get(getRank(level, size));
+
+				extendedLowerBounds[level] = Math.min(extendedLowerBounds[level], quantile);
+				extendedUpperBounds[level] = Math.max(extendedUpperBounds[level], quantile);
+			}
+		}
+
+		return new QuantileEnvelope(extendedLowerBounds, extendedUpperBounds);
+	}
+
+	/**
+	 * @param level
+	 *            level of the quantile, from zero (the minimum) to
+	 *            {@value #INTERVALS_COUNT} (the maximum)
+	 * @return the least of the quantiles at the level, or
+	 *         {@link Double#POSITIVE_INFINITY} for an empty envelope
+	 */
+	public double getLowerBound(final int level) {
+		checkArgument(level >= 0 && level <= INTERVALS_COUNT);
+
+		return lowerBounds[level];
+	}
+
+	/**
+	 * @param level
+	 *            level of the quantile, from zero (the minimum) to
+	 *            {@value #INTERVALS_COUNT} (the maximum)
+	 * @return the greatest of the quantiles at the level, or
+	 *         {@link Double#NEGATIVE_INFINITY} for an empty envelope
+	 */
+	public double getUpperBound(final int level) {
+		checkArgument(level >= 0 && level <= INTERVALS_COUNT);
+
+		return upperBounds[level];
+	}
+
+	private static int getRank(final int level, final int size) {
+		if (level == 0) {
+			return 0;
+		}
+
+		return (int) ((level * (long) size + INTERVALS_COUNT - 1) / INTERVALS_COUNT) - 1;
+	}
+
+	private static double[] filled(final double value) {
+		final double[] values = new double[INTERVALS_COUNT + 1];
+		Arrays.fill(values, value);
+
+		return values;
+	}
+
+	@Override
+	public String toString() {
+		return "QuantileEnvelope [lowerBounds=" + Arrays.toString(lowerBounds) + ", upperBounds="
+				+ Arrays.toString(upperBounds) + "]";
+	}
+}
@@ -0,0 +1,322 @@
+package eu.odalic.extrarelatable.model.bag;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.Serializable;
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Primitive representation of a bag of number-like values, kept sorted in
+ * ascending order (as defined by {@link Double#compare(double, double)}). It is
+ * meant to be computed once and then used repeatedly for the distance
+ * measurements, without the need to box, copy or sort the values again. Besides
+ * the values in ascending order, it provides their empirical distribution
+ * function and their sum, computed once upon the creation.
+ *
+ * <p>
+ * The values are held either in an array or in a (possibly memory-mapped)
+ * buffer, shared with other samples in case of the samples kept in a
+ * {@link SortedSampleStore}.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+@Immutable
+public final class SortedSample implements Serializable {
+
+	private static final long serialVersionUID = -2837452918374620113L;
+
+	private final double[] values;
+	private final transient DoubleBuffer buffer;
+	private final int offset;
+	private final int size;
+	private final double sum;
+
+	/**
+	 * Creates the sample from the figures of the number-like values.
+	 *
+	 * @param values
+	 *            number-like values
+	 * @return the sorted sample
+	 */
+	public static SortedSample of(final Collection<? extends NumberLikeValue> values) {
+		checkNotNull(values);
+
+		final double[] figures = values.stream().mapToDouble(e -> e.getFigure()).toArray();
+		Arrays.sort(figures);
+
+		return new SortedSample(figures);
+	}
+
+	/**
+	 * Creates the sample from the figures.
+	 *
+	 * @param values
+	 *            figures in arbitrary order (the array is copied)
+	 * @return the sorted sample
+	 */
+	public static SortedSample of(final double[] values) {
+		checkNotNull(values);
+
+		final double[] figures = values.clone();
+		Arrays.sort(figures);
+
+		return new SortedSample(figures);
+	}
+
+	private SortedSample(final double[] values) {
+		this(values, 0, values.length);
+	}
+
+	/**
+	 * Creates a sample viewing a range of an array, which must already be sorted
+	 * and never modified in that range.
+	 */
+	SortedSample(final double[] values, final int offset, final int size) {
+		this.values = values;
+		this.buffer = null;
+		this.offset = offset;
+		this.size = size;
+		this.sum = sum();
+	}
+
+	/**
+	 * Creates a sample viewing a range of a buffer, which must already be sorted
+	 * and never modified in that range.
+	 */
+	SortedSample(final DoubleBuffer buffer, final int offset, final int size) {
+		this.values = null;
+		this.buffer = buffer;
+		this.offset = offset;
+		this.size = size;
+		this.sum = sum();
+	}
+
+	private double sum() {
+		double result = 0;
+		for (int index = 0; index < size; index++) {
+			result += get(index);
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return number of values in the sample
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if the sample contains no values
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * The index is not checked against the size of the sample, only against the
+	 * bounds of the underlying storage.
+	 * 
+	 * @param index
+	 *            index in the ascending order, between zero (inclusive) and the
+	 *            size (exclusive)
+	 * @return the value at the index
+	 */
+	public double get(final int index) {
+		return at(offset + index);
+	}
+
+	private double at(final int position) {
+		if (values != null) {
+			return values[position];
+		}
+
+		return buffer.get(position);
+	}
+
+	/**
+	 * @param value
+	 *            compared value
+	 * @return number of the values in the sample strictly less than the given
+	 *         one
+	 */
+	public int countLessThan(final double value) {
+		int low = offset;
+		int high = offset + size;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (Double.compare(at(middle), value) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low - offset;
+	}
+
+	/**
+	 * @param value
+	 *            compared value
+	 * @return number of the values in the sample less than or equal to the given
+	 *         one
+	 */
+	public int countAtMost(final double value) {
+		int low = offset;
+		int high = offset + size;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (Double.compare(at(middle), value) <= 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low - offset;
+	}
+
+	/**
+	 * @param value
+	 *            compared value
+	 * @return the empirical distribution function of the sample at the value,
+	 *         i.e. the share of the values less than or equal to it
+	 */
+	public double getEmpiricalDistribution(final double value) {
+		checkArgument(size > 0, "The sample is empty!");
+
+		return countAtMost(value) / ((double) size);
+	}
+
+	/**
+	 * @return the sum of the values
+	 */
+	public double getSum() {
+		return sum;
+	}
+
+	/**
+	 * @return the arithmetic mean of the values
+	 */
+	public double getMean() {
+		checkArgument(size > 0, "The sample is empty!");
+
+		return sum / size;
+	}
+
+	/**
+	 * @return the least value
+	 */
+	public double getMinimum() {
+		checkArgument(size > 0, "The sample is empty!");
+
+		return get(0);
+	}
+
+	/**
+	 * @return the greatest value
+	 */
+	public double getMaximum() {
+		checkArgument(size > 0, "The sample is empty!");
+
+		return get(size - 1);
+	}
+
+	/**
+	 * Summarizes the sample by its values at evenly spaced ranks, including the
+	 * minimum and the maximum.
+	 * 
+	 * @param count
+	 *            maximum number of the kept values, at least two
+	 * @return the sample of the chosen quantiles, or this sample if it is not
+	 *         larger than the count
+	 */
+	public SortedSample getQuantiles(final int count) {
+		checkArgument(count >= 2, "At least two quantiles are needed!");
+
+		if (size <= count) {
+			return this;
+		}
+
+		final double[] quantiles = new double[count];
+		for (int index = 0; index < count; index++) {
+			quantiles[index] = get((int) (index * (long) (size - 1) / (count - 1)));
+		}
+
+		return new SortedSample(quantiles);
+	}
+
+	/**
+	 * @return copy of the values in ascending order
+	 */
+	public double[] toArray() {
+		if (values != null) {
+			return Arrays.copyOfRange(values, offset, offset + size);
+		}
+
+		final double[] copy = new double[size];
+		for (int index = 0; index < size; index++) {
+			copy[index] = buffer.get(offset + index);
+		}
+
+		return copy;
+	}
+
+	/**
+	 * Views are serialized as standalone samples, without the rest of the
+	 * viewed array or buffer.
+	 */
+	private Object writeReplace() {
+		if (values != null && offset == 0 && size == values.length) {
+			return this;
+		}
+
+		return new SortedSample(toArray());
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 1;
+		for (int index = 0; index < size; index++) {
+			final long bits = Double.doubleToLongBits(get(index));
+			result = 31 * result + (int) (bits ^ (bits >>> 32));
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		final SortedSample other = (SortedSample) obj;
+		if (size != other.size) {
+			return false;
+		}
+		for (int index = 0; index < size; index++) {
+			if (Double.doubleToLongBits(get(index)) != Double.doubleToLongBits(other.get(index))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "SortedSample [size=" + size + "]";
+	}
+}
@@ -0,0 +1,37 @@
+package eu.odalic.extrarelatable.model.bag;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Append-only store of the values of many {@link SortedSample}s. The stored
+ * samples are views of the storage, which is never modified in the already
+ * written parts, so the views stay immutable.
+ *
+ * @author Václav Brodec
+ *
+ */
+public interface SortedSampleStore extends Closeable {
+	/**
+	 * Copies the values of the sample to the end of the store.
+	 *
+	 * @param sample
+	 *            stored sample
+	 * @return equal sample viewing the store
+	 */
+	SortedSample add(SortedSample sample);
+
+	/**
+	 * @return total number of the stored values
+	 */
+	long size();
+
+	/**
+	 * Releases the storage. The samples viewing it must not be used afterwards.
+	 * 
+	 * @throws IOException
+	 *             when the storage cannot be released
+	 */
+	@Override
+	void close() throws IOException;
+}
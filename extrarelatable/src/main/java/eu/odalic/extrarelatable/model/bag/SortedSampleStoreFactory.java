@@ -0,0 +1,22 @@
+package eu.odalic.extrarelatable.model.bag;
+
+import java.io.IOException;
+
+/**
+ * Creates {@link SortedSampleStore}s.
+ * 
+ * @author Václav Brodec
+ *
+ */
+public interface SortedSampleStoreFactory {
+	/**
+	 * Creates a new empty store.
+	 * 
+	 * @param name
+	 *            name of the store, e.g. of the graph whose samples it keeps
+	 * @return the store
+	 * @throws IOException
+	 *             when the storage cannot be allocated
+	 */
+	SortedSampleStore create(String name) throws IOException;
+}
@@ -0,0 +1,103 @@
+package eu.odalic.extrarelatable.model.bag;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Comparator;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Multiset;
+
+/**
+ * Stratified quantile sampling of large bags of number-like values, which caps
+ * the number of the values representing them, so that the cost of measuring
+ * their distances does not grow with the height of the tables they come from.
+ *
+ * <p>
+ * The values, in ascending order of their figures, are split into strata of
+ * (almost) equal size, each represented by its middle value. The empirical
+ * distribution function of the sample then differs from the one of all the
+ * values by less than {@link #getError(int, int)} everywhere, so the
+ * Kolmogorov-Smirnov statistic of two samples differs from the one of the
+ * original bags by less than the sum of their errors.
+ * </p>
+ *
+ * @author Václav Brodec
+ *
+ */
+public final class StratifiedSampling {
+
+	/**
+	 * Samples the values.
+	 *
+	 * @param values
+	 *            sampled values
+	 * @param count
+	 *            maximum number of the values in the sample, at least two
+	 * @return the middle values of the strata, or all the values if there are
+	 *         not more of them than the count
+	 *
+	 * @param <T>
+	 *            type of the values
+	 */
+	public static <T extends NumberLikeValue> Multiset<T> sample(final Multiset<? extends T> values,
+			final int count) {
+		checkNotNull(values);
+		checkArgument(count >= 2, "The sample must have at least two values!");
+
+		final int size = values.size();
+		if (size <= count) {
+			return ImmutableMultiset.copyOf(values);
+		}
+
+		final List<T> sorted = values.stream().sorted(Comparator.comparingDouble(e -> e.getFigure()))
+				.collect(ImmutableList.toImmutableList());
+
+		final ImmutableMultiset.Builder<T> builder = ImmutableMultiset.builder();
+		for (int stratum = 0; stratum < count; stratum++) {
+			final int start = getStratumStart(stratum, size, count);
+			final int end = getStratumStart(stratum + 1, size, count);
+
+			builder.add(sorted.get((start + end - 1) / 2));
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Provides the bound of the difference of the empirical distribution
+	 * functions of the sample and of the sampled values. Every stratum starts at
+	 * most one value before its share of the values, and the sample counts the
+	 * middle value of a stratum either all or none of it, so the difference is
+	 * less than the share of a stratum plus the share of a single value.
+	 *
+	 * @param size
+	 *            number of the sampled values
+	 * @param count
+	 *            maximum number of the values in the sample, at least two
+	 * @return the bound of the error, zero if no sampling took place
+	 */
+	public static double getError(final int size, final int count) {
+		checkArgument(size >= 0, "The size cannot be negative!");
+		checkArgument(count >= 2, "The sample must have at least two values!");
+
+		if (size <= count) {
+			return 0;
+		}
+
+		return 1d / count + 1d / size;
+	}
+
+	private static int getStratumStart(final int stratum, final int size, final int count) {
+		return (int) (stratum * (long) size / count);
+	}
+
+	/**
+	 * We want to keep this class uninstantiable, so no visible constructor is
+	 * available.
+	 */
+	private StratifiedSampling() {
+	}
+}
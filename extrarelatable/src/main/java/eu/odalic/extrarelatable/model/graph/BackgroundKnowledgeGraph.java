@@ -1,15 +1,21 @@
 package eu.odalic.extrarelatable.model.graph;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
 /**
@@ -17,6 +23,13 @@ import com.google.common.collect.ImmutableSet;
  * {@link Property}s and facilitates merging of their instances in the learned
  * files ({@link PropertyTree}s) into them.
  * 
+ * <p>
+ * The graph only grows. All the added trees are logged in the order of their
+ * addition, so that the structures derived from the graph (indices, caches)
+ * can catch up with it incrementally, using {@link #getVersion()} and
+ * {@link #getPropertyTreesAddedSince(int)}.
+ * </p>
+ * 
  * @author Václav Brodec
  *
  */
@@ -29,6 +42,12 @@ public final class BackgroundKnowledgeGraph implements Iterable<Property>, Seria
 	private final PropertyTreesMergingStrategy propertyTreesMergingStrategy;
 	private final Set<Property> properties;
 
+	/**
+	 * Derived from the properties, so it is not persisted, but rather rebuilt
+	 * after deserialization.
+	 */
+	private transient List<PropertyTree> addedPropertyTrees;
+
 	BackgroundKnowledgeGraph(final String name, final PropertyTreesMergingStrategy propertyTreesMergingStrategy,
 			final Set<Property> properties) {
 		checkNotNull(name);
@@ -37,6 +56,7 @@ public final class BackgroundKnowledgeGraph implements Iterable<Property>, Seria
 		this.name = name;
 		this.propertyTreesMergingStrategy = propertyTreesMergingStrategy;
 		this.properties = properties;
+		this.addedPropertyTrees = logInstances(properties);
 	}
 
 	/**
@@ -75,6 +95,7 @@ public final class BackgroundKnowledgeGraph implements Iterable<Property>, Seria
 		this.propertyTreesMergingStrategy = original.propertyTreesMergingStrategy;
 		this.properties = original.properties.stream().map(property -> new Property(property))
 				.collect(Collectors.toCollection(HashSet::new));
+		this.addedPropertyTrees = logInstances(this.properties);
 	}
 
 	/**
@@ -104,6 +125,8 @@ public final class BackgroundKnowledgeGraph implements Iterable<Property>, Seria
 		if (property != null) {
 			properties.add(property);
 		}
+
+		addedPropertyTrees.add(propertyTree);
 	}
 
 	/**
@@ -127,7 +150,9 @@ public final class BackgroundKnowledgeGraph implements Iterable<Property>, Seria
 	public synchronized void add(final Property property) {
 		checkNotNull(property);
 
-		properties.add(property);
+		if (properties.add(property)) {
+			addedPropertyTrees.addAll(property.getInstances());
+		}
 	}
 
 	/**
@@ -140,7 +165,30 @@ public final class BackgroundKnowledgeGraph implements Iterable<Property>, Seria
 		checkNotNull(properties);
 		properties.forEach(property -> checkNotNull(property));
 
-		this.properties.addAll(properties);
+		properties.forEach(property -> add(property));
+	}
+
+	/**
+	 * @return the number of property trees added to the graph so far, which
+	 *         increases with every change of the graph
+	 */
+	public synchronized int getVersion() {
+		return addedPropertyTrees.size();
+	}
+
+	/**
+	 * Provides the property trees added since the given version, in the order of
+	 * their addition.
+	 * 
+	 * @param version
+	 *            version of the graph, as returned by {@link #getVersion()}
+	 * @return the property trees added since then
+	 */
+	public synchronized List<PropertyTree> getPropertyTreesAddedSince(final int version) {
+		checkArgument(version >= 0, "The version cannot be negative!");
+		checkArgument(version <= addedPropertyTrees.size(), "The version is from the future!");
+
+		return ImmutableList.copyOf(addedPropertyTrees.subList(version, addedPropertyTrees.size()));
 	}
 
 	/**
@@ -152,6 +200,19 @@ public final class BackgroundKnowledgeGraph implements Iterable<Property>, Seria
 		return ImmutableSet.copyOf(properties);
 	}
 
+	private static List<PropertyTree> logInstances(final Collection<? extends Property> properties) {
+		final List<PropertyTree> log = new ArrayList<>();
+		properties.forEach(property -> log.addAll(property.getInstances()));
+
+		return log;
+	}
+
+	private void readObject(final ObjectInputStream stream) throws IOException, ClassNotFoundException {
+		stream.defaultReadObject();
+
+		this.addedPropertyTrees = logInstances(this.properties);
+	}
+
 	@Override
 	public synchronized Iterator<Property> iterator() {
 		return ImmutableSet.copyOf(this.properties).iterator();
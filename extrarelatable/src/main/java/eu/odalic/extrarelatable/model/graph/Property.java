@@ -4,6 +4,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.Serializable;
 import java.net.URI;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -16,16 +17,20 @@ import javax.xml.bind.annotation.XmlTransient;
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Streams;
 
 import eu.odalic.extrarelatable.api.rest.adapters.PropertyAdapter;
+import eu.odalic.extrarelatable.model.bag.QuantileEnvelope;
 
 /**
  * RDFS property representation within the context of background knowledge base
  * derived from learned files. It encapsulates its URI (which may be left-out),
  * internal unique identifier, all the labels (collected from column headers)
  * associated with it and finally the set of {@link PropertyTree}s, which are
- * instances of the property as found in the learned files.
+ * instances of the property as found in the learned files, together with an
+ * envelope of the quantiles of their values.
  * 
  * @author Václav Brodec
  *
@@ -43,6 +48,12 @@ public final class Property implements Iterable<PropertyTree>, Comparable<Proper
 
 	private final Set<PropertyTree> instances;
 
+	/**
+	 * Derived from the instances, so it is not persisted, but rather recomputed
+	 * on the first use after deserialization.
+	 */
+	private transient QuantileEnvelope envelope;
+
 	/**
 	 * Creates a property.
 	 * 
@@ -56,6 +67,7 @@ public final class Property implements Iterable<PropertyTree>, Comparable<Proper
 		this.uri = null;
 		this.declaredLabels = ImmutableSortedSet.of();
 		this.instances = new HashSet<>();
+		this.envelope = QuantileEnvelope.empty();
 	}
 
 	/**
@@ -69,6 +81,7 @@ public final class Property implements Iterable<PropertyTree>, Comparable<Proper
 		this.uri = original.uri;
 		this.declaredLabels = original.declaredLabels;
 		this.instances = new HashSet<>(original.instances);
+		this.envelope = original.getEnvelope();
 	}
 
 	/**
@@ -116,6 +129,20 @@ public final class Property implements Iterable<PropertyTree>, Comparable<Proper
 		return Collections.unmodifiableSet(instances);
 	}
 
+	/**
+	 * @return envelope of the quantiles of the values of all the nodes of all the
+	 *         instances, maintained as the instances are added
+	 */
+	@XmlTransient
+	@JsonIgnore
+	public synchronized QuantileEnvelope getEnvelope() {
+		if (this.envelope == null) {
+			this.envelope = include(QuantileEnvelope.empty(), this.instances);
+		}
+
+		return envelope;
+	}
+
 	/**
 	 * Adds property tree, an instance of the property in some learned file.
 	 * 
@@ -124,11 +151,14 @@ public final class Property implements Iterable<PropertyTree>, Comparable<Proper
 	 */
 	@XmlTransient
 	@JsonIgnore
-	public void add(final PropertyTree instance) {
+	public synchronized void add(final PropertyTree instance) {
 		checkNotNull(instance);
 
 		instance.setProperty(this);
 		this.instances.add(instance);
+		if (this.envelope != null) {
+			this.envelope = include(this.envelope, ImmutableList.of(instance));
+		}
 	}
 
 	/**
@@ -139,12 +169,21 @@ public final class Property implements Iterable<PropertyTree>, Comparable<Proper
 	 */
 	@XmlTransient
 	@JsonIgnore
-	public void addAll(final Set<? extends PropertyTree> instances) {
+	public synchronized void addAll(final Set<? extends PropertyTree> instances) {
 		checkNotNull(instances);
 		instances.forEach(instance -> checkNotNull(instance));
 
 		instances.forEach(instance -> instance.setProperty(this));
 		this.instances.addAll(instances);
+		if (this.envelope != null) {
+			this.envelope = include(this.envelope, instances);
+		}
+	}
+
+	private static QuantileEnvelope include(final QuantileEnvelope envelope,
+			final Collection<? extends PropertyTree> instances) {
+		return envelope.including(instances.stream().flatMap(instance -> Streams.stream(instance))
+				.map(node -> node.createSample()).collect(ImmutableList.toImmutableList()));
 	}
 
 	@Override
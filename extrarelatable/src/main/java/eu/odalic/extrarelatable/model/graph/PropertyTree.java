@@ -1,5 +1,6 @@
 package eu.odalic.extrarelatable.model.graph;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.Serializable;
@@ -19,6 +20,8 @@ import eu.odalic.extrarelatable.model.bag.AttributeValuePair;
 import eu.odalic.extrarelatable.model.bag.Context;
 import eu.odalic.extrarelatable.model.bag.Label;
 import eu.odalic.extrarelatable.model.bag.NumberLikeValue;
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+import eu.odalic.extrarelatable.model.bag.StratifiedSampling;
 
 /**
  * Property tree is an instance of a
@@ -50,6 +53,18 @@ public final class PropertyTree implements Iterable<PropertyTree.Node>, Serializ
 
 		private final Set<CommonNode> children;
 
+		/**
+		 * Number of the values the held ones were sampled from. The nodes persisted
+		 * before the sampling was introduced have it zero.
+		 */
+		private final int sampledSize;
+
+		/**
+		 * Derived from the values upon the first request, so it is not persisted
+		 * and the nodes never asked for it do not hold their values twice.
+		 */
+		private transient volatile SortedSample sample;
+
 		/**
 		 * Initializes the shared attributes of a node.
 		 * 
@@ -57,10 +72,25 @@ public final class PropertyTree implements Iterable<PropertyTree.Node>, Serializ
 		 *            held values
 		 */
 		public Node(final Multiset<? extends NumberLikeValue> values) {
+			this(values, values.size());
+		}
+
+		/**
+		 * Initializes the shared attributes of a node, which holds a sample of the
+		 * values placed into it.
+		 * 
+		 * @param values
+		 *            held values
+		 * @param sampledSize
+		 *            number of the values the held ones were sampled from
+		 */
+		public Node(final Multiset<? extends NumberLikeValue> values, final int sampledSize) {
 			checkNotNull(values);
+			checkArgument(sampledSize >= values.size(), "The sampled size must be at least the number of the values!");
 
 			this.values = ImmutableMultiset.copyOf(values);
 			this.children = new HashSet<>();
+			this.sampledSize = sampledSize;
 		}
 
 		/**
@@ -70,6 +100,54 @@ public final class PropertyTree implements Iterable<PropertyTree.Node>, Serializ
 			return values;
 		}
 
+		/**
+		 * @return number of the values the held ones were sampled from
+		 */
+		public int getSampledSize() {
+			return Math.max(sampledSize, values.size());
+		}
+
+		/**
+		 * @return bound of the difference of the empirical distribution functions of
+		 *         the held values and the values they were sampled from, as given
+		 *         by {@link StratifiedSampling#getError(int, int)}
+		 */
+		public double getSamplingError() {
+			final int size = values.size();
+			if (size < 2) {
+				return 0;
+			}
+
+			return StratifiedSampling.getError(getSampledSize(), size);
+		}
+
+		/**
+		 * @return figures of the held values, sorted in ascending order, kept by
+		 *         the node since the first call
+		 */
+		public SortedSample getSample() {
+			SortedSample result = sample;
+			if (result == null) {
+				// Racing threads may create equal samples, any of them can be kept.
+				result = SortedSample.of(values);
+				sample = result;
+			}
+
+			return result;
+		}
+
+		/**
+		 * Provides the figures for a one-off use, such as copying them elsewhere,
+		 * without making the node keep them.
+		 * 
+		 * @return figures of the held values, sorted in ascending order
+		 */
+		public SortedSample createSample() {
+			final SortedSample result = sample;
+
+			return result == null ? SortedSample.of(values) : result;
+		}
+
 		/**
 		 * Adds a child to the node.
 		 * 
@@ -152,6 +230,10 @@ public final class PropertyTree implements Iterable<PropertyTree.Node>, Serializ
 			super(values);
 		}
 
+		public CommonNode(final Multiset<? extends NumberLikeValue> values, final int sampledSize) {
+			super(values, sampledSize);
+		}
+
 		@Override
 		public Label getLabel() {
 			return parent.getLabel();
@@ -201,7 +283,21 @@ public final class PropertyTree implements Iterable<PropertyTree.Node>, Serializ
 		 *            contained values
 		 */
 		public RootNode(final Label label, final Multiset<? extends NumberLikeValue> values) {
-			super(values);
+			this(label, values, values.size());
+		}
+
+		/**
+		 * Creates a root node holding a sample of the values of the column.
+		 * 
+		 * @param label
+		 *            property tree label
+		 * @param values
+		 *            contained values
+		 * @param sampledSize
+		 *            number of the values the contained ones were sampled from
+		 */
+		public RootNode(final Label label, final Multiset<? extends NumberLikeValue> values, final int sampledSize) {
+			super(values, sampledSize);
 
 			checkNotNull(label);
 
@@ -261,7 +357,12 @@ public final class PropertyTree implements Iterable<PropertyTree.Node>, Serializ
 		private final AttributeValuePair pair;
 
 		public SharedPairNode(final AttributeValuePair pair, final Multiset<? extends NumberLikeValue> values) {
-			super(values);
+			this(pair, values, values.size());
+		}
+
+		public SharedPairNode(final AttributeValuePair pair, final Multiset<? extends NumberLikeValue> values,
+				final int sampledSize) {
+			super(values, sampledSize);
 
 			checkNotNull(pair);
 
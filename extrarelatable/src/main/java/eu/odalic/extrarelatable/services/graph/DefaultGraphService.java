@@ -20,6 +20,10 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -27,6 +31,7 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -50,11 +55,16 @@ import com.univocity.parsers.csv.CsvParser;
 import com.univocity.parsers.csv.CsvParserSettings;
 import eu.odalic.extrarelatable.algorithms.graph.Annotator;
 import eu.odalic.extrarelatable.algorithms.graph.PropertyTreesBuilder;
+import eu.odalic.extrarelatable.algorithms.graph.StandingAnnotation;
+import eu.odalic.extrarelatable.algorithms.graph.matching.MatchingBudget;
 import eu.odalic.extrarelatable.algorithms.table.TableAnalyzer;
 import eu.odalic.extrarelatable.algorithms.table.TableSlicer;
 import eu.odalic.extrarelatable.algorithms.table.csv.CsvTableParser;
 import eu.odalic.extrarelatable.algorithms.table.csv.CsvTableWriter;
+import eu.odalic.extrarelatable.model.annotation.Annotation;
 import eu.odalic.extrarelatable.model.annotation.AnnotationResult;
+import eu.odalic.extrarelatable.model.annotation.MultiGraphAnnotationResult;
+import eu.odalic.extrarelatable.model.annotation.MultiGraphAnnotations;
 import eu.odalic.extrarelatable.model.bag.Label;
 import eu.odalic.extrarelatable.model.bag.Type;
 import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
@@ -198,6 +208,21 @@ public class DefaultGraphService implements GraphService {
 	 */
 	private final Map<String, BackgroundKnowledgeGraph> graphs;
 
+	/**
+	 * Standing annotations of the tables mapped to their identifiers.
+	 */
+	private final Map<UUID, RegisteredStandingAnnotation> standingAnnotations = new ConcurrentHashMap<>();
+
+	/**
+	 * Updates the standing annotations in the background, one graph at a time.
+	 */
+	private final ExecutorService standingAnnotationsUpdater = Executors.newSingleThreadExecutor(runnable -> {
+		final Thread thread = new Thread(runnable, "standing-annotations-updater");
+		thread.setDaemon(true);
+
+		return thread;
+	});
+
 	/**
 	 * Random generator used to sample the input tables.
 	 */
@@ -306,6 +331,11 @@ public class DefaultGraphService implements GraphService {
 		initializeGraphs(graphsPath, onlyWithProperties);
 	}
 
+	@PreDestroy
+	public void cleanUp() {
+		this.standingAnnotationsUpdater.shutdownNow();
+	}
+
 	private void initializeGraphs(final String graphsPath, final boolean onlyWithProperties) throws IOException {
 		final Set<BackgroundKnowledgeGraph> loadedGraphs = loadGraphs(Paths.get(graphsPath), onlyWithProperties);
 
@@ -917,6 +947,7 @@ public class DefaultGraphService implements GraphService {
 		learn(graph, cachedInput, format, metadata, onlyWithProperties, contextCollected, onlyDeclaredAsContext,
 				usedBases, primaryBase);
 		this.graphsPersistingService.persist(graph.getName(), graph);
+		updateStandingAnnotations(graph);
 	}
 
 	private void learn(final BackgroundKnowledgeGraph graph, final Path input, @Nullable Format format,
@@ -1131,6 +1162,7 @@ public class DefaultGraphService implements GraphService {
 		graph.addPropertyTrees(trees);
 
 		this.graphsPersistingService.persist(graph.getName(), graph);
+		updateStandingAnnotations(graph);
 	}
 
 	private static Format getFormat(final CsvProfile csvProfile, final Format forcedFormat) {
@@ -1151,9 +1183,176 @@ public class DefaultGraphService implements GraphService {
 	public AnnotationResult annotate(String graphName, InputStream input, Format format, Metadata metadata,
 			final boolean contextCollected, final boolean onlyDeclaredAsContext, final Set<? extends String> usedBases,
 			final String primaryBase) throws IOException {
+		return annotate(graphName, input, format, metadata, contextCollected, onlyDeclaredAsContext, usedBases,
+				primaryBase, MatchingBudget.unlimited());
+	}
+
+	@Override
+	public AnnotationResult annotate(String graphName, InputStream input, Format format, Metadata metadata,
+			final boolean contextCollected, final boolean onlyDeclaredAsContext, final Set<? extends String> usedBases,
+			final String primaryBase, final MatchingBudget budget) throws IOException {
+		checkNotNull(graphName);
+		checkNotNull(input);
+		checkNotNull(metadata);
+		checkNotNull(budget);
+		checkContextArguments(contextCollected, usedBases, primaryBase);
+
+		final BackgroundKnowledgeGraph graph = this.graphs.get(graphName);
+		checkArgument(graph != null, "Unknown graph!");
+
+		final PreparedTable prepared = prepare(input, format, metadata, contextCollected, usedBases, primaryBase);
+
+		final Map<Integer, Annotation> annotations = this.annotator.annotate(graph, prepared.slicedTable,
+				prepared.declaredProperties, prepared.declaredClasses, prepared.contextProperties,
+				prepared.contextClasses, onlyDeclaredAsContext, budget);
+
+		return new AnnotationResult(prepared.table, annotations, budget.isExhausted(), budget.getCoveredFraction());
+	}
+
+	@Override
+	public AnnotationResult annotate(final String graphName, final ParsedTable table, final boolean contextCollected,
+			final boolean onlyDeclaredAsContext, final Set<? extends String> usedBases, final String primaryBase)
+			throws IOException {
+		return annotate(graphName, table, contextCollected, onlyDeclaredAsContext, usedBases, primaryBase,
+				MatchingBudget.unlimited());
+	}
+
+	@Override
+	public AnnotationResult annotate(final String graphName, final ParsedTable table, final boolean contextCollected,
+			final boolean onlyDeclaredAsContext, final Set<? extends String> usedBases, final String primaryBase,
+			final MatchingBudget budget) throws IOException {
 		checkNotNull(graphName);
+		checkNotNull(table);
+		checkNotNull(budget);
+		checkContextArguments(contextCollected, usedBases, primaryBase);
+		checkArgument(table.getHeight() >= 2, "Too few rows in the table.");
+
+		final BackgroundKnowledgeGraph graph = this.graphs.get(graphName);
+		checkArgument(graph != null, "Unknown graph!");
+
+		final PreparedTable prepared = prepare(table, contextCollected, usedBases, primaryBase);
+
+		final Map<Integer, Annotation> annotations = this.annotator.annotate(graph, prepared.slicedTable,
+				prepared.declaredProperties, prepared.declaredClasses, prepared.contextProperties,
+				prepared.contextClasses, onlyDeclaredAsContext, budget);
+
+		final AnnotationResult result = new AnnotationResult(table, annotations, budget.isExhausted(),
+				budget.getCoveredFraction());
+
+		return result;
+	}
+
+	@Override
+	public MultiGraphAnnotationResult annotate(final Set<? extends String> graphNames, final InputStream input,
+			final Format format, final Metadata metadata, final boolean contextCollected,
+			final boolean onlyDeclaredAsContext, final Set<? extends String> usedBases, final String primaryBase,
+			final MatchingBudget budget) throws IOException {
 		checkNotNull(input);
 		checkNotNull(metadata);
+		checkNotNull(budget);
+		checkContextArguments(contextCollected, usedBases, primaryBase);
+
+		final List<BackgroundKnowledgeGraph> graphs = getGraphs(graphNames);
+
+		final PreparedTable prepared = prepare(input, format, metadata, contextCollected, usedBases, primaryBase);
+
+		final MultiGraphAnnotations annotations = this.annotator.annotate(graphs, prepared.slicedTable,
+				prepared.declaredProperties, prepared.declaredClasses, prepared.contextProperties,
+				prepared.contextClasses, onlyDeclaredAsContext, budget);
+
+		return new MultiGraphAnnotationResult(prepared.table, annotations, budget.isExhausted(),
+				budget.getCoveredFraction());
+	}
+
+	@Override
+	public MultiGraphAnnotationResult annotate(final Set<? extends String> graphNames, final ParsedTable table,
+			final boolean contextCollected, final boolean onlyDeclaredAsContext, final Set<? extends String> usedBases,
+			final String primaryBase, final MatchingBudget budget) throws IOException {
+		checkNotNull(table);
+		checkNotNull(budget);
+		checkContextArguments(contextCollected, usedBases, primaryBase);
+		checkArgument(table.getHeight() >= 2, "Too few rows in the table.");
+
+		final List<BackgroundKnowledgeGraph> graphs = getGraphs(graphNames);
+
+		final PreparedTable prepared = prepare(table, contextCollected, usedBases, primaryBase);
+
+		final MultiGraphAnnotations annotations = this.annotator.annotate(graphs, prepared.slicedTable,
+				prepared.declaredProperties, prepared.declaredClasses, prepared.contextProperties,
+				prepared.contextClasses, onlyDeclaredAsContext, budget);
+
+		return new MultiGraphAnnotationResult(table, annotations, budget.isExhausted(), budget.getCoveredFraction());
+	}
+
+	@Override
+	public UUID annotateStanding(final String graphName, final ParsedTable table, final boolean contextCollected,
+			final boolean onlyDeclaredAsContext, final Set<? extends String> usedBases, final String primaryBase)
+			throws IOException {
+		checkNotNull(graphName);
+		checkNotNull(table);
+		checkContextArguments(contextCollected, usedBases, primaryBase);
+		checkArgument(table.getHeight() >= 2, "Too few rows in the table.");
+
+		final BackgroundKnowledgeGraph graph = this.graphs.get(graphName);
+		checkArgument(graph != null, "Unknown graph!");
+
+		final PreparedTable prepared = prepare(table, contextCollected, usedBases, primaryBase);
+
+		final StandingAnnotation standingAnnotation = this.annotator.annotateStanding(graph, prepared.slicedTable,
+				prepared.declaredProperties, prepared.declaredClasses, prepared.contextProperties,
+				prepared.contextClasses, onlyDeclaredAsContext);
+
+		final UUID id = UUID.randomUUID();
+		this.standingAnnotations.put(id, new RegisteredStandingAnnotation(table, standingAnnotation));
+
+		return id;
+	}
+
+	@Override
+	public AnnotationResult getStandingAnnotation(final String graphName, final UUID id) {
+		final RegisteredStandingAnnotation registered = getRegisteredStandingAnnotation(graphName, id);
+
+		return new AnnotationResult(registered.table, registered.standingAnnotation.getAnnotations(), false, 1);
+	}
+
+	@Override
+	public void deleteStandingAnnotation(final String graphName, final UUID id) {
+		getRegisteredStandingAnnotation(graphName, id);
+
+		this.standingAnnotations.remove(id);
+	}
+
+	private RegisteredStandingAnnotation getRegisteredStandingAnnotation(final String graphName, final UUID id) {
+		checkNotNull(graphName);
+		checkNotNull(id);
+
+		final RegisteredStandingAnnotation registered = this.standingAnnotations.get(id);
+		checkArgument(registered != null && registered.standingAnnotation.getGraph().getName().equals(graphName),
+				"No such standing annotation present!");
+
+		return registered;
+	}
+
+	/**
+	 * Schedules bringing the standing annotations based on the graph up to date
+	 * with the property trees it has just learned, so that the learning does not
+	 * wait for them. A failure of an update is logged and does not prevent the
+	 * others.
+	 */
+	private void updateStandingAnnotations(final BackgroundKnowledgeGraph graph) {
+		this.standingAnnotationsUpdater.execute(() -> this.standingAnnotations.values().stream()
+				.filter(e -> e.standingAnnotation.getGraph() == graph).forEach(e -> {
+					try {
+						e.standingAnnotation.update();
+					} catch (final RuntimeException exception) {
+						LOGGER.error("Failed to update a standing annotation of graph " + graph.getName() + "!",
+								exception);
+					}
+				}));
+	}
+
+	private static void checkContextArguments(final boolean contextCollected, final Set<? extends String> usedBases,
+			final String primaryBase) {
 		checkNotNull(usedBases);
 		usedBases.stream().forEach(e -> {
 			checkNotNull(e);
@@ -1163,10 +1362,29 @@ public class DefaultGraphService implements GraphService {
 				"To collect the context, specify primary and other used bases!");
 		checkArgument(primaryBase == null || usedBases.contains(primaryBase),
 				"To collect the context, specify the used bases!");
+	}
 
-		final BackgroundKnowledgeGraph graph = this.graphs.get(graphName);
-		checkArgument(graph != null, "Unknown graph!");
+	private List<BackgroundKnowledgeGraph> getGraphs(final Set<? extends String> graphNames) {
+		checkNotNull(graphNames);
+		checkArgument(!graphNames.isEmpty(), "No graph specified!");
 
+		return graphNames.stream().map(e -> {
+			checkNotNull(e);
+
+			final BackgroundKnowledgeGraph graph = this.graphs.get(e);
+			checkArgument(graph != null, "Unknown graph " + e + "!");
+
+			return graph;
+		}).collect(ImmutableList.toImmutableList());
+	}
+
+	/**
+	 * Parses, profiles, types and slices the table provided as CSV input stream
+	 * and gathers its context, so that it can be annotated against any graph.
+	 */
+	private PreparedTable prepare(final InputStream input, final Format format, final Metadata metadata,
+			final boolean contextCollected, final Set<? extends String> usedBases, final String primaryBase)
+			throws IOException {
 		final Path cachedInput = this.fileCachingService.cache(input);
 
 		CsvProfile csvProfile;
@@ -1215,30 +1433,16 @@ public class DefaultGraphService implements GraphService {
 			contextClasses = metadata.getCollectedClasses();
 		}
 
-		return new AnnotationResult(table, this.annotator.annotate(graph, slicedTable, metadata.getDeclaredProperties(),
-				metadata.getDeclaredClasses(), contextProperties, contextClasses, onlyDeclaredAsContext));
+		return new PreparedTable(table, slicedTable, metadata.getDeclaredProperties(), metadata.getDeclaredClasses(),
+				contextProperties, contextClasses);
 	}
 
-	@Override
-	public AnnotationResult annotate(final String graphName, final ParsedTable table, final boolean contextCollected,
-			final boolean onlyDeclaredAsContext, final Set<? extends String> usedBases, final String primaryBase)
-			throws IOException {
-		checkNotNull(graphName);
-		checkNotNull(table);
-		checkNotNull(usedBases);
-		usedBases.stream().forEach(e -> {
-			checkNotNull(e);
-		});
-
-		checkArgument((!contextCollected) || primaryBase != null,
-				"To collect the context, specify primary and other used bases!");
-		checkArgument(primaryBase == null || usedBases.contains(primaryBase),
-				"To collect the context, specify the used bases!");
-		checkArgument(table.getHeight() >= 2, "Too few rows in the table.");
-
-		final BackgroundKnowledgeGraph graph = this.graphs.get(graphName);
-		checkArgument(graph != null, "Unknown graph!");
-
+	/**
+	 * Profiles, types and slices the parsed table and gathers its context, so
+	 * that it can be annotated against any graph.
+	 */
+	private PreparedTable prepare(final ParsedTable table, final boolean contextCollected,
+			final Set<? extends String> usedBases, final String primaryBase) throws IOException {
 		final Path cachedInput = this.fileCachingService.provideTemporaryFile();
 		this.csvTableWriter.write(cachedInput.toFile(), table);
 
@@ -1278,11 +1482,8 @@ public class DefaultGraphService implements GraphService {
 			contextClasses = metadata.getCollectedClasses();
 		}
 
-		final AnnotationResult result = new AnnotationResult(table,
-				this.annotator.annotate(graph, slicedTable, metadata.getDeclaredProperties(),
-						metadata.getDeclaredClasses(), contextProperties, contextClasses, onlyDeclaredAsContext));
-
-		return result;
+		return new PreparedTable(table, slicedTable, metadata.getDeclaredProperties(), metadata.getDeclaredClasses(),
+				contextProperties, contextClasses);
 	}
 
 	private static Map<Integer, Type> tryGetHints(@Nullable final CsvProfile csvProfile) {
@@ -1310,6 +1511,7 @@ public class DefaultGraphService implements GraphService {
 		final BackgroundKnowledgeGraph removed = this.graphs.remove(name);
 		checkArgument(removed != null, "No such graph present!");
 
+		this.standingAnnotations.values().removeIf(e -> e.standingAnnotation.getGraph() == removed);
 		this.graphsPersistingService.delete(removed.getName());
 	}
 
@@ -1352,4 +1554,45 @@ public class DefaultGraphService implements GraphService {
 			}).findAny().isPresent();
 		}).limit(limit).collect(ImmutableList.toImmutableList()));
 	}
+
+	/**
+	 * Table processed up to the point of annotation, along with its declared and
+	 * gathered context.
+	 */
+	private static final class PreparedTable {
+
+		private final ParsedTable table;
+		private final SlicedTable slicedTable;
+		private final Map<Integer, DeclaredEntity> declaredProperties;
+		private final Map<Integer, DeclaredEntity> declaredClasses;
+		private final Map<Integer, DeclaredEntity> contextProperties;
+		private final Map<Integer, DeclaredEntity> contextClasses;
+
+		PreparedTable(final ParsedTable table, final SlicedTable slicedTable,
+				final Map<Integer, DeclaredEntity> declaredProperties,
+				final Map<Integer, DeclaredEntity> declaredClasses,
+				final Map<Integer, DeclaredEntity> contextProperties,
+				final Map<Integer, DeclaredEntity> contextClasses) {
+			this.table = table;
+			this.slicedTable = slicedTable;
+			this.declaredProperties = declaredProperties;
+			this.declaredClasses = declaredClasses;
+			this.contextProperties = contextProperties;
+			this.contextClasses = contextClasses;
+		}
+	}
+
+	/**
+	 * Standing annotation registered along with its input table.
+	 */
+	private static final class RegisteredStandingAnnotation {
+
+		private final ParsedTable table;
+		private final StandingAnnotation standingAnnotation;
+
+		RegisteredStandingAnnotation(final ParsedTable table, final StandingAnnotation standingAnnotation) {
+			this.table = table;
+			this.standingAnnotation = standingAnnotation;
+		}
+	}
 }
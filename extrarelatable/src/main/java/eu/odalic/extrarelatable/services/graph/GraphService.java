@@ -3,9 +3,12 @@ package eu.odalic.extrarelatable.services.graph;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Set;
+import java.util.UUID;
 import java.util.regex.Pattern;
 
+import eu.odalic.extrarelatable.algorithms.graph.matching.MatchingBudget;
 import eu.odalic.extrarelatable.model.annotation.AnnotationResult;
+import eu.odalic.extrarelatable.model.annotation.MultiGraphAnnotationResult;
 import eu.odalic.extrarelatable.model.graph.SearchResult;
 import eu.odalic.extrarelatable.model.table.Metadata;
 import eu.odalic.extrarelatable.model.table.ParsedTable;
@@ -150,6 +153,40 @@ public interface GraphService {
 	AnnotationResult annotate(String graphName, ParsedTable table, boolean contextCollected,
 			boolean onlyDeclaredAsContext, Set<? extends String> usedBases, String primaryBase) throws IOException;
 
+	/**
+	 * Annotates the parsed table within the budget of the matching, as
+	 * {@link #annotate(String, ParsedTable, boolean, boolean, Set, String)}. When
+	 * the budget runs out, the annotations are based on the best matches found
+	 * until then and the result is marked as partial.
+	 * 
+	 * @param graphName
+	 *            name of the graph
+	 * @param table
+	 *            parsed table
+	 * @param contextCollected
+	 *            indicates whether to collect context from associated Odalic
+	 *            instance to annotate the table, if false, then the context
+	 *            provided as part of the table meta-data is taken into account
+	 *            instead (unless turned off by setting
+	 *            {@code onlyDeclaredAsContext} to {@code true})
+	 * @param onlyDeclaredAsContext
+	 *            indicates whether to use only the declared context classes and
+	 *            properties from the table meta-data, not the collected one
+	 * @param usedBases
+	 *            identifiers of known linked data knowledge bases within the
+	 *            associated Odalic instance
+	 * @param primaryBase
+	 *            name of one of the used bases, which takes precedence
+	 * @param budget
+	 *            the budget of the matching
+	 * @return result of the processing of the table by ERT
+	 * @throws IOException
+	 *             whenever I/O exception occurs
+	 */
+	AnnotationResult annotate(String graphName, ParsedTable table, boolean contextCollected,
+			boolean onlyDeclaredAsContext, Set<? extends String> usedBases, String primaryBase, MatchingBudget budget)
+			throws IOException;
+
 	/**
 	 * Annotates the table provided as CSV input stream after parsing it according
 	 * to the provided format. Depending on the setting of the boolean flags it
@@ -187,6 +224,178 @@ public interface GraphService {
 			boolean contextCollected, boolean onlyDeclaredAsContext, Set<? extends String> usedBases,
 			String primaryBase) throws IOException;
 
+	/**
+	 * Annotates the table provided as CSV input stream within the budget of the
+	 * matching, as
+	 * {@link #annotate(String, InputStream, Format, Metadata, boolean, boolean, Set, String)}.
+	 * When the budget runs out, the annotations are based on the best matches
+	 * found until then and the result is marked as partial.
+	 * 
+	 * @param graphName
+	 *            name of the graph
+	 * @param input
+	 *            input stream used as the source of the CSV data to parse
+	 * @param format
+	 *            format of the CSV file to parse the input stream with
+	 * @param metadata
+	 *            meta-data accompanying the table
+	 * @param contextCollected
+	 *            indicates whether to collect context from associated Odalic
+	 *            instance to annotate the table, if false, then the context
+	 *            provided as part of the table meta-data is taken into account
+	 *            instead (unless turned off by setting
+	 *            {@code onlyDeclaredAsContext} to {@code true})
+	 * @param onlyDeclaredAsContext
+	 *            indicates whether to use only the declared context classes and
+	 *            properties from the table meta-data, not the collected one
+	 * @param usedBases
+	 *            identifiers of known linked data knowledge bases within the
+	 *            associated Odalic instance
+	 * @param primaryBase
+	 *            name of one of the used bases, which takes precedence
+	 * @param budget
+	 *            the budget of the matching
+	 * @return result of the processing of the table by ERT
+	 * @throws IOException
+	 *             whenever I/O exception occurs
+	 */
+	AnnotationResult annotate(String graphName, InputStream input, Format format, Metadata metadata,
+			boolean contextCollected, boolean onlyDeclaredAsContext, Set<? extends String> usedBases,
+			String primaryBase, MatchingBudget budget) throws IOException;
+
+	/**
+	 * Annotates the parsed table against several graphs at once, within the
+	 * budget of the matching of all of them. The table is processed just once,
+	 * as in {@link #annotate(String, ParsedTable, boolean, boolean, Set, String)},
+	 * and then matched against the graphs concurrently. The result contains the
+	 * annotations based on each of the graphs and on the best matches from all of
+	 * them merged.
+	 * 
+	 * @param graphNames
+	 *            names of the graphs
+	 * @param table
+	 *            parsed table
+	 * @param contextCollected
+	 *            indicates whether to collect context from associated Odalic
+	 *            instance to annotate the table, if false, then the context
+	 *            provided as part of the table meta-data is taken into account
+	 *            instead (unless turned off by setting
+	 *            {@code onlyDeclaredAsContext} to {@code true})
+	 * @param onlyDeclaredAsContext
+	 *            indicates whether to use only the declared context classes and
+	 *            properties from the table meta-data, not the collected one
+	 * @param usedBases
+	 *            identifiers of known linked data knowledge bases within the
+	 *            associated Odalic instance
+	 * @param primaryBase
+	 *            name of one of the used bases, which takes precedence
+	 * @param budget
+	 *            the budget of the matching
+	 * @return result of the processing of the table by ERT
+	 * @throws IOException
+	 *             whenever I/O exception occurs
+	 */
+	MultiGraphAnnotationResult annotate(Set<? extends String> graphNames, ParsedTable table,
+			boolean contextCollected, boolean onlyDeclaredAsContext, Set<? extends String> usedBases,
+			String primaryBase, MatchingBudget budget) throws IOException;
+
+	/**
+	 * Annotates the parsed table, as
+	 * {@link #annotate(String, ParsedTable, boolean, boolean, Set, String)}, and
+	 * registers the annotation as a standing one. Whenever the graph learns, the
+	 * standing annotations of its tables are brought up to date by matching
+	 * their columns just against the newly learned nodes. The update takes place
+	 * in the background, after the learned graph is persisted.
+	 * 
+	 * @param graphName
+	 *            name of the graph
+	 * @param table
+	 *            parsed table
+	 * @param contextCollected
+	 *            indicates whether to collect context from associated Odalic
+	 *            instance to annotate the table, if false, then the context
+	 *            provided as part of the table meta-data is taken into account
+	 *            instead (unless turned off by setting
+	 *            {@code onlyDeclaredAsContext} to {@code true})
+	 * @param onlyDeclaredAsContext
+	 *            indicates whether to use only the declared context classes and
+	 *            properties from the table meta-data, not the collected one
+	 * @param usedBases
+	 *            identifiers of known linked data knowledge bases within the
+	 *            associated Odalic instance
+	 * @param primaryBase
+	 *            name of one of the used bases, which takes precedence
+	 * @return identifier of the registered standing annotation
+	 * @throws IOException
+	 *             whenever I/O exception occurs
+	 */
+	UUID annotateStanding(String graphName, ParsedTable table, boolean contextCollected,
+			boolean onlyDeclaredAsContext, Set<? extends String> usedBases, String primaryBase) throws IOException;
+
+	/**
+	 * Provides the current result of the standing annotation.
+	 * 
+	 * @param graphName
+	 *            name of the graph
+	 * @param id
+	 *            identifier of the standing annotation
+	 * @return result of the processing of the table by ERT, up to date with the
+	 *         graph as of the last finished update
+	 */
+	AnnotationResult getStandingAnnotation(String graphName, UUID id);
+
+	/**
+	 * Unregisters the standing annotation, so that it is no longer kept up to
+	 * date.
+	 * 
+	 * @param graphName
+	 *            name of the graph
+	 * @param id
+	 *            identifier of the standing annotation
+	 */
+	void deleteStandingAnnotation(String graphName, UUID id);
+
+	/**
+	 * Annotates the table provided as CSV input stream against several graphs at
+	 * once, within the budget of the matching of all of them. The table is
+	 * processed just once, as in
+	 * {@link #annotate(String, InputStream, Format, Metadata, boolean, boolean, Set, String)},
+	 * and then matched against the graphs concurrently. The result contains the
+	 * annotations based on each of the graphs and on the best matches from all of
+	 * them merged.
+	 * 
+	 * @param graphNames
+	 *            names of the graphs
+	 * @param input
+	 *            input stream used as the source of the CSV data to parse
+	 * @param format
+	 *            format of the CSV file to parse the input stream with
+	 * @param metadata
+	 *            meta-data accompanying the table
+	 * @param contextCollected
+	 *            indicates whether to collect context from associated Odalic
+	 *            instance to annotate the table, if false, then the context
+	 *            provided as part of the table meta-data is taken into account
+	 *            instead (unless turned off by setting
+	 *            {@code onlyDeclaredAsContext} to {@code true})
+	 * @param onlyDeclaredAsContext
+	 *            indicates whether to use only the declared context classes and
+	 *            properties from the table meta-data, not the collected one
+	 * @param usedBases
+	 *            identifiers of known linked data knowledge bases within the
+	 *            associated Odalic instance
+	 * @param primaryBase
+	 *            name of one of the used bases, which takes precedence
+	 * @param budget
+	 *            the budget of the matching
+	 * @return result of the processing of the table by ERT
+	 * @throws IOException
+	 *             whenever I/O exception occurs
+	 */
+	MultiGraphAnnotationResult annotate(Set<? extends String> graphNames, InputStream input, Format format,
+			Metadata metadata, boolean contextCollected, boolean onlyDeclaredAsContext,
+			Set<? extends String> usedBases, String primaryBase, MatchingBudget budget) throws IOException;
+
 	/**
 	 * Searches for contained properties that match the pattern. For now only
 	 * matching of the URI is supported.
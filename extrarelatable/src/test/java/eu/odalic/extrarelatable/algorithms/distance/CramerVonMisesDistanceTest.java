@@ -0,0 +1,96 @@
+/**
+ * 
+ */
+package eu.odalic.extrarelatable.algorithms.distance;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+
+/**
+ * Unit tests for {@link CramerVonMisesDistance}.
+ * 
+ * @author Václav Brodec
+ *
+ */
+public class CramerVonMisesDistanceTest {
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.distance.CramerVonMisesDistance#compute(eu.odalic.extrarelatable.model.bag.SortedSample, eu.odalic.extrarelatable.model.bag.SortedSample)}.
+	 */
+	@Test
+	public final void testComputeSortedSampleSortedSampleMatchesReference() {
+		final CramerVonMisesDistance distance = new CramerVonMisesDistance();
+		final Random random = new Random(42);
+
+		for (int i = 0; i < 200; i++) {
+			final double[] first = randomValues(random, 2 + random.nextInt(50));
+			final double[] second = randomValues(random, 2 + random.nextInt(50));
+
+			assertEquals(reference(first, second), distance.compute(SortedSample.of(first), SortedSample.of(second)),
+					1e-12);
+			assertEquals(reference(first, second), distance.compute(first, second), 1e-12);
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.distance.CramerVonMisesDistance#compute(double[], double[])}.
+	 */
+	@Test
+	public final void testComputeIdenticalAndDisjoint() {
+		final CramerVonMisesDistance distance = new CramerVonMisesDistance();
+
+		assertEquals(0, distance.compute(new double[] { 1, 2, 3 }, new double[] { 3, 2, 1 }), 0);
+		assertEquals(0.5, distance.compute(new double[] { 0, 0 }, new double[] { 10, 10 }), 0);
+	}
+
+	/**
+	 * Averages the squared difference of the empirical distribution functions
+	 * over all the pooled values.
+	 */
+	private static double reference(final double[] first, final double[] second) {
+		final double[] pooled = pool(first, second);
+
+		double sum = 0;
+		for (final double value : pooled) {
+			final double difference = cdf(first, value) - cdf(second, value);
+			sum += difference * difference;
+		}
+
+		return sum / pooled.length;
+	}
+
+	private static double[] randomValues(final Random random, final int size) {
+		final double[] values = new double[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = random.nextInt(20) * (1 + random.nextInt(3));
+		}
+
+		return values;
+	}
+
+	private static double[] pool(final double[] first, final double[] second) {
+		final double[] pooled = new double[first.length + second.length];
+		System.arraycopy(first, 0, pooled, 0, first.length);
+		System.arraycopy(second, 0, pooled, first.length, second.length);
+
+		return pooled;
+	}
+
+	private static double cdf(final double[] values, final double value) {
+		int count = 0;
+		for (final double e : values) {
+			if (e <= value) {
+				count++;
+			}
+		}
+
+		return count / ((double) values.length);
+	}
+}
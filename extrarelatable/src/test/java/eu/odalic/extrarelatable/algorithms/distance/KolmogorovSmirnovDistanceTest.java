@@ -0,0 +1,148 @@
+/**
+ * 
+ */
+package eu.odalic.extrarelatable.algorithms.distance;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.math3.stat.inference.KolmogorovSmirnovTest;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import eu.odalic.extrarelatable.model.bag.QuantileEnvelope;
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+
+/**
+ * Unit tests for {@link KolmogorovSmirnovDistance}.
+ * 
+ * @author Václav Brodec
+ *
+ */
+public class KolmogorovSmirnovDistanceTest {
+
+	private static final KolmogorovSmirnovTest REFERENCE = new KolmogorovSmirnovTest();
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance#compute(eu.odalic.extrarelatable.model.bag.SortedSample, eu.odalic.extrarelatable.model.bag.SortedSample)}.
+	 */
+	@Test
+	public final void testComputeSortedSampleSortedSampleMatchesReference() {
+		final KolmogorovSmirnovDistance distance = new KolmogorovSmirnovDistance();
+		final Random random = new Random(42);
+
+		for (int i = 0; i < 200; i++) {
+			final double[] first = randomValues(random, 2 + random.nextInt(50));
+			final double[] second = randomValues(random, 2 + random.nextInt(50));
+
+			assertEquals(REFERENCE.kolmogorovSmirnovStatistic(first, second),
+					distance.compute(SortedSample.of(first), SortedSample.of(second)), 0);
+			assertEquals(REFERENCE.kolmogorovSmirnovStatistic(first, second), distance.compute(first, second), 0);
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance#compute(double[], double[])}.
+	 */
+	@Test
+	public final void testComputeDisjoint() {
+		final KolmogorovSmirnovDistance distance = new KolmogorovSmirnovDistance();
+
+		assertEquals(1, distance.compute(new double[] { 1, 2, 3 }, new double[] { 1990, 2000 }), 0);
+		assertEquals(0, distance.compute(new double[] { 1, 2, 2 }, new double[] { 2, 1, 2 }), 0);
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance#lowerBound(eu.odalic.extrarelatable.model.bag.SortedSample, eu.odalic.extrarelatable.model.bag.SortedSample)}.
+	 */
+	@Test
+	public final void testLowerBoundNeverExceedsDistance() {
+		final KolmogorovSmirnovDistance distance = new KolmogorovSmirnovDistance();
+		final Random random = new Random(7);
+
+		for (int i = 0; i < 500; i++) {
+			final SortedSample first = SortedSample.of(randomValues(random, 2 + random.nextInt(80)));
+			final SortedSample second = SortedSample.of(randomValues(random, 2 + random.nextInt(80)));
+
+			final double bound = distance.lowerBound(first, second);
+			assertTrue(bound >= 0);
+			assertTrue(bound <= distance.compute(first, second));
+		}
+
+		final SortedSample low = SortedSample.of(new double[] { 1, 2, 3 });
+		final SortedSample high = SortedSample.of(new double[] { 1990, 2000 });
+		assertEquals(1, distance.lowerBound(low, high), 0);
+		assertEquals(1, distance.lowerBound(high, low), 0);
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance#lowerBound(eu.odalic.extrarelatable.model.bag.SortedSample, double, double)}.
+	 */
+	@Test
+	public final void testRangeLowerBoundNeverExceedsDistance() {
+		final KolmogorovSmirnovDistance distance = new KolmogorovSmirnovDistance();
+		final Random random = new Random(11);
+
+		for (int i = 0; i < 500; i++) {
+			final SortedSample first = SortedSample.of(randomValues(random, 2 + random.nextInt(80)));
+			final SortedSample second = SortedSample.of(randomValues(random, 2 + random.nextInt(80)));
+
+			final double minimum = second.getMinimum() - random.nextInt(3);
+			final double maximum = second.getMaximum() + random.nextInt(3);
+
+			final double bound = distance.lowerBound(first, minimum, maximum);
+			assertTrue(bound >= 0);
+			assertTrue(bound <= distance.compute(first, second));
+		}
+
+		final SortedSample low = SortedSample.of(new double[] { 1, 2, 3 });
+		assertEquals(1, distance.lowerBound(low, 1990, 2000), 0);
+		assertEquals(0, distance.lowerBound(low, 1, 3), 0);
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance#lowerBound(eu.odalic.extrarelatable.model.bag.SortedSample, eu.odalic.extrarelatable.model.bag.QuantileEnvelope)}.
+	 */
+	@Test
+	public final void testEnvelopeLowerBoundNeverExceedsDistance() {
+		final KolmogorovSmirnovDistance distance = new KolmogorovSmirnovDistance();
+		final Random random = new Random(13);
+
+		for (int i = 0; i < 200; i++) {
+			final SortedSample first = SortedSample.of(randomValues(random, 2 + random.nextInt(80)));
+			final List<SortedSample> enveloped = new ArrayList<>();
+			for (int j = 0; j < 1 + random.nextInt(5); j++) {
+				enveloped.add(SortedSample.of(randomValues(random, 2 + random.nextInt(80))));
+			}
+
+			final QuantileEnvelope envelope = QuantileEnvelope.empty().including(enveloped);
+			final double bound = distance.lowerBound(first, envelope);
+			assertTrue(bound >= 0);
+			for (final SortedSample second : enveloped) {
+				assertTrue(bound <= distance.compute(first, second));
+			}
+		}
+
+		final SortedSample low = SortedSample.of(new double[] { 1, 2, 3 });
+		final SortedSample high = SortedSample.of(new double[] { 1990, 2000 });
+		assertEquals(1, distance.lowerBound(low, QuantileEnvelope.empty().including(ImmutableList.of(high))), 0);
+	}
+
+	private static double[] randomValues(final Random random, final int size) {
+		final double[] values = new double[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = random.nextInt(20);
+		}
+
+		return values;
+	}
+}
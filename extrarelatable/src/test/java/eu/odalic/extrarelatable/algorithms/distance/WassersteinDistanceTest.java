@@ -0,0 +1,121 @@
+/**
+ * 
+ */
+package eu.odalic.extrarelatable.algorithms.distance;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+
+/**
+ * Unit tests for {@link WassersteinDistance}.
+ * 
+ * @author Václav Brodec
+ *
+ */
+public class WassersteinDistanceTest {
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.distance.WassersteinDistance#compute(eu.odalic.extrarelatable.model.bag.SortedSample, eu.odalic.extrarelatable.model.bag.SortedSample)}.
+	 */
+	@Test
+	public final void testComputeSortedSampleSortedSampleMatchesReference() {
+		final WassersteinDistance distance = new WassersteinDistance();
+		final Random random = new Random(42);
+
+		for (int i = 0; i < 200; i++) {
+			final double[] first = randomValues(random, 2 + random.nextInt(50));
+			final double[] second = randomValues(random, 2 + random.nextInt(50));
+
+			assertEquals(reference(first, second), distance.compute(SortedSample.of(first), SortedSample.of(second)),
+					1e-12);
+			assertEquals(reference(first, second), distance.compute(first, second), 1e-12);
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.distance.WassersteinDistance#compute(double[], double[])}.
+	 */
+	@Test
+	public final void testComputeDisjoint() {
+		final WassersteinDistance distance = new WassersteinDistance();
+
+		assertEquals(1, distance.compute(new double[] { 0, 0 }, new double[] { 10, 10 }), 0);
+		assertEquals(0, distance.compute(new double[] { 1, 2, 3 }, new double[] { 3, 2, 1 }), 0);
+		assertEquals(0.5, distance.compute(new double[] { 0, 10 }, new double[] { 10, 10 }), 0);
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.distance.WassersteinDistance#lowerBound(eu.odalic.extrarelatable.model.bag.SortedSample, eu.odalic.extrarelatable.model.bag.SortedSample)}
+	 * and
+	 * {@link eu.odalic.extrarelatable.algorithms.distance.WassersteinDistance#lowerBound(eu.odalic.extrarelatable.model.bag.SortedSample, double, double)}.
+	 */
+	@Test
+	public final void testLowerBoundsNeverExceedDistance() {
+		final WassersteinDistance distance = new WassersteinDistance();
+		final Random random = new Random(7);
+
+		for (int i = 0; i < 1000; i++) {
+			final SortedSample first = SortedSample.of(randomValues(random, 2 + random.nextInt(30)));
+			final SortedSample second = SortedSample.of(randomValues(random, 2 + random.nextInt(30)));
+			final double computed = distance.compute(first, second);
+
+			assertTrue(distance.lowerBound(first, second) <= computed);
+			assertTrue(distance.lowerBound(first, second.getMinimum(), second.getMaximum()) <= computed);
+			assertTrue(distance.lowerBound(first, second.getMinimum() - random.nextInt(5),
+					second.getMaximum() + random.nextInt(5)) <= computed);
+		}
+	}
+
+	/**
+	 * Integrates the absolute difference of the empirical distribution functions
+	 * over the unit steps between the sorted pooled values.
+	 */
+	private static double reference(final double[] first, final double[] second) {
+		final double[] pooled = new double[first.length + second.length];
+		System.arraycopy(first, 0, pooled, 0, first.length);
+		System.arraycopy(second, 0, pooled, first.length, second.length);
+		Arrays.sort(pooled);
+
+		final double range = pooled[pooled.length - 1] - pooled[0];
+		if (range == 0) {
+			return 0;
+		}
+
+		double area = 0;
+		for (int i = 0; i < pooled.length - 1; i++) {
+			final double value = pooled[i];
+			area += Math.abs(cdf(first, value) - cdf(second, value)) * (pooled[i + 1] - value);
+		}
+
+		return area / range;
+	}
+
+	private static double cdf(final double[] values, final double value) {
+		int count = 0;
+		for (final double e : values) {
+			if (e <= value) {
+				count++;
+			}
+		}
+
+		return count / ((double) values.length);
+	}
+
+	private static double[] randomValues(final Random random, final int size) {
+		final double[] values = new double[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = random.nextInt(20) * (1 + random.nextInt(3));
+		}
+
+		return values;
+	}
+}
@@ -0,0 +1,266 @@
+/**
+ *
+ */
+package eu.odalic.extrarelatable.algorithms.graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance;
+import eu.odalic.extrarelatable.algorithms.graph.aggregation.MajorityVoteResultAggregator;
+import eu.odalic.extrarelatable.algorithms.graph.matching.ContextAwareDistanceTopKNodesMatcher;
+import eu.odalic.extrarelatable.algorithms.graph.matching.MatchingBudget;
+import eu.odalic.extrarelatable.algorithms.subcontext.DefaultSubcontextCompiler;
+import eu.odalic.extrarelatable.algorithms.subcontext.DistanceSubcontextMatcher;
+import eu.odalic.extrarelatable.model.annotation.Annotation;
+import eu.odalic.extrarelatable.model.annotation.DefaultMeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.annotation.MultiGraphAnnotations;
+import eu.odalic.extrarelatable.model.annotation.Statistics;
+import eu.odalic.extrarelatable.model.bag.Label;
+import eu.odalic.extrarelatable.model.bag.NumericValue;
+import eu.odalic.extrarelatable.model.bag.TextValue;
+import eu.odalic.extrarelatable.model.bag.Value;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.Property;
+import eu.odalic.extrarelatable.model.graph.PropertyTree;
+import eu.odalic.extrarelatable.model.graph.PropertyUriLabelTextFallbackPropertyTreesMergingStrategy;
+import eu.odalic.extrarelatable.model.table.Metadata;
+import eu.odalic.extrarelatable.model.table.NestedListsSlicedTable;
+import eu.odalic.extrarelatable.model.table.NestedListsTypedTable;
+import eu.odalic.extrarelatable.model.table.SlicedTable;
+import eu.odalic.extrarelatable.util.DefaultUuidGenerator;
+import eu.odalic.extrarelatable.util.UuidGenerator;
+
+/**
+ * Unit tests for the annotation against several graphs at once by
+ * {@link DefaultAnnotator}.
+ *
+ * @author Václav Brodec
+ *
+ */
+public class DefaultAnnotatorTest {
+
+	private static final Set<Integer> NUMERIC_COLUMNS_INDICES = ImmutableSet.of(1, 2, 3);
+
+	private final Distance distance = new KolmogorovSmirnovDistance();
+	private final UuidGenerator uuidGenerator = new DefaultUuidGenerator();
+
+	private Random random;
+	private PropertyTreeBuilder propertyTreeBuilder;
+	private DefaultAnnotator annotator;
+
+	@Before
+	public void setUp() {
+		random = new Random(59);
+		propertyTreeBuilder = new DefaultPropertyTreeBuilder(new DefaultSubcontextCompiler(),
+				new DistanceSubcontextMatcher(distance), uuidGenerator, 0.01, 0.99, 0);
+		annotator = new DefaultAnnotator(propertyTreeBuilder,
+				new ContextAwareDistanceTopKNodesMatcher(distance, new DefaultMeasuredNodeFactory(uuidGenerator)),
+				distance, new MajorityVoteResultAggregator<>(), new MajorityVoteResultAggregator<>(),
+				new MajorityVoteResultAggregator<>(), 3, 2);
+	}
+
+	@After
+	public void tearDown() {
+		annotator.cleanUp();
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.DefaultAnnotator#annotate(List, SlicedTable, Map, Map, Map, Map, boolean, int, MatchingBudget)}
+	 * of the annotations based on each of the graphs.
+	 */
+	@Test
+	public final void testAnnotateOfSeveralGraphsEqualsSeparateAnnotations() {
+		final List<BackgroundKnowledgeGraph> graphs = ImmutableList.of(createGraph("first", 3),
+				createGraph("second", 3), createGraph("third", 2));
+		final SlicedTable table = createTable();
+
+		final MultiGraphAnnotations annotations = annotate(graphs, table, 3);
+
+		assertEquals(ImmutableSet.of("first", "second", "third"), annotations.getGraphsAnnotations().keySet());
+		for (final BackgroundKnowledgeGraph graph : graphs) {
+			assertAnnotationsEqual(annotate(graph, table, 3), annotations.getGraphsAnnotations().get(graph.getName()));
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.DefaultAnnotator#annotate(List, SlicedTable, Map, Map, Map, Map, boolean, int, MatchingBudget)}
+	 * of a single graph and of a graph along with a graph with nothing learned.
+	 */
+	@Test
+	public final void testMergedAnnotationsOfSingleGraphEqualAnnotations() {
+		final BackgroundKnowledgeGraph graph = createGraph("learned", 3);
+		final SlicedTable table = createTable();
+		final Map<Integer, Annotation> expected = annotate(graph, table, 3);
+		assertEquals(NUMERIC_COLUMNS_INDICES, expected.keySet());
+		expected.values().forEach(e -> assertFalse(e.getProperties().isEmpty()));
+
+		assertAnnotationsEqual(expected, annotate(ImmutableList.of(graph), table, 3).getMergedAnnotations());
+		assertAnnotationsEqual(expected,
+				annotate(ImmutableList.of(graph, createGraph("empty", 0)), table, 3).getMergedAnnotations());
+		assertAnnotationsEqual(expected,
+				annotate(ImmutableList.of(createGraph("empty", 0), graph), table, 3).getMergedAnnotations());
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.DefaultAnnotator#annotate(List, SlicedTable, Map, Map, Map, Map, boolean, int, MatchingBudget)}
+	 * of the merged annotations, which are not cut off by K.
+	 */
+	@Test
+	public final void testMergedAnnotationsRankPropertiesOfAllGraphs() {
+		final List<BackgroundKnowledgeGraph> graphs = ImmutableList.of(createGraph("first", 3),
+				createGraph("second", 3));
+		final SlicedTable table = createTable();
+
+		final MultiGraphAnnotations annotations = annotate(graphs, table, 1000);
+
+		for (final Integer columnIndex : NUMERIC_COLUMNS_INDICES) {
+			final Set<Property> expected = new HashSet<>();
+			for (final BackgroundKnowledgeGraph graph : graphs) {
+				expected.addAll(annotate(graph, table, 1000).get(columnIndex).getProperties());
+			}
+
+			final List<Property> merged = annotations.getMergedAnnotations().get(columnIndex).getProperties();
+			assertEquals(expected.size(), merged.size());
+			assertEquals(expected, ImmutableSet.copyOf(merged));
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.DefaultAnnotator#annotate(List, SlicedTable, Map, Map, Map, Map, boolean, int, MatchingBudget)}
+	 * of no graphs.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public final void testAnnotateOfNoGraphsFails() {
+		annotate(ImmutableList.of(), createTable(), 3);
+	}
+
+	/**
+	 * The averages of the distances are summed in the order of the matching
+	 * nodes, which are ordered by the identifiers generated anew by each
+	 * matching, so they are compared with a tolerance.
+	 */
+	private static void assertAnnotationsEqual(final Map<Integer, Annotation> expected,
+			final Map<Integer, Annotation> actual) {
+		assertEquals(expected.keySet(), actual.keySet());
+		for (final Integer columnIndex : expected.keySet()) {
+			final Annotation expectedAnnotation = expected.get(columnIndex);
+			final Annotation actualAnnotation = actual.get(columnIndex);
+
+			assertEquals(expectedAnnotation.getProperties(), actualAnnotation.getProperties());
+			assertEquals(expectedAnnotation.getLabels(), actualAnnotation.getLabels());
+			assertEquals(expectedAnnotation.getAttributeValuePairs(), actualAnnotation.getAttributeValuePairs());
+			assertStatisticsEqual(expectedAnnotation.getPropertiesStatistics(),
+					actualAnnotation.getPropertiesStatistics());
+			assertStatisticsEqual(expectedAnnotation.getLabelsStatistics(), actualAnnotation.getLabelsStatistics());
+			assertStatisticsEqual(expectedAnnotation.getPairsStatistics(), actualAnnotation.getPairsStatistics());
+			assertEquals(expectedAnnotation.getSamplingError(), actualAnnotation.getSamplingError(), 0);
+		}
+	}
+
+	private static <T> void assertStatisticsEqual(final Map<T, Statistics> expected,
+			final Map<T, Statistics> actual) {
+		assertEquals(expected.keySet(), actual.keySet());
+		for (final T element : expected.keySet()) {
+			final Statistics expectedStatistics = expected.get(element);
+			final Statistics actualStatistics = actual.get(element);
+
+			assertEquals(expectedStatistics.getAverage(), actualStatistics.getAverage(), 1e-12);
+			assertEquals(expectedStatistics.getMedian(), actualStatistics.getMedian());
+			assertEquals(expectedStatistics.getOccurence(), actualStatistics.getOccurence());
+			assertEquals(expectedStatistics.getRelativeOccurrence(), actualStatistics.getRelativeOccurrence());
+		}
+	}
+
+	private Map<Integer, Annotation> annotate(final BackgroundKnowledgeGraph graph, final SlicedTable table,
+			final int k) {
+		return annotator.annotate(graph, table, ImmutableMap.of(), ImmutableMap.of(), ImmutableMap.of(),
+				ImmutableMap.of(), false, k);
+	}
+
+	private MultiGraphAnnotations annotate(final List<BackgroundKnowledgeGraph> graphs, final SlicedTable table,
+			final int k) {
+		return annotator.annotate(graphs, table, ImmutableMap.of(), ImmutableMap.of(), ImmutableMap.of(),
+				ImmutableMap.of(), false, k, MatchingBudget.unlimited());
+	}
+
+	/**
+	 * Creates a graph smaller than the K of the matcher, so that all its nodes
+	 * are matched and the ties among them, broken by the identifiers generated
+	 * anew by each matching, cannot change the annotations between the calls.
+	 */
+	private BackgroundKnowledgeGraph createGraph(final String name, final int tablesCount) {
+		final BackgroundKnowledgeGraph graph = new BackgroundKnowledgeGraph(name,
+				new PropertyUriLabelTextFallbackPropertyTreesMergingStrategy(uuidGenerator));
+		int nodesCount = 0;
+		for (int index = 0; index < tablesCount; index++) {
+			final SlicedTable table = createTable();
+			for (final Integer columnIndex : NUMERIC_COLUMNS_INDICES) {
+				final PropertyTree propertyTree = propertyTreeBuilder.build(table, columnIndex);
+				nodesCount += Iterables.size(propertyTree);
+
+				graph.addPropertyTree(propertyTree);
+			}
+		}
+		assertTrue(nodesCount <= ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_K);
+
+		return graph;
+	}
+
+	/**
+	 * Creates a table of a textual column with a few repeated values, on which
+	 * the numeric columns of various scales and with labels shared across the
+	 * tables are partitioned.
+	 */
+	private SlicedTable createTable() {
+		final List<Label> headers = new ArrayList<>();
+		headers.add(createLabel("name", 0));
+		for (final Integer columnIndex : NUMERIC_COLUMNS_INDICES) {
+			headers.add(createLabel("column" + random.nextInt(5), columnIndex));
+		}
+
+		final double[] scales = new double[NUMERIC_COLUMNS_INDICES.size()];
+		for (int index = 0; index < scales.length; index++) {
+			scales[index] = Math.pow(10, random.nextInt(4));
+		}
+
+		final List<List<Value>> rows = new ArrayList<>();
+		final int height = 10 + random.nextInt(20);
+		for (int rowIndex = 0; rowIndex < height; rowIndex++) {
+			final List<Value> row = new ArrayList<>();
+			row.add(TextValue.of("group" + random.nextInt(3)));
+			for (final double scale : scales) {
+				row.add(NumericValue.of(Math.floor(random.nextGaussian() * scale * 10) / 10));
+			}
+			rows.add(row);
+		}
+
+		return NestedListsSlicedTable.of(NestedListsTypedTable.fromRows(headers, rows, new Metadata()),
+				NUMERIC_COLUMNS_INDICES, ImmutableSet.of(0));
+	}
+
+	private Label createLabel(final String text, final int index) {
+		return Label.of(uuidGenerator.generate(), text, null, false, index, "file", ImmutableList.of(),
+				ImmutableList.of(), ImmutableList.of());
+	}
+}
@@ -0,0 +1,113 @@
+/**
+ *
+ */
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static eu.odalic.extrarelatable.algorithms.graph.matching.RandomGraphs.getDistances;
+import static eu.odalic.extrarelatable.algorithms.graph.matching.RandomGraphs.getRecall;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.SortedSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance;
+import eu.odalic.extrarelatable.model.annotation.DefaultMeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.bag.HeapSortedSampleStoreFactory;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+import eu.odalic.extrarelatable.util.DefaultUuidGenerator;
+
+/**
+ * Unit tests for {@link ApproximateTopKNodesMatcher}, which check that its
+ * recall does not drop below a floor and that the excluded graphs are matched
+ * exactly.
+ *
+ * @author Václav Brodec
+ *
+ */
+public class ApproximateTopKNodesMatcherTest {
+
+	private static final double[][] WEIGHTS = { { 0.5, 0.25, 0.25 }, { 1, 0, 0 } };
+
+	private static final double RECALL_FLOOR = 0.9;
+
+	private final MeasuredNodeFactory measuredNodeFactory = new DefaultMeasuredNodeFactory(new DefaultUuidGenerator());
+	private final Distance distance = new KolmogorovSmirnovDistance();
+
+	private RandomGraphs graphs;
+	private ApproximateTopKNodesMatcher matcher;
+
+	@Before
+	public void setUp() {
+		graphs = new RandomGraphs(distance, 17);
+		matcher = new ApproximateTopKNodesMatcher(distance, measuredNodeFactory);
+	}
+
+	@After
+	public void tearDown() {
+		matcher.cleanUp();
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.ApproximateTopKNodesMatcher#matchAll(BackgroundKnowledgeGraph, List, double, double, double, int)}.
+	 */
+	@Test
+	public final void testMatchAllRecallIsAboveFloor() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(120);
+		final List<Node> queries = graphs.createQueries(6);
+
+		for (final double[] weights : WEIGHTS) {
+			final List<SortedSet<MeasuredNode>> results = matcher.matchAll(graph, queries, weights[0], weights[1],
+					weights[2], 10);
+
+			double summedRecall = 0;
+			for (int index = 0; index < queries.size(); index++) {
+				final double[] expected = graphs.scan(graph, queries.get(index), weights, 10);
+				final double[] actual = getDistances(results.get(index));
+
+				assertEquals(expected.length, actual.length);
+				for (int rank = 0; rank < expected.length; rank++) {
+					// The shortlisted nodes are re-ranked by the exact distance.
+					assertTrue(actual[rank] >= expected[rank]);
+				}
+
+				summedRecall += getRecall(expected, results.get(index));
+			}
+
+			assertTrue(summedRecall / queries.size() >= RECALL_FLOOR);
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.ApproximateTopKNodesMatcher#match(BackgroundKnowledgeGraph, Node, double, double, double, int)}
+	 * of a graph not configured for the approximation.
+	 */
+	@Test
+	public final void testMatchOfExcludedGraphEqualsFullScan() {
+		final ApproximateTopKNodesMatcher excludingMatcher = new ApproximateTopKNodesMatcher(distance,
+				measuredNodeFactory, new MatchingSnapshots(new HeapSortedSampleStoreFactory(), new ContextDictionaries()),
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_VALUES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_PROPERTIES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_CLASSES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_K, 2, 1, "other", 0);
+		try {
+			final BackgroundKnowledgeGraph graph = graphs.createGraph(60);
+
+			for (final Node query : graphs.createQueries(3)) {
+				assertArrayEquals(graphs.scan(graph, query, WEIGHTS[1], 10),
+						getDistances(excludingMatcher.match(graph, query, 1, 0, 0, 10)), 0);
+			}
+		} finally {
+			excludingMatcher.cleanUp();
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/**
+ *
+ */
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static eu.odalic.extrarelatable.algorithms.graph.matching.RandomGraphs.getDistances;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.SortedSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance;
+import eu.odalic.extrarelatable.model.annotation.DefaultMeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+import eu.odalic.extrarelatable.util.DefaultUuidGenerator;
+
+/**
+ * Unit tests for {@link CachingTopKNodesMatcher}.
+ *
+ * @author Václav Brodec
+ *
+ */
+public class CachingTopKNodesMatcherTest {
+
+	private static final double[] WEIGHTS = { 0.5, 0.25, 0.25 };
+
+	private final Distance distance = new KolmogorovSmirnovDistance();
+
+	private RandomGraphs graphs;
+	private CachingTopKNodesMatcher matcher;
+
+	@Before
+	public void setUp() {
+		graphs = new RandomGraphs(distance, 41);
+		matcher = new CachingTopKNodesMatcher(distance, new DefaultMeasuredNodeFactory(new DefaultUuidGenerator()));
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.CachingTopKNodesMatcher#matchAll(BackgroundKnowledgeGraph, List, double, double, double, int)}
+	 * repeated for the same graph.
+	 */
+	@Test
+	public final void testRepeatedMatchingHitsCache() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(60);
+		final List<Node> queries = graphs.createQueries(3);
+
+		assertEqualsFullScan(graph, queries, matchAll(graph, queries, 5));
+		assertEquals(0, matcher.getHitsCount());
+
+		assertEqualsFullScan(graph, queries, matchAll(graph, queries, 5));
+		assertEquals(queries.size(), matcher.getHitsCount());
+
+		// A different K is a different query.
+		final long missesCount = matcher.getMissesCount();
+		matchAll(graph, queries, 6);
+		assertEquals(missesCount + queries.size(), matcher.getMissesCount());
+		assertEquals(queries.size(), matcher.getHitsCount());
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.CachingTopKNodesMatcher#matchAll(BackgroundKnowledgeGraph, List, double, double, double, int)}
+	 * repeated after the graph grows.
+	 */
+	@Test
+	public final void testMatchingAfterGrowthPatchesCachedResults() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(60);
+		final List<Node> queries = graphs.createQueries(3);
+
+		matchAll(graph, queries, 5);
+		for (int round = 1; round <= 2; round++) {
+			graphs.grow(graph, 30);
+
+			assertEqualsFullScan(graph, queries, matchAll(graph, queries, 5));
+			assertEquals(round * queries.size(), matcher.getPatchesCount());
+			assertEquals(queries.size(), matcher.getMissesCount());
+		}
+	}
+
+	private List<SortedSet<MeasuredNode>> matchAll(final BackgroundKnowledgeGraph graph, final List<Node> queries,
+			final int k) {
+		return matcher.matchAll(graph, queries, WEIGHTS[0], WEIGHTS[1], WEIGHTS[2], k);
+	}
+
+	private void assertEqualsFullScan(final BackgroundKnowledgeGraph graph, final List<Node> queries,
+			final List<SortedSet<MeasuredNode>> results) {
+		for (int index = 0; index < queries.size(); index++) {
+			assertArrayEquals(graphs.scan(graph, queries.get(index), WEIGHTS, 5), getDistances(results.get(index)),
+					0);
+		}
+	}
+}
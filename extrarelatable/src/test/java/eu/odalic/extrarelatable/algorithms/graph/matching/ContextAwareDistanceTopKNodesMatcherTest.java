@@ -0,0 +1,91 @@
+/**
+ *
+ */
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static eu.odalic.extrarelatable.algorithms.graph.matching.RandomGraphs.getDistances;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance;
+import eu.odalic.extrarelatable.model.annotation.DefaultMeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.Property;
+import eu.odalic.extrarelatable.model.graph.PropertyTree;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+import eu.odalic.extrarelatable.util.DefaultUuidGenerator;
+
+/**
+ * Unit tests for {@link ContextAwareDistanceTopKNodesMatcher}.
+ *
+ * @author Václav Brodec
+ *
+ */
+public class ContextAwareDistanceTopKNodesMatcherTest {
+
+	private final Distance distance = new KolmogorovSmirnovDistance();
+
+	private RandomGraphs graphs;
+	private ContextAwareDistanceTopKNodesMatcher matcher;
+
+	@Before
+	public void setUp() {
+		graphs = new RandomGraphs(distance, 19);
+		matcher = new ContextAwareDistanceTopKNodesMatcher(distance,
+				new DefaultMeasuredNodeFactory(new DefaultUuidGenerator()));
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.ContextAwareDistanceTopKNodesMatcher#matchAll(BackgroundKnowledgeGraph, List, double, double, double, int)}.
+	 */
+	@Test
+	public final void testMatchAllEqualsSeparateMatches() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(80);
+
+		// Nodes of the graph itself and repeated nodes are matched too.
+		final List<Node> queries = new ArrayList<>(graphs.createQueries(5));
+		for (final Property property : graph) {
+			for (final PropertyTree propertyTree : property) {
+				propertyTree.forEach(queries::add);
+				break;
+			}
+		}
+		queries.addAll(queries.subList(0, 3));
+
+		for (final int k : new int[] { 1, 7, 1000 }) {
+			final List<SortedSet<MeasuredNode>> results = matcher.matchAll(graph, queries, 0.5, 0.25, 0.25, k);
+
+			assertEquals(queries.size(), results.size());
+			for (int index = 0; index < queries.size(); index++) {
+				final double[] expected = graphs.scan(graph, queries.get(index), new double[] { 0.5, 0.25, 0.25 },
+						k);
+
+				assertArrayEquals(expected, getDistances(results.get(index)), 0);
+				assertArrayEquals(expected,
+						getDistances(matcher.match(graph, queries.get(index), 0.5, 0.25, 0.25, k)), 0);
+			}
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.ContextAwareDistanceTopKNodesMatcher#matchAll(BackgroundKnowledgeGraph, List, double, double, double, int)}
+	 * of no nodes.
+	 */
+	@Test
+	public final void testMatchAllOfNoNodesIsEmpty() {
+		assertEquals(ImmutableList.of(),
+				matcher.matchAll(graphs.createGraph(10), ImmutableList.of(), 0.5, 0.25, 0.25, 5));
+	}
+}
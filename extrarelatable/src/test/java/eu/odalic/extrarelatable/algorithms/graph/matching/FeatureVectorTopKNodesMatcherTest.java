@@ -0,0 +1,91 @@
+/**
+ *
+ */
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static eu.odalic.extrarelatable.algorithms.graph.matching.RandomGraphs.getDistances;
+import static eu.odalic.extrarelatable.algorithms.graph.matching.RandomGraphs.getRecall;
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance;
+import eu.odalic.extrarelatable.model.annotation.DefaultMeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+import eu.odalic.extrarelatable.util.DefaultUuidGenerator;
+
+/**
+ * Unit tests for {@link FeatureVectorTopKNodesMatcher}, which check that its
+ * recall does not drop below a floor, also as the graph grows, and that the
+ * queries not concerning the values are matched exactly.
+ *
+ * @author Václav Brodec
+ *
+ */
+public class FeatureVectorTopKNodesMatcherTest {
+
+	private static final double[][] WEIGHTS = { { 0.5, 0.25, 0.25 }, { 1, 0, 0 } };
+
+	/**
+	 * The features are a much coarser description of the values than the
+	 * quantile sketches, so the floor is lower than that of the
+	 * {@link ApproximateTopKNodesMatcher}.
+	 */
+	private static final double RECALL_FLOOR = 0.5;
+
+	private final Distance distance = new KolmogorovSmirnovDistance();
+
+	private RandomGraphs graphs;
+	private FeatureVectorTopKNodesMatcher matcher;
+
+	@Before
+	public void setUp() {
+		graphs = new RandomGraphs(distance, 31);
+		matcher = new FeatureVectorTopKNodesMatcher(distance,
+				new DefaultMeasuredNodeFactory(new DefaultUuidGenerator()));
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.FeatureVectorTopKNodesMatcher#match(BackgroundKnowledgeGraph, Node, double, double, double, int)}.
+	 */
+	@Test
+	public final void testMatchRecallIsAboveFloorAsGraphGrows() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(100);
+		final List<Node> queries = graphs.createQueries(6);
+
+		for (int round = 0; round < 2; round++) {
+			for (final double[] weights : WEIGHTS) {
+				double summedRecall = 0;
+				for (final Node query : queries) {
+					summedRecall += getRecall(graphs.scan(graph, query, weights, 5),
+							matcher.match(graph, query, weights[0], weights[1], weights[2], 5));
+				}
+
+				assertTrue("round " + round, summedRecall / queries.size() >= RECALL_FLOOR);
+			}
+
+			graphs.grow(graph, 100);
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.FeatureVectorTopKNodesMatcher#match(BackgroundKnowledgeGraph, Node, double, double, double, int)}
+	 * of the context only.
+	 */
+	@Test
+	public final void testMatchOfContextOnlyEqualsFullScan() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(100);
+
+		for (final Node query : graphs.createQueries(3)) {
+			assertArrayEquals(graphs.scan(graph, query, new double[] { 0, 1, 1 }, 5),
+					getDistances(matcher.match(graph, query, 0, 1, 1, 5)), 0);
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/**
+ *
+ */
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static eu.odalic.extrarelatable.algorithms.graph.matching.RandomGraphs.getDistances;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance;
+import eu.odalic.extrarelatable.model.annotation.DefaultMeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.bag.NumberLikeValue;
+import eu.odalic.extrarelatable.model.bag.NumericValue;
+import eu.odalic.extrarelatable.model.bag.SortedSample;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.Property;
+import eu.odalic.extrarelatable.model.graph.PropertyTree;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+import eu.odalic.extrarelatable.util.DefaultUuidGenerator;
+
+/**
+ * Unit tests for {@link MagnitudeIndexTopKNodesMatcher}.
+ *
+ * @author Václav Brodec
+ *
+ */
+public class MagnitudeIndexTopKNodesMatcherTest {
+
+	private final Distance distance = new KolmogorovSmirnovDistance();
+
+	private RandomGraphs graphs;
+	private MagnitudeIndexTopKNodesMatcher matcher;
+
+	@Before
+	public void setUp() {
+		graphs = new RandomGraphs(distance, 37);
+		matcher = new MagnitudeIndexTopKNodesMatcher(distance,
+				new DefaultMeasuredNodeFactory(new DefaultUuidGenerator()));
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.MagnitudeIndexTopKNodesMatcher#match(BackgroundKnowledgeGraph, Node, double, double, double, int)}
+	 * with K both below and above the number of the overlapping nodes, as the
+	 * graph grows.
+	 */
+	@Test
+	public final void testMatchEqualsFullScanAsGraphGrows() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(50);
+		final List<Node> queries = graphs.createQueries(3);
+
+		for (int round = 0; round < 2; round++) {
+			for (final Node query : queries) {
+				for (final int k : new int[] { 1, 10, 1000 }) {
+					assertArrayEquals(graphs.scan(graph, query, new double[] { 1, 0, 0 }, k),
+							getDistances(matcher.match(graph, query, 1, 0, 0, k)), 0);
+					assertArrayEquals(graphs.scan(graph, query, new double[] { 2, 1, 1 }, k),
+							getDistances(matcher.match(graph, query, 2, 1, 1, k)), 0);
+				}
+			}
+
+			graphs.grow(graph, 50);
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.MagnitudeIndexTopKNodesMatcher#match(BackgroundKnowledgeGraph, java.util.Collection, int)}
+	 * of values of a single sign, values around zero and values far beyond the
+	 * ones of the graph.
+	 */
+	@Test
+	public final void testMatchOfValuesAtEdgesEqualsFullScan() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(50);
+		final List<List<NumberLikeValue>> valuesList = ImmutableList.of(createValues(-50000, -30000, -0.5),
+				createValues(-0.1, 0, 0, 0.1), createValues(1e9, 2e9), createValues(-1e9, 3, 1e9));
+
+		for (final List<NumberLikeValue> values : valuesList) {
+			for (final int k : new int[] { 1, 10, 1000 }) {
+				assertArrayEquals(values.toString(), scan(graph, SortedSample.of(values), k),
+						getDistances(matcher.match(graph, values, k)), 0);
+			}
+		}
+	}
+
+	private double[] scan(final BackgroundKnowledgeGraph graph, final SortedSample sample, final int k) {
+		final List<Double> distances = new ArrayList<>();
+		for (final Property property : graph) {
+			for (final PropertyTree propertyTree : property) {
+				for (final Node node : propertyTree) {
+					distances.add(distance.compute(sample, node.getSample()));
+				}
+			}
+		}
+		Collections.sort(distances);
+
+		return distances.subList(0, Math.min(k, distances.size())).stream().mapToDouble(e -> e).toArray();
+	}
+
+	private static List<NumberLikeValue> createValues(final double... figures) {
+		final ImmutableList.Builder<NumberLikeValue> builder = ImmutableList.builder();
+		for (final double figure : figures) {
+			builder.add(NumericValue.of(figure));
+		}
+
+		return builder.build();
+	}
+}
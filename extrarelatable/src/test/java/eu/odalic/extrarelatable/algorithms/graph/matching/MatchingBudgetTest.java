@@ -0,0 +1,124 @@
+/**
+ *
+ */
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static eu.odalic.extrarelatable.algorithms.graph.matching.RandomGraphs.getDistances;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance;
+import eu.odalic.extrarelatable.model.annotation.DefaultMeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+import eu.odalic.extrarelatable.util.DefaultUuidGenerator;
+
+/**
+ * Unit tests for the matching within a {@link MatchingBudget}.
+ *
+ * @author Václav Brodec
+ *
+ */
+public class MatchingBudgetTest {
+
+	private static final double[] WEIGHTS = { 0.5, 0.25, 0.25 };
+
+	private final Distance distance = new KolmogorovSmirnovDistance();
+
+	private RandomGraphs graphs;
+	private ContextAwareDistanceTopKNodesMatcher matcher;
+	private BackgroundKnowledgeGraph graph;
+	private List<Node> queries;
+
+	@Before
+	public void setUp() {
+		graphs = new RandomGraphs(distance, 43);
+		matcher = new ContextAwareDistanceTopKNodesMatcher(distance,
+				new DefaultMeasuredNodeFactory(new DefaultUuidGenerator()));
+		graph = graphs.createGraph(120);
+		queries = graphs.createQueries(3);
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.TopKNodesMatcher#matchAll(BackgroundKnowledgeGraph, List, double, double, double, int, MatchingBudget)}
+	 * within an unlimited budget.
+	 */
+	@Test
+	public final void testUnlimitedBudgetEqualsFullScan() {
+		final MatchingBudget budget = MatchingBudget.unlimited();
+		final List<SortedSet<MeasuredNode>> results = matchAll(budget);
+
+		assertFalse(budget.isLimited());
+		assertFalse(budget.isExhausted());
+		for (int index = 0; index < queries.size(); index++) {
+			assertArrayEquals(graphs.scan(graph, queries.get(index), WEIGHTS, 10), getDistances(results.get(index)),
+					0);
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.TopKNodesMatcher#matchAll(BackgroundKnowledgeGraph, List, double, double, double, int, MatchingBudget)}
+	 * within budgets of evaluations too small to cover the graph.
+	 */
+	@Test
+	public final void testSmallEvaluationsBudgetGivesPartialResults() {
+		double previousCoveredFraction = 0;
+		for (final long maximumEvaluations : new long[] { 0, 1, 50 }) {
+			final MatchingBudget budget = MatchingBudget.ofEvaluations(maximumEvaluations);
+			final List<SortedSet<MeasuredNode>> results = matchAll(budget);
+
+			assertTrue(budget.isExhausted());
+			assertTrue(budget.getCoveredFraction() < 1);
+			assertTrue(budget.getCoveredFraction() >= previousCoveredFraction);
+			assertPartial(results);
+
+			previousCoveredFraction = budget.getCoveredFraction();
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.TopKNodesMatcher#matchAll(BackgroundKnowledgeGraph, List, double, double, double, int, MatchingBudget)}
+	 * within an elapsed time limit.
+	 */
+	@Test
+	public final void testElapsedTimeBudgetGivesPartialResults() {
+		final MatchingBudget budget = MatchingBudget.ofTime(0, TimeUnit.MILLISECONDS);
+		final List<SortedSet<MeasuredNode>> results = matchAll(budget);
+
+		assertTrue(budget.isExhausted());
+		assertTrue(budget.getCoveredFraction() < 1);
+		assertPartial(results);
+	}
+
+	private List<SortedSet<MeasuredNode>> matchAll(final MatchingBudget budget) {
+		return matcher.matchAll(graph, queries, WEIGHTS[0], WEIGHTS[1], WEIGHTS[2], 10, budget);
+	}
+
+	/**
+	 * The partial results hold some of the nodes of the graph, so each of them
+	 * can be at best as near as the node of the same rank found by a full scan.
+	 */
+	private void assertPartial(final List<SortedSet<MeasuredNode>> results) {
+		assertEquals(queries.size(), results.size());
+		for (int index = 0; index < queries.size(); index++) {
+			final double[] expected = graphs.scan(graph, queries.get(index), WEIGHTS, 10);
+			final double[] actual = getDistances(results.get(index));
+
+			assertTrue(actual.length <= expected.length);
+			for (int rank = 0; rank < actual.length; rank++) {
+				assertTrue(actual[rank] >= expected[rank]);
+			}
+		}
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ *
+ */
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Iterables;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance;
+import eu.odalic.extrarelatable.model.bag.HeapSortedSampleStoreFactory;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.Property;
+import eu.odalic.extrarelatable.model.graph.PropertyTree;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+
+/**
+ * Unit tests for {@link MatchingSnapshot}, which check the ranges of the
+ * subtrees the matchers rely on when skipping them.
+ *
+ * @author Václav Brodec
+ *
+ */
+public class MatchingSnapshotTest {
+
+	private static final double[][] WEIGHTS = { { 0.5, 0.25, 0.25 }, { 1, 0, 0 } };
+
+	private final Distance distance = new KolmogorovSmirnovDistance();
+
+	private RandomGraphs graphs;
+	private MatchingSnapshots snapshots;
+
+	@Before
+	public void setUp() {
+		graphs = new RandomGraphs(distance, 29);
+		snapshots = new MatchingSnapshots(new HeapSortedSampleStoreFactory(), new ContextDictionaries());
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.MatchingSnapshot#getSubtreeEnd(int)}.
+	 */
+	@Test
+	public final void testSubtreesOccupyContiguousRanges() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(40);
+		final MatchingSnapshot snapshot = snapshots.get(graph);
+
+		graphs.grow(graph, 20);
+		final MatchingSnapshot grownSnapshot = snapshots.get(graph);
+
+		assertEquals(countNodes(graph), grownSnapshot.size());
+		assertTrue(snapshot.size() < grownSnapshot.size());
+		for (final MatchingSnapshot checkedSnapshot : new MatchingSnapshot[] { snapshot, grownSnapshot }) {
+			final Set<Node> indexedNodes = new HashSet<>();
+			for (int index = 0; index < checkedSnapshot.size(); index++) {
+				final int subtreeEnd = checkedSnapshot.getSubtreeEnd(index);
+				assertTrue(subtreeEnd > index && subtreeEnd <= checkedSnapshot.size());
+
+				final Set<Node> rangeNodes = new HashSet<>();
+				for (int rangeIndex = index; rangeIndex < subtreeEnd; rangeIndex++) {
+					rangeNodes.add(checkedSnapshot.getNode(rangeIndex));
+				}
+				assertEquals(getSubtree(checkedSnapshot.getNode(index)), rangeNodes);
+
+				indexedNodes.add(checkedSnapshot.getNode(index));
+			}
+
+			assertEquals(checkedSnapshot.size(), indexedNodes.size());
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.MatchingSnapshot#getSubtreeMinimum(int)}
+	 * and
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.MatchingSnapshot#getSubtreeMaximum(int)}.
+	 */
+	@Test
+	public final void testSubtreeRangesEncloseValues() {
+		final MatchingSnapshot snapshot = snapshots.get(graphs.createGraph(40));
+
+		for (int index = 0; index < snapshot.size(); index++) {
+			for (int rangeIndex = index; rangeIndex < snapshot.getSubtreeEnd(index); rangeIndex++) {
+				if (snapshot.getSample(rangeIndex).isEmpty()) {
+					continue;
+				}
+
+				assertTrue(snapshot.getSubtreeMinimum(index) <= snapshot.getSample(rangeIndex).getMinimum());
+				assertTrue(snapshot.getSubtreeMaximum(index) >= snapshot.getSample(rangeIndex).getMaximum());
+			}
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.NodesMatchingQuery#measureSubtreeLowerBound(Distance, MatchingSnapshot, int, SharedDistancesCache)}.
+	 */
+	@Test
+	public final void testSubtreeLowerBoundsNeverExceedDistances() {
+		final MatchingSnapshot snapshot = snapshots.get(graphs.createGraph(40));
+
+		for (final Node matchedNode : graphs.createQueries(3)) {
+			for (final double[] weights : WEIGHTS) {
+				final NodesMatchingQuery query = NodesMatchingQuery.of(matchedNode, snapshot.getDictionary(),
+						weights[0], weights[1], weights[2], 5);
+				final SharedDistancesCache cache = new SharedDistancesCache(snapshot.getSharedCount(),
+						snapshot.getContextsCount());
+
+				for (int index = 0; index < snapshot.size(); index++) {
+					final double lowerBound = query.measureSubtreeLowerBound(distance, snapshot, index, cache);
+
+					for (int rangeIndex = index; rangeIndex < snapshot.getSubtreeEnd(index); rangeIndex++) {
+						assertTrue(lowerBound <= query.measure(distance, snapshot, rangeIndex,
+								Double.POSITIVE_INFINITY, cache));
+					}
+				}
+			}
+		}
+	}
+
+	private static int countNodes(final BackgroundKnowledgeGraph graph) {
+		int count = 0;
+		for (final Property property : graph) {
+			for (final PropertyTree propertyTree : property) {
+				count += Iterables.size(propertyTree);
+			}
+		}
+
+		return count;
+	}
+
+	private static Set<Node> getSubtree(final Node root) {
+		final Set<Node> subtree = new HashSet<>();
+		subtree.add(root);
+		root.getChildren().forEach(e -> subtree.addAll(getSubtree(e)));
+
+		return subtree;
+	}
+}
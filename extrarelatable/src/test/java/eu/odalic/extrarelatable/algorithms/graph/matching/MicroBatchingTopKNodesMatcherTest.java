@@ -0,0 +1,168 @@
+/**
+ *
+ */
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static eu.odalic.extrarelatable.algorithms.graph.matching.RandomGraphs.getDistances;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance;
+import eu.odalic.extrarelatable.model.annotation.DefaultMeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.bag.HeapSortedSampleStoreFactory;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+import eu.odalic.extrarelatable.util.DefaultUuidGenerator;
+
+/**
+ * Unit tests for {@link MicroBatchingTopKNodesMatcher}.
+ *
+ * @author Václav Brodec
+ *
+ */
+public class MicroBatchingTopKNodesMatcherTest {
+
+	private static final long LONG_WINDOW = TimeUnit.HOURS.toMillis(1);
+
+	private final MeasuredNodeFactory measuredNodeFactory = new DefaultMeasuredNodeFactory(new DefaultUuidGenerator());
+	private final Distance distance = new KolmogorovSmirnovDistance();
+
+	private RandomGraphs graphs;
+	private ExecutorService callers;
+
+	@Before
+	public void setUp() {
+		graphs = new RandomGraphs(distance, 23);
+		callers = Executors.newCachedThreadPool();
+	}
+
+	@After
+	public void tearDown() {
+		callers.shutdownNow();
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.MicroBatchingTopKNodesMatcher#match(BackgroundKnowledgeGraph, Node, double, double, double, int)}
+	 * called concurrently.
+	 */
+	@Test(timeout = 60000)
+	public final void testConcurrentCallersReceiveOwnResults() throws InterruptedException, ExecutionException {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(80);
+		final List<Node> queries = graphs.createQueries(4);
+		final MicroBatchingTopKNodesMatcher matcher = createMatcher(50, 5);
+		try {
+			final CountDownLatch start = new CountDownLatch(1);
+			final List<Future<SortedSet<MeasuredNode>>> results = new ArrayList<>();
+			for (final Node query : queries) {
+				results.add(callers.submit(() -> {
+					start.await();
+
+					return matcher.match(graph, query, 0.5, 0.25, 0.25, 10);
+				}));
+			}
+			start.countDown();
+
+			for (int index = 0; index < queries.size(); index++) {
+				assertArrayEquals(graphs.scan(graph, queries.get(index), new double[] { 0.5, 0.25, 0.25 }, 10),
+						getDistances(results.get(index).get()), 0);
+			}
+		} finally {
+			matcher.cleanUp();
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.MicroBatchingTopKNodesMatcher#matchAll(BackgroundKnowledgeGraph, List, double, double, double, int)}
+	 * filling a whole batch, which is then scanned without waiting for the window.
+	 */
+	@Test(timeout = 60000)
+	public final void testFullBatchIsScannedBeforeWindowElapses() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(40);
+		final List<Node> queries = graphs.createQueries(2);
+		final MicroBatchingTopKNodesMatcher matcher = createMatcher(LONG_WINDOW, 1);
+		try {
+			final List<SortedSet<MeasuredNode>> results = matcher.matchAll(graph, queries, 1, 0, 0, 5);
+
+			for (int index = 0; index < queries.size(); index++) {
+				assertArrayEquals(graphs.scan(graph, queries.get(index), new double[] { 1, 0, 0 }, 5),
+						getDistances(results.get(index)), 0);
+			}
+		} finally {
+			matcher.cleanUp();
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.MicroBatchingTopKNodesMatcher#cleanUp()}
+	 * with a caller waiting for its batch.
+	 */
+	@Test(timeout = 60000)
+	public final void testCleanUpFailsWaitingCallers() throws InterruptedException {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(20);
+		final Node query = graphs.createQueries(1).get(0);
+		final MicroBatchingTopKNodesMatcher matcher = createMatcher(LONG_WINDOW, 1000);
+
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final Thread caller = new Thread(() -> {
+			try {
+				matcher.match(graph, query);
+			} catch (final Throwable e) {
+				failure.set(e);
+			}
+		});
+		caller.start();
+
+		// Parked once it waits for the results of its batch.
+		while (caller.getState() != Thread.State.WAITING) {
+			Thread.sleep(10);
+		}
+		matcher.cleanUp();
+		caller.join();
+
+		assertTrue(failure.get() instanceof RejectedExecutionException);
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.MicroBatchingTopKNodesMatcher#match(BackgroundKnowledgeGraph, Node)}
+	 * after {@link MicroBatchingTopKNodesMatcher#cleanUp()}.
+	 */
+	@Test(timeout = 60000, expected = RejectedExecutionException.class)
+	public final void testMatchAfterCleanUpIsRejected() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(20);
+		final MicroBatchingTopKNodesMatcher matcher = createMatcher(0, 1000);
+		matcher.cleanUp();
+
+		matcher.match(graph, graphs.createQueries(1).get(0));
+	}
+
+	private MicroBatchingTopKNodesMatcher createMatcher(final long window, final int maximumBatchSize) {
+		return new MicroBatchingTopKNodesMatcher(distance, measuredNodeFactory,
+				new MatchingSnapshots(new HeapSortedSampleStoreFactory(), new ContextDictionaries()),
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_VALUES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_PROPERTIES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_CLASSES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_K, window, maximumBatchSize, 2);
+	}
+}
@@ -0,0 +1,100 @@
+/**
+ *
+ */
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static eu.odalic.extrarelatable.algorithms.graph.matching.RandomGraphs.getDistances;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.SortedSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance;
+import eu.odalic.extrarelatable.model.annotation.DefaultMeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.bag.HeapSortedSampleStoreFactory;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+import eu.odalic.extrarelatable.util.DefaultUuidGenerator;
+
+/**
+ * Unit tests for {@link ParallelContextAwareDistanceTopKNodesMatcher}.
+ *
+ * @author Václav Brodec
+ *
+ */
+public class ParallelContextAwareDistanceTopKNodesMatcherTest {
+
+	private static final int[] CHUNK_SIZES = { 1, 7, 10000 };
+
+	private final MeasuredNodeFactory measuredNodeFactory = new DefaultMeasuredNodeFactory(new DefaultUuidGenerator());
+	private final Distance distance = new KolmogorovSmirnovDistance();
+
+	private RandomGraphs graphs;
+
+	@Before
+	public void setUp() {
+		graphs = new RandomGraphs(distance, 11);
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.ParallelContextAwareDistanceTopKNodesMatcher#match(BackgroundKnowledgeGraph, Node, double, double, double, int)}.
+	 */
+	@Test
+	public final void testMatchEqualsFullScanForAnyChunkSize() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(80);
+		final List<Node> queries = graphs.createQueries(3);
+
+		for (final int chunkSize : CHUNK_SIZES) {
+			final ParallelContextAwareDistanceTopKNodesMatcher matcher = createMatcher(chunkSize);
+			try {
+				for (final Node query : queries) {
+					assertArrayEquals("chunk size " + chunkSize,
+							graphs.scan(graph, query, new double[] { 2, 1, 1 }, 10),
+							getDistances(matcher.match(graph, query, 2, 1, 1, 10)), 0);
+				}
+			} finally {
+				matcher.cleanUp();
+			}
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.ParallelContextAwareDistanceTopKNodesMatcher#matchAll(BackgroundKnowledgeGraph, List, double, double, double, int)}.
+	 */
+	@Test
+	public final void testMatchAllEqualsFullScanForAnyChunkSize() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(80);
+		final List<Node> queries = graphs.createQueries(3);
+
+		for (final int chunkSize : CHUNK_SIZES) {
+			final ParallelContextAwareDistanceTopKNodesMatcher matcher = createMatcher(chunkSize);
+			try {
+				final List<SortedSet<MeasuredNode>> results = matcher.matchAll(graph, queries, 1, 0, 0, 10);
+				for (int index = 0; index < queries.size(); index++) {
+					assertArrayEquals("chunk size " + chunkSize,
+							graphs.scan(graph, queries.get(index), new double[] { 1, 0, 0 }, 10),
+							getDistances(results.get(index)), 0);
+				}
+			} finally {
+				matcher.cleanUp();
+			}
+		}
+	}
+
+	private ParallelContextAwareDistanceTopKNodesMatcher createMatcher(final int chunkSize) {
+		return new ParallelContextAwareDistanceTopKNodesMatcher(distance, measuredNodeFactory,
+				new MatchingSnapshots(new HeapSortedSampleStoreFactory(), new ContextDictionaries()),
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_VALUES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_PROPERTIES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_CLASSES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_K, 3, chunkSize);
+	}
+}
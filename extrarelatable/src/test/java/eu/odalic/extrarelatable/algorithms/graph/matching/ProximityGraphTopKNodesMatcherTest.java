@@ -0,0 +1,105 @@
+/**
+ *
+ */
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static eu.odalic.extrarelatable.algorithms.graph.matching.RandomGraphs.getDistances;
+import static eu.odalic.extrarelatable.algorithms.graph.matching.RandomGraphs.getRecall;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.SortedSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance;
+import eu.odalic.extrarelatable.model.annotation.DefaultMeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+import eu.odalic.extrarelatable.util.DefaultUuidGenerator;
+
+/**
+ * Unit tests for {@link ProximityGraphTopKNodesMatcher}, which check that its
+ * recall does not drop below a floor, also for the nodes inserted into an
+ * existing proximity graph, and that the queries not concerning the values are
+ * matched exactly.
+ *
+ * @author Václav Brodec
+ *
+ */
+public class ProximityGraphTopKNodesMatcherTest {
+
+	private static final double[][] WEIGHTS = { { 1, 0, 0 }, { 0.5, 0.25, 0.25 } };
+
+	/**
+	 * The search is led by the overall distance along the links made by the
+	 * distance of the values only, so the floor is set lower when the context
+	 * weighs a lot.
+	 */
+	private static final double[] RECALL_FLOORS = { 0.9, 0.7 };
+
+	private final Distance distance = new KolmogorovSmirnovDistance();
+
+	private RandomGraphs graphs;
+	private ProximityGraphTopKNodesMatcher matcher;
+
+	@Before
+	public void setUp() {
+		graphs = new RandomGraphs(distance, 47);
+		matcher = new ProximityGraphTopKNodesMatcher(distance,
+				new DefaultMeasuredNodeFactory(new DefaultUuidGenerator()));
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.ProximityGraphTopKNodesMatcher#match(BackgroundKnowledgeGraph, Node, double, double, double, int)}.
+	 */
+	@Test
+	public final void testMatchRecallIsAboveFloorAsGraphGrows() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(100);
+		final List<Node> queries = graphs.createQueries(6);
+
+		for (int round = 0; round < 2; round++) {
+			for (int weightsIndex = 0; weightsIndex < WEIGHTS.length; weightsIndex++) {
+				final double[] weights = WEIGHTS[weightsIndex];
+
+				double summedRecall = 0;
+				for (final Node query : queries) {
+					final double[] expected = graphs.scan(graph, query, weights, 10);
+					final SortedSet<MeasuredNode> result = matcher.match(graph, query, weights[0], weights[1],
+							weights[2], 10);
+
+					final double[] actual = getDistances(result);
+					assertEquals(expected.length, actual.length);
+					for (int rank = 0; rank < expected.length; rank++) {
+						assertTrue(actual[rank] >= expected[rank]);
+					}
+
+					summedRecall += getRecall(expected, result);
+				}
+
+				assertTrue("round " + round, summedRecall / queries.size() >= RECALL_FLOORS[weightsIndex]);
+			}
+
+			graphs.grow(graph, 100);
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.ProximityGraphTopKNodesMatcher#match(BackgroundKnowledgeGraph, Node, double, double, double, int)}
+	 * of the context only.
+	 */
+	@Test
+	public final void testMatchOfContextOnlyEqualsFullScan() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(100);
+
+		for (final Node query : graphs.createQueries(3)) {
+			assertArrayEquals(graphs.scan(graph, query, new double[] { 0, 1, 1 }, 10),
+					getDistances(matcher.match(graph, query, 0, 1, 1, 10)), 0);
+		}
+	}
+}
@@ -0,0 +1,279 @@
+/**
+ *
+ */
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedSet;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Sets;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.bag.Attribute;
+import eu.odalic.extrarelatable.model.bag.AttributeValuePair;
+import eu.odalic.extrarelatable.model.bag.Context;
+import eu.odalic.extrarelatable.model.bag.Label;
+import eu.odalic.extrarelatable.model.bag.NumberLikeValue;
+import eu.odalic.extrarelatable.model.bag.NumericValue;
+import eu.odalic.extrarelatable.model.bag.TextValue;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.Property;
+import eu.odalic.extrarelatable.model.graph.PropertyTree;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.RootNode;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.SharedPairNode;
+import eu.odalic.extrarelatable.model.graph.PropertyUriLabelTextFallbackPropertyTreesMergingStrategy;
+import eu.odalic.extrarelatable.model.table.DeclaredEntity;
+import eu.odalic.extrarelatable.util.DefaultUuidGenerator;
+import eu.odalic.extrarelatable.util.UuidGenerator;
+
+/**
+ * Generates reproducible random graphs for the tests of the
+ * {@link TopKNodesMatcher}s and provides a plain full scan of them, to which
+ * the results of the matchers are compared.
+ *
+ * @author Václav Brodec
+ *
+ */
+final class RandomGraphs {
+
+	private final UuidGenerator uuidGenerator = new DefaultUuidGenerator();
+
+	private final List<DeclaredEntity> entities = new ArrayList<>();
+	private final List<Multiset<NumberLikeValue>> bags = new ArrayList<>();
+
+	private final Distance distance;
+	private final Random random;
+
+	/**
+	 * Creates the generator.
+	 *
+	 * @param distance
+	 *            distance of the values used by the full scan
+	 * @param seed
+	 *            seed of the generated graphs
+	 */
+	public RandomGraphs(final Distance distance, final long seed) {
+		checkNotNull(distance);
+
+		this.distance = distance;
+		this.random = new Random(seed);
+
+		for (int index = 0; index < 6; index++) {
+			entities.add(new DeclaredEntity(URI.create("http://example.com/" + index), ImmutableSet.of()));
+		}
+	}
+
+	/**
+	 * Computes the distances of the K nearest nodes of the graph by measuring all
+	 * of them.
+	 *
+	 * @param graph
+	 *            scanned graph
+	 * @param query
+	 *            query node
+	 * @param weights
+	 *            weights of the values, properties and classes distances
+	 * @param k
+	 *            number of the nearest nodes
+	 * @return ascending distances of the nearest nodes
+	 */
+	public double[] scan(final BackgroundKnowledgeGraph graph, final Node query, final double[] weights,
+			final int k) {
+		final double summedWeights = weights[0] + weights[1] + weights[2];
+		final double valuesWeight = weights[0] / summedWeights;
+		final double propertiesWeight = weights[1] / summedWeights;
+		final double classesWeight = weights[2] / summedWeights;
+
+		final List<Double> distances = new ArrayList<>();
+		for (final Property property : graph) {
+			for (final PropertyTree propertyTree : property) {
+				for (final Node node : propertyTree) {
+					final double valuesDistance = valuesWeight == 0 ? 0
+							: distance.compute(query.getSample(), node.getSample());
+
+					distances.add(valuesWeight * valuesDistance
+							+ propertiesWeight * getJaccardDissimilarity(getProperties(query), getProperties(node))
+							+ classesWeight * getJaccardDissimilarity(getClasses(query), getClasses(node)));
+				}
+			}
+		}
+		Collections.sort(distances);
+
+		return distances.subList(0, Math.min(k, distances.size())).stream().mapToDouble(e -> e).toArray();
+	}
+
+	/**
+	 * @param measuredNodes
+	 *            matched nodes
+	 * @return their distances, in the order of the set
+	 */
+	public static double[] getDistances(final SortedSet<MeasuredNode> measuredNodes) {
+		return measuredNodes.stream().mapToDouble(e -> e.getDistance()).toArray();
+	}
+
+	/**
+	 * Counts the matched nodes which are as near as the ones found by the full
+	 * scan, so that the ties are not penalized.
+	 *
+	 * @param expected
+	 *            ascending distances found by the full scan
+	 * @param measuredNodes
+	 *            matched nodes
+	 * @return fraction of the expected nodes matched
+	 */
+	public static double getRecall(final double[] expected, final SortedSet<MeasuredNode> measuredNodes) {
+		if (expected.length == 0) {
+			return 1;
+		}
+
+		final double threshold = expected[expected.length - 1];
+		final long hits = measuredNodes.stream().filter(e -> e.getDistance() <= threshold).count();
+
+		return Math.min(hits, expected.length) / (double) expected.length;
+	}
+
+	/**
+	 * @param propertyTreesCount
+	 *            number of the learned property trees
+	 * @return new graph
+	 */
+	public BackgroundKnowledgeGraph createGraph(final int propertyTreesCount) {
+		final BackgroundKnowledgeGraph graph = new BackgroundKnowledgeGraph("test",
+				new PropertyUriLabelTextFallbackPropertyTreesMergingStrategy(uuidGenerator));
+		grow(graph, propertyTreesCount);
+
+		return graph;
+	}
+
+	/**
+	 * @param graph
+	 *            grown graph
+	 * @param propertyTreesCount
+	 *            number of the newly learned property trees
+	 */
+	public void grow(final BackgroundKnowledgeGraph graph, final int propertyTreesCount) {
+		for (int index = 0; index < propertyTreesCount; index++) {
+			graph.addPropertyTree(createPropertyTree(index));
+		}
+	}
+
+	/**
+	 * @param propertyTreesCount
+	 *            number of the property trees, whose nodes become the queries
+	 * @return query nodes, not present in any graph
+	 */
+	public List<Node> createQueries(final int propertyTreesCount) {
+		final List<Node> queries = new ArrayList<>();
+		for (int index = 0; index < propertyTreesCount; index++) {
+			createPropertyTree(index).forEach(queries::add);
+		}
+
+		return queries;
+	}
+
+	private static Set<URI> getProperties(final Node node) {
+		return getUris(node.getPropertyTree().getContext().getDeclaredContextColumnProperties().values());
+	}
+
+	private static Set<URI> getClasses(final Node node) {
+		return getUris(node.getPropertyTree().getContext().getDeclaredContextColumnClasses().values());
+	}
+
+	private static Set<URI> getUris(final Collection<? extends DeclaredEntity> entities) {
+		final Set<URI> uris = new HashSet<>();
+		entities.forEach(e -> uris.add(e.getUri()));
+
+		return uris;
+	}
+
+	private static double getJaccardDissimilarity(final Set<URI> first, final Set<URI> second) {
+		final int intersectionSize = Sets.intersection(first, second).size();
+		final double jaccardDissimilarity = 1
+				- ((double) intersectionSize) / (first.size() + second.size() - intersectionSize);
+
+		return Double.isNaN(jaccardDissimilarity) ? 1 : jaccardDissimilarity;
+	}
+
+	/**
+	 * Creates a tree of up to seven nodes, with values of various scales, a
+	 * third of them repeating the values of an earlier tree, and with random
+	 * declared context.
+	 */
+	private PropertyTree createPropertyTree(final int index) {
+		final Multiset<NumberLikeValue> values;
+		if (!bags.isEmpty() && random.nextInt(3) == 0) {
+			values = bags.get(random.nextInt(bags.size()));
+		} else {
+			final double scale = Math.pow(10, random.nextInt(6) - 1);
+			values = createValues(4 + random.nextInt(60), scale, random.nextGaussian() * scale * 3);
+			bags.add(values);
+		}
+
+		final RootNode root = new RootNode(Label.of(uuidGenerator.generate(), "label" + (index % 17), null, false, 0,
+				"file", ImmutableList.of(), ImmutableList.of(), ImmutableList.of()), values);
+		addChildren(root, new ArrayList<>(values), 2);
+
+		final Context context = new Context(ImmutableList.of(), null, null,
+				random.nextBoolean() ? entities.get(random.nextInt(3)) : null, createDeclaredEntities(),
+				createDeclaredEntities(), 0, ImmutableSet.of(0, 1, 2, 3));
+		final PropertyTree propertyTree = new PropertyTree(root, context);
+		root.setPropertyTree(propertyTree);
+
+		return propertyTree;
+	}
+
+	private Multiset<NumberLikeValue> createValues(final int count, final double scale, final double shift) {
+		final ImmutableMultiset.Builder<NumberLikeValue> builder = ImmutableMultiset.builder();
+		for (int index = 0; index < count; index++) {
+			builder.add(NumericValue.of(Math.floor((random.nextGaussian() * scale + shift) * 10) / 10));
+		}
+
+		return builder.build();
+	}
+
+	private Map<Integer, DeclaredEntity> createDeclaredEntities() {
+		final Map<Integer, DeclaredEntity> declaredEntities = new HashMap<>();
+		for (int columnIndex = 0; columnIndex < 4; columnIndex++) {
+			if (random.nextBoolean()) {
+				declaredEntities.put(columnIndex, entities.get(random.nextInt(entities.size())));
+			}
+		}
+
+		return declaredEntities;
+	}
+
+	private void addChildren(final Node parent, final List<NumberLikeValue> values, final int depth) {
+		if (depth == 0 || values.size() < 4) {
+			return;
+		}
+
+		Collections.shuffle(values, random);
+		final int half = values.size() / 2;
+		for (final List<NumberLikeValue> part : Arrays.asList(values.subList(0, half),
+				values.subList(half, values.size()))) {
+			final SharedPairNode child = new SharedPairNode(
+					new AttributeValuePair(uuidGenerator.generate(), new Attribute("attribute"), TextValue.of("value")),
+					ImmutableMultiset.copyOf(part));
+			parent.addChild(child);
+			addChildren(child, new ArrayList<>(part), depth - 1);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ *
+ */
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static eu.odalic.extrarelatable.algorithms.graph.matching.RandomGraphs.getDistances;
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance;
+import eu.odalic.extrarelatable.model.annotation.DefaultMeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+import eu.odalic.extrarelatable.util.DefaultUuidGenerator;
+
+/**
+ * Unit tests for {@link StandingMatching}.
+ *
+ * @author Václav Brodec
+ *
+ */
+public class StandingMatchingTest {
+
+	private static final double[][] WEIGHTS = { { 0.5, 0.25, 0.25 }, { 1, 0, 0 }, { 0, 1, 1 } };
+
+	private final Distance distance = new KolmogorovSmirnovDistance();
+
+	private RandomGraphs graphs;
+	private ContextAwareDistanceTopKNodesMatcher matcher;
+
+	@Before
+	public void setUp() {
+		graphs = new RandomGraphs(distance, 53);
+		matcher = new ContextAwareDistanceTopKNodesMatcher(distance,
+				new DefaultMeasuredNodeFactory(new DefaultUuidGenerator()));
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.StandingMatching#update()}
+	 * of a graph growing from a single tree, so that the declared context of the
+	 * matched nodes is learned by the graph only gradually.
+	 */
+	@Test
+	public final void testUpdatesEqualFullScanAsGraphGrows() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(1);
+		final List<Node> queries = graphs.createQueries(4);
+
+		for (final double[] weights : WEIGHTS) {
+			final StandingMatching standingMatching = matcher.matchStanding(graph, queries, weights[0], weights[1],
+					weights[2], 5);
+			assertEqualsFullScan(graph, queries, weights, standingMatching.getMatchingNodes());
+
+			for (final int grownCount : new int[] { 1, 2, 5, 30 }) {
+				graphs.grow(graph, grownCount);
+
+				assertTrue(standingMatching.update());
+				assertEqualsFullScan(graph, queries, weights, standingMatching.getMatchingNodes());
+			}
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.StandingMatching#update()}
+	 * of an unchanged graph, also matched by other requests meanwhile.
+	 */
+	@Test
+	public final void testUpdateOfUnchangedGraphKeepsResults() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(40);
+		final List<Node> queries = graphs.createQueries(3);
+		final StandingMatching standingMatching = matcher.matchStanding(graph, queries, 0.5, 0.25, 0.25, 5);
+
+		final List<SortedSet<MeasuredNode>> results = standingMatching.getMatchingNodes();
+		matcher.matchAll(graph, queries, 0.5, 0.25, 0.25, 5);
+
+		assertFalse(standingMatching.update());
+		final List<SortedSet<MeasuredNode>> keptResults = standingMatching.getMatchingNodes();
+		for (int index = 0; index < queries.size(); index++) {
+			assertEquals(getNodes(results.get(index)), getNodes(keptResults.get(index)));
+			assertArrayEquals(getDistances(results.get(index)), getDistances(keptResults.get(index)), 0);
+		}
+	}
+
+	private static Set<Node> getNodes(final SortedSet<MeasuredNode> measuredNodes) {
+		return measuredNodes.stream().map(e -> e.getNode()).collect(Collectors.toSet());
+	}
+
+	private void assertEqualsFullScan(final BackgroundKnowledgeGraph graph, final List<Node> queries,
+			final double[] weights, final List<SortedSet<MeasuredNode>> results) {
+		for (int index = 0; index < queries.size(); index++) {
+			assertArrayEquals(graphs.scan(graph, queries.get(index), weights, 5), getDistances(results.get(index)),
+					0);
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/**
+ *
+ */
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static eu.odalic.extrarelatable.algorithms.graph.matching.RandomGraphs.getDistances;
+import static org.junit.Assert.*;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance;
+import eu.odalic.extrarelatable.model.annotation.DefaultMeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNode;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.bag.HeapSortedSampleStoreFactory;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+import eu.odalic.extrarelatable.util.DefaultUuidGenerator;
+import eu.odalic.extrarelatable.util.UuidGenerator;
+
+/**
+ * Unit tests for the exact {@link TopKNodesMatcher}s, which compare their
+ * results with a plain full scan of the graph.
+ *
+ * @author Václav Brodec
+ *
+ */
+public class TopKNodesMatchersTest {
+
+	private static final double[][] WEIGHTS = { { 0.5, 0.25, 0.25 }, { 1, 0, 0 }, { 0.1, 0.45, 0.45 }, { 0, 1, 1 } };
+
+	private static final int[] KS = { 1, 5, 50 };
+
+	private final UuidGenerator uuidGenerator = new DefaultUuidGenerator();
+	private final MeasuredNodeFactory measuredNodeFactory = new DefaultMeasuredNodeFactory(uuidGenerator);
+	private final Distance distance = new KolmogorovSmirnovDistance();
+
+	private RandomGraphs graphs;
+	private ParallelContextAwareDistanceTopKNodesMatcher parallelMatcher;
+	private MicroBatchingTopKNodesMatcher microBatchingMatcher;
+	private Map<String, AbstractTopKNodesMatcher> matchers;
+
+	@Before
+	public void setUp() {
+		graphs = new RandomGraphs(distance, 7);
+
+		parallelMatcher = new ParallelContextAwareDistanceTopKNodesMatcher(distance, measuredNodeFactory,
+				new MatchingSnapshots(new HeapSortedSampleStoreFactory(), new ContextDictionaries()),
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_VALUES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_PROPERTIES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_CLASSES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_K, 4, 16);
+		microBatchingMatcher = new MicroBatchingTopKNodesMatcher(distance, measuredNodeFactory);
+
+		matchers = new LinkedHashMap<>();
+		matchers.put("contextAware", new ContextAwareDistanceTopKNodesMatcher(distance, measuredNodeFactory));
+		matchers.put("parallel", parallelMatcher);
+		matchers.put("magnitudeIndex", new MagnitudeIndexTopKNodesMatcher(distance, measuredNodeFactory));
+		matchers.put("vantagePointTree", new VantagePointTreeTopKNodesMatcher(distance, measuredNodeFactory));
+		matchers.put("caching", new CachingTopKNodesMatcher(distance, measuredNodeFactory));
+		matchers.put("microBatching", microBatchingMatcher);
+	}
+
+	@After
+	public void tearDown() {
+		parallelMatcher.cleanUp();
+		microBatchingMatcher.cleanUp();
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.TopKNodesMatcher#match(BackgroundKnowledgeGraph, Node, double, double, double, int)}.
+	 */
+	@Test
+	public final void testMatchEqualsFullScan() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(120);
+		final List<Node> queries = graphs.createQueries(4);
+
+		for (final Map.Entry<String, AbstractTopKNodesMatcher> entry : matchers.entrySet()) {
+			for (final Node query : queries) {
+				for (final double[] weights : WEIGHTS) {
+					for (final int k : KS) {
+						assertArrayEquals(entry.getKey(), graphs.scan(graph, query, weights, k), getDistances(
+								entry.getValue().match(graph, query, weights[0], weights[1], weights[2], k)), 0);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.TopKNodesMatcher#matchAll(BackgroundKnowledgeGraph, List, double, double, double, int, MatchingBudget)}.
+	 */
+	@Test
+	public final void testMatchAllEqualsFullScan() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(120);
+		final List<Node> queries = graphs.createQueries(4);
+
+		for (final Map.Entry<String, AbstractTopKNodesMatcher> entry : matchers.entrySet()) {
+			for (final double[] weights : WEIGHTS) {
+				final List<SortedSet<MeasuredNode>> results = entry.getValue().matchAll(graph, queries, weights[0],
+						weights[1], weights[2], 5);
+				final MatchingBudget budget = MatchingBudget.ofEvaluations(Long.MAX_VALUE - 1);
+				final List<SortedSet<MeasuredNode>> budgetedResults = entry.getValue().matchAll(graph, queries,
+						weights[0], weights[1], weights[2], 5, budget);
+
+				assertFalse(budget.isExhausted());
+				assertEquals(1, budget.getCoveredFraction(), 0);
+				for (int index = 0; index < queries.size(); index++) {
+					final double[] expected = graphs.scan(graph, queries.get(index), weights, 5);
+
+					assertArrayEquals(entry.getKey(), expected, getDistances(results.get(index)), 0);
+					assertArrayEquals(entry.getKey(), expected, getDistances(budgetedResults.get(index)), 0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.TopKNodesMatcher#match(BackgroundKnowledgeGraph, Node, double, double, double, int)}
+	 * of a grown graph.
+	 */
+	@Test
+	public final void testMatchEqualsFullScanAfterGrowth() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(60);
+		final List<Node> queries = graphs.createQueries(3);
+
+		for (final AbstractTopKNodesMatcher matcher : matchers.values()) {
+			for (final Node query : queries) {
+				matcher.match(graph, query, 0.5, 0.25, 0.25, 5);
+			}
+		}
+
+		graphs.grow(graph, 60);
+
+		for (final Map.Entry<String, AbstractTopKNodesMatcher> entry : matchers.entrySet()) {
+			for (final Node query : queries) {
+				final double[] weights = WEIGHTS[0];
+
+				assertArrayEquals(entry.getKey(), graphs.scan(graph, query, weights, 5), getDistances(
+						entry.getValue().match(graph, query, weights[0], weights[1], weights[2], 5)), 0);
+			}
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.StandingMatching#update()}.
+	 */
+	@Test
+	public final void testStandingMatchingEqualsFullScanAfterGrowth() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(60);
+		final List<Node> queries = graphs.createQueries(3);
+
+		for (final double[] weights : WEIGHTS) {
+			final StandingMatching standingMatching = matchers.get("contextAware").matchStanding(graph, queries,
+					weights[0], weights[1], weights[2], 5);
+
+			graphs.grow(graph, 20);
+			assertTrue(standingMatching.update());
+			assertFalse(standingMatching.update());
+
+			final List<SortedSet<MeasuredNode>> results = standingMatching.getMatchingNodes();
+			for (int index = 0; index < queries.size(); index++) {
+				assertArrayEquals(graphs.scan(graph, queries.get(index), weights, 5),
+						getDistances(results.get(index)), 0);
+			}
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/**
+ *
+ */
+package eu.odalic.extrarelatable.algorithms.graph.matching;
+
+import static eu.odalic.extrarelatable.algorithms.graph.matching.RandomGraphs.getDistances;
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.odalic.extrarelatable.algorithms.distance.Distance;
+import eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance;
+import eu.odalic.extrarelatable.model.annotation.DefaultMeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.annotation.MeasuredNodeFactory;
+import eu.odalic.extrarelatable.model.bag.HeapSortedSampleStoreFactory;
+import eu.odalic.extrarelatable.model.graph.BackgroundKnowledgeGraph;
+import eu.odalic.extrarelatable.model.graph.PropertyTree.Node;
+import eu.odalic.extrarelatable.util.DefaultUuidGenerator;
+
+/**
+ * Unit tests for {@link VantagePointTreeTopKNodesMatcher}.
+ *
+ * @author Václav Brodec
+ *
+ */
+public class VantagePointTreeTopKNodesMatcherTest {
+
+	private static final int[] BUCKET_CAPACITIES = { 1, 4, 10000 };
+
+	private static final double[] VALUES_ONLY = { 1, 0, 0 };
+
+	private final MeasuredNodeFactory measuredNodeFactory = new DefaultMeasuredNodeFactory(new DefaultUuidGenerator());
+	private final Distance distance = new KolmogorovSmirnovDistance();
+
+	private RandomGraphs graphs;
+
+	@Before
+	public void setUp() {
+		graphs = new RandomGraphs(distance, 13);
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.VantagePointTreeTopKNodesMatcher#match(BackgroundKnowledgeGraph, Node, double, double, double, int)}.
+	 */
+	@Test
+	public final void testMatchEqualsFullScanForAnyBucketCapacity() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(80);
+		final List<Node> queries = graphs.createQueries(3);
+
+		for (final int bucketCapacity : BUCKET_CAPACITIES) {
+			final VantagePointTreeTopKNodesMatcher matcher = createMatcher(bucketCapacity);
+			for (final Node query : queries) {
+				for (final int k : new int[] { 1, 10, 1000 }) {
+					assertArrayEquals("bucket capacity " + bucketCapacity, graphs.scan(graph, query, VALUES_ONLY, k),
+							getDistances(matcher.match(graph, query, 1, 0, 0, k)), 0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.algorithms.graph.matching.VantagePointTreeTopKNodesMatcher#match(BackgroundKnowledgeGraph, Node, double, double, double, int)}
+	 * after the tree is extended by newly learned nodes.
+	 */
+	@Test
+	public final void testMatchEqualsFullScanAfterGrowth() {
+		final BackgroundKnowledgeGraph graph = graphs.createGraph(40);
+		final List<Node> queries = graphs.createQueries(3);
+		final VantagePointTreeTopKNodesMatcher matcher = createMatcher(4);
+
+		for (int round = 0; round < 3; round++) {
+			for (final Node query : queries) {
+				assertArrayEquals("round " + round, graphs.scan(graph, query, VALUES_ONLY, 10),
+						getDistances(matcher.match(graph, query, 1, 0, 0, 10)), 0);
+			}
+
+			graphs.grow(graph, 30);
+		}
+	}
+
+	private VantagePointTreeTopKNodesMatcher createMatcher(final int bucketCapacity) {
+		return new VantagePointTreeTopKNodesMatcher(distance, measuredNodeFactory,
+				new MatchingSnapshots(new HeapSortedSampleStoreFactory(), new ContextDictionaries()),
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_VALUES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_PROPERTIES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_CLASSES_WEIGHT,
+				ContextAwareDistanceTopKNodesMatcher.INITIAL_DEFAULT_K, bucketCapacity);
+	}
+}
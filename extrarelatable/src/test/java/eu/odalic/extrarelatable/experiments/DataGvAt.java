@@ -233,6 +233,7 @@ public class DataGvAt {
 
 	@Autowired
 	@Lazy
+	@Qualifier("TopKNodesMatcher")
 	private TopKNodesMatcher topKNodesMatcher;
 
 	@Autowired
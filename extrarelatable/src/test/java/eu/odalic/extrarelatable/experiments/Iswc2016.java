@@ -207,6 +207,7 @@ public class Iswc2016 {
 
 	@Autowired
 	@Lazy
+	@Qualifier("TopKNodesMatcher")
 	private TopKNodesMatcher topKNodesMatcher;
 
 	@Autowired
@@ -218,6 +218,7 @@ public class T2Dv2GoldStandard {
 
 	@Autowired
 	@Lazy
+	@Qualifier("TopKNodesMatcher")
 	private TopKNodesMatcher topKNodesMatcher;
 
 	@Autowired
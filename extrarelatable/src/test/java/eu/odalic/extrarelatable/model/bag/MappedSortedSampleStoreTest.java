@@ -0,0 +1,82 @@
+/**
+ *
+ */
+package eu.odalic.extrarelatable.model.bag;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link MappedSortedSampleStore}.
+ *
+ * @author Václav Brodec
+ *
+ */
+public class MappedSortedSampleStoreTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.model.bag.MappedSortedSampleStore#add(SortedSample)}.
+	 */
+	@Test
+	public final void testAddKeepsSamplesAcrossChunks() throws IOException {
+		final Random random = new Random(3);
+		final List<SortedSample> samples = new ArrayList<>();
+		final List<SortedSample> stored = new ArrayList<>();
+
+		try (final SortedSampleStore store = new MappedSortedSampleStoreFactory(folder.getRoot().toString())
+				.create("test")) {
+			long size = 0;
+			while (size <= 2 * MappedSortedSampleStore.CHUNK_SIZE) {
+				// Mostly small samples, with an occasional one larger than a whole chunk.
+				final int sampleSize = random.nextInt(50) == 0 ? MappedSortedSampleStore.CHUNK_SIZE + 1
+						: random.nextInt(5000);
+				final double[] values = new double[sampleSize];
+				for (int index = 0; index < sampleSize; index++) {
+					values[index] = random.nextGaussian() * 1000;
+				}
+
+				final SortedSample sample = SortedSample.of(values);
+				samples.add(sample);
+				stored.add(store.add(sample));
+				size += sampleSize;
+			}
+
+			assertEquals(size, store.size());
+			for (int index = 0; index < samples.size(); index++) {
+				assertEquals(samples.get(index), stored.get(index));
+			}
+		}
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.model.bag.MappedSortedSampleStore#close()}.
+	 */
+	@Test
+	public final void testCloseDeletesFile() throws IOException {
+		final MappedSortedSampleStore store = (MappedSortedSampleStore) new MappedSortedSampleStoreFactory(
+				folder.getRoot().toString()).create("graph name");
+		final Path file = store.getFile();
+
+		assertEquals(folder.getRoot().toPath(), file.getParent());
+		assertEquals(SortedSample.of(new double[] { 1, 2, 3 }), store.add(SortedSample.of(new double[] { 3, 1, 2 })));
+
+		store.close();
+		assertFalse(Files.exists(file));
+		assertEquals(0, folder.getRoot().list().length);
+	}
+}
@@ -0,0 +1,72 @@
+/**
+ * 
+ */
+package eu.odalic.extrarelatable.model.bag;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Multiset;
+
+import eu.odalic.extrarelatable.algorithms.distance.KolmogorovSmirnovDistance;
+
+/**
+ * Unit tests for {@link StratifiedSampling}.
+ * 
+ * @author Václav Brodec
+ *
+ */
+public class StratifiedSamplingTest {
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.model.bag.StratifiedSampling#sample(com.google.common.collect.Multiset, int)}.
+	 */
+	@Test
+	public final void testSampleKeepsSmallBags() {
+		final Multiset<NumberLikeValue> values = ImmutableMultiset.of(NumericValue.of(1), NumericValue.of(2),
+				NumericValue.of(2));
+
+		assertEquals(values, StratifiedSampling.sample(values, 3));
+		assertEquals(0, StratifiedSampling.getError(values.size(), 3), 0);
+	}
+
+	/**
+	 * Test method for
+	 * {@link eu.odalic.extrarelatable.model.bag.StratifiedSampling#getError(int, int)}.
+	 */
+	@Test
+	public final void testSampledDistanceWithinSamplingError() {
+		final KolmogorovSmirnovDistance distance = new KolmogorovSmirnovDistance();
+		final Random random = new Random(5);
+
+		for (int i = 0; i < 200; i++) {
+			final Multiset<NumberLikeValue> first = randomBag(random, 2 + random.nextInt(2000));
+			final Multiset<NumberLikeValue> second = randomBag(random, 2 + random.nextInt(2000));
+			final int count = 2 + random.nextInt(100);
+
+			final Multiset<NumberLikeValue> firstSample = StratifiedSampling.sample(first, count);
+			final Multiset<NumberLikeValue> secondSample = StratifiedSampling.sample(second, count);
+			assertEquals(Math.min(first.size(), count), firstSample.size());
+
+			final double error = StratifiedSampling.getError(first.size(), count)
+					+ StratifiedSampling.getError(second.size(), count);
+			assertEquals(distance.compute(SortedSample.of(first), SortedSample.of(second)),
+					distance.compute(SortedSample.of(firstSample), SortedSample.of(secondSample)), error);
+		}
+	}
+
+	private static Multiset<NumberLikeValue> randomBag(final Random random, final int size) {
+		final ImmutableMultiset.Builder<NumberLikeValue> builder = ImmutableMultiset.builder();
+		final double scale = 1 + random.nextInt(1000);
+		for (int i = 0; i < size; i++) {
+			builder.add(NumericValue.of(random.nextInt(20) * scale + random.nextGaussian()));
+		}
+
+		return builder.build();
+	}
+}